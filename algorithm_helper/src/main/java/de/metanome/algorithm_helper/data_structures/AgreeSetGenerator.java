@@ -0,0 +1,296 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the agree sets of the tuple pairs of a relation from its column plis, e.g. as built by
+ * the {@link PLIBuilder} (see Dep-Miner). Two tuples agree on a column if they are in the same
+ * cluster of the column's pli. Only tuple pairs in a common maximal equivalence class, i.e. a
+ * cluster that is not contained in a cluster of another column, agree on any column, so only these
+ * pairs are compared. The agree sets are deduplicated in a set that can be added to a {@link
+ * SubSetGraph} or {@link SuperSetGraph}. The complements of the agree sets are the difference
+ * sets, whose minimal hitting sets (see {@link MinimalHittingSetEnumerator}) yield the left hand
+ * sides of functional dependencies. The maximal equivalence classes are computed with a single
+ * shared {@link ProbingTable}, the probing tables of all columns only exist while the agree sets
+ * are calculated.
+ */
+public class AgreeSetGenerator {
+
+  /**
+   * Maximum number of maximal equivalence classes compared in one task in parallel mode.
+   */
+  protected static final int CLASSES_PER_TASK = 256;
+
+  protected List<PositionListIndex> columnPLIs;
+  // Only set while the agree sets are calculated.
+  protected ProbingTable[] probingTables;
+  protected List<long[]> maximalClasses;
+  protected long maximumPairsPerClass;
+  protected long seed;
+
+  /**
+   * Creates a generator that compares all tuple pairs of the maximal equivalence classes.
+   *
+   * @param columnPLIs the plis of all columns of the relation
+   */
+  public AgreeSetGenerator(List<PositionListIndex> columnPLIs) {
+    this(columnPLIs, Long.MAX_VALUE, 0);
+  }
+
+  /**
+   * Creates a generator that compares at most the given number of randomly sampled tuple pairs
+   * per maximal equivalence class. Sampled agree sets are a subset of the exact agree sets.
+   *
+   * @param columnPLIs           the plis of all columns of the relation
+   * @param maximumPairsPerClass the maximum number of tuple pairs compared per class
+   * @param seed                 the seed of the sampling
+   */
+  public AgreeSetGenerator(List<PositionListIndex> columnPLIs, long maximumPairsPerClass,
+                           long seed) {
+    this.columnPLIs = columnPLIs;
+    this.maximumPairsPerClass = maximumPairsPerClass;
+    this.seed = seed;
+  }
+
+  /**
+   * @return the agree sets of all compared tuple pairs
+   */
+  public Set<ColumnCombinationBitset> getAgreeSets() {
+    int numberOfClasses = getMaximalClasses().size();
+    buildProbingTables();
+    try {
+      return calculateAgreeSets(0, numberOfClasses);
+    } finally {
+      probingTables = null;
+    }
+  }
+
+  /**
+   * Computes the agree sets in parallel, the maximal equivalence classes are distributed over the
+   * pool.
+   *
+   * @param pool the pool to compare the tuple pairs on
+   * @return the agree sets of all compared tuple pairs
+   */
+  public Set<ColumnCombinationBitset> getAgreeSets(ForkJoinPool pool) {
+    int numberOfClasses = getMaximalClasses().size();
+    buildProbingTables();
+    try {
+      return pool.invoke(new AgreeSetTask(0, numberOfClasses));
+    } finally {
+      probingTables = null;
+    }
+  }
+
+  /**
+   * Builds the probing tables of all columns, which are needed to compare the tuple pairs.
+   */
+  protected void buildProbingTables() {
+    probingTables = new ProbingTable[columnPLIs.size()];
+    for (int column = 0; column < probingTables.length; column++) {
+      probingTables[column] = new ProbingTable(columnPLIs.get(column));
+    }
+  }
+
+  /**
+   * Returns the difference sets, the complements of the agree sets.
+   *
+   * @param agreeSets the agree sets
+   * @return the difference sets
+   */
+  public Set<ColumnCombinationBitset> getDifferenceSets(
+      Collection<ColumnCombinationBitset> agreeSets) {
+    Set<ColumnCombinationBitset> differenceSets = new HashSet<>();
+    for (ColumnCombinationBitset agreeSet : agreeSets) {
+      differenceSets.add(agreeSet.invert(columnPLIs.size()));
+    }
+    return differenceSets;
+  }
+
+  /**
+   * Returns the maximal equivalence classes: the clusters of all columns that are not contained
+   * in a larger cluster of another column. Of equal clusters only the one of the first column is
+   * kept. A single probing table is built for one column after the other, and the clusters of all
+   * other columns are checked against it.
+   *
+   * @return the rows of every maximal equivalence class
+   */
+  public List<long[]> getMaximalClasses() {
+    if (maximalClasses != null) {
+      return maximalClasses;
+    }
+
+    List<boolean[]> contained = new ArrayList<>();
+    for (PositionListIndex pli : columnPLIs) {
+      contained.add(new boolean[(int) pli.size()]);
+    }
+    ProbingTable probingTable = new ProbingTable();
+    for (int otherColumn = 0; otherColumn < columnPLIs.size(); otherColumn++) {
+      probingTable.build(columnPLIs.get(otherColumn));
+      for (int column = 0; column < columnPLIs.size(); column++) {
+        if (column == otherColumn) {
+          continue;
+        }
+        boolean[] columnContained = contained.get(column);
+        for (int clusterIndex = 0; clusterIndex < columnContained.length; clusterIndex++) {
+          if (!columnContained[clusterIndex]
+              && isContained(column, clusterIndex, otherColumn, probingTable)) {
+            columnContained[clusterIndex] = true;
+          }
+        }
+      }
+    }
+
+    maximalClasses = new ArrayList<>();
+    for (int column = 0; column < columnPLIs.size(); column++) {
+      PositionListIndex pli = columnPLIs.get(column);
+      boolean[] columnContained = contained.get(column);
+      for (int clusterIndex = 0; clusterIndex < columnContained.length; clusterIndex++) {
+        if (!columnContained[clusterIndex]) {
+          long[] rows = new long[pli.getClusterSize(clusterIndex)];
+          for (int i = 0; i < rows.length; i++) {
+            rows[i] = pli.getRow(clusterIndex, i);
+          }
+          maximalClasses.add(rows);
+        }
+      }
+    }
+    return maximalClasses;
+  }
+
+  /**
+   * @param column            the column of the cluster
+   * @param clusterIndex      the index of the cluster in the column's pli
+   * @param otherColumn       another column
+   * @param otherProbingTable the probing table of the other column
+   * @return whether the other column has a larger or an equal earlier cluster containing the
+   * cluster
+   */
+  protected boolean isContained(int column, int clusterIndex, int otherColumn,
+                                ProbingTable otherProbingTable) {
+    PositionListIndex pli = columnPLIs.get(column);
+    int clusterSize = pli.getClusterSize(clusterIndex);
+    int otherClusterIndex = otherProbingTable.getClusterIndex(pli.getRow(clusterIndex, 0));
+    if (otherClusterIndex < 0) {
+      return false;
+    }
+    int otherClusterSize = columnPLIs.get(otherColumn).getClusterSize(otherClusterIndex);
+    if ((otherClusterSize < clusterSize)
+        || ((otherClusterSize == clusterSize) && (otherColumn > column))) {
+      return false;
+    }
+    for (int i = 1; i < clusterSize; i++) {
+      if (otherProbingTable.getClusterIndex(pli.getRow(clusterIndex, i)) != otherClusterIndex) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compares the tuple pairs of a range of maximal equivalence classes.
+   *
+   * @param fromClass the first class (inclusive)
+   * @param toClass   the last class (exclusive)
+   * @return the agree sets of the compared tuple pairs
+   */
+  protected Set<ColumnCombinationBitset> calculateAgreeSets(int fromClass, int toClass) {
+    Set<ColumnCombinationBitset> agreeSets = new HashSet<>();
+    for (int classIndex = fromClass; classIndex < toClass; classIndex++) {
+      long[] rows = maximalClasses.get(classIndex);
+      long numberOfPairs = (long) rows.length * (rows.length - 1) / 2;
+
+      if (numberOfPairs <= maximumPairsPerClass) {
+        for (int i = 0; i < rows.length; i++) {
+          for (int j = i + 1; j < rows.length; j++) {
+            agreeSets.add(calculateAgreeSet(rows[i], rows[j]));
+          }
+        }
+      } else {
+        // The random of every class only depends on the seed, so that parallel runs sample the
+        // same pairs.
+        Random random = new Random(seed + classIndex);
+        for (long pair = 0; pair < maximumPairsPerClass; pair++) {
+          int i = random.nextInt(rows.length);
+          int j = random.nextInt(rows.length - 1);
+          if (j >= i) {
+            j++;
+          }
+          agreeSets.add(calculateAgreeSet(rows[i], rows[j]));
+        }
+      }
+    }
+    return agreeSets;
+  }
+
+  /**
+   * @param row1 the first tuple
+   * @param row2 the second tuple
+   * @return the columns both tuples agree on
+   */
+  protected ColumnCombinationBitset calculateAgreeSet(long row1, long row2) {
+    ColumnCombinationBitset agreeSet = ColumnCombinationBitset.create(probingTables.length);
+    for (int column = 0; column < probingTables.length; column++) {
+      int clusterIndex = probingTables[column].getClusterIndex(row1);
+      if ((clusterIndex >= 0) && (clusterIndex == probingTables[column].getClusterIndex(row2))) {
+        agreeSet.addColumn(column);
+      }
+    }
+    return agreeSet;
+  }
+
+  /**
+   * Computes the agree sets of a range of maximal equivalence classes, the range is split until
+   * it has at most {@link #CLASSES_PER_TASK} classes.
+   */
+  protected class AgreeSetTask extends RecursiveTask<Set<ColumnCombinationBitset>> {
+
+    private static final long serialVersionUID = -6023867285391208432L;
+
+    protected int fromClass;
+    protected int toClass;
+
+    protected AgreeSetTask(int fromClass, int toClass) {
+      this.fromClass = fromClass;
+      this.toClass = toClass;
+    }
+
+    @Override
+    protected Set<ColumnCombinationBitset> compute() {
+      if (toClass - fromClass <= CLASSES_PER_TASK) {
+        return calculateAgreeSets(fromClass, toClass);
+      }
+
+      int middleClass = fromClass + (toClass - fromClass) / 2;
+      AgreeSetTask secondHalf = new AgreeSetTask(middleClass, toClass);
+      secondHalf.fork();
+      Set<ColumnCombinationBitset> agreeSets =
+          new AgreeSetTask(fromClass, middleClass).compute();
+      agreeSets.addAll(secondHalf.join());
+      return agreeSets;
+    }
+  }
+}
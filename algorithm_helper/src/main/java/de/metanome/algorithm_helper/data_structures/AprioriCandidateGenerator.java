@@ -0,0 +1,224 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Generates the candidates of the next lattice level from the column combinations of the current
+ * level as in apriori-gen: The sorted column combinations of size k are grouped into blocks with
+ * the same first k - 1 columns. Every pair of column combinations in a block is joined to a
+ * candidate of size k + 1, which is kept if all its subsets of size k are in the current level.
+ * The candidates have the representation of the current level's column combinations, so levels
+ * created with {@link ColumnCombinationBitset#create(int, int...)} stay primitive backed.
+ */
+public class AprioriCandidateGenerator {
+
+  /**
+   * Maximum number of prefix blocks joined in one task in parallel mode.
+   */
+  protected static final int BLOCKS_PER_TASK = 64;
+
+  protected static final Comparator<ColumnCombinationBitset> LEXICOGRAPHIC_ORDER =
+      new Comparator<ColumnCombinationBitset>() {
+        @Override
+        public int compare(ColumnCombinationBitset o1, ColumnCombinationBitset o2) {
+          int[] columns1 = o1.getSetBitsArray();
+          int[] columns2 = o2.getSetBitsArray();
+          for (int i = 0; i < Math.min(columns1.length, columns2.length); i++) {
+            if (columns1[i] != columns2[i]) {
+              return columns1[i] < columns2[i] ? -1 : 1;
+            }
+          }
+          return columns1.length - columns2.length;
+        }
+      };
+
+  /**
+   * Generates the candidates of the next level.
+   *
+   * @param currentLevel the column combinations of size k (at least 1)
+   * @return the candidates of size k + 1 in lexicographic order
+   */
+  public List<ColumnCombinationBitset> generateNextLevel(
+      Collection<ColumnCombinationBitset> currentLevel) {
+    Level level = new Level(currentLevel);
+    return level.join(0, level.getNumberOfBlocks());
+  }
+
+  /**
+   * Generates the candidates of the next level. The prefix blocks are joined in parallel on the
+   * given pool.
+   *
+   * @param currentLevel the column combinations of size k (at least 1)
+   * @param pool         the pool to join the blocks on
+   * @return the candidates of size k + 1 in lexicographic order
+   */
+  public List<ColumnCombinationBitset> generateNextLevel(
+      Collection<ColumnCombinationBitset> currentLevel, ForkJoinPool pool) {
+    Level level = new Level(currentLevel);
+    return pool.invoke(new JoinTask(level, 0, level.getNumberOfBlocks()));
+  }
+
+  /**
+   * A sorted lattice level with its prefix blocks and a hash index for the subset checks.
+   */
+  protected static class Level {
+
+    protected ColumnCombinationBitset[] columnCombinations;
+    protected Set<ColumnCombinationBitset> index;
+    // Start of every prefix block plus the end of the last block.
+    protected IntArrayList blockStarts = new IntArrayList();
+
+    protected Level(Collection<ColumnCombinationBitset> currentLevel) {
+      index = new HashSet<>(currentLevel);
+      columnCombinations = index.toArray(new ColumnCombinationBitset[index.size()]);
+      Arrays.sort(columnCombinations, LEXICOGRAPHIC_ORDER);
+
+      int size = columnCombinations.length == 0 ? 0 : columnCombinations[0].size();
+      if (size < 1) {
+        if (columnCombinations.length > 0) {
+          throw new IllegalArgumentException("The empty column combination has no prefix.");
+        }
+        blockStarts.add(0);
+        return;
+      }
+      for (int i = 0; i < columnCombinations.length; i++) {
+        // Caches the set bits before the level is shared with other threads.
+        columnCombinations[i].getSetBitsArray();
+        if (columnCombinations[i].size() != size) {
+          throw new IllegalArgumentException(
+              "All column combinations of a level need to have the same size.");
+        }
+        if ((i == 0) || !hasSamePrefix(columnCombinations[i - 1], columnCombinations[i])) {
+          blockStarts.add(i);
+        }
+      }
+      blockStarts.add(columnCombinations.length);
+    }
+
+    protected int getNumberOfBlocks() {
+      return blockStarts.size() - 1;
+    }
+
+    /**
+     * @return whether the column combinations of equal size share all columns but the last
+     */
+    protected boolean hasSamePrefix(ColumnCombinationBitset columnCombination1,
+                                    ColumnCombinationBitset columnCombination2) {
+      int[] columns1 = columnCombination1.getSetBitsArray();
+      int[] columns2 = columnCombination2.getSetBitsArray();
+      for (int i = 0; i < columns1.length - 1; i++) {
+        if (columns1[i] != columns2[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Joins the column combinations within the given prefix blocks.
+     *
+     * @param fromBlock the first block (inclusive)
+     * @param toBlock   the last block (exclusive)
+     * @return the candidates in lexicographic order
+     */
+    protected List<ColumnCombinationBitset> join(int fromBlock, int toBlock) {
+      List<ColumnCombinationBitset> candidates = new ArrayList<>();
+      for (int block = fromBlock; block < toBlock; block++) {
+        int blockEnd = blockStarts.getInt(block + 1);
+        for (int i = blockStarts.getInt(block); i < blockEnd; i++) {
+          int[] columns = columnCombinations[i].getSetBitsArray();
+          for (int j = i + 1; j < blockEnd; j++) {
+            int[] otherColumns = columnCombinations[j].getSetBitsArray();
+            ColumnCombinationBitset candidate = columnCombinations[i].createCopy()
+                .addColumn(otherColumns[otherColumns.length - 1]);
+            if (allSubsetsInLevel(candidate, columns)) {
+              candidates.add(candidate);
+            }
+          }
+        }
+      }
+      return candidates;
+    }
+
+    /**
+     * Checks the subsets of the candidate that lack one of the prefix columns. The subsets lacking
+     * one of the last two columns are the joined column combinations.
+     *
+     * @param candidate the candidate to check
+     * @param columns   the columns of the first joined column combination
+     * @return whether all subsets of the candidate are in the level
+     */
+    protected boolean allSubsetsInLevel(ColumnCombinationBitset candidate, int[] columns) {
+      ColumnCombinationBitset subset = candidate.createCopy();
+      for (int i = 0; i < columns.length - 1; i++) {
+        subset.removeColumn(columns[i]);
+        boolean subsetInLevel = index.contains(subset);
+        subset.addColumn(columns[i]);
+        if (!subsetInLevel) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Joins a range of prefix blocks, the range is split until it has at most {@link
+   * #BLOCKS_PER_TASK} blocks.
+   */
+  protected static class JoinTask extends RecursiveTask<List<ColumnCombinationBitset>> {
+
+    private static final long serialVersionUID = -2385102755271361497L;
+
+    protected Level level;
+    protected int fromBlock;
+    protected int toBlock;
+
+    protected JoinTask(Level level, int fromBlock, int toBlock) {
+      this.level = level;
+      this.fromBlock = fromBlock;
+      this.toBlock = toBlock;
+    }
+
+    @Override
+    protected List<ColumnCombinationBitset> compute() {
+      if (toBlock - fromBlock <= BLOCKS_PER_TASK) {
+        return level.join(fromBlock, toBlock);
+      }
+
+      int middleBlock = fromBlock + (toBlock - fromBlock) / 2;
+      JoinTask secondHalf = new JoinTask(level, middleBlock, toBlock);
+      secondHalf.fork();
+      List<ColumnCombinationBitset> candidates =
+          new JoinTask(level, fromBlock, middleBlock).compute();
+      candidates.addAll(secondHalf.join());
+      return candidates;
+    }
+  }
+}
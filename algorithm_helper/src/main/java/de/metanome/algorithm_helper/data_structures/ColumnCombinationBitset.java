@@ -27,12 +27,16 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
 
 /**
  * A representation for column combinations (attribute sets) using {@link
- * org.apache.lucene.util.OpenBitSet}s.
+ * org.apache.lucene.util.OpenBitSet}s. Relations with few columns should use {@link
+ * #create(int, int...)}, which chooses the {@link FixedWidthColumnCombinationBitset} if possible.
+ * Both representations can be mixed, equal column combinations are equal and have equal hash codes
+ * independent of their representation.
  *
  * @author Jakob Zwiener
  * @author Jens Ehrlich
@@ -43,6 +47,8 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
 
   protected OpenBitSet bitset;
   protected long size = 0;
+  // Lazily computed set column indices, reset on every modification.
+  protected int[] setBitsArray;
 
   public ColumnCombinationBitset(int... columnIndeces) {
     bitset = new OpenBitSet();
@@ -63,7 +69,60 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @param columnCombination that is cloned to the new instance
    */
   public ColumnCombinationBitset(ColumnCombinationBitset columnCombination) {
-    setColumns(columnCombination.bitset.clone());
+    setColumns(columnCombination.getBitset().clone());
+  }
+
+  /**
+   * Creates a column combination backed by the given {@link OpenBitSet}, which may be null for
+   * subclasses with another representation.
+   *
+   * @param bitset the backing bit set
+   */
+  protected ColumnCombinationBitset(OpenBitSet bitset) {
+    this.bitset = bitset;
+    if (bitset != null) {
+      size = bitset.cardinality();
+    }
+  }
+
+  /**
+   * Creates a column combination for a relation with the given number of columns. The
+   * {@link FixedWidthColumnCombinationBitset} is chosen if the relation has at most {@link
+   * FixedWidthColumnCombinationBitset#MAXIMUM_NUMBER_OF_COLUMNS} columns.
+   *
+   * @param numberOfColumns the number of columns in the relation
+   * @param columnIndices   the columns to add
+   * @return the column combination
+   */
+  public static ColumnCombinationBitset create(int numberOfColumns, int... columnIndices) {
+    if (numberOfColumns <= FixedWidthColumnCombinationBitset.MAXIMUM_NUMBER_OF_COLUMNS) {
+      return new FixedWidthColumnCombinationBitset(columnIndices);
+    }
+    return new ColumnCombinationBitset(columnIndices);
+  }
+
+  /**
+   * Returns the columns as {@link OpenBitSet}. Subclasses with another representation return a
+   * new bit set, that must not be modified.
+   *
+   * @return the bit set of the columns
+   */
+  protected OpenBitSet getBitset() {
+    return bitset;
+  }
+
+  /**
+   * @return a new empty column combination of the same representation
+   */
+  protected ColumnCombinationBitset createEmpty() {
+    return new ColumnCombinationBitset();
+  }
+
+  /**
+   * @return a copy of the column combination of the same representation
+   */
+  protected ColumnCombinationBitset createCopy() {
+    return new ColumnCombinationBitset(this);
   }
 
   /**
@@ -75,6 +134,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
   protected ColumnCombinationBitset setColumns(OpenBitSet bitset) {
     this.bitset = bitset;
     size = bitset.cardinality();
+    setBitsArray = null;
 
     return this;
   }
@@ -88,6 +148,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
   public ColumnCombinationBitset addColumn(int columnIndex) {
     if (!bitset.get(columnIndex)) {
       size++;
+      setBitsArray = null;
     }
 
     bitset.set(columnIndex);
@@ -104,6 +165,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
   public ColumnCombinationBitset removeColumn(int columnIndex) {
     if (bitset.get(columnIndex)) {
       size--;
+      setBitsArray = null;
     }
 
     bitset.clear(columnIndex);
@@ -115,7 +177,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
   public int hashCode() {
     final int prime = 31;
     int result = 1;
-    result = prime * result + ((bitset == null) ? 0 : bitset.hashCode());
+    result = prime * result + ((getBitset() == null) ? 0 : getBitset().hashCode());
     result = prime * result + (int) (size ^ (size >>> 32));
     return result;
   }
@@ -128,18 +190,19 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
     if (obj == null) {
       return false;
     }
-    if (getClass() != obj.getClass()) {
+    // Column combinations with different representations are equal if they have equal columns.
+    if (!(obj instanceof ColumnCombinationBitset)) {
       return false;
     }
     ColumnCombinationBitset other = (ColumnCombinationBitset) obj;
-    if (bitset == null) {
-      if (other.bitset != null) {
-        return false;
-      }
-    } else if (!bitset.equals(other.bitset)) {
+    if (size != other.size) {
       return false;
     }
-    return size == other.size;
+    OpenBitSet otherBitset = other.getBitset();
+    if (getBitset() == null) {
+      return otherBitset == null;
+    }
+    return getBitset().equals(otherBitset);
   }
 
   @Override
@@ -148,10 +211,11 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
 
     stringBuilder.append("ColumnCombinationBitset ");
 
-    int lastSetBitIndex = bitset.prevSetBit(bitset.length());
+    OpenBitSet bits = getBitset();
+    int lastSetBitIndex = bits.prevSetBit(bits.length());
 
     for (int i = 0; i <= lastSetBitIndex; i++) {
-      stringBuilder.append(bitset.get(i) ? 1 : 0);
+      stringBuilder.append(bits.get(i) ? 1 : 0);
     }
 
     return stringBuilder.toString();
@@ -187,9 +251,9 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return potentialSubset is a sub set
    */
   public boolean containsSubset(ColumnCombinationBitset potentialSubset) {
-    OpenBitSet ored = potentialSubset.bitset.clone();
-    ored.or(bitset);
-    return bitset.equals(ored);
+    OpenBitSet ored = potentialSubset.getBitset().clone();
+    ored.or(getBitset());
+    return getBitset().equals(ored);
   }
 
   /**
@@ -238,7 +302,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return all subsets of the column combinations with n columns
    */
   public List<ColumnCombinationBitset> getNSubsetColumnCombinations(int n) {
-    return getNSubsetColumnCombinationsSupersetOf(new ColumnCombinationBitset(), n);
+    return getNSubsetColumnCombinationsSupersetOf(createEmpty(), n);
   }
 
   /**
@@ -262,6 +326,74 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
 
   }
 
+  /**
+   * Lazily generates all subsets of the column combination (including the empty and the original
+   * column combination) level by level, starting with the original column combination.
+   *
+   * @return an iterator over the subsets
+   */
+  public Iterator<ColumnCombinationBitset> getAllSubsetsIterator() {
+    final ColumnCombinationBitset emptySubset = createEmpty();
+    final int[] columns = getSetBitsArray();
+
+    return new Iterator<ColumnCombinationBitset>() {
+      protected int level = columns.length;
+      protected CombinationIterator levelIterator =
+          new CombinationIterator(emptySubset, columns, level);
+
+      @Override
+      public boolean hasNext() {
+        while (!levelIterator.hasNext() && (level > 0)) {
+          level--;
+          levelIterator = new CombinationIterator(emptySubset, columns, level);
+        }
+        return levelIterator.hasNext();
+      }
+
+      @Override
+      public ColumnCombinationBitset next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return levelIterator.next();
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /**
+   * Lazily generates all subset column combinations of size n. The returned iterator can be split
+   * to generate the subsets in parallel.
+   *
+   * @param n cardinality of subsets
+   * @return an iterator over the subsets with n columns
+   */
+  public CombinationIterator getNSubsetColumnCombinationsIterator(int n) {
+    return getNSubsetColumnCombinationsSupersetOfIterator(createEmpty(), n);
+  }
+
+  /**
+   * Lazily generates all subset column combinations of size n that are superset of the subset
+   * (first parameter). The returned iterator can be split to generate the subsets in parallel.
+   *
+   * @param subSet that column combinations are superset of
+   * @param n      cardinality of subsets
+   * @return an iterator over the n-subsets
+   */
+  public CombinationIterator getNSubsetColumnCombinationsSupersetOfIterator(
+      ColumnCombinationBitset subSet, int n) {
+    int[] freeColumns = this.minus(subSet).getSetBitsArray();
+    if (n > this.size()) {
+      // No combinations.
+      return new CombinationIterator(subSet.createCopy(), freeColumns, -1);
+    }
+    return new CombinationIterator(subSet.createCopy(), freeColumns, n - subSet.size());
+  }
+
   /**
    * @param subSet that column combinations are superset of
    * @param n      cardinality of subsets
@@ -331,9 +463,10 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
   public List<Integer> getSetBits() {
     List<Integer> setBits = new ArrayList<>(size());
 
+    OpenBitSet bits = getBitset();
     int setBitIndex = 0;
     while (true) {
-      setBitIndex = bitset.nextSetBit(setBitIndex);
+      setBitIndex = bits.nextSetBit(setBitIndex);
 
       if (setBitIndex == -1) {
         break;
@@ -347,6 +480,36 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
     return setBits;
   }
 
+  /**
+   * Returns the set column indices in ascending order. The array is cached until the column
+   * combination is modified and must not be modified by the caller.
+   *
+   * @return the indices with set bits
+   */
+  public int[] getSetBitsArray() {
+    if (setBitsArray == null) {
+      int[] setBits = new int[size()];
+      int i = 0;
+      for (int columnIndex = nextSetBit(0); columnIndex >= 0;
+           columnIndex = nextSetBit(columnIndex + 1)) {
+        setBits[i++] = columnIndex;
+      }
+      setBitsArray = setBits;
+    }
+    return setBitsArray;
+  }
+
+  /**
+   * Returns the index of the first set bit starting at the given index or -1 if there is none. Set
+   * bits can be iterated without allocations by calling the method with the last index + 1.
+   *
+   * @param fromIndex the index to start the search at
+   * @return the index of the next set bit
+   */
+  public int nextSetBit(int fromIndex) {
+    return getBitset().nextSetBit(fromIndex);
+  }
+
   /**
    * Returns all the cleared bits within the maximum of all the number of columns.
    *
@@ -357,7 +520,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
     List<Integer> clearedBits = new LinkedList<>();
 
     for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
-      if (!bitset.get(columnIndex)) {
+      if (!containsColumn(columnIndex)) {
         clearedBits.add(columnIndex);
       }
     }
@@ -375,8 +538,8 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
   public ColumnCombinationBitset minus(
       ColumnCombinationBitset otherColumnCombination) {
 
-    OpenBitSet temporaryBitset = bitset.clone();
-    temporaryBitset.andNot(otherColumnCombination.bitset);
+    OpenBitSet temporaryBitset = getBitset().clone();
+    temporaryBitset.andNot(otherColumnCombination.getBitset());
 
     return new ColumnCombinationBitset().setColumns(temporaryBitset);
   }
@@ -390,7 +553,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
     List<ColumnCombinationBitset> oneColumnCombinations = new LinkedList<>();
 
     for (int columnIndex : getSetBits()) {
-      oneColumnCombinations.add(new ColumnCombinationBitset(columnIndex));
+      oneColumnCombinations.add(createEmpty().addColumn(columnIndex));
     }
 
     return oneColumnCombinations;
@@ -405,8 +568,8 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return the union of the two column combinations
    */
   public ColumnCombinationBitset union(ColumnCombinationBitset other) {
-    OpenBitSet unionBitSet = bitset.clone();
-    unionBitSet.or(other.bitset);
+    OpenBitSet unionBitSet = getBitset().clone();
+    unionBitSet.or(other.getBitset());
     return new ColumnCombinationBitset().setColumns(unionBitSet);
   }
 
@@ -419,8 +582,8 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return the intersection of the two column combinations
    */
   public ColumnCombinationBitset intersect(ColumnCombinationBitset other) {
-    OpenBitSet intersectionBitSet = bitset.clone();
-    intersectionBitSet.and(other.bitset);
+    OpenBitSet intersectionBitSet = getBitset().clone();
+    intersectionBitSet.and(other.getBitset());
     return new ColumnCombinationBitset().setColumns(intersectionBitSet);
   }
 
@@ -431,7 +594,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return the direct super sets
    */
   public List<ColumnCombinationBitset> getDirectSupersets(int numberOfColumns) {
-    return getDirectSupersets(new ColumnCombinationBitset().setAllBits(numberOfColumns));
+    return getDirectSupersets(createEmpty().setAllBits(numberOfColumns));
   }
 
   /**
@@ -445,8 +608,8 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
 
     ColumnCombinationBitset superset;
     for (int columnIndex : maximalSuperset.getSetBits()) {
-      if (!bitset.get(columnIndex)) {
-        superset = new ColumnCombinationBitset(this);
+      if (!containsColumn(columnIndex)) {
+        superset = createCopy();
         superset.addColumn(columnIndex);
         supersets.add(superset);
       }
@@ -499,7 +662,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
 
     ColumnCombinationBitset generatedSubset;
     for (int columnIndex : columnsToRemove.getSetBits()) {
-      generatedSubset = new ColumnCombinationBitset(this);
+      generatedSubset = createCopy();
       generatedSubset.removeColumn(columnIndex);
       subsets.add(generatedSubset);
     }
@@ -553,6 +716,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
   public ColumnCombinationBitset setAllBits(int dimension) {
     size = 0;
     bitset = new OpenBitSet();
+    setBitsArray = null;
     for (int i = 0; i < dimension; i++) {
       addColumn(i);
     }
@@ -565,7 +729,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return true iff the bit at columnIndex is set
    */
   public boolean containsColumn(int columnIndex) {
-    return bitset.get(columnIndex);
+    return getBitset().get(columnIndex);
   }
 
   /**
@@ -574,7 +738,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    */
   public boolean containsColumn(int... columnIndices) {
     for (int columnIndex : columnIndices) {
-      if (!bitset.get(columnIndex)) {
+      if (!containsColumn(columnIndex)) {
         return false;
       }
     }
@@ -588,14 +752,14 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return the inverted {@link de.metanome.algorithm_helper.data_structures.ColumnCombinationBitset}
    */
   public ColumnCombinationBitset invert(int size) {
-    OpenBitSet invertedBitset = this.bitset.clone();
+    OpenBitSet invertedBitset = getBitset().clone();
     invertedBitset.flip(0, size);
     return new ColumnCombinationBitset().setColumns(invertedBitset);
   }
 
   @Override
   public int compareTo(ColumnCombinationBitset other) {
-    long sizeComparator = this.bitset.cardinality() - other.bitset.cardinality();
+    long sizeComparator = this.size() - other.size();
     if (sizeComparator != 0) {
       return (int) sizeComparator;
     } else {
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily generates all column combinations that consist of a fixed base column combination and k
+ * of the given free columns, in lexicographic order of the chosen columns. Every combination is
+ * identified by its rank, so that the remaining combinations can be split into independent
+ * iterators, e.g. to process a lattice level with fork join tasks.
+ */
+public class CombinationIterator implements Iterator<ColumnCombinationBitset> {
+
+  protected ColumnCombinationBitset base;
+  protected int[] columns;
+  protected int k;
+  // Positions in the free columns of the next combination.
+  protected int[] positions;
+  protected long rank;
+  protected long endRank;
+
+  /**
+   * @param base    the columns contained in every combination
+   * @param columns the free columns in ascending order
+   * @param k       the number of free columns in every combination
+   */
+  public CombinationIterator(ColumnCombinationBitset base, int[] columns, int k) {
+    this(base, columns, k, 0, binomial(columns.length, k));
+  }
+
+  /**
+   * Creates an iterator over the combinations with ranks between rank (inclusive) and endRank
+   * (exclusive).
+   */
+  protected CombinationIterator(ColumnCombinationBitset base, int[] columns, int k, long rank,
+                                long endRank) {
+    this.base = base;
+    this.columns = columns;
+    this.k = k;
+    this.rank = rank;
+    this.endRank = endRank;
+    this.positions = new int[Math.max(k, 0)];
+    if (rank < endRank) {
+      unrank(rank);
+    }
+  }
+
+  /**
+   * Computes the binomial coefficient n over k.
+   *
+   * @param n the number of elements
+   * @param k the number of chosen elements
+   * @return the number of combinations
+   * @throws IllegalArgumentException if the number of combinations exceeds {@link Long#MAX_VALUE}
+   */
+  public static long binomial(int n, int k) {
+    if ((k < 0) || (k > n)) {
+      return 0;
+    }
+    k = Math.min(k, n - k);
+    long binomial = 1;
+    for (int i = 0; i < k; i++) {
+      if (binomial > Long.MAX_VALUE / (n - i)) {
+        throw new IllegalArgumentException("Too many combinations of " + k + " of " + n + ".");
+      }
+      // The product is n over i + 1 times i + 1 and thus divisible.
+      binomial = binomial * (n - i) / (i + 1);
+    }
+    return binomial;
+  }
+
+  /**
+   * Sets the positions to the combination with the given rank.
+   *
+   * @param rank the rank of the combination
+   */
+  protected void unrank(long rank) {
+    int position = 0;
+    for (int i = 0; i < k; i++) {
+      long combinationsWithPosition = binomial(columns.length - position - 1, k - i - 1);
+      while (combinationsWithPosition <= rank) {
+        rank -= combinationsWithPosition;
+        position++;
+        combinationsWithPosition = binomial(columns.length - position - 1, k - i - 1);
+      }
+      positions[i] = position++;
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return rank < endRank;
+  }
+
+  @Override
+  public ColumnCombinationBitset next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    ColumnCombinationBitset combination = base.createCopy();
+    for (int position : positions) {
+      combination.addColumn(columns[position]);
+    }
+
+    rank++;
+    if (rank < endRank) {
+      // Advance the rightmost position that can be advanced and reset the following ones.
+      int i = k - 1;
+      while (positions[i] == columns.length - k + i) {
+        i--;
+      }
+      positions[i]++;
+      for (int j = i + 1; j < k; j++) {
+        positions[j] = positions[j - 1] + 1;
+      }
+    }
+    return combination;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @return the number of remaining combinations
+   */
+  public long getRemaining() {
+    return endRank - rank;
+  }
+
+  /**
+   * Splits off the second half of the remaining combinations into a new iterator. This iterator
+   * only returns the first half afterwards.
+   *
+   * @return the iterator over the second half or null if less than two combinations remain
+   */
+  public CombinationIterator trySplit() {
+    if (getRemaining() < 2) {
+      return null;
+    }
+    long middleRank = rank + getRemaining() / 2;
+    CombinationIterator secondHalf =
+        new CombinationIterator(base, columns, k, middleRank, endRank);
+    endRank = middleRank;
+    return secondHalf;
+  }
+}
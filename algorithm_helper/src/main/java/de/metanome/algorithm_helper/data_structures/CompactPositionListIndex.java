@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link PositionListIndex} that stores the rows of all clusters in one flat int array. The
+ * clusters are delimited by an offset array, the cluster i consists of the rows from
+ * clusterOffsets[i] (inclusive) to clusterOffsets[i + 1] (exclusive). Compact position list indices
+ * can only hold row ids smaller than 2^31.
+ */
+public class CompactPositionListIndex extends PositionListIndex {
+
+  protected int[] rows;
+  protected int[] clusterOffsets;
+  // Lazily built by getClusters.
+  protected List<LongArrayList> clusterList;
+
+  /**
+   * @param rows           the rows of all clusters
+   * @param clusterOffsets the start offsets of all clusters followed by the total number of rows
+   */
+  public CompactPositionListIndex(int[] rows, int[] clusterOffsets) {
+    super(null);
+    this.rows = rows;
+    this.clusterOffsets = clusterOffsets;
+  }
+
+  /**
+   * Constructs an empty {@link CompactPositionListIndex}.
+   */
+  public CompactPositionListIndex() {
+    this(new int[0], new int[]{0});
+  }
+
+  /**
+   * Converts the given clusters to a {@link CompactPositionListIndex}.
+   *
+   * @param clusters the clusters with row ids smaller than 2^31
+   * @return the compact pli
+   */
+  public static CompactPositionListIndex fromClusters(List<LongArrayList> clusters) {
+    int numberOfRows = 0;
+    for (LongArrayList cluster : clusters) {
+      numberOfRows += cluster.size();
+    }
+
+    int[] rows = new int[numberOfRows];
+    int[] clusterOffsets = new int[clusters.size() + 1];
+    int offset = 0;
+    int clusterIndex = 0;
+    for (LongArrayList cluster : clusters) {
+      clusterOffsets[clusterIndex++] = offset;
+      for (int i = 0; i < cluster.size(); i++) {
+        long row = cluster.getLong(i);
+        if ((row < 0) || (row > Integer.MAX_VALUE)) {
+          throw new IllegalArgumentException(
+              "Row " + row + " cannot be stored in a compact position list index.");
+        }
+        rows[offset++] = (int) row;
+      }
+    }
+    clusterOffsets[clusterIndex] = offset;
+
+    return new CompactPositionListIndex(rows, clusterOffsets);
+  }
+
+  /**
+   * Returns an unmodifiable list of the clusters. The list is built on the first call and kept, so
+   * it can be accessed by index in loops. The clusters must not be modified.
+   *
+   * @return the clusters
+   */
+  @Override
+  public List<LongArrayList> getClusters() {
+    if (clusterList == null) {
+      int numberOfClusters = (int) size();
+      List<LongArrayList> clusters = new ArrayList<>(numberOfClusters);
+      for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+        LongArrayList cluster = new LongArrayList(getClusterSize(clusterIndex));
+        for (int i = clusterOffsets[clusterIndex]; i < clusterOffsets[clusterIndex + 1]; i++) {
+          cluster.add(rows[i]);
+        }
+        clusters.add(cluster);
+      }
+      clusterList = Collections.unmodifiableList(clusters);
+    }
+    return clusterList;
+  }
+
+  @Override
+  protected int getClusterSize(int clusterIndex) {
+    return clusterOffsets[clusterIndex + 1] - clusterOffsets[clusterIndex];
+  }
+
+  @Override
+  protected long getRow(int clusterIndex, int position) {
+    return rows[clusterOffsets[clusterIndex] + position];
+  }
+
+  @Override
+  public CompactPositionListIndex clone() {
+    CompactPositionListIndex clone =
+        new CompactPositionListIndex(rows.clone(), clusterOffsets.clone());
+    clone.rawKeyError = this.rawKeyError;
+    clone.canonicalForm = this.canonicalForm;
+    return clone;
+  }
+
+  @Override
+  public long size() {
+    return clusterOffsets.length - 1;
+  }
+
+  @Override
+  protected long calculateRawKeyError() {
+    return rows.length - size();
+  }
+}
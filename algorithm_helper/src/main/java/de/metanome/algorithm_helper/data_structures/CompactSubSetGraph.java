@@ -0,0 +1,331 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.booleans.BooleanArrays;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+import org.apache.lucene.util.OpenBitSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A {@link SubSetGraph} that stores the trie in flat primitive arrays instead of one hash map per
+ * node. The children of a node form a linked list sorted by column index, so that the children
+ * can be merged with the sorted columns of a query. Queries use an explicit int stack. The graph
+ * is a drop-in replacement for the {@link SubSetGraph}, that needs far less memory for large
+ * numbers of column combinations.
+ */
+public class CompactSubSetGraph extends SubSetGraph {
+
+  protected static final int ROOT = 0;
+  protected static final int NO_NODE = -1;
+  protected static final int INITIAL_CAPACITY = 16;
+
+  // Column index on the edge into the node.
+  protected int[] columns = new int[INITIAL_CAPACITY];
+  protected int[] parents = new int[INITIAL_CAPACITY];
+  protected int[] firstChildren = new int[INITIAL_CAPACITY];
+  protected int[] nextSiblings = new int[INITIAL_CAPACITY];
+  protected boolean[] ends = new boolean[INITIAL_CAPACITY];
+  protected int numberOfNodes = 0;
+
+  public CompactSubSetGraph() {
+    addNode(NO_NODE, NO_NODE);
+  }
+
+  @Override
+  public CompactSubSetGraph add(ColumnCombinationBitset columnCombination) {
+    int node = ROOT;
+
+    for (int setColumnIndex : columnCombination.getSetBitsArray()) {
+      node = lazyChildGeneration(node, setColumnIndex);
+    }
+    ends[node] = true;
+    return this;
+  }
+
+  /**
+   * Looks for the child of the node behind the column index or builds and adds a new one. The
+   * children are kept sorted by column index.
+   *
+   * @param node           the node to perform the lookup on
+   * @param setColumnIndex the column index to perform the lookup on
+   * @return the child behind the column index
+   */
+  protected int lazyChildGeneration(int node, int setColumnIndex) {
+    int previousChild = NO_NODE;
+    int child = firstChildren[node];
+    while ((child != NO_NODE) && (columns[child] < setColumnIndex)) {
+      previousChild = child;
+      child = nextSiblings[child];
+    }
+    if ((child != NO_NODE) && (columns[child] == setColumnIndex)) {
+      return child;
+    }
+
+    int newChild = addNode(node, setColumnIndex);
+    nextSiblings[newChild] = child;
+    if (previousChild == NO_NODE) {
+      firstChildren[node] = newChild;
+    } else {
+      nextSiblings[previousChild] = newChild;
+    }
+    return newChild;
+  }
+
+  /**
+   * Appends a new node without children to the arrays.
+   *
+   * @param parent      the parent node
+   * @param columnIndex the column index on the edge into the node
+   * @return the new node
+   */
+  protected int addNode(int parent, int columnIndex) {
+    if (numberOfNodes == columns.length) {
+      int capacity = numberOfNodes + 1;
+      columns = IntArrays.grow(columns, capacity);
+      parents = IntArrays.grow(parents, capacity);
+      firstChildren = IntArrays.grow(firstChildren, capacity);
+      nextSiblings = IntArrays.grow(nextSiblings, capacity);
+      ends = BooleanArrays.grow(ends, capacity);
+    }
+    int node = numberOfNodes++;
+    columns[node] = columnIndex;
+    parents[node] = parent;
+    firstChildren[node] = NO_NODE;
+    nextSiblings[node] = NO_NODE;
+    ends[node] = false;
+    return node;
+  }
+
+  @Override
+  public ArrayList<ColumnCombinationBitset> getExistingSubsets(
+      ColumnCombinationBitset columnCombinationToQuery) {
+    ArrayList<ColumnCombinationBitset> subsets = new ArrayList<>();
+    if (this.isEmpty()) {
+      return subsets;
+    }
+
+    int[] queryColumns = columnCombinationToQuery.getSetBitsArray();
+    // Pairs of node and position in the query columns at which the node's children are matched.
+    IntArrayList stack = new IntArrayList();
+    stack.push(ROOT);
+    stack.push(0);
+    while (!stack.isEmpty()) {
+      int position = stack.popInt();
+      int node = stack.popInt();
+      if (ends[node]) {
+        subsets.add(getPath(node, columnCombinationToQuery.createEmpty()));
+      }
+      pushMatchingChildren(stack, node, queryColumns, position);
+    }
+
+    return subsets;
+  }
+
+  @Override
+  public boolean containsSubset(ColumnCombinationBitset superset) {
+    if (this.isEmpty()) {
+      return false;
+    }
+
+    int[] queryColumns = superset.getSetBitsArray();
+    IntArrayList stack = new IntArrayList();
+    stack.push(ROOT);
+    stack.push(0);
+    while (!stack.isEmpty()) {
+      int position = stack.popInt();
+      int node = stack.popInt();
+      if (ends[node]) {
+        return true;
+      }
+      pushMatchingChildren(stack, node, queryColumns, position);
+    }
+
+    return false;
+  }
+
+  @Override
+  public OpenBitSet containsSubsets(List<ColumnCombinationBitset> candidates) {
+    ColumnCombinationBitset[] candidateArray =
+        candidates.toArray(new ColumnCombinationBitset[candidates.size()]);
+    OpenBitSet result = new OpenBitSet(candidateArray.length);
+    if (this.isEmpty()) {
+      return result;
+    }
+    if (ends[ROOT]) {
+      result.set(0, candidateArray.length);
+      return result;
+    }
+
+    CandidateBuckets buckets = new CandidateBuckets(candidateArray, result);
+    IntArrayList openNodes = new IntArrayList();
+    // The candidates of every open node are a range in a bucket array.
+    List<int[]> openCandidates = new ArrayList<>();
+    IntArrayList openRanges = new IntArrayList();
+    openNodes.push(ROOT);
+    int[] allCandidates = buckets.getAllCandidates();
+    openCandidates.add(allCandidates);
+    openRanges.push(0);
+    openRanges.push(allCandidates.length);
+
+    while (!openNodes.isEmpty()) {
+      int node = openNodes.popInt();
+      int[] nodeCandidates = openCandidates.remove(openCandidates.size() - 1);
+      int to = openRanges.popInt();
+      int from = openRanges.popInt();
+
+      int numberOfChildren = 0;
+      for (int child = firstChildren[node]; child != NO_NODE; child = nextSiblings[child]) {
+        buckets.setChild(numberOfChildren++, columns[child]);
+      }
+      int[] childCandidates = buckets.distribute(nodeCandidates, from, to, numberOfChildren);
+
+      int slot = 0;
+      for (int child = firstChildren[node]; child != NO_NODE; child = nextSiblings[child]) {
+        buckets.clearChild(columns[child]);
+        int childFrom = buckets.getFrom(slot);
+        int childTo = buckets.getTo(slot);
+        slot++;
+        if (childFrom == childTo) {
+          continue;
+        }
+        if (ends[child]) {
+          buckets.setResults(childCandidates, childFrom, childTo);
+        } else {
+          openNodes.push(child);
+          openCandidates.add(childCandidates);
+          openRanges.push(childFrom);
+          openRanges.push(childTo);
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Pushes all children of the node, whose column index is contained in the query columns from the
+   * given position on, together with the position after the matched column.
+   *
+   * @param stack        the stack of node and position pairs
+   * @param node         the node whose children are matched
+   * @param queryColumns the sorted column indices of the query
+   * @param position     the first position in the query columns to match
+   */
+  protected void pushMatchingChildren(IntArrayList stack, int node, int[] queryColumns,
+                                      int position) {
+    int child = firstChildren[node];
+    while ((child != NO_NODE) && (position < queryColumns.length)) {
+      int column = columns[child];
+      if (column < queryColumns[position]) {
+        child = nextSiblings[child];
+      } else if (column > queryColumns[position]) {
+        position++;
+      } else {
+        position++;
+        stack.push(child);
+        stack.push(position);
+        child = nextSiblings[child];
+      }
+    }
+  }
+
+  /**
+   * Adds the column indices on the path from the root to the node to the column combination.
+   *
+   * @param node              the last node of the path
+   * @param columnCombination the column combination to fill
+   * @return the column combination
+   */
+  protected ColumnCombinationBitset getPath(int node, ColumnCombinationBitset columnCombination) {
+    for (int current = node; current != ROOT; current = parents[current]) {
+      columnCombination.addColumn(columns[current]);
+    }
+    return columnCombination;
+  }
+
+  /**
+   * @return all column combinations in the graph
+   */
+  protected List<ColumnCombinationBitset> getColumnCombinations() {
+    List<ColumnCombinationBitset> columnCombinations = new ArrayList<>();
+    for (int node = 0; node < numberOfNodes; node++) {
+      if (ends[node]) {
+        columnCombinations.add(getPath(node, new ColumnCombinationBitset()));
+      }
+    }
+    return columnCombinations;
+  }
+
+  /**
+   * The method returns all minimal subsets contained in the graph. The column combinations are
+   * checked in ascending size, so that non minimal column combinations are never added.
+   *
+   * @return a list containing all minimal subsets
+   */
+  @Override
+  public Set<ColumnCombinationBitset> getMinimalSubsets() {
+    TreeSet<ColumnCombinationBitset> result = new TreeSet<>();
+    if (this.isEmpty()) {
+      return result;
+    }
+    List<ColumnCombinationBitset> columnCombinations = getColumnCombinations();
+    Collections.sort(columnCombinations);
+
+    CompactSubSetGraph graph = new CompactSubSetGraph();
+    for (ColumnCombinationBitset columnCombination : columnCombinations) {
+      if (!graph.containsSubset(columnCombination)) {
+        graph.add(columnCombination);
+        result.add(columnCombination);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return firstChildren[ROOT] == NO_NODE;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    CompactSubSetGraph that = (CompactSubSetGraph) o;
+
+    return new HashSet<>(getColumnCombinations())
+        .equals(new HashSet<>(that.getColumnCombinations()));
+  }
+
+  @Override
+  public int hashCode() {
+    return new HashSet<>(getColumnCombinations()).hashCode();
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import org.apache.lucene.util.OpenBitSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A thread safe {@link SubSetGraph}. Every node publishes its children as an immutable, sorted
+ * table that is replaced on insertion (copy on write). Queries read the tables without locking,
+ * concurrent calls to {@link #add(ColumnCombinationBitset)} only lock the nodes they extend. A
+ * column combination is visible to all queries starting after its insertion has returned. Queries
+ * running concurrently to an insertion see the column combination either completely or not at
+ * all.
+ */
+public class ConcurrentSubSetGraph extends SubSetGraph {
+
+  protected final Node root = new Node();
+
+  @Override
+  public ConcurrentSubSetGraph add(ColumnCombinationBitset columnCombination) {
+    Node node = root;
+
+    for (int setColumnIndex : columnCombination.getSetBitsArray()) {
+      node = node.lazyChildGeneration(setColumnIndex);
+    }
+    node.subSetEnds = true;
+    return this;
+  }
+
+  @Override
+  public ArrayList<ColumnCombinationBitset> getExistingSubsets(
+      ColumnCombinationBitset columnCombinationToQuery) {
+    ArrayList<ColumnCombinationBitset> subsets = new ArrayList<>();
+    if (this.isEmpty()) {
+      return subsets;
+    }
+    if (root.subSetEnds) {
+      subsets.add(columnCombinationToQuery.createEmpty());
+    }
+
+    int[] columns = columnCombinationToQuery.getSetBitsArray();
+    NodeStack stack = new NodeStack(root, columns.length);
+    Node node;
+    while ((node = stack.next(columns)) != null) {
+      if (node.subSetEnds) {
+        subsets.add(stack.getPath(columnCombinationToQuery.createEmpty()));
+      }
+    }
+
+    return subsets;
+  }
+
+  @Override
+  public boolean containsSubset(ColumnCombinationBitset superset) {
+    if (this.isEmpty()) {
+      return false;
+    }
+    if (root.subSetEnds) {
+      return true;
+    }
+
+    int[] columns = superset.getSetBitsArray();
+    NodeStack stack = new NodeStack(root, columns.length);
+    Node node;
+    while ((node = stack.next(columns)) != null) {
+      if (node.subSetEnds) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Checks a batch of column combinations for subsets in the graph. Every candidate is checked on
+   * its own, so that concurrent insertions are seen as by {@link
+   * #containsSubset(ColumnCombinationBitset)}.
+   *
+   * @param candidates the column combinations to check
+   * @return a bit set, in which the bit of every candidate with a subset in the graph is set
+   */
+  @Override
+  public OpenBitSet containsSubsets(List<ColumnCombinationBitset> candidates) {
+    OpenBitSet result = new OpenBitSet(candidates.size());
+    int i = 0;
+    for (ColumnCombinationBitset candidate : candidates) {
+      if (containsSubset(candidate)) {
+        result.set(i);
+      }
+      i++;
+    }
+    return result;
+  }
+
+  /**
+   * The method returns all minimal subsets contained in the graph. The column combinations are
+   * checked in ascending size, so that non minimal column combinations are never added.
+   *
+   * @return a list containing all minimal subsets
+   */
+  @Override
+  public Set<ColumnCombinationBitset> getMinimalSubsets() {
+    TreeSet<ColumnCombinationBitset> result = new TreeSet<>();
+    if (this.isEmpty()) {
+      return result;
+    }
+    List<ColumnCombinationBitset> columnCombinations = getColumnCombinations();
+    Collections.sort(columnCombinations);
+
+    CompactSubSetGraph graph = new CompactSubSetGraph();
+    for (ColumnCombinationBitset columnCombination : columnCombinations) {
+      if (!graph.containsSubset(columnCombination)) {
+        graph.add(columnCombination);
+        result.add(columnCombination);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return all column combinations in the graph
+   */
+  protected List<ColumnCombinationBitset> getColumnCombinations() {
+    List<ColumnCombinationBitset> columnCombinations = new ArrayList<>();
+    List<Node> openNodes = new ArrayList<>();
+    List<ColumnCombinationBitset> openPaths = new ArrayList<>();
+    openNodes.add(root);
+    openPaths.add(new ColumnCombinationBitset());
+
+    while (!openNodes.isEmpty()) {
+      Node node = openNodes.remove(openNodes.size() - 1);
+      ColumnCombinationBitset path = openPaths.remove(openPaths.size() - 1);
+      if (node.subSetEnds) {
+        columnCombinations.add(path);
+      }
+      ChildTable children = node.children;
+      for (int i = 0; i < children.columns.length; i++) {
+        openNodes.add(children.nodes[i]);
+        openPaths.add(new ColumnCombinationBitset(path).addColumn(children.columns[i]));
+      }
+    }
+    return columnCombinations;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return root.children.columns.length == 0;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    ConcurrentSubSetGraph that = (ConcurrentSubSetGraph) o;
+
+    return new HashSet<>(getColumnCombinations())
+        .equals(new HashSet<>(that.getColumnCombinations()));
+  }
+
+  @Override
+  public int hashCode() {
+    return new HashSet<>(getColumnCombinations()).hashCode();
+  }
+
+  /**
+   * A node of the graph. The children are only modified while holding the node's lock.
+   */
+  protected static class Node {
+
+    protected volatile ChildTable children = ChildTable.EMPTY;
+    protected volatile boolean subSetEnds = false;
+
+    /**
+     * Looks for the child behind the column index or builds and adds a new one.
+     *
+     * @param columnIndex the column index to perform the lookup on
+     * @return the child behind the column index
+     */
+    protected Node lazyChildGeneration(int columnIndex) {
+      Node child = children.get(columnIndex);
+      if (child != null) {
+        return child;
+      }
+
+      synchronized (this) {
+        ChildTable currentChildren = children;
+        child = currentChildren.get(columnIndex);
+        if (child == null) {
+          child = new Node();
+          children = currentChildren.insert(columnIndex, child);
+        }
+        return child;
+      }
+    }
+  }
+
+  /**
+   * Immutable table of the children of a node sorted by column index.
+   */
+  protected static class ChildTable {
+
+    protected static final ChildTable EMPTY = new ChildTable(new int[0], new Node[0]);
+
+    protected final int[] columns;
+    protected final Node[] nodes;
+
+    protected ChildTable(int[] columns, Node[] nodes) {
+      this.columns = columns;
+      this.nodes = nodes;
+    }
+
+    /**
+     * @param columnIndex the column index to look up
+     * @return the child behind the column index or null if there is none
+     */
+    protected Node get(int columnIndex) {
+      int position = Arrays.binarySearch(columns, columnIndex);
+      return position < 0 ? null : nodes[position];
+    }
+
+    /**
+     * @param columnIndex a column index that is not in the table
+     * @param child       the child behind the column index
+     * @return a copy of the table with the additional child
+     */
+    protected ChildTable insert(int columnIndex, Node child) {
+      int position = -(Arrays.binarySearch(columns, columnIndex) + 1);
+      int[] newColumns = new int[columns.length + 1];
+      Node[] newNodes = new Node[nodes.length + 1];
+      System.arraycopy(columns, 0, newColumns, 0, position);
+      System.arraycopy(nodes, 0, newNodes, 0, position);
+      newColumns[position] = columnIndex;
+      newNodes[position] = child;
+      System.arraycopy(columns, position, newColumns, position + 1, columns.length - position);
+      System.arraycopy(nodes, position, newNodes, position + 1, nodes.length - position);
+      return new ChildTable(newColumns, newNodes);
+    }
+  }
+
+  /**
+   * Explicit stack for the depth first search of subsets of a column combination. The stack is
+   * allocated once per query and is confined to the querying thread.
+   */
+  protected static class NodeStack {
+
+    protected Node[] nodes;
+    // Position in the queried columns at which the search continues on each level.
+    protected int[] nextColumnPositions;
+    protected int[] path;
+    protected int depth = 0;
+
+    protected NodeStack(Node root, int numberOfColumns) {
+      nodes = new Node[numberOfColumns + 1];
+      nextColumnPositions = new int[numberOfColumns + 1];
+      path = new int[numberOfColumns];
+      nodes[0] = root;
+    }
+
+    /**
+     * Descends to the next node that lies on a subset of the queried columns.
+     *
+     * @param columns the queried column indices in ascending order
+     * @return the next node or null if the search is complete
+     */
+    protected Node next(int[] columns) {
+      while (depth >= 0) {
+        ChildTable children = nodes[depth].children;
+        int position = nextColumnPositions[depth];
+        Node child = null;
+        if (children.columns.length > 0) {
+          while ((position < columns.length)
+                 && ((child = children.get(columns[position])) == null)) {
+            position++;
+          }
+        }
+        if (child == null) {
+          depth--;
+          continue;
+        }
+
+        nextColumnPositions[depth] = position + 1;
+        path[depth] = columns[position];
+        depth++;
+        nodes[depth] = child;
+        nextColumnPositions[depth] = position + 1;
+        return child;
+      }
+      return null;
+    }
+
+    /**
+     * Adds the columns on the path to the current node to the given column combination.
+     *
+     * @param columnCombination the column combination to fill
+     * @return the column combination
+     */
+    protected ColumnCombinationBitset getPath(ColumnCombinationBitset columnCombination) {
+      for (int i = 0; i < depth; i++) {
+        columnCombination.addColumn(path[i]);
+      }
+      return columnCombination;
+    }
+  }
+}
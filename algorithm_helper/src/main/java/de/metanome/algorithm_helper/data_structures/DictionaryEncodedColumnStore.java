@@ -0,0 +1,318 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A columnar copy of a {@link de.metanome.algorithm_integration.input.RelationalInput} that is
+ * built in a single pass. Every column is stored as an int array of value ids together with a
+ * sorted dictionary of its distinct values, so every distinct value is kept only once. {@link
+ * PositionListIndex}es, the distinct sorted columns and simple column statistics are derived from
+ * the encoded columns without reading the input again, which allows several algorithms to share
+ * one store. The number of rows is limited by the maximum array size of about 2^31. {@link
+ * PLIBuilder} reads sequential inputs into a store.
+ */
+public class DictionaryEncodedColumnStore {
+
+  /**
+   * Value id of cells that are missing in rows shorter than the widest row.
+   */
+  public static final int ABSENT_VALUE_ID = -1;
+
+  /**
+   * Maximum number of rows, the largest array size the virtual machines support.
+   */
+  public static final int MAX_NUMBER_OF_TUPLES = Integer.MAX_VALUE - 8;
+
+  protected int numberOfTuples = 0;
+  protected List<String[]> dictionaries = new ArrayList<>();
+  protected List<int[]> valueIds = new ArrayList<>();
+  protected int[] numberOfNullValues;
+
+  /**
+   * Reads the whole input and encodes all columns.
+   *
+   * @param input the input to encode
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  public DictionaryEncodedColumnStore(RelationalInput input) throws InputIterationException {
+    this(input, MAX_NUMBER_OF_TUPLES);
+  }
+
+  /**
+   * Reads the whole input and encodes all columns.
+   *
+   * @param input             the input to encode
+   * @param maxNumberOfTuples the maximum number of rows
+   * @throws InputIterationException if the input cannot be iterated or has more rows than allowed
+   */
+  protected DictionaryEncodedColumnStore(RelationalInput input, int maxNumberOfTuples)
+      throws InputIterationException {
+    List<Object2IntOpenHashMap<String>> unsortedIds = new ArrayList<>();
+    List<List<String>> unsortedDictionaries = new ArrayList<>();
+    List<IntArrayList> unsortedValueIds = new ArrayList<>();
+    IntArrayList nullCounts = new IntArrayList();
+
+    while (input.hasNext()) {
+      if (numberOfTuples >= maxNumberOfTuples) {
+        throw new InputIterationException(
+            "The input has more than " + maxNumberOfTuples
+            + " rows, which is the maximum a dictionary encoded column store can hold.");
+      }
+      List<String> row = input.next();
+      for (int columnIndex = 0; columnIndex < row.size(); columnIndex++) {
+        if (unsortedIds.size() <= columnIndex) {
+          Object2IntOpenHashMap<String> ids = new Object2IntOpenHashMap<>();
+          ids.defaultReturnValue(ABSENT_VALUE_ID);
+          unsortedIds.add(ids);
+          unsortedDictionaries.add(new ArrayList<String>());
+          IntArrayList columnValueIds = new IntArrayList();
+          // Earlier rows did not contain the column.
+          columnValueIds.size(numberOfTuples);
+          Arrays.fill(columnValueIds.elements(), 0, numberOfTuples, ABSENT_VALUE_ID);
+          unsortedValueIds.add(columnValueIds);
+          nullCounts.add(0);
+        }
+
+        String value = row.get(columnIndex);
+        if (value == null) {
+          // Null values are remapped after sorting, mark them with a placeholder.
+          unsortedValueIds.get(columnIndex).add(Integer.MAX_VALUE);
+          nullCounts.set(columnIndex, nullCounts.getInt(columnIndex) + 1);
+          continue;
+        }
+
+        Object2IntOpenHashMap<String> ids = unsortedIds.get(columnIndex);
+        int valueId = ids.getInt(value);
+        if (valueId == ABSENT_VALUE_ID) {
+          List<String> dictionary = unsortedDictionaries.get(columnIndex);
+          valueId = dictionary.size();
+          dictionary.add(value);
+          ids.put(value, valueId);
+        }
+        unsortedValueIds.get(columnIndex).add(valueId);
+      }
+
+      // Pad the columns that are missing in this row.
+      for (int columnIndex = row.size(); columnIndex < unsortedValueIds.size(); columnIndex++) {
+        unsortedValueIds.get(columnIndex).add(ABSENT_VALUE_ID);
+      }
+      numberOfTuples++;
+    }
+
+    numberOfNullValues = nullCounts.toIntArray();
+    for (int columnIndex = 0; columnIndex < unsortedValueIds.size(); columnIndex++) {
+      // Release the hash map of the column before the next column is sorted.
+      unsortedIds.set(columnIndex, null);
+      sortDictionary(unsortedDictionaries.get(columnIndex), unsortedValueIds.get(columnIndex));
+      unsortedDictionaries.set(columnIndex, null);
+      unsortedValueIds.set(columnIndex, null);
+    }
+  }
+
+  /**
+   * Sorts the dictionary of a column and replaces the value ids by the positions of the values in
+   * the sorted dictionary. Null values get the id after the last dictionary entry.
+   *
+   * @param unsortedDictionary the distinct values in order of their first occurrence
+   * @param unsortedValueIds   the value ids referencing the unsorted dictionary
+   */
+  protected void sortDictionary(List<String> unsortedDictionary, IntArrayList unsortedValueIds) {
+    String[] dictionary = unsortedDictionary.toArray(new String[unsortedDictionary.size()]);
+    Arrays.sort(dictionary);
+
+    Object2IntOpenHashMap<String> sortedIds = new Object2IntOpenHashMap<>(dictionary.length);
+    for (int valueId = 0; valueId < dictionary.length; valueId++) {
+      sortedIds.put(dictionary[valueId], valueId);
+    }
+    int[] remapping = new int[dictionary.length];
+    for (int valueId = 0; valueId < remapping.length; valueId++) {
+      remapping[valueId] = sortedIds.getInt(unsortedDictionary.get(valueId));
+    }
+
+    int[] columnValueIds = unsortedValueIds.toIntArray();
+    for (int row = 0; row < columnValueIds.length; row++) {
+      int valueId = columnValueIds[row];
+      if (valueId == Integer.MAX_VALUE) {
+        columnValueIds[row] = dictionary.length;
+      } else if (valueId != ABSENT_VALUE_ID) {
+        columnValueIds[row] = remapping[valueId];
+      }
+    }
+
+    dictionaries.add(dictionary);
+    valueIds.add(columnValueIds);
+  }
+
+  /**
+   * Builds a {@link CompactPositionListIndex} for every column.
+   *
+   * @param nullEqualsNull whether null values form a cluster
+   * @return list of plis for all columns
+   */
+  public List<PositionListIndex> getPLIList(boolean nullEqualsNull) {
+    List<PositionListIndex> result = new ArrayList<>();
+    for (int columnIndex = 0; columnIndex < getNumberOfColumns(); columnIndex++) {
+      result.add(getPLI(columnIndex, nullEqualsNull));
+    }
+    return result;
+  }
+
+  /**
+   * Builds the {@link CompactPositionListIndex} of a single column by counting sort over the value
+   * ids. The clusters are ordered by their values.
+   *
+   * @param columnIndex    the index of the column
+   * @param nullEqualsNull whether null values form a cluster
+   * @return the pli of the column
+   */
+  public CompactPositionListIndex getPLI(int columnIndex, boolean nullEqualsNull) {
+    int[] columnValueIds = valueIds.get(columnIndex);
+    int nullValueId = dictionaries.get(columnIndex).length;
+
+    int[] counts = new int[nullValueId + 1];
+    for (int valueId : columnValueIds) {
+      if (valueId != ABSENT_VALUE_ID) {
+        counts[valueId]++;
+      }
+    }
+    if (!nullEqualsNull) {
+      counts[nullValueId] = 0;
+    }
+
+    // Assign offsets to all non unary clusters.
+    int[] starts = new int[counts.length];
+    IntArrayList clusterOffsets = new IntArrayList();
+    int numberOfRows = 0;
+    for (int valueId = 0; valueId < counts.length; valueId++) {
+      if (counts[valueId] < 2) {
+        starts[valueId] = -1;
+        continue;
+      }
+      starts[valueId] = numberOfRows;
+      clusterOffsets.add(numberOfRows);
+      numberOfRows += counts[valueId];
+    }
+    clusterOffsets.add(numberOfRows);
+
+    int[] rows = new int[numberOfRows];
+    for (int row = 0; row < columnValueIds.length; row++) {
+      int valueId = columnValueIds[row];
+      if ((valueId == ABSENT_VALUE_ID) || (starts[valueId] < 0)) {
+        continue;
+      }
+      rows[starts[valueId]++] = row;
+    }
+
+    return new CompactPositionListIndex(rows, clusterOffsets.toIntArray());
+  }
+
+  /**
+   * Returns a {@link TreeSet} of the distinct values of every column. Null values are not
+   * contained.
+   *
+   * @return all columns' sorted distinct values
+   */
+  public List<TreeSet<String>> getDistinctSortedColumns() {
+    List<TreeSet<String>> distinctSortedColumns = new LinkedList<>();
+    for (String[] dictionary : dictionaries) {
+      distinctSortedColumns.add(new TreeSet<>(Arrays.asList(dictionary)));
+    }
+    return distinctSortedColumns;
+  }
+
+  /**
+   * Returns the sorted distinct values of the column. The array must not be modified.
+   *
+   * @param columnIndex the index of the column
+   * @return the dictionary of the column
+   */
+  public String[] getDictionary(int columnIndex) {
+    return dictionaries.get(columnIndex);
+  }
+
+  /**
+   * Returns the value ids of all rows of the column. The value id is the position of the value in
+   * the dictionary, the dictionary size for null values and {@link #ABSENT_VALUE_ID} for missing
+   * cells. The array must not be modified.
+   *
+   * @param columnIndex the index of the column
+   * @return the value ids of the column
+   */
+  public int[] getValueIds(int columnIndex) {
+    return valueIds.get(columnIndex);
+  }
+
+  /**
+   * @param columnIndex the index of the column
+   * @return the number of distinct non null values
+   */
+  public int getNumberOfDistinctValues(int columnIndex) {
+    return dictionaries.get(columnIndex).length;
+  }
+
+  /**
+   * @param columnIndex the index of the column
+   * @return the number of null values
+   */
+  public int getNumberOfNullValues(int columnIndex) {
+    return numberOfNullValues[columnIndex];
+  }
+
+  /**
+   * @param columnIndex the index of the column
+   * @return the smallest non null value or null if the column only contains null values
+   */
+  public String getMinimumValue(int columnIndex) {
+    String[] dictionary = dictionaries.get(columnIndex);
+    return dictionary.length == 0 ? null : dictionary[0];
+  }
+
+  /**
+   * @param columnIndex the index of the column
+   * @return the largest non null value or null if the column only contains null values
+   */
+  public String getMaximumValue(int columnIndex) {
+    String[] dictionary = dictionaries.get(columnIndex);
+    return dictionary.length == 0 ? null : dictionary[dictionary.length - 1];
+  }
+
+  /**
+   * @return the number of tuples in the input
+   */
+  public int getNumberOfTuples() {
+    return numberOfTuples;
+  }
+
+  /**
+   * @return the number of columns in the widest row of the input
+   */
+  public int getNumberOfColumns() {
+    return valueIds.size();
+  }
+}
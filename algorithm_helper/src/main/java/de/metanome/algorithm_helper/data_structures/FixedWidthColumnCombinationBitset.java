@@ -0,0 +1,429 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import org.apache.lucene.util.OpenBitSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link ColumnCombinationBitset} for relations with at most 128 columns, that stores the
+ * columns in two longs instead of an {@link OpenBitSet}. Set operations on two fixed width column
+ * combinations are a few bit operations and copies do not allocate arrays. For relations with at
+ * most 64 columns the second long simply stays zero. Operations with column combinations of the
+ * other representation read their words directly and return fixed width column combinations,
+ * operations whose result would not fit into 128 columns are rejected.
+ */
+public class FixedWidthColumnCombinationBitset extends ColumnCombinationBitset {
+
+  public static final int MAXIMUM_NUMBER_OF_COLUMNS = 128;
+
+  protected static final int WORD_SIZE = 64;
+
+  // Columns 0 to 63 in the first word, columns 64 to 127 in the second.
+  protected long lowWord = 0;
+  protected long highWord = 0;
+
+  public FixedWidthColumnCombinationBitset(int... columnIndices) {
+    super((OpenBitSet) null);
+
+    for (int columnIndex : columnIndices) {
+      addColumn(columnIndex);
+    }
+  }
+
+  /**
+   * Creates a copy of the column combination, which may have any representation.
+   *
+   * @param columnCombination that is copied to the new instance
+   */
+  public FixedWidthColumnCombinationBitset(ColumnCombinationBitset columnCombination) {
+    super((OpenBitSet) null);
+
+    if (columnCombination instanceof FixedWidthColumnCombinationBitset) {
+      FixedWidthColumnCombinationBitset other =
+          (FixedWidthColumnCombinationBitset) columnCombination;
+      setWords(other.lowWord, other.highWord);
+    } else {
+      setColumns(columnCombination.getBitset());
+    }
+  }
+
+  protected FixedWidthColumnCombinationBitset(long lowWord, long highWord) {
+    super((OpenBitSet) null);
+    setWords(lowWord, highWord);
+  }
+
+  protected void setWords(long lowWord, long highWord) {
+    this.lowWord = lowWord;
+    this.highWord = highWord;
+    this.size = Long.bitCount(lowWord) + Long.bitCount(highWord);
+    this.setBitsArray = null;
+  }
+
+  /**
+   * Copies the columns into a new {@link OpenBitSet}. Only needed to convert to the other
+   * representation, all operations of this class work on the words directly.
+   */
+  @Override
+  protected OpenBitSet getBitset() {
+    return new OpenBitSet(new long[]{lowWord, highWord}, 2);
+  }
+
+  /**
+   * Reads a word of a column combination of any representation without copying it.
+   *
+   * @param columnCombination the column combination to read
+   * @param wordIndex         0 for columns 0 to 63, 1 for columns 64 to 127
+   * @return the word, 0 if the column combination has less words
+   */
+  protected static long getWord(ColumnCombinationBitset columnCombination, int wordIndex) {
+    if (columnCombination instanceof FixedWidthColumnCombinationBitset) {
+      FixedWidthColumnCombinationBitset other =
+          (FixedWidthColumnCombinationBitset) columnCombination;
+      return (wordIndex == 0) ? other.lowWord : other.highWord;
+    }
+    OpenBitSet bitset = columnCombination.getBitset();
+    return (wordIndex < bitset.getNumWords()) ? bitset.getBits()[wordIndex] : 0;
+  }
+
+  /**
+   * @param columnCombination a column combination of any representation
+   * @return whether all columns of the column combination are smaller than 128
+   */
+  protected static boolean hasFixedWidth(ColumnCombinationBitset columnCombination) {
+    if (columnCombination instanceof FixedWidthColumnCombinationBitset) {
+      return true;
+    }
+    OpenBitSet bitset = columnCombination.getBitset();
+    long[] bits = bitset.getBits();
+    for (int wordIndex = 2; wordIndex < bitset.getNumWords(); wordIndex++) {
+      if (bits[wordIndex] != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  protected static void checkFixedWidth(ColumnCombinationBitset columnCombination) {
+    if (!hasFixedWidth(columnCombination)) {
+      throw new IllegalArgumentException(
+          "At most " + MAXIMUM_NUMBER_OF_COLUMNS + " columns are supported.");
+    }
+  }
+
+  @Override
+  protected ColumnCombinationBitset createEmpty() {
+    return new FixedWidthColumnCombinationBitset();
+  }
+
+  @Override
+  protected ColumnCombinationBitset createCopy() {
+    return new FixedWidthColumnCombinationBitset(lowWord, highWord);
+  }
+
+  /**
+   * Sets the columns of the given {@link OpenBitSet}, the previous state is overwritten!
+   *
+   * @param bitset set on the existing column combination
+   * @return the instance
+   */
+  @Override
+  protected ColumnCombinationBitset setColumns(OpenBitSet bitset) {
+    long[] bits = bitset.getBits();
+    int numberOfWords = bitset.getNumWords();
+    for (int wordIndex = 2; wordIndex < numberOfWords; wordIndex++) {
+      if (bits[wordIndex] != 0) {
+        throw new IllegalArgumentException(
+            "At most " + MAXIMUM_NUMBER_OF_COLUMNS + " columns are supported.");
+      }
+    }
+    setWords(numberOfWords > 0 ? bits[0] : 0, numberOfWords > 1 ? bits[1] : 0);
+
+    return this;
+  }
+
+  @Override
+  public ColumnCombinationBitset addColumn(int columnIndex) {
+    if ((columnIndex < 0) || (columnIndex >= MAXIMUM_NUMBER_OF_COLUMNS)) {
+      throw new IllegalArgumentException(
+          "Column index " + columnIndex + " exceeds " + MAXIMUM_NUMBER_OF_COLUMNS + " columns.");
+    }
+    if (!containsColumn(columnIndex)) {
+      size++;
+      setBitsArray = null;
+    }
+
+    if (columnIndex < WORD_SIZE) {
+      lowWord |= 1L << columnIndex;
+    } else {
+      highWord |= 1L << (columnIndex - WORD_SIZE);
+    }
+
+    return this;
+  }
+
+  @Override
+  public ColumnCombinationBitset removeColumn(int columnIndex) {
+    if (!containsColumn(columnIndex)) {
+      return this;
+    }
+    size--;
+    setBitsArray = null;
+
+    if (columnIndex < WORD_SIZE) {
+      lowWord &= ~(1L << columnIndex);
+    } else {
+      highWord &= ~(1L << (columnIndex - WORD_SIZE));
+    }
+
+    return this;
+  }
+
+  @Override
+  public boolean containsColumn(int columnIndex) {
+    if ((columnIndex < 0) || (columnIndex >= MAXIMUM_NUMBER_OF_COLUMNS)) {
+      return false;
+    }
+    if (columnIndex < WORD_SIZE) {
+      return (lowWord & (1L << columnIndex)) != 0;
+    }
+    return (highWord & (1L << (columnIndex - WORD_SIZE))) != 0;
+  }
+
+  /**
+   * Computes the same hash code as the {@link OpenBitSet} based representation.
+   */
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    // Hash function of OpenBitSet#hashCode() applied to both words.
+    long hash = 0;
+    hash ^= highWord;
+    hash = (hash << 1) | (hash >>> 63);
+    hash ^= lowWord;
+    hash = (hash << 1) | (hash >>> 63);
+    int bitsetHash = (int) ((hash >> 32) ^ hash) + 0x98761234;
+    result = prime * result + bitsetHash;
+    result = prime * result + (int) (size ^ (size >>> 32));
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof ColumnCombinationBitset)) {
+      return false;
+    }
+    ColumnCombinationBitset other = (ColumnCombinationBitset) obj;
+    return (lowWord == getWord(other, 0)) && (highWord == getWord(other, 1))
+           && hasFixedWidth(other);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder stringBuilder = new StringBuilder();
+
+    stringBuilder.append("ColumnCombinationBitset ");
+
+    int lastSetBitIndex = WORD_SIZE - 1 - Long.numberOfLeadingZeros(lowWord);
+    if (highWord != 0) {
+      lastSetBitIndex = MAXIMUM_NUMBER_OF_COLUMNS - 1 - Long.numberOfLeadingZeros(highWord);
+    }
+    for (int i = 0; i <= lastSetBitIndex; i++) {
+      stringBuilder.append(containsColumn(i) ? 1 : 0);
+    }
+
+    return stringBuilder.toString();
+  }
+
+  @Override
+  public boolean isSubsetOf(ColumnCombinationBitset potentialSuperset) {
+    return ((lowWord & ~getWord(potentialSuperset, 0))
+            | (highWord & ~getWord(potentialSuperset, 1))) == 0;
+  }
+
+  @Override
+  public boolean containsSubset(ColumnCombinationBitset potentialSubset) {
+    return ((getWord(potentialSubset, 0) & ~lowWord)
+            | (getWord(potentialSubset, 1) & ~highWord)) == 0
+           && hasFixedWidth(potentialSubset);
+  }
+
+  @Override
+  public List<Integer> getSetBits() {
+    List<Integer> setBits = new ArrayList<>(size());
+
+    for (int columnIndex = nextSetBit(0); columnIndex >= 0;
+         columnIndex = nextSetBit(columnIndex + 1)) {
+      setBits.add(columnIndex);
+    }
+
+    return setBits;
+  }
+
+  @Override
+  public int nextSetBit(int fromIndex) {
+    if (fromIndex < WORD_SIZE) {
+      long word = lowWord & (-1L << fromIndex);
+      if (word != 0) {
+        return Long.numberOfTrailingZeros(word);
+      }
+      fromIndex = WORD_SIZE;
+    }
+    if (fromIndex < MAXIMUM_NUMBER_OF_COLUMNS) {
+      long word = highWord & (-1L << (fromIndex - WORD_SIZE));
+      if (word != 0) {
+        return WORD_SIZE + Long.numberOfTrailingZeros(word);
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public ColumnCombinationBitset minus(ColumnCombinationBitset otherColumnCombination) {
+    return new FixedWidthColumnCombinationBitset(lowWord & ~getWord(otherColumnCombination, 0),
+                                                 highWord & ~getWord(otherColumnCombination, 1));
+  }
+
+  @Override
+  public ColumnCombinationBitset union(ColumnCombinationBitset otherColumnCombination) {
+    checkFixedWidth(otherColumnCombination);
+    return new FixedWidthColumnCombinationBitset(lowWord | getWord(otherColumnCombination, 0),
+                                                 highWord | getWord(otherColumnCombination, 1));
+  }
+
+  @Override
+  public ColumnCombinationBitset intersect(ColumnCombinationBitset otherColumnCombination) {
+    return new FixedWidthColumnCombinationBitset(lowWord & getWord(otherColumnCombination, 0),
+                                                 highWord & getWord(otherColumnCombination, 1));
+  }
+
+  @Override
+  public List<ColumnCombinationBitset> getDirectSupersets(
+      ColumnCombinationBitset maximalSuperset) {
+    checkFixedWidth(maximalSuperset);
+
+    long lowCandidates = getWord(maximalSuperset, 0) & ~lowWord;
+    long highCandidates = getWord(maximalSuperset, 1) & ~highWord;
+    List<ColumnCombinationBitset> supersets =
+        new ArrayList<>(Long.bitCount(lowCandidates) + Long.bitCount(highCandidates));
+    for (; lowCandidates != 0; lowCandidates &= lowCandidates - 1) {
+      supersets.add(new FixedWidthColumnCombinationBitset(
+          lowWord | Long.lowestOneBit(lowCandidates), highWord));
+    }
+    for (; highCandidates != 0; highCandidates &= highCandidates - 1) {
+      supersets.add(new FixedWidthColumnCombinationBitset(
+          lowWord, highWord | Long.lowestOneBit(highCandidates)));
+    }
+
+    return supersets;
+  }
+
+  @Override
+  protected List<ColumnCombinationBitset> getDirectSubsetsSupersetOfFast(
+      ColumnCombinationBitset subSet) {
+    long lowCandidates = lowWord;
+    long highCandidates = highWord;
+    if (subSet != null) {
+      lowCandidates &= ~getWord(subSet, 0);
+      highCandidates &= ~getWord(subSet, 1);
+    }
+    List<ColumnCombinationBitset> subsets =
+        new ArrayList<>(Long.bitCount(lowCandidates) + Long.bitCount(highCandidates));
+    for (; lowCandidates != 0; lowCandidates &= lowCandidates - 1) {
+      subsets.add(new FixedWidthColumnCombinationBitset(
+          lowWord & ~Long.lowestOneBit(lowCandidates), highWord));
+    }
+    for (; highCandidates != 0; highCandidates &= highCandidates - 1) {
+      subsets.add(new FixedWidthColumnCombinationBitset(
+          lowWord, highWord & ~Long.lowestOneBit(highCandidates)));
+    }
+
+    return subsets;
+  }
+
+  @Override
+  public ColumnCombinationBitset setAllBits(int dimension) {
+    setWords(getLowMask(dimension), getHighMask(dimension));
+
+    return this;
+  }
+
+  @Override
+  public ColumnCombinationBitset invert(int size) {
+    return new FixedWidthColumnCombinationBitset(lowWord ^ getLowMask(size),
+                                                 highWord ^ getHighMask(size));
+  }
+
+  /**
+   * @param dimension the number of columns
+   * @return the bits of the first word with an index smaller than dimension
+   */
+  protected long getLowMask(int dimension) {
+    checkDimension(dimension);
+    if (dimension >= WORD_SIZE) {
+      return -1L;
+    }
+    return (1L << dimension) - 1;
+  }
+
+  /**
+   * @param dimension the number of columns
+   * @return the bits of the second word with an index smaller than dimension
+   */
+  protected long getHighMask(int dimension) {
+    checkDimension(dimension);
+    if (dimension <= WORD_SIZE) {
+      return 0;
+    }
+    if (dimension >= MAXIMUM_NUMBER_OF_COLUMNS) {
+      return -1L;
+    }
+    return (1L << (dimension - WORD_SIZE)) - 1;
+  }
+
+  protected void checkDimension(int dimension) {
+    if (dimension > MAXIMUM_NUMBER_OF_COLUMNS) {
+      throw new IllegalArgumentException(
+          "At most " + MAXIMUM_NUMBER_OF_COLUMNS + " columns are supported.");
+    }
+  }
+
+  @Override
+  public int compareTo(ColumnCombinationBitset other) {
+    // nextSetBit does not copy the columns in either representation.
+    long sizeComparator = this.size - other.size;
+    if (sizeComparator != 0) {
+      return (int) sizeComparator;
+    }
+    int thisBit = nextSetBit(0);
+    int otherBit = other.nextSetBit(0);
+    while (thisBit >= 0) {
+      if (thisBit != otherBit) {
+        return thisBit - otherBit;
+      }
+      thisBit = nextSetBit(thisBit + 1);
+      otherBit = other.nextSetBit(otherBit + 1);
+    }
+    return 0;
+  }
+}
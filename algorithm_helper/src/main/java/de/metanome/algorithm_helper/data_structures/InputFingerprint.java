@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Identifies an input together with all settings that influence the {@link PositionListIndex}es
+ * built from it. Two fingerprints are equal iff all their components are equal. File inputs are
+ * identified by their path, size and modification time, so a fingerprint becomes stale as soon as
+ * the file changes.
+ */
+public class InputFingerprint {
+
+  protected String key;
+
+  /**
+   * Creates a fingerprint from arbitrary components, e.g. a table identifier and the database url
+   * together with a version of the table.
+   *
+   * @param components the components identifying the input, may contain null
+   */
+  public InputFingerprint(String... components) {
+    StringBuilder keyBuilder = new StringBuilder();
+    // Length prefixes keep the key unambiguous for components containing the delimiter.
+    for (String component : components) {
+      if (component == null) {
+        keyBuilder.append("-1:");
+      } else {
+        keyBuilder.append(component.length()).append(':').append(component);
+      }
+    }
+    this.key = keyBuilder.toString();
+  }
+
+  /**
+   * Creates the fingerprint of a file input including all parser settings.
+   *
+   * @param setting        the setting of the file input
+   * @param nullEqualsNull whether the plis consider null values equal
+   * @return the fingerprint
+   */
+  public static InputFingerprint forFileInput(ConfigurationSettingFileInput setting,
+                                              boolean nullEqualsNull) {
+    String[] components = getFileInputComponents(setting);
+    components = Arrays.copyOf(components, components.length + 1);
+    components[components.length - 1] = Boolean.toString(nullEqualsNull);
+    return new InputFingerprint(components);
+  }
+
+  /**
+   * Creates the fingerprint of the parsed rows of a file input, i.e. of the file and all parser
+   * settings.
+   *
+   * @param setting the setting of the file input
+   * @return the fingerprint
+   */
+  public static InputFingerprint forFileInput(ConfigurationSettingFileInput setting) {
+    return new InputFingerprint(getFileInputComponents(setting));
+  }
+
+  protected static String[] getFileInputComponents(ConfigurationSettingFileInput setting) {
+    File file = new File(setting.getFileName());
+    return new String[]{
+        "file",
+        file.getAbsolutePath(),
+        Long.toString(file.length()),
+        Long.toString(file.lastModified()),
+        setting.getSeparatorChar(),
+        setting.getQuoteChar(),
+        setting.getEscapeChar(),
+        Boolean.toString(setting.isStrictQuotes()),
+        Boolean.toString(setting.isIgnoreLeadingWhiteSpace()),
+        Integer.toString(setting.getSkipLines()),
+        Boolean.toString(setting.hasHeader()),
+        Boolean.toString(setting.isSkipDifferingLines()),
+        setting.getNullValue()};
+  }
+
+  /**
+   * @return the full key of the fingerprint
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Returns a hex encoded SHA-1 digest of the key, that can be used as file name.
+   *
+   * @return the digest of the key
+   */
+  public String getDigest() {
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-1.
+      throw new IllegalStateException(e);
+    }
+    byte[] digest = messageDigest.digest(key.getBytes(Charset.forName("UTF-8")));
+
+    StringBuilder hex = new StringBuilder();
+    for (byte digestByte : digest) {
+      hex.append(String.format("%02x", digestByte));
+    }
+    return hex.toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    InputFingerprint that = (InputFingerprint) o;
+
+    return key.equals(that.key);
+  }
+
+  @Override
+  public int hashCode() {
+    return key.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "InputFingerprint " + key;
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+/**
+ * Estimates the raw key error of a column combination on the complete input from its {@link
+ * PositionListIndex} over a uniform sample of the rows (see {@link SamplingPLIBuilder}).
+ * <p/>
+ * The lower bound is certain: duplicates in the sample are duplicates in the input, so a sample
+ * key error above 0 proves that the column combination is not unique. The estimate scales the
+ * number of distinct values with the GEE estimator (Charikar et al.). The confidence bounds are
+ * derived from the number of duplicate row pairs in the sample, which is approximately Poisson
+ * distributed with every pair of the input being sampled with the same probability.
+ */
+public class KeyErrorEstimate {
+
+  /**
+   * Standard score of the two sided 95% confidence bounds.
+   */
+  public static final double DEFAULT_STANDARD_SCORE = 1.96;
+
+  protected long sampleKeyError;
+  protected double estimate;
+  protected double lowerBound;
+  protected double upperBound;
+
+  /**
+   * @param samplePLI      the pli over the sampled rows
+   * @param sampleSize     the number of sampled rows
+   * @param numberOfTuples the number of rows in the input
+   * @param standardScore  the standard score of the confidence bounds, e.g. {@link
+   *                       #DEFAULT_STANDARD_SCORE}
+   */
+  public KeyErrorEstimate(PositionListIndex samplePLI, long sampleSize, long numberOfTuples,
+                          double standardScore) {
+    long numberOfClusters = samplePLI.size();
+    long rowsInClusters = 0;
+    double duplicatePairs = 0;
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      long clusterSize = samplePLI.getClusterSize(clusterIndex);
+      rowsInClusters += clusterSize;
+      duplicatePairs += clusterSize * (clusterSize - 1) / 2.0;
+    }
+    sampleKeyError = rowsInClusters - numberOfClusters;
+
+    if (sampleSize >= numberOfTuples) {
+      // The sample is the whole input.
+      estimate = lowerBound = upperBound = sampleKeyError;
+      return;
+    }
+    if (sampleSize < 2) {
+      // The sample is too small to tell anything.
+      estimate = lowerBound = sampleKeyError;
+      upperBound = Math.max(0, numberOfTuples - 1);
+      return;
+    }
+
+    // The input has at least the distinct values of the sample.
+    long sampleDistinctValues = sampleSize - sampleKeyError;
+    double maximumKeyError = numberOfTuples - sampleDistinctValues;
+
+    // GEE: Unique values of the sample stand for sqrt(n / s) distinct values of the input.
+    long singletons = sampleSize - rowsInClusters;
+    double estimatedDistinctValues =
+        Math.sqrt((double) numberOfTuples / sampleSize) * singletons + numberOfClusters;
+    estimate = clamp(numberOfTuples - estimatedDistinctValues, sampleKeyError, maximumKeyError);
+
+    // Each duplicate pair of the input is in the sample with this probability.
+    double pairProbability =
+        ((double) sampleSize / numberOfTuples) * ((sampleSize - 1.0) / (numberOfTuples - 1.0));
+    double deviation = standardScore * Math.sqrt(duplicatePairs);
+    double maximumPairs = (duplicatePairs + deviation + standardScore * standardScore)
+                          / pairProbability;
+    double minimumPairs = Math.max(0, duplicatePairs - deviation) / pairProbability;
+
+    // The key error is at most the number of duplicate pairs. It is at least the key error of a
+    // single cluster with the given number of pairs.
+    upperBound = clamp(maximumPairs, sampleKeyError, maximumKeyError);
+    lowerBound = clamp(Math.ceil((1 + Math.sqrt(1 + 8 * minimumPairs)) / 2) - 1, sampleKeyError,
+                       maximumKeyError);
+    estimate = clamp(estimate, lowerBound, upperBound);
+  }
+
+  protected static double clamp(double value, double minimum, double maximum) {
+    return Math.max(minimum, Math.min(maximum, value));
+  }
+
+  /**
+   * @return the raw key error of the sample
+   */
+  public long getSampleKeyError() {
+    return sampleKeyError;
+  }
+
+  /**
+   * @return the estimated raw key error of the input
+   */
+  public double getEstimate() {
+    return estimate;
+  }
+
+  /**
+   * @return the lower confidence bound of the input's raw key error
+   */
+  public double getLowerBound() {
+    return lowerBound;
+  }
+
+  /**
+   * @return the upper confidence bound of the input's raw key error
+   */
+  public double getUpperBound() {
+    return upperBound;
+  }
+
+  /**
+   * @return whether the sample proves, that the column combination is not unique
+   */
+  public boolean isNonUnique() {
+    return sampleKeyError > 0;
+  }
+
+  /**
+   * @param maximumKeyError the maximum raw key error
+   * @return whether the raw key error of the input is probably at most the given one
+   */
+  public boolean isProbablyAtMost(long maximumKeyError) {
+    return upperBound <= maximumKeyError;
+  }
+}
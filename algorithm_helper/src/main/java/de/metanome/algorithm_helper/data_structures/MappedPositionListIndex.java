@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read only {@link PositionListIndex} whose rows and cluster offsets are read directly from
+ * (memory mapped) buffers. The layout is the same as the one of the {@link
+ * CompactPositionListIndex}, the rows are either stored as ints or as longs.
+ */
+public class MappedPositionListIndex extends PositionListIndex {
+
+  protected IntBuffer clusterOffsets;
+  protected IntBuffer intRows;
+  protected LongBuffer longRows;
+
+  /**
+   * @param clusterOffsets the start offsets of all clusters followed by the total number of rows
+   * @param intRows        the rows of all clusters
+   */
+  public MappedPositionListIndex(IntBuffer clusterOffsets, IntBuffer intRows) {
+    super(null);
+    this.clusterOffsets = clusterOffsets;
+    this.intRows = intRows;
+  }
+
+  /**
+   * @param clusterOffsets the start offsets of all clusters followed by the total number of rows
+   * @param longRows       the rows of all clusters
+   */
+  public MappedPositionListIndex(IntBuffer clusterOffsets, LongBuffer longRows) {
+    super(null);
+    this.clusterOffsets = clusterOffsets;
+    this.longRows = longRows;
+  }
+
+  /**
+   * Returns the clusters as newly created lists read from the buffers.
+   *
+   * @return the clusters
+   */
+  @Override
+  public List<LongArrayList> getClusters() {
+    int numberOfClusters = (int) size();
+    List<LongArrayList> clusters = new ArrayList<>(numberOfClusters);
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      int clusterSize = getClusterSize(clusterIndex);
+      LongArrayList cluster = new LongArrayList(clusterSize);
+      for (int position = 0; position < clusterSize; position++) {
+        cluster.add(getRow(clusterIndex, position));
+      }
+      clusters.add(cluster);
+    }
+    return clusters;
+  }
+
+  @Override
+  protected int getClusterSize(int clusterIndex) {
+    return clusterOffsets.get(clusterIndex + 1) - clusterOffsets.get(clusterIndex);
+  }
+
+  @Override
+  protected long getRow(int clusterIndex, int position) {
+    int index = clusterOffsets.get(clusterIndex) + position;
+    if (intRows != null) {
+      return intRows.get(index);
+    }
+    return longRows.get(index);
+  }
+
+  /**
+   * Copies the mapped pli onto the heap.
+   *
+   * @return a deep copy of the pli
+   */
+  @Override
+  public PositionListIndex clone() {
+    PositionListIndex clone;
+    if (intRows != null) {
+      int[] offsets = new int[clusterOffsets.limit()];
+      clusterOffsets.duplicate().get(offsets);
+      int[] rows = new int[intRows.limit()];
+      intRows.duplicate().get(rows);
+      clone = new CompactPositionListIndex(rows, offsets);
+    } else {
+      clone = new PositionListIndex(getClusters());
+    }
+    clone.rawKeyError = this.rawKeyError;
+    clone.canonicalForm = this.canonicalForm;
+    return clone;
+  }
+
+  @Override
+  public long size() {
+    return clusterOffsets.limit() - 1;
+  }
+
+  @Override
+  protected long calculateRawKeyError() {
+    return clusterOffsets.get(clusterOffsets.limit() - 1) - size();
+  }
+}
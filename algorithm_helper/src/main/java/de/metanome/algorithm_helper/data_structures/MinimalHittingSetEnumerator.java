@@ -0,0 +1,250 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import org.apache.lucene.util.OpenBitSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Enumerates the minimal hitting sets (minimal transversals) of a hypergraph whose edges are
+ * {@link ColumnCombinationBitset}s, e.g. the minimal UCCs from the complements of the maximal non
+ * UCCs. The enumeration follows the MMCS algorithm of Murakami and Uno: The hitting set is
+ * extended by the vertices of an uncovered edge with the fewest candidate vertices, and a branch
+ * is cut as soon as a vertex of the hitting set has no critical edge left, i.e. no edge that only
+ * this vertex hits. Every minimal hitting set is thus found exactly once, without checking for
+ * minimality afterwards.
+ */
+public class MinimalHittingSetEnumerator {
+
+  /**
+   * Size of the hitting sets up to which branches are forked in parallel mode.
+   */
+  protected static final int PARALLEL_DEPTH = 2;
+
+  // The vertices of every edge.
+  protected OpenBitSet[] edges;
+  // The edges of every vertex.
+  protected OpenBitSet[] vertexEdges;
+  protected int numberOfVertices = 0;
+  protected boolean hasEmptyEdge = false;
+
+  /**
+   * @param edges the edges of the hypergraph
+   */
+  public MinimalHittingSetEnumerator(Collection<ColumnCombinationBitset> edges) {
+    this.edges = new OpenBitSet[edges.size()];
+    int edgeIndex = 0;
+    for (ColumnCombinationBitset edge : edges) {
+      this.edges[edgeIndex++] = edge.getBitset().clone();
+      if (edge.isEmpty()) {
+        hasEmptyEdge = true;
+      } else {
+        int[] columns = edge.getSetBitsArray();
+        numberOfVertices = Math.max(numberOfVertices, columns[columns.length - 1] + 1);
+      }
+    }
+
+    vertexEdges = new OpenBitSet[numberOfVertices];
+    for (int vertex = 0; vertex < numberOfVertices; vertex++) {
+      vertexEdges[vertex] = new OpenBitSet(this.edges.length);
+    }
+    for (edgeIndex = 0; edgeIndex < this.edges.length; edgeIndex++) {
+      OpenBitSet edge = this.edges[edgeIndex];
+      for (int vertex = edge.nextSetBit(0); vertex >= 0; vertex = edge.nextSetBit(vertex + 1)) {
+        vertexEdges[vertex].fastSet(edgeIndex);
+      }
+    }
+  }
+
+  /**
+   * @return all minimal hitting sets
+   */
+  public List<ColumnCombinationBitset> getMinimalHittingSets() {
+    List<ColumnCombinationBitset> hittingSets = new ArrayList<>();
+    if (!hasEmptyEdge) {
+      enumerate(createInitialState(), hittingSets);
+    }
+    return hittingSets;
+  }
+
+  /**
+   * Enumerates the minimal hitting sets in parallel. The branches of the first levels of the
+   * search are processed as separate tasks on the pool.
+   *
+   * @param pool the pool to enumerate the branches on
+   * @return all minimal hitting sets
+   */
+  public List<ColumnCombinationBitset> getMinimalHittingSets(ForkJoinPool pool) {
+    if (hasEmptyEdge) {
+      return new ArrayList<>();
+    }
+    return pool.invoke(new HittingSetTask(createInitialState()));
+  }
+
+  protected SearchState createInitialState() {
+    SearchState state = new SearchState();
+    state.hittingSet = new IntArrayList();
+    state.candidates = new OpenBitSet(numberOfVertices);
+    state.candidates.set(0, numberOfVertices);
+    state.uncovered = new OpenBitSet(edges.length);
+    state.uncovered.set(0, edges.length);
+    state.critical = new OpenBitSet[numberOfVertices];
+    return state;
+  }
+
+  /**
+   * Enumerates all minimal hitting sets that extend the state's hitting set.
+   *
+   * @param state       the state of the search
+   * @param hittingSets the list to add the found hitting sets to
+   */
+  protected void enumerate(SearchState state, List<ColumnCombinationBitset> hittingSets) {
+    if (state.uncovered.isEmpty()) {
+      hittingSets.add(state.toColumnCombination());
+      return;
+    }
+    for (SearchState branch : branch(state)) {
+      enumerate(branch, hittingSets);
+    }
+  }
+
+  /**
+   * Extends the hitting set by every candidate vertex of the uncovered edge with the fewest
+   * candidate vertices. Vertices of the edge are only candidates for the branches after their
+   * own, so that no hitting set is found twice.
+   *
+   * @param state the state of the search with at least one uncovered edge
+   * @return the states of all branches that keep the hitting set minimal
+   */
+  protected List<SearchState> branch(SearchState state) {
+    OpenBitSet branchVertices = null;
+    long minimumNumberOfCandidates = Long.MAX_VALUE;
+    OpenBitSet uncovered = state.uncovered;
+    for (int edge = uncovered.nextSetBit(0); edge >= 0; edge = uncovered.nextSetBit(edge + 1)) {
+      long numberOfCandidates = OpenBitSet.intersectionCount(edges[edge], state.candidates);
+      if (numberOfCandidates < minimumNumberOfCandidates) {
+        minimumNumberOfCandidates = numberOfCandidates;
+        branchVertices = edges[edge];
+      }
+    }
+
+    List<SearchState> branches = new ArrayList<>();
+    branchVertices = branchVertices.clone();
+    branchVertices.and(state.candidates);
+    OpenBitSet candidates = state.candidates.clone();
+    candidates.andNot(branchVertices);
+    for (int vertex = branchVertices.nextSetBit(0); vertex >= 0;
+         vertex = branchVertices.nextSetBit(vertex + 1)) {
+      SearchState branch = state.add(vertex, candidates);
+      if (branch != null) {
+        branches.add(branch);
+      }
+      candidates.fastSet(vertex);
+    }
+    return branches;
+  }
+
+  /**
+   * A partial hitting set with its candidate vertices, uncovered edges and critical edges.
+   */
+  protected class SearchState {
+
+    protected IntArrayList hittingSet;
+    protected OpenBitSet candidates;
+    protected OpenBitSet uncovered;
+    // The edges only hit by the vertex, for all vertices in the hitting set.
+    protected OpenBitSet[] critical;
+
+    /**
+     * Adds the vertex to a copy of the state, unless the hitting set would not be minimal
+     * anymore.
+     *
+     * @param vertex     the vertex to add
+     * @param candidates the candidate vertices of the new state
+     * @return the new state or null if a vertex of the hitting set would lose all critical edges
+     */
+    protected SearchState add(int vertex, OpenBitSet candidates) {
+      OpenBitSet edgesOfVertex = vertexEdges[vertex];
+      for (int i = 0; i < hittingSet.size(); i++) {
+        if (OpenBitSet.andNotCount(critical[hittingSet.getInt(i)], edgesOfVertex) == 0) {
+          return null;
+        }
+      }
+
+      SearchState state = new SearchState();
+      state.hittingSet = new IntArrayList(hittingSet);
+      state.hittingSet.add(vertex);
+      state.candidates = candidates.clone();
+      state.critical = new OpenBitSet[numberOfVertices];
+      for (int i = 0; i < hittingSet.size(); i++) {
+        int hittingSetVertex = hittingSet.getInt(i);
+        state.critical[hittingSetVertex] = critical[hittingSetVertex].clone();
+        state.critical[hittingSetVertex].andNot(edgesOfVertex);
+      }
+      state.critical[vertex] = uncovered.clone();
+      state.critical[vertex].and(edgesOfVertex);
+      state.uncovered = uncovered.clone();
+      state.uncovered.andNot(edgesOfVertex);
+      return state;
+    }
+
+    protected ColumnCombinationBitset toColumnCombination() {
+      return ColumnCombinationBitset.create(numberOfVertices, hittingSet.toIntArray());
+    }
+  }
+
+  /**
+   * Enumerates the minimal hitting sets extending a state, the branches are forked until the
+   * hitting set has {@link #PARALLEL_DEPTH} vertices.
+   */
+  protected class HittingSetTask extends RecursiveTask<List<ColumnCombinationBitset>> {
+
+    private static final long serialVersionUID = 3185749820637212458L;
+
+    protected SearchState state;
+
+    protected HittingSetTask(SearchState state) {
+      this.state = state;
+    }
+
+    @Override
+    protected List<ColumnCombinationBitset> compute() {
+      List<ColumnCombinationBitset> hittingSets = new ArrayList<>();
+      if (state.uncovered.isEmpty() || (state.hittingSet.size() >= PARALLEL_DEPTH)) {
+        enumerate(state, hittingSets);
+        return hittingSets;
+      }
+
+      List<HittingSetTask> tasks = new ArrayList<>();
+      for (SearchState branch : branch(state)) {
+        tasks.add(new HittingSetTask(branch));
+      }
+      invokeAll(tasks);
+      for (HittingSetTask task : tasks) {
+        hittingSets.addAll(task.join());
+      }
+      return hittingSets;
+    }
+  }
+}
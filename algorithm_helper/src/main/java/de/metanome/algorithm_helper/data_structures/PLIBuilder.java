@@ -16,8 +16,11 @@
 
 package de.metanome.algorithm_helper.data_structures;
 
+import de.metanome.algorithm_integration.input.ColumnarBatch;
 import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.PartitionedRelationalInput;
 import de.metanome.algorithm_integration.input.RelationalInput;
+import de.metanome.algorithm_integration.input.RowBatchHandler;
 
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 
@@ -26,17 +29,23 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Constructs a list of {@link PositionListIndex}es from the given {@link
  * de.metanome.algorithm_integration.input.RelationalInput}. A list of all columns' sorted distinct
- * values can be constructed as a byproduct.
+ * values can be constructed as a byproduct. Sequential inputs are read into a {@link
+ * DictionaryEncodedColumnStore}, from which both the plis and the distinct sorted columns are
+ * derived, so they are limited to about 2^31 rows; larger inputs need a {@link
+ * SpillingPLIBuilder}. {@link PartitionedRelationalInput}s are read in parallel into value maps.
  */
 public class PLIBuilder {
 
   protected long numberOfTuples = -1;
   protected List<HashMap<String, LongArrayList>> columns = null;
+  protected DictionaryEncodedColumnStore columnStore = null;
   protected RelationalInput input;
   protected boolean nullEqualsNull;
 
@@ -50,16 +59,28 @@ public class PLIBuilder {
   }
 
   /**
-   * Builds a {@link PositionListIndex} for every column in the input.
+   * Builds a {@link PositionListIndex} for every column in the input. If all row ids fit into an
+   * int the plis are built as {@link CompactPositionListIndex}es.
    *
    * @return list of plis for all columns
    * @throws InputIterationException if the input cannot be iterated
    */
   public List<PositionListIndex> getPLIList() throws InputIterationException {
+    if (getColumnStore() != null) {
+      return columnStore.getPLIList(nullEqualsNull);
+    }
+
     List<List<LongArrayList>> rawPLIs = getRawPLIs();
+    boolean compact = numberOfTuples <= Integer.MAX_VALUE;
     List<PositionListIndex> result = new ArrayList<>();
-    for (List<LongArrayList> rawPLI : rawPLIs) {
-      result.add(new PositionListIndex(rawPLI));
+    for (int i = 0; i < rawPLIs.size(); i++) {
+      if (compact) {
+        result.add(CompactPositionListIndex.fromClusters(rawPLIs.get(i)));
+        // Free the raw clusters early.
+        rawPLIs.set(i, null);
+      } else {
+        result.add(new PositionListIndex(rawPLIs.get(i)));
+      }
     }
     return result;
   }
@@ -71,11 +92,33 @@ public class PLIBuilder {
    * @throws InputIterationException if the input cannot be iterated
    */
   protected List<List<LongArrayList>> getRawPLIs() throws InputIterationException {
+    ensureInputRead();
+    return purgePLIEntries();
+  }
+
+  /**
+   * Returns the column store the input has been read into. The store can be shared with other
+   * algorithms that need the same input. Builders that read the input into value maps, like
+   * partitioned inputs or the subclasses do, return null.
+   *
+   * @return the column store of the input or null
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  public DictionaryEncodedColumnStore getColumnStore() throws InputIterationException {
+    ensureInputRead();
+    return columnStore;
+  }
+
+  /**
+   * Reads the input on the first call.
+   *
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  protected void ensureInputRead() throws InputIterationException {
     if (columns == null) {
       columns = new ArrayList<>();
       calculateUnpurgedPLI();
     }
-    return purgePLIEntries();
   }
 
   /**
@@ -99,9 +142,8 @@ public class PLIBuilder {
    * @throws InputIterationException if the input cannot be iterated
    */
   public List<TreeSet<String>> getDistinctSortedColumns() throws InputIterationException {
-    if (columns == null) {
-      columns = new ArrayList<>();
-      calculateUnpurgedPLI();
+    if (getColumnStore() != null) {
+      return columnStore.getDistinctSortedColumns();
     }
 
     List<TreeSet<String>> distinctSortedColumns = new LinkedList<>();
@@ -117,17 +159,119 @@ public class PLIBuilder {
   }
 
   protected void calculateUnpurgedPLI() throws InputIterationException {
-    long rowCount = 0;
+    if (input instanceof PartitionedRelationalInput) {
+      calculateUnpurgedPLI((PartitionedRelationalInput) input);
+      return;
+    }
+
+    columnStore = new DictionaryEncodedColumnStore(input);
+    this.numberOfTuples = columnStore.getNumberOfTuples();
+  }
+
+  /**
+   * Creates the value maps for all columns that appear in the batch for the first time. Columns
+   * the batch does not have yet are added to it, so that its rows are null in these columns.
+   *
+   * @param batch the next batch
+   */
+  protected void ensureNumberOfColumns(ColumnarBatch batch) {
+    while (columns.size() < batch.numberOfColumns()) {
+      columns.add(new HashMap<String, LongArrayList>());
+    }
+    batch.ensureNumberOfColumns(columns.size());
+  }
+
+  /**
+   * Adds the values of a range of columns of a batch to the column maps.
+   *
+   * @param batch      the batch to add
+   * @param firstRow   the row id of the batch's first row
+   * @param fromColumn the first column (inclusive)
+   * @param toColumn   the last column (exclusive)
+   */
+  protected void addBatch(ColumnarBatch batch, long firstRow, int fromColumn, int toColumn) {
+    int numberOfRows = batch.numberOfRows();
+    for (int columnIndex = fromColumn; columnIndex < toColumn; columnIndex++) {
+      HashMap<String, LongArrayList> columnMap = columns.get(columnIndex);
+      String[] values = batch.getColumn(columnIndex);
+      for (int row = 0; row < numberOfRows; row++) {
+        addValue(columnMap, firstRow + row, values[row]);
+      }
+    }
+  }
+
+  /**
+   * Reads the partitions of the input in parallel into separate value maps with row ids relative
+   * to the partition. Every partition is merged as soon as it and all previous partitions are
+   * finished and its maps are dropped, so the clusters stay sorted, the row ids are the same as
+   * when reading the input sequentially and only the maps of unfinished partitions are kept.
+   *
+   * @param partitionedInput the input to read
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  protected void calculateUnpurgedPLI(PartitionedRelationalInput partitionedInput)
+      throws InputIterationException {
+    final Map<Integer, List<HashMap<String, LongArrayList>>> partitionColumns =
+        new ConcurrentHashMap<>();
     this.numberOfTuples = 0;
-    while (input.hasNext()) {
-      this.numberOfTuples++;
-      List<String> row = input.next();
-      int columnCount = 0;
-      for (String cellValue : row) {
-        addValue(rowCount, columnCount, cellValue);
-        columnCount++;
+    partitionedInput.readPartitioned(new RowBatchHandler() {
+      @Override
+      public void handle(int partition, long firstRow, List<List<String>> rows) {
+        // Only the partition's own worker accesses its maps.
+        List<HashMap<String, LongArrayList>> columnMaps = partitionColumns.get(partition);
+        if (columnMaps == null) {
+          columnMaps = new ArrayList<>();
+          partitionColumns.put(partition, columnMaps);
+        }
+
+        long rowCount = firstRow;
+        for (List<String> row : rows) {
+          while (columnMaps.size() < row.size()) {
+            columnMaps.add(new HashMap<String, LongArrayList>());
+          }
+          int columnCount = 0;
+          for (String cellValue : row) {
+            addValue(columnMaps.get(columnCount), rowCount, cellValue);
+            columnCount++;
+          }
+          rowCount++;
+        }
+      }
+
+      @Override
+      public void finishPartition(int partition, long numberOfRows) {
+        List<HashMap<String, LongArrayList>> columnMaps = partitionColumns.remove(partition);
+        if (columnMaps != null) {
+          mergePartition(columnMaps, numberOfTuples);
+        }
+        numberOfTuples += numberOfRows;
+      }
+    });
+  }
+
+  /**
+   * Appends the clusters of a partition to the clusters of the previous partitions.
+   *
+   * @param columnMaps the value maps of the partition
+   * @param firstRow   the row id of the partition's first row
+   */
+  protected void mergePartition(List<HashMap<String, LongArrayList>> columnMaps, long firstRow) {
+    while (columns.size() < columnMaps.size()) {
+      columns.add(new HashMap<String, LongArrayList>());
+    }
+    for (int columnCount = 0; columnCount < columnMaps.size(); columnCount++) {
+      HashMap<String, LongArrayList> columnMap = columns.get(columnCount);
+      for (Map.Entry<String, LongArrayList> entry : columnMaps.get(columnCount).entrySet()) {
+        LongArrayList cluster = columnMap.get(entry.getKey());
+        if (cluster == null) {
+          cluster = new LongArrayList(entry.getValue().size());
+          columnMap.put(entry.getKey(), cluster);
+        }
+        LongArrayList partitionCluster = entry.getValue();
+        for (int i = 0; i < partitionCluster.size(); i++) {
+          cluster.add(partitionCluster.getLong(i) + firstRow);
+        }
       }
-      rowCount++;
     }
   }
 
@@ -136,17 +280,28 @@ public class PLIBuilder {
       columns.add(new HashMap<String, LongArrayList>());
     }
 
+    addValue(columns.get(columnCount), rowCount, attributeCell);
+  }
+
+  /**
+   * Adds the row to the cluster of the cell value in the given column map.
+   *
+   * @param columnMap     the value to cluster map of the column
+   * @param rowCount      the row id
+   * @param attributeCell the cell value
+   */
+  protected void addValue(HashMap<String, LongArrayList> columnMap, long rowCount,
+                          String attributeCell) {
     if (!this.nullEqualsNull && attributeCell == null) {
       return;
     }
 
-    if (columns.get(columnCount).containsKey(attributeCell)) {
-      columns.get(columnCount).get(attributeCell).add(rowCount);
-    } else {
-      LongArrayList newList = new LongArrayList();
-      newList.add(rowCount);
-      columns.get(columnCount).put(attributeCell, newList);
+    LongArrayList cluster = columnMap.get(attributeCell);
+    if (cluster == null) {
+      cluster = new LongArrayList();
+      columnMap.put(attributeCell, cluster);
     }
+    cluster.add(rowCount);
   }
 
   protected List<List<LongArrayList>> purgePLIEntries() {
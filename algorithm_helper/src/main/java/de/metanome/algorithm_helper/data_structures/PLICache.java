@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Caches the {@link PositionListIndex}es of column combinations during lattice traversals. The
+ * plis of single columns are always kept, intersected plis are evicted in least recently used order
+ * as soon as the total number of rows they store exceeds the maximum weight. On a miss the pli is
+ * intersected from the two cached direct subsets with the fewest rows, or from a cached direct
+ * subset and the missing column. If no direct subset is cached it is computed and cached first. A
+ * cache is not thread safe.
+ */
+public class PLICache {
+
+  protected PositionListIndex[] columnPLIs;
+  protected long maximumWeight;
+  protected long weight = 0;
+  // Access ordered, the first entry is the least recently used one.
+  protected LinkedHashMap<ColumnCombinationBitset, PositionListIndex> cache =
+      new LinkedHashMap<>(16, 0.75f, true);
+  protected PLIIntersector intersector = new PLIIntersector();
+
+  protected long hitCount = 0;
+  protected long missCount = 0;
+  protected long evictionCount = 0;
+
+  /**
+   * @param columnPLIs    the plis of all single columns ordered by column index
+   * @param maximumWeight the maximum number of rows in all cached intersected plis
+   */
+  public PLICache(List<PositionListIndex> columnPLIs, long maximumWeight) {
+    this.columnPLIs = columnPLIs.toArray(new PositionListIndex[columnPLIs.size()]);
+    this.maximumWeight = maximumWeight;
+  }
+
+  /**
+   * Returns the pli of the column combination, which is intersected on a miss. The returned pli
+   * must not be modified.
+   *
+   * @param columnCombination a non empty column combination
+   * @return the pli of the column combination
+   */
+  public PositionListIndex getPLI(ColumnCombinationBitset columnCombination) {
+    if (columnCombination.isEmpty()) {
+      throw new IllegalArgumentException("The empty column combination has no pli.");
+    }
+
+    if (columnCombination.size() == 1) {
+      hitCount++;
+      return columnPLIs[columnCombination.getSetBits().get(0)];
+    }
+
+    PositionListIndex pli = cache.get(columnCombination);
+    if (pli != null) {
+      hitCount++;
+      return pli;
+    }
+    missCount++;
+
+    pli = calculatePLI(columnCombination);
+    put(columnCombination, pli);
+    return pli;
+  }
+
+  /**
+   * Intersects the pli from the cheapest cached direct subsets.
+   *
+   * @param columnCombination the column combination with at least two columns
+   * @return the intersected pli
+   */
+  protected PositionListIndex calculatePLI(ColumnCombinationBitset columnCombination) {
+    ColumnCombinationBitset smallestSubset = null;
+    PositionListIndex smallestPLI = null;
+    PositionListIndex secondSmallestPLI = null;
+    for (ColumnCombinationBitset subset : columnCombination.getDirectSubsets()) {
+      // Considered subsets count as recently used, they are close to the traversal's frontier.
+      PositionListIndex subsetPLI = getCachedPLI(subset);
+      if (subsetPLI == null) {
+        continue;
+      }
+      if ((smallestPLI == null) || (getWeight(subsetPLI) < getWeight(smallestPLI))) {
+        secondSmallestPLI = smallestPLI;
+        smallestPLI = subsetPLI;
+        smallestSubset = subset;
+      } else if ((secondSmallestPLI == null)
+                 || (getWeight(subsetPLI) < getWeight(secondSmallestPLI))) {
+        secondSmallestPLI = subsetPLI;
+      }
+    }
+
+    if (smallestPLI == null) {
+      // Compute the subset without the last column first, so its pli can be reused as well.
+      List<Integer> columns = columnCombination.getSetBits();
+      smallestSubset = new ColumnCombinationBitset(columnCombination)
+          .removeColumn(columns.get(columns.size() - 1));
+      smallestPLI = getPLI(smallestSubset);
+    }
+
+    PositionListIndex otherPLI = secondSmallestPLI;
+    if (otherPLI == null) {
+      int missingColumn = columnCombination.minus(smallestSubset).getSetBits().get(0);
+      otherPLI = columnPLIs[missingColumn];
+    }
+
+    return intersector.intersect(smallestPLI, otherPLI);
+  }
+
+  protected PositionListIndex getCachedPLI(ColumnCombinationBitset columnCombination) {
+    if (columnCombination.size() == 1) {
+      return columnPLIs[columnCombination.getSetBits().get(0)];
+    }
+    return cache.get(columnCombination);
+  }
+
+  /**
+   * Adds the pli to the cache and evicts the least recently used plis while the maximum weight is
+   * exceeded.
+   *
+   * @param columnCombination the column combination of the pli
+   * @param pli               the pli to cache
+   */
+  protected void put(ColumnCombinationBitset columnCombination, PositionListIndex pli) {
+    // Column combinations are mutable, so the key is copied.
+    PositionListIndex previousPLI = cache.put(new ColumnCombinationBitset(columnCombination), pli);
+    if (previousPLI != null) {
+      weight -= getWeight(previousPLI);
+    }
+    weight += getWeight(pli);
+
+    Iterator<PositionListIndex> iterator = cache.values().iterator();
+    while ((weight > maximumWeight) && iterator.hasNext()) {
+      weight -= getWeight(iterator.next());
+      iterator.remove();
+      evictionCount++;
+    }
+  }
+
+  /**
+   * @param pli a pli
+   * @return the number of rows stored in the pli
+   */
+  protected long getWeight(PositionListIndex pli) {
+    return pli.getRawKeyError() + pli.size();
+  }
+
+  /**
+   * @return the number of requests answered from the cache or the single column plis
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of requests that required an intersection
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the number of evicted plis
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * @return the number of rows in all cached intersected plis
+   */
+  public long getWeight() {
+    return weight;
+  }
+
+  /**
+   * @return the number of cached intersected plis
+   */
+  public int size() {
+    return cache.size();
+  }
+}
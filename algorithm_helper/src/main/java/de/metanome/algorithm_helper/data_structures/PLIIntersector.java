@@ -0,0 +1,384 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Intersects {@link PositionListIndex}es using a {@link ProbingTable} that maps every row of the
+ * first index to its cluster. The probing table and all other scratch buffers are kept between
+ * calls, so that repeated intersections only allocate the resulting clusters and never an object
+ * per probed row. If the second pli is a {@link CompactPositionListIndex} the result is compact as
+ * well. Callers that only need the uniqueness, the key error or the refinement of the intersection
+ * can decide these without materializing it. The buffers grow to the largest pli seen and are
+ * only shrunk by {@link #trim()} or {@link #release()}. The probing tables keep no strong
+ * reference to their plis. An intersector is not thread safe, every thread should use its own
+ * instance.
+ */
+public class PLIIntersector {
+
+  /**
+   * Maximum number of rows or clusters the buffers of an intersector keep after {@link #trim()}.
+   */
+  public static final int MAX_RETAINED_ROWS = 1 << 20;
+
+  protected ProbingTable probingTable = new ProbingTable();
+  // Kept between refinement checks, because the same rhs is usually checked repeatedly.
+  protected ProbingTable rhsProbingTable = new ProbingTable();
+
+  // Number of rows per probing cluster hit by the current probe cluster.
+  protected int[] clusterCounts = new int[0];
+  // Write positions of the probing clusters in the row buffer.
+  protected int[] clusterOffsets = new int[0];
+  protected int[] touchedClusters = new int[0];
+  protected long[] rowBuffer = new long[0];
+  // Rhs cluster index of the first row per probing cluster during refinement checks.
+  protected int[] rhsClusters = new int[0];
+
+  // Result of the current intersection, either as compact rows and offsets or as long clusters.
+  protected boolean compactResult;
+  protected IntArrayList resultRows;
+  protected IntArrayList resultOffsets;
+  protected List<LongArrayList> resultClusters;
+
+  /**
+   * Intersects the two given {@link PositionListIndex}es. The result contains the same clusters as
+   * {@link PositionListIndex#intersect(PositionListIndex)}, the rows of every cluster are ordered
+   * as in the second pli.
+   *
+   * @param firstPLI  the pli that is converted into the probing table
+   * @param secondPLI the pli whose clusters probe the table
+   * @return the intersected {@link PositionListIndex}
+   */
+  public PositionListIndex intersect(PositionListIndex firstPLI, PositionListIndex secondPLI) {
+    probingTable.build(firstPLI);
+    ensureClusterCapacity((int) firstPLI.size());
+
+    compactResult = secondPLI instanceof CompactPositionListIndex;
+    if (compactResult) {
+      resultRows = new IntArrayList();
+      resultOffsets = new IntArrayList();
+      resultOffsets.add(0);
+    } else {
+      resultClusters = new ArrayList<>();
+    }
+
+    int numberOfProbeClusters = (int) secondPLI.size();
+    for (int probeClusterIndex = 0; probeClusterIndex < numberOfProbeClusters;
+         probeClusterIndex++) {
+      probeCluster(secondPLI, probeClusterIndex);
+    }
+
+    probingTable.clear();
+    return buildResult();
+  }
+
+  /**
+   * Checks whether the intersection of the two plis is unique without materializing it.
+   *
+   * @param firstPLI  the pli that is converted into the probing table
+   * @param secondPLI the pli whose clusters probe the table
+   * @return true if the intersection contains no cluster
+   */
+  public boolean isIntersectionUnique(PositionListIndex firstPLI, PositionListIndex secondPLI) {
+    return !intersectionKeyErrorExceeds(firstPLI, secondPLI, 0);
+  }
+
+  /**
+   * Checks whether the raw key error of the intersection of the two plis exceeds the maximum key
+   * error without materializing the intersection. The clusters of the second pli are probed
+   * smallest first and probing stops as soon as the key error exceeds the maximum or can no longer
+   * exceed it with the remaining clusters.
+   *
+   * @param firstPLI        the pli that is converted into the probing table
+   * @param secondPLI       the pli whose clusters probe the table
+   * @param maximumKeyError the maximum raw key error
+   * @return true if the raw key error of the intersection is larger than the maximum
+   */
+  public boolean intersectionKeyErrorExceeds(PositionListIndex firstPLI,
+                                             PositionListIndex secondPLI,
+                                             long maximumKeyError) {
+    // The key error of the intersection is bounded by the key errors of both plis.
+    long remainingKeyError = secondPLI.getRawKeyError();
+    if ((remainingKeyError <= maximumKeyError) || (firstPLI.getRawKeyError() <= maximumKeyError)) {
+      return false;
+    }
+
+    probingTable.build(firstPLI);
+    ensureClusterCapacity((int) firstPLI.size());
+
+    long keyError = 0;
+    for (int probeClusterIndex : getClustersBySize(secondPLI)) {
+      int numberOfTouchedClusters = 0;
+      int size = secondPLI.getClusterSize(probeClusterIndex);
+      remainingKeyError -= size - 1;
+      // Every row after the first one of a probing cluster adds one to the key error.
+      for (int i = 0; (i < size) && (keyError <= maximumKeyError); i++) {
+        int clusterIndex = probingTable.getClusterIndex(secondPLI.getRow(probeClusterIndex, i));
+        if (clusterIndex < 0) {
+          continue;
+        }
+        if (clusterCounts[clusterIndex]++ == 0) {
+          touchedClusters[numberOfTouchedClusters++] = clusterIndex;
+        } else {
+          keyError++;
+        }
+      }
+      resetCounts(numberOfTouchedClusters);
+
+      if ((keyError > maximumKeyError) || (keyError + remainingKeyError <= maximumKeyError)) {
+        break;
+      }
+    }
+
+    probingTable.clear();
+    return keyError > maximumKeyError;
+  }
+
+  /**
+   * Checks whether the intersection of the first two plis refines the rhs pli without
+   * materializing it, i.e. whether the functional dependency from the columns of the first two
+   * plis to the columns of the rhs pli holds. The clusters of the second pli are probed smallest
+   * first and probing stops at the first violation.
+   *
+   * @param firstPLI  the pli that is converted into the probing table
+   * @param secondPLI the pli whose clusters probe the table
+   * @param rhsPLI    the pli that should be refined
+   * @return true if every cluster of the intersection is contained in a cluster of the rhs pli
+   */
+  public boolean intersectionRefines(PositionListIndex firstPLI, PositionListIndex secondPLI,
+                                     PositionListIndex rhsPLI) {
+    buildRhsProbingTable(rhsPLI);
+    probingTable.build(firstPLI);
+    ensureClusterCapacity((int) firstPLI.size());
+
+    boolean refines = true;
+    for (int probeClusterIndex : getClustersBySize(secondPLI)) {
+      int numberOfTouchedClusters = 0;
+      int size = secondPLI.getClusterSize(probeClusterIndex);
+      for (int i = 0; (i < size) && refines; i++) {
+        long row = secondPLI.getRow(probeClusterIndex, i);
+        int clusterIndex = probingTable.getClusterIndex(row);
+        if (clusterIndex < 0) {
+          continue;
+        }
+        int rhsClusterIndex = rhsProbingTable.getClusterIndex(row);
+        if (clusterCounts[clusterIndex]++ == 0) {
+          touchedClusters[numberOfTouchedClusters++] = clusterIndex;
+          rhsClusters[clusterIndex] = rhsClusterIndex;
+        } else if ((rhsClusterIndex < 0) || (rhsClusterIndex != rhsClusters[clusterIndex])) {
+          refines = false;
+        }
+      }
+      resetCounts(numberOfTouchedClusters);
+
+      if (!refines) {
+        break;
+      }
+    }
+
+    probingTable.clear();
+    return refines;
+  }
+
+  /**
+   * Checks whether the lhs pli refines the rhs pli, i.e. whether the functional dependency from
+   * the columns of the lhs pli to the columns of the rhs pli holds. The probing table of the rhs
+   * pli is kept, so checking further plis against the same rhs does not build it again.
+   *
+   * @param lhsPLI the pli that should refine the rhs pli
+   * @param rhsPLI the pli that should be refined
+   * @return true if every cluster of the lhs pli is contained in a cluster of the rhs pli
+   */
+  public boolean refines(PositionListIndex lhsPLI, PositionListIndex rhsPLI) {
+    buildRhsProbingTable(rhsPLI);
+    return lhsPLI.refines(rhsProbingTable);
+  }
+
+  protected void buildRhsProbingTable(PositionListIndex rhsPLI) {
+    if (rhsProbingTable.getPLI() != rhsPLI) {
+      rhsProbingTable.build(rhsPLI);
+    }
+  }
+
+  /**
+   * Returns the cluster indices of the pli ordered by ascending cluster size.
+   *
+   * @param pli the pli to order
+   * @return the ordered cluster indices
+   */
+  protected int[] getClustersBySize(final PositionListIndex pli) {
+    int[] clusterIndices = new int[(int) pli.size()];
+    for (int clusterIndex = 0; clusterIndex < clusterIndices.length; clusterIndex++) {
+      clusterIndices[clusterIndex] = clusterIndex;
+    }
+    IntArrays.quickSort(clusterIndices, new AbstractIntComparator() {
+      @Override
+      public int compare(int k1, int k2) {
+        return Integer.compare(pli.getClusterSize(k1), pli.getClusterSize(k2));
+      }
+    });
+    return clusterIndices;
+  }
+
+  protected PositionListIndex buildResult() {
+    PositionListIndex result;
+    if (compactResult) {
+      result = new CompactPositionListIndex(resultRows.toIntArray(), resultOffsets.toIntArray());
+      resultRows = null;
+      resultOffsets = null;
+    } else {
+      result = new PositionListIndex(resultClusters);
+      resultClusters = null;
+    }
+    return result;
+  }
+
+  /**
+   * Splits a single cluster of the second pli by the clusters of the probing table and adds all
+   * non unary parts to the result.
+   *
+   * @param probePLI          the pli containing the cluster to split
+   * @param probeClusterIndex the index of the cluster to split
+   */
+  protected void probeCluster(PositionListIndex probePLI, int probeClusterIndex) {
+    int numberOfTouchedClusters = 0;
+    int size = probePLI.getClusterSize(probeClusterIndex);
+
+    // Count the rows per probing cluster.
+    for (int i = 0; i < size; i++) {
+      int clusterIndex = probingTable.getClusterIndex(probePLI.getRow(probeClusterIndex, i));
+      if (clusterIndex < 0) {
+        continue;
+      }
+      if (clusterCounts[clusterIndex]++ == 0) {
+        touchedClusters[numberOfTouchedClusters++] = clusterIndex;
+      }
+    }
+
+    // Compute the write positions and skip clusters that would be unary.
+    int offset = 0;
+    for (int i = 0; i < numberOfTouchedClusters; i++) {
+      int clusterIndex = touchedClusters[i];
+      clusterOffsets[clusterIndex] = offset;
+      if (clusterCounts[clusterIndex] > 1) {
+        offset += clusterCounts[clusterIndex];
+      }
+    }
+    if (offset == 0) {
+      resetCounts(numberOfTouchedClusters);
+      return;
+    }
+
+    ensureRowBufferCapacity(offset);
+    for (int i = 0; i < size; i++) {
+      long row = probePLI.getRow(probeClusterIndex, i);
+      int clusterIndex = probingTable.getClusterIndex(row);
+      if ((clusterIndex < 0) || (clusterCounts[clusterIndex] < 2)) {
+        continue;
+      }
+      rowBuffer[clusterOffsets[clusterIndex]++] = row;
+    }
+
+    for (int i = 0; i < numberOfTouchedClusters; i++) {
+      int clusterIndex = touchedClusters[i];
+      int count = clusterCounts[clusterIndex];
+      if (count > 1) {
+        addResultCluster(clusterOffsets[clusterIndex] - count, count);
+      }
+    }
+    resetCounts(numberOfTouchedClusters);
+  }
+
+  /**
+   * Adds the rows in the given range of the row buffer as new cluster to the result.
+   *
+   * @param offset the start of the cluster in the row buffer
+   * @param length the number of rows in the cluster
+   */
+  protected void addResultCluster(int offset, int length) {
+    if (compactResult) {
+      for (int i = offset; i < offset + length; i++) {
+        resultRows.add((int) rowBuffer[i]);
+      }
+      resultOffsets.add(resultRows.size());
+    } else {
+      resultClusters.add(new LongArrayList(rowBuffer, offset, length));
+    }
+  }
+
+  protected void resetCounts(int numberOfTouchedClusters) {
+    for (int i = 0; i < numberOfTouchedClusters; i++) {
+      clusterCounts[touchedClusters[i]] = 0;
+    }
+  }
+
+  /**
+   * Releases the probing tables and buffers that are larger than {@link #MAX_RETAINED_ROWS}.
+   * The probing table of the last rhs pli is kept if it is small enough.
+   */
+  public void trim() {
+    probingTable.trim(MAX_RETAINED_ROWS);
+    if (rhsProbingTable.getRetainedRows() > MAX_RETAINED_ROWS) {
+      rhsProbingTable.trim(MAX_RETAINED_ROWS);
+    }
+    if (clusterCounts.length > MAX_RETAINED_ROWS) {
+      releaseClusterBuffers();
+    }
+    if (rowBuffer.length > MAX_RETAINED_ROWS) {
+      rowBuffer = new long[0];
+    }
+  }
+
+  /**
+   * Releases all probing tables and buffers.
+   */
+  public void release() {
+    probingTable.trim(0);
+    rhsProbingTable.trim(0);
+    releaseClusterBuffers();
+    rowBuffer = new long[0];
+  }
+
+  protected void releaseClusterBuffers() {
+    clusterCounts = new int[0];
+    clusterOffsets = new int[0];
+    touchedClusters = new int[0];
+    rhsClusters = new int[0];
+  }
+
+  protected void ensureClusterCapacity(int numberOfClusters) {
+    if (clusterCounts.length < numberOfClusters) {
+      clusterCounts = new int[numberOfClusters];
+      clusterOffsets = new int[numberOfClusters];
+      touchedClusters = new int[numberOfClusters];
+      rhsClusters = new int[numberOfClusters];
+    }
+  }
+
+  protected void ensureRowBufferCapacity(int capacity) {
+    if (rowBuffer.length < capacity) {
+      rowBuffer = new long[Math.max(capacity, 2 * rowBuffer.length)];
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.input.BatchRelationalInput;
+import de.metanome.algorithm_integration.input.BatchRelationalInputAdapter;
+import de.metanome.algorithm_integration.input.ColumnarBatch;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.PartitionedRelationalInput;
+import de.metanome.algorithm_integration.input.RelationalInput;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A {@link PLIBuilder} that reads the input in batches of rows and fills the value to cluster maps
+ * of all columns in parallel. Every column map is only updated by a single worker per batch and
+ * batches are processed in input order, so the resulting {@link PositionListIndex}es are identical
+ * to the ones built by the sequential {@link PLIBuilder}. Two {@link ColumnarBatch}es are
+ * alternated: the next batch is read while the workers process the current one.
+ */
+public class ParallelPLIBuilder extends PLIBuilder {
+
+  public static final int DEFAULT_BATCH_SIZE = 10000;
+
+  protected int batchSize;
+  protected int parallelism;
+
+  public ParallelPLIBuilder(RelationalInput input) {
+    this(input, true);
+  }
+
+  public ParallelPLIBuilder(RelationalInput input, boolean nullEqualsNull) {
+    this(input, nullEqualsNull, DEFAULT_BATCH_SIZE, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param input          the input to build the plis from
+   * @param nullEqualsNull whether null values are considered equal
+   * @param batchSize      the number of rows read before the workers are started
+   * @param parallelism    the number of worker threads
+   */
+  public ParallelPLIBuilder(RelationalInput input, boolean nullEqualsNull, int batchSize,
+                            int parallelism) {
+    super(input, nullEqualsNull);
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("The batch size needs to be positive.");
+    }
+    this.batchSize = batchSize;
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  protected void calculateUnpurgedPLI() throws InputIterationException {
+    if (input instanceof PartitionedRelationalInput) {
+      // The input is already read in parallel.
+      calculateUnpurgedPLI((PartitionedRelationalInput) input);
+      return;
+    }
+
+    BatchRelationalInput batchInput = BatchRelationalInputAdapter.of(input);
+    // One batch is read while the workers process the other one.
+    ColumnarBatch[] batches = {new ColumnarBatch(input.numberOfColumns(), batchSize),
+                               new ColumnarBatch(input.numberOfColumns(), batchSize)};
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      int current = 0;
+      this.numberOfTuples = 0;
+      ForkJoinTask<Void> runningBatch = null;
+      while (batchInput.nextBatch(batches[current]) > 0) {
+        ColumnarBatch batch = batches[current];
+
+        // Batches need to be processed in order to keep the row ids in the clusters sorted.
+        if (runningBatch != null) {
+          runningBatch.join();
+        }
+        ensureNumberOfColumns(batch);
+        runningBatch = pool.submit(new BatchTask(batch, this.numberOfTuples, 0, columns.size()));
+        this.numberOfTuples += batch.numberOfRows();
+        current = 1 - current;
+      }
+      if (runningBatch != null) {
+        runningBatch.join();
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Adds the values of a range of columns of a batch to the column maps. The column range is split
+   * until every task handles a single column.
+   */
+  protected class BatchTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 4327462863287425476L;
+
+    protected ColumnarBatch batch;
+    protected long firstRow;
+    protected int fromColumn;
+    protected int toColumn;
+
+    public BatchTask(ColumnarBatch batch, long firstRow, int fromColumn, int toColumn) {
+      this.batch = batch;
+      this.firstRow = firstRow;
+      this.fromColumn = fromColumn;
+      this.toColumn = toColumn;
+    }
+
+    @Override
+    protected void compute() {
+      if (toColumn - fromColumn > 1) {
+        int middleColumn = (fromColumn + toColumn) >>> 1;
+        invokeAll(new BatchTask(batch, firstRow, fromColumn, middleColumn),
+                  new BatchTask(batch, firstRow, middleColumn, toColumn));
+        return;
+      }
+
+      addBatch(batch, firstRow, fromColumn, toColumn);
+    }
+  }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.algorithm_execution.FileCreationException;
+import de.metanome.algorithm_integration.input.InputGenerationException;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInputGenerator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persists purged {@link PositionListIndex}es of an input in a directory, so that repeated
+ * executions on the same input do not need to read the input again. Every input is stored in a
+ * binary file named after the digest of its {@link InputFingerprint}. Loaded plis are {@link
+ * MappedPositionListIndex}es that read their rows directly from the memory mapped file. <p/> The
+ * rows and the cluster offsets of every single pli are mapped separately and may each occupy at
+ * most 2^31 - 1 bytes.
+ */
+public class PersistentPLICache {
+
+  protected static final int MAGIC_NUMBER = 0x4d504c49;
+  protected static final int FORMAT_VERSION = 1;
+  protected static final String FILE_EXTENSION = ".pli";
+  protected static final int BUFFER_SIZE = 64 * 1024;
+  protected static final int INT_SIZE = 4;
+  protected static final int LONG_SIZE = 8;
+
+  protected File directory;
+
+  /**
+   * @param directory the directory to store the cache files in, is created if it does not exist
+   */
+  public PersistentPLICache(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Loads the plis stored for the fingerprint.
+   *
+   * @param fingerprint the fingerprint of the input
+   * @return the cached plis or null if the cache does not contain the input
+   * @throws InputIterationException if the cache file cannot be read
+   */
+  public CachedPLIList load(InputFingerprint fingerprint) throws InputIterationException {
+    File cacheFile = getCacheFile(fingerprint);
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+
+    long numberOfTuples;
+    int rowWidth;
+    long[] columnPositions;
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(cacheFile), BUFFER_SIZE))) {
+      if ((input.readInt() != MAGIC_NUMBER) || (input.readInt() != FORMAT_VERSION)) {
+        return null;
+      }
+      // Different keys with the same digest are treated as a miss.
+      if (!fingerprint.getKey().equals(readKey(input))) {
+        return null;
+      }
+      numberOfTuples = input.readLong();
+      rowWidth = input.readInt();
+      columnPositions = new long[input.readInt()];
+      for (int columnIndex = 0; columnIndex < columnPositions.length; columnIndex++) {
+        columnPositions[columnIndex] = input.readLong();
+      }
+    } catch (IOException e) {
+      throw new InputIterationException("Could not read pli cache file.", e);
+    }
+
+    List<PositionListIndex> plis = new ArrayList<>(columnPositions.length);
+    // The mappings stay valid after the channel has been closed.
+    try (RandomAccessFile file = new RandomAccessFile(cacheFile, "r");
+         FileChannel channel = file.getChannel()) {
+      for (long columnPosition : columnPositions) {
+        plis.add(mapPLI(file, channel, columnPosition, rowWidth));
+      }
+    } catch (IOException e) {
+      throw new InputIterationException("Could not map pli cache file.", e);
+    }
+
+    return new CachedPLIList(plis, numberOfTuples);
+  }
+
+  /**
+   * Writes the plis of an input to the cache. An existing entry for the fingerprint is replaced.
+   *
+   * @param fingerprint    the fingerprint of the input
+   * @param plis           the purged plis of all columns
+   * @param numberOfTuples the number of tuples in the input
+   * @throws FileCreationException if the cache file cannot be written
+   */
+  public void store(InputFingerprint fingerprint, List<PositionListIndex> plis,
+                    long numberOfTuples) throws FileCreationException {
+    int rowWidth = numberOfTuples <= Integer.MAX_VALUE ? INT_SIZE : LONG_SIZE;
+    String key = fingerprint.getKey();
+
+    // The position of every column is written in the header, so the sizes are computed first.
+    long[] numberOfRows = new long[plis.size()];
+    long[] columnPositions = new long[plis.size()];
+    long position = 5 * INT_SIZE + 2L * key.length() + LONG_SIZE
+                    + (long) LONG_SIZE * plis.size();
+    for (int columnIndex = 0; columnIndex < plis.size(); columnIndex++) {
+      PositionListIndex pli = plis.get(columnIndex);
+      for (int clusterIndex = 0; clusterIndex < pli.size(); clusterIndex++) {
+        numberOfRows[columnIndex] += pli.getClusterSize(clusterIndex);
+      }
+      long offsetsSize = (pli.size() + 1) * INT_SIZE;
+      long rowsSize = numberOfRows[columnIndex] * rowWidth;
+      if ((offsetsSize > Integer.MAX_VALUE) || (rowsSize > Integer.MAX_VALUE)) {
+        throw new FileCreationException("The pli of column " + columnIndex
+                                        + " is too large to be cached.");
+      }
+      columnPositions[columnIndex] = position;
+      position += 2 * INT_SIZE + offsetsSize + rowsSize;
+    }
+
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new FileCreationException("Could not create pli cache directory.");
+    }
+
+    // Readers never see partially written files, because the file is moved into place at the end.
+    File temporaryFile;
+    try {
+      temporaryFile = File.createTempFile(fingerprint.getDigest(), ".tmp", directory);
+    } catch (IOException e) {
+      throw new FileCreationException("Could not create pli cache file.", e);
+    }
+    try {
+      try (DataOutputStream output = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(temporaryFile), BUFFER_SIZE))) {
+        output.writeInt(MAGIC_NUMBER);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(key.length());
+        output.writeChars(key);
+        output.writeLong(numberOfTuples);
+        output.writeInt(rowWidth);
+        output.writeInt(plis.size());
+        for (long columnPosition : columnPositions) {
+          output.writeLong(columnPosition);
+        }
+        for (int columnIndex = 0; columnIndex < plis.size(); columnIndex++) {
+          writePLI(plis.get(columnIndex), (int) numberOfRows[columnIndex], rowWidth, output);
+        }
+      }
+      Files.move(temporaryFile.toPath(), getCacheFile(fingerprint).toPath(),
+                 StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      temporaryFile.delete();
+      throw new FileCreationException("Could not write pli cache file.", e);
+    }
+  }
+
+  /**
+   * Loads the plis of the input from the cache. On a miss the plis are built with the {@link
+   * PLIBuilder}, stored and then loaded from the cache.
+   *
+   * @param fingerprint    the fingerprint of the input
+   * @param inputGenerator the generator of the input used on a miss
+   * @param nullEqualsNull whether null values are considered equal, must match the fingerprint
+   * @return the cached plis
+   * @throws InputGenerationException if the input cannot be generated
+   * @throws InputIterationException  if the input or the cache file cannot be read
+   * @throws FileCreationException    if the cache file cannot be written
+   */
+  public CachedPLIList loadOrBuild(InputFingerprint fingerprint,
+                                   RelationalInputGenerator inputGenerator,
+                                   boolean nullEqualsNull)
+      throws InputGenerationException, InputIterationException, FileCreationException {
+    CachedPLIList cachedPLIList = load(fingerprint);
+    if (cachedPLIList != null) {
+      return cachedPLIList;
+    }
+
+    PLIBuilder builder = new PLIBuilder(inputGenerator.generateNewCopy(), nullEqualsNull);
+    List<PositionListIndex> plis = builder.getPLIList();
+    store(fingerprint, plis, builder.getNumberOfTuples());
+    return load(fingerprint);
+  }
+
+  /**
+   * Removes the entry of the fingerprint from the cache.
+   *
+   * @param fingerprint the fingerprint of the input
+   * @return true if an entry has been removed
+   */
+  public boolean remove(InputFingerprint fingerprint) {
+    return getCacheFile(fingerprint).delete();
+  }
+
+  protected File getCacheFile(InputFingerprint fingerprint) {
+    return new File(directory, fingerprint.getDigest() + FILE_EXTENSION);
+  }
+
+  protected String readKey(DataInputStream input) throws IOException {
+    char[] characters = new char[input.readInt()];
+    for (int i = 0; i < characters.length; i++) {
+      characters[i] = input.readChar();
+    }
+    return new String(characters);
+  }
+
+  protected void writePLI(PositionListIndex pli, int numberOfRows, int rowWidth,
+                          DataOutputStream output) throws IOException {
+    int numberOfClusters = (int) pli.size();
+    output.writeInt(numberOfClusters + 1);
+    output.writeInt(numberOfRows);
+
+    int offset = 0;
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      output.writeInt(offset);
+      offset += pli.getClusterSize(clusterIndex);
+    }
+    output.writeInt(offset);
+
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      int clusterSize = pli.getClusterSize(clusterIndex);
+      for (int position = 0; position < clusterSize; position++) {
+        if (rowWidth == INT_SIZE) {
+          output.writeInt((int) pli.getRow(clusterIndex, position));
+        } else {
+          output.writeLong(pli.getRow(clusterIndex, position));
+        }
+      }
+    }
+  }
+
+  protected MappedPositionListIndex mapPLI(RandomAccessFile file, FileChannel channel,
+                                           long columnPosition, int rowWidth)
+      throws IOException {
+    file.seek(columnPosition);
+    int numberOfClusterOffsets = file.readInt();
+    int numberOfRows = file.readInt();
+
+    long offsetsPosition = columnPosition + 2 * INT_SIZE;
+    long offsetsSize = (long) numberOfClusterOffsets * INT_SIZE;
+    MappedByteBuffer offsets =
+        channel.map(FileChannel.MapMode.READ_ONLY, offsetsPosition, offsetsSize);
+    MappedByteBuffer rows = channel.map(FileChannel.MapMode.READ_ONLY,
+                                        offsetsPosition + offsetsSize,
+                                        (long) numberOfRows * rowWidth);
+
+    if (rowWidth == INT_SIZE) {
+      return new MappedPositionListIndex(offsets.asIntBuffer(), rows.asIntBuffer());
+    }
+    return new MappedPositionListIndex(offsets.asIntBuffer(), rows.asLongBuffer());
+  }
+
+  /**
+   * The plis of an input loaded from the cache together with the number of tuples.
+   */
+  public static class CachedPLIList {
+
+    protected List<PositionListIndex> pliList;
+    protected long numberOfTuples;
+
+    public CachedPLIList(List<PositionListIndex> pliList, long numberOfTuples) {
+      this.pliList = pliList;
+      this.numberOfTuples = numberOfTuples;
+    }
+
+    /**
+     * @return the plis of all columns
+     */
+    public List<PositionListIndex> getPLIList() {
+      return pliList;
+    }
+
+    /**
+     * @return the number of tuples in the input
+     */
+    public long getNumberOfTuples() {
+      return numberOfTuples;
+    }
+  }
+}
@@ -16,19 +16,16 @@
 
 package de.metanome.algorithm_helper.data_structures;
 
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
-import it.unimi.dsi.fastutil.longs.LongList;
-import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
-import it.unimi.dsi.fastutil.longs.LongSet;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Position list indices (or stripped partitions) are an index structure that stores the positions
@@ -38,8 +35,24 @@ import java.util.Map;
  */
 public class PositionListIndex {
 
+  /**
+   * Intersector per thread used by {@link #intersect(PositionListIndex)} and {@link
+   * #refines(PositionListIndex)}, so that the probing tables and the scratch buffers are reused
+   * between calls. After every call the intersector is trimmed to {@link
+   * PLIIntersector#MAX_RETAINED_ROWS}, so a thread retains at most buffers of that size and no
+   * pli. Long lived threads can release it completely with {@link #releaseIntersector()}.
+   */
+  protected static final ThreadLocal<PLIIntersector> INTERSECTORS =
+      new ThreadLocal<PLIIntersector>() {
+        @Override
+        protected PLIIntersector initialValue() {
+          return new PLIIntersector();
+        }
+      };
+
   protected List<LongArrayList> clusters;
   protected long rawKeyError = -1;
+  protected CanonicalForm canonicalForm;
 
   public PositionListIndex(List<LongArrayList> clusters) {
     this.clusters = clusters;
@@ -54,19 +67,88 @@ public class PositionListIndex {
 
   /**
    * Intersects the given PositionListIndex with this PositionListIndex returning a new
-   * PositionListIndex. For the intersection the smaller PositionListIndex is converted into a
-   * HashMap.
+   * PositionListIndex. This PositionListIndex is converted into a probing table. The probing
+   * table of a {@link PLIIntersector} per thread is reused between calls.
    *
    * @param otherPLI the other {@link PositionListIndex} to intersect
    * @return the intersected {@link PositionListIndex}
    */
   public PositionListIndex intersect(PositionListIndex otherPLI) {
-    //TODO Optimize Smaller PLI as Hashmap?
     return calculateIntersection(otherPLI);
   }
 
+  /**
+   * Checks whether this pli refines the given pli, i.e. whether the functional dependency from the
+   * columns of this pli to the columns of the rhs pli holds. The probing table of the rhs pli is
+   * kept by the {@link PLIIntersector} of the thread, so checking many plis against the same rhs
+   * builds it only once.
+   *
+   * @param rhsPLI the pli that should be refined
+   * @return true if every cluster of this pli is contained in a cluster of the rhs pli
+   */
+  public boolean refines(PositionListIndex rhsPLI) {
+    PLIIntersector intersector = INTERSECTORS.get();
+    try {
+      return intersector.refines(this, rhsPLI);
+    } finally {
+      intersector.trim();
+    }
+  }
+
+  /**
+   * Checks in a single pass over the clusters of this pli whether this pli refines the pli of the
+   * probing table. Nothing is allocated. Meant for callers that manage their own probing table.
+   *
+   * @param rhsProbingTable the probing table of the pli that should be refined
+   * @return true if every cluster of this pli is contained in a cluster of the rhs pli
+   */
+  public boolean refines(ProbingTable rhsProbingTable) {
+    int numberOfClusters = (int) size();
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      int rhsClusterIndex = rhsProbingTable.getClusterIndex(getRow(clusterIndex, 0));
+      if (rhsClusterIndex < 0) {
+        return false;
+      }
+      int clusterSize = getClusterSize(clusterIndex);
+      for (int position = 1; position < clusterSize; position++) {
+        if (rhsProbingTable.getClusterIndex(getRow(clusterIndex, position)) != rhsClusterIndex) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns an unmodifiable view of the clusters. The canonical form used by {@link
+   * #equals(Object)} and {@link #hashCode()} is cached, so the clusters must not be modified.
+   *
+   * @return the clusters
+   */
   public List<LongArrayList> getClusters() {
-    return clusters;
+    return Collections.unmodifiableList(clusters);
+  }
+
+  /**
+   * Returns the number of rows in the cluster with the given index.
+   *
+   * @param clusterIndex the index of the cluster
+   * @return the size of the cluster
+   */
+  protected int getClusterSize(int clusterIndex) {
+    return clusters.get(clusterIndex).size();
+  }
+
+  /**
+   * Returns a single row of a cluster. Together with {@link #getClusterSize(int)} this allows to
+   * iterate all rows independent of the cluster representation.
+   *
+   * @param clusterIndex the index of the cluster
+   * @param position     the position of the row within the cluster
+   * @return the row id
+   */
+  protected long getRow(int clusterIndex, int position) {
+    return clusters.get(clusterIndex).getLong(position);
   }
 
   /**
@@ -83,25 +165,23 @@ public class PositionListIndex {
 
     PositionListIndex clone = new PositionListIndex(newClusters);
     clone.rawKeyError = this.rawKeyError;
+    clone.canonicalForm = this.canonicalForm;
     return clone;
   }
 
+  /**
+   * Returns the 64 bit fingerprint of the canonical form. Equal plis have equal fingerprints.
+   *
+   * @return the fingerprint of the pli
+   */
+  public long getFingerprint() {
+    return getCanonicalForm().fingerprint;
+  }
+
   @Override
   public int hashCode() {
-    final int prime = 31;
-    int result = 1;
-
-    List<LongOpenHashSet> setCluster = convertClustersToSets(clusters);
-
-    Collections.sort(setCluster, new Comparator<LongSet>() {
-
-      @Override
-      public int compare(LongSet o1, LongSet o2) {
-        return o1.hashCode() - o2.hashCode();
-      }
-    });
-    result = prime * result + (setCluster.hashCode());
-    return result;
+    long fingerprint = getFingerprint();
+    return (int) (fingerprint ^ (fingerprint >>> 32));
   }
 
   @Override
@@ -113,40 +193,26 @@ public class PositionListIndex {
     if (obj == null) {
       return false;
     }
-    if (getClass() != obj.getClass()) {
+    // Plis with different representations are equal if they contain the same clusters.
+    if (!(obj instanceof PositionListIndex)) {
       return false;
     }
     PositionListIndex other = (PositionListIndex) obj;
-    if (clusters == null) {
-      if (other.clusters != null) {
-        return false;
-      }
-    } else {
-      List<LongOpenHashSet> setCluster = convertClustersToSets(clusters);
-      List<LongOpenHashSet> otherSetCluster = convertClustersToSets(other.clusters);
-
-      for (LongOpenHashSet cluster : setCluster) {
-        if (!otherSetCluster.contains(cluster)) {
-          return false;
-        }
-      }
-      for (LongOpenHashSet cluster : otherSetCluster) {
-        if (!setCluster.contains(cluster)) {
-          return false;
-        }
-      }
-    }
 
-    return true;
+    return getCanonicalForm().equals(other.getCanonicalForm());
   }
 
-  protected List<LongOpenHashSet> convertClustersToSets(List<LongArrayList> listCluster) {
-    List<LongOpenHashSet> setClusters = new LinkedList<>();
-    for (LongList cluster : listCluster) {
-      setClusters.add(new LongOpenHashSet(cluster));
+  /**
+   * Returns the canonical form of the pli, which is computed on the first call. The pli must not be
+   * modified afterwards.
+   *
+   * @return the canonical form
+   */
+  protected CanonicalForm getCanonicalForm() {
+    if (canonicalForm == null) {
+      canonicalForm = new CanonicalForm(this);
     }
-
-    return setClusters;
+    return canonicalForm;
   }
 
   /**
@@ -157,43 +223,20 @@ public class PositionListIndex {
    * @return the intersected {@link PositionListIndex}
    */
   protected PositionListIndex calculateIntersection(PositionListIndex otherPLI) {
-    Long2LongOpenHashMap hashedPLI = this.asHashMap();
-    Map<LongPair, LongArrayList> map = new HashMap<>();
-    buildMap(otherPLI, hashedPLI, map);
-
-    List<LongArrayList> clusters = new ArrayList<>();
-    for (LongArrayList cluster : map.values()) {
-      if (cluster.size() < 2) {
-        continue;
-      }
-      clusters.add(cluster);
+    PLIIntersector intersector = INTERSECTORS.get();
+    try {
+      return intersector.intersect(this, otherPLI);
+    } finally {
+      intersector.trim();
     }
-    return new PositionListIndex(clusters);
   }
 
-  protected void buildMap(PositionListIndex otherPLI, Long2LongOpenHashMap hashedPLI,
-                          Map<LongPair, LongArrayList> map) {
-    long uniqueValueCount = 0;
-    for (LongArrayList sameValues : otherPLI.clusters) {
-      for (long rowCount : sameValues) {
-        if (hashedPLI.containsKey(rowCount)) {
-          LongPair pair = new LongPair(uniqueValueCount, hashedPLI.get(rowCount));
-          updateMap(map, rowCount, pair);
-        }
-      }
-      uniqueValueCount++;
-    }
-  }
-
-  protected void updateMap(Map<LongPair, LongArrayList> map, long rowCount, LongPair pair) {
-    if (map.containsKey(pair)) {
-      LongArrayList currentList = map.get(pair);
-      currentList.add(rowCount);
-    } else {
-      LongArrayList newList = new LongArrayList();
-      newList.add(rowCount);
-      map.put(pair, newList);
-    }
+  /**
+   * Releases the probing tables and buffers the calling thread keeps for intersections and
+   * refinement checks.
+   */
+  public static void releaseIntersector() {
+    INTERSECTORS.remove();
   }
 
   /**
@@ -205,13 +248,13 @@ public class PositionListIndex {
    * @return the pli as hash map
    */
   public Long2LongOpenHashMap asHashMap() {
-    Long2LongOpenHashMap hashedPLI = new Long2LongOpenHashMap(clusters.size());
-    long uniqueValueCount = 0;
-    for (LongArrayList sameValues : clusters) {
-      for (long rowIndex : sameValues) {
-        hashedPLI.put(rowIndex, uniqueValueCount);
+    int numberOfClusters = (int) size();
+    Long2LongOpenHashMap hashedPLI = new Long2LongOpenHashMap(numberOfClusters);
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      int clusterSize = getClusterSize(clusterIndex);
+      for (int position = 0; position < clusterSize; position++) {
+        hashedPLI.put(getRow(clusterIndex, position), clusterIndex);
       }
-      uniqueValueCount++;
     }
     return hashedPLI;
   }
@@ -252,6 +295,19 @@ public class PositionListIndex {
     return rawKeyError;
   }
 
+  /**
+   * Estimates the raw key error of the complete input, if the pli has been built over a uniform
+   * sample of the input's rows (see {@link SamplingPLIBuilder}).
+   *
+   * @param sampleSize     the number of sampled rows
+   * @param numberOfTuples the number of rows in the input
+   * @return the estimated raw key error with 95% confidence bounds
+   */
+  public KeyErrorEstimate estimateRawKeyError(long sampleSize, long numberOfTuples) {
+    return new KeyErrorEstimate(this, sampleSize, numberOfTuples,
+                                KeyErrorEstimate.DEFAULT_STANDARD_SCORE);
+  }
+
   protected long calculateRawKeyError() {
     long sumClusterSize = 0;
 
@@ -262,4 +318,127 @@ public class PositionListIndex {
     return sumClusterSize - clusters.size();
   }
 
+  /**
+   * The clusters of a pli as sets ordered by their smallest row, stored in a single array. Equal
+   * plis have equal canonical forms independent of the order of their clusters and rows, so
+   * equality is a linear comparison of the arrays.
+   */
+  protected static class CanonicalForm {
+
+    protected long[] rows;
+    protected int[] clusterOffsets;
+    protected long fingerprint;
+
+    public CanonicalForm(PositionListIndex pli) {
+      int numberOfClusters = (int) pli.size();
+      int numberOfRows = 0;
+      for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+        numberOfRows += pli.getClusterSize(clusterIndex);
+      }
+
+      // Sort the rows of every cluster and remove duplicate rows.
+      final long[] sortedRows = new long[numberOfRows];
+      final int[] starts = new int[numberOfClusters];
+      final int[] lengths = new int[numberOfClusters];
+      int position = 0;
+      for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+        int clusterSize = pli.getClusterSize(clusterIndex);
+        for (int i = 0; i < clusterSize; i++) {
+          sortedRows[position + i] = pli.getRow(clusterIndex, i);
+        }
+        Arrays.sort(sortedRows, position, position + clusterSize);
+        int length = 0;
+        for (int i = 0; i < clusterSize; i++) {
+          if ((length == 0) || (sortedRows[position + i] != sortedRows[position + length - 1])) {
+            sortedRows[position + length++] = sortedRows[position + i];
+          }
+        }
+        starts[clusterIndex] = position;
+        lengths[clusterIndex] = length;
+        position += clusterSize;
+      }
+
+      int[] clusterOrder = new int[numberOfClusters];
+      for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+        clusterOrder[clusterIndex] = clusterIndex;
+      }
+      IntArrays.quickSort(clusterOrder, new AbstractIntComparator() {
+        @Override
+        public int compare(int k1, int k2) {
+          return compareClusters(sortedRows, starts[k1], lengths[k1], starts[k2], lengths[k2]);
+        }
+      });
+
+      // Concatenate the ordered clusters and skip duplicate clusters.
+      LongArrayList canonicalRows = new LongArrayList(numberOfRows);
+      IntArrayList offsets = new IntArrayList(numberOfClusters + 1);
+      offsets.add(0);
+      int previousCluster = -1;
+      for (int cluster : clusterOrder) {
+        if ((previousCluster >= 0) && (compareClusters(sortedRows, starts[previousCluster],
+                                                       lengths[previousCluster], starts[cluster],
+                                                       lengths[cluster]) == 0)) {
+          continue;
+        }
+        canonicalRows.addElements(canonicalRows.size(), sortedRows, starts[cluster],
+                                  lengths[cluster]);
+        offsets.add(canonicalRows.size());
+        previousCluster = cluster;
+      }
+      this.rows = canonicalRows.toLongArray();
+      this.clusterOffsets = offsets.toIntArray();
+      this.fingerprint = calculateFingerprint();
+    }
+
+    protected static int compareClusters(long[] rows, int start1, int length1, int start2,
+                                         int length2) {
+      for (int i = 0; (i < length1) && (i < length2); i++) {
+        int comparison = Long.compare(rows[start1 + i], rows[start2 + i]);
+        if (comparison != 0) {
+          return comparison;
+        }
+      }
+      return Integer.compare(length1, length2);
+    }
+
+    protected long calculateFingerprint() {
+      long hash = 1;
+      for (int offset : clusterOffsets) {
+        hash = mix(hash, offset);
+      }
+      for (long row : rows) {
+        hash = mix(hash, row);
+      }
+      // Final avalanche step of MurmurHash3.
+      hash ^= hash >>> 33;
+      hash *= 0xff51afd7ed558ccdL;
+      hash ^= hash >>> 33;
+      hash *= 0xc4ceb9fe1a85ec53L;
+      hash ^= hash >>> 33;
+      return hash;
+    }
+
+    protected static long mix(long hash, long value) {
+      return (hash ^ value) * 0x9e3779b97f4a7c15L + 0x7f4a7c15L;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      CanonicalForm other = (CanonicalForm) obj;
+      return (fingerprint == other.fingerprint)
+             && Arrays.equals(clusterOffsets, other.clusterOffsets)
+             && Arrays.equals(rows, other.rows);
+    }
+  }
 }
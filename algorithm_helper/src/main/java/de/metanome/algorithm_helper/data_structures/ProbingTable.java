@@ -0,0 +1,176 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Maps every row of a {@link PositionListIndex} to the index of its cluster. Rows are looked up in
+ * a dense int array, row ids that are too large for an array or plis with few rows compared to
+ * their largest row id fall back to a hash map. The array is only reset and not reallocated when
+ * the table is rebuilt for another pli, so a table should be reused for plis of the same input.
+ * The array keeps its size until {@link #trim(int)} is called. The table only keeps a weak
+ * reference to its pli, so a table that is kept for reuse does not keep the pli alive. A probing
+ * table is not thread safe.
+ */
+public class ProbingTable {
+
+  /**
+   * Largest row id that can be stored in the dense table. Larger row ids fall back to a hashed
+   * table.
+   */
+  protected static final long MAX_DENSE_ROW = Integer.MAX_VALUE - 8;
+
+  /**
+   * Maximum ratio of the largest row id to the number of rows in the pli for which a new dense
+   * table is allocated. Sparser plis, e.g. stripped plis with few rows, use the hashed table.
+   */
+  protected static final long MAX_SPARSENESS = 16;
+
+  // Maps row ids to cluster index + 1. 0 marks rows in no cluster.
+  protected int[] table = new int[0];
+  protected Long2IntOpenHashMap hashedTable;
+  protected boolean dense = true;
+  protected long maxRow = -1;
+  protected WeakReference<PositionListIndex> pli = new WeakReference<>(null);
+
+  public ProbingTable() {
+  }
+
+  /**
+   * @param pli the pli to build the table from
+   */
+  public ProbingTable(PositionListIndex pli) {
+    build(pli);
+  }
+
+  /**
+   * Builds the table from the pli. The previous content is cleared first.
+   *
+   * @param pli the pli to build the table from
+   */
+  public void build(PositionListIndex pli) {
+    clear();
+    this.pli = new WeakReference<>(pli);
+
+    int numberOfClusters = (int) pli.size();
+    long numberOfRows = 0;
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      int clusterSize = pli.getClusterSize(clusterIndex);
+      numberOfRows += clusterSize;
+      for (int i = 0; i < clusterSize; i++) {
+        maxRow = Math.max(maxRow, pli.getRow(clusterIndex, i));
+      }
+    }
+
+    // An already allocated array is cheap to use, a new one only pays off for dense plis.
+    dense = (maxRow < table.length)
+            || ((maxRow <= MAX_DENSE_ROW) && (maxRow < numberOfRows * MAX_SPARSENESS));
+    if (!dense) {
+      hashedTable = new Long2IntOpenHashMap((int) Math.min(numberOfRows, Integer.MAX_VALUE - 8));
+    } else if (table.length <= maxRow) {
+      table = new int[(int) maxRow + 1];
+    }
+
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      int clusterSize = pli.getClusterSize(clusterIndex);
+      for (int i = 0; i < clusterSize; i++) {
+        long row = pli.getRow(clusterIndex, i);
+        if (row < 0) {
+          continue;
+        }
+        if (dense) {
+          table[(int) row] = clusterIndex + 1;
+        } else {
+          hashedTable.put(row, clusterIndex + 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the row's cluster or -1 if the row is in no cluster.
+   *
+   * @param row the row to look up
+   * @return the cluster index
+   */
+  public int getClusterIndex(long row) {
+    if ((row < 0) || (row > maxRow)) {
+      return -1;
+    }
+    if (dense) {
+      return table[(int) row] - 1;
+    }
+    return hashedTable.get(row) - 1;
+  }
+
+  /**
+   * Resets all entries of the table, so that the table can be reused without being reallocated.
+   */
+  public void clear() {
+    PositionListIndex builtPLI = pli.get();
+    if (!dense) {
+      hashedTable = null;
+    } else if (builtPLI != null) {
+      int numberOfClusters = (int) builtPLI.size();
+      for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+        int clusterSize = builtPLI.getClusterSize(clusterIndex);
+        for (int i = 0; i < clusterSize; i++) {
+          long row = builtPLI.getRow(clusterIndex, i);
+          if (row >= 0) {
+            table[(int) row] = 0;
+          }
+        }
+      }
+    } else if (maxRow >= 0) {
+      // The pli has been garbage collected, so the whole used range is reset.
+      Arrays.fill(table, 0, (int) maxRow + 1, 0);
+    }
+    pli.clear();
+    maxRow = -1;
+  }
+
+  /**
+   * Clears the table and releases its array if it can hold more than the given number of rows.
+   *
+   * @param maximumCapacity the maximum number of rows the retained array may hold
+   */
+  public void trim(int maximumCapacity) {
+    clear();
+    if (table.length > maximumCapacity) {
+      table = new int[0];
+    }
+  }
+
+  /**
+   * @return the number of rows the memory of the table is sized for
+   */
+  public long getRetainedRows() {
+    return table.length + ((hashedTable == null) ? 0 : hashedTable.size());
+  }
+
+  /**
+   * @return the pli the table has been built from or null if the table is empty or the pli has
+   * been garbage collected
+   */
+  public PositionListIndex getPLI() {
+    return pli.get();
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the {@link PositionListIndex}es over a uniform reservoir sample of the input's rows. The
+ * rows are sampled with Vitter's algorithm L, so only the sampled rows are processed, all other
+ * rows are skipped. The row ids of the plis are the positions in the sample. {@link
+ * #getNumberOfTuples()} returns the number of rows of the complete input, so that the raw key
+ * error of the input can be estimated with {@link PositionListIndex#estimateRawKeyError(long,
+ * long)}. <p/> Without limits all rows of the input are read, because a {@link RelationalInput}
+ * can only be read sequentially, so the sample saves memory and pli work, but not the time to
+ * read the input. A faster estimate needs a row limit or a time budget: reading stops once the
+ * limit is reached, the sample is then drawn from the rows read so far only and {@link
+ * #getNumberOfTuples()} returns the number of rows read.
+ */
+public class SamplingPLIBuilder extends PLIBuilder {
+
+  protected int sampleSize;
+  protected long seed;
+  protected long maxNumberOfRows;
+  protected long timeBudget;
+  protected List<List<String>> sample;
+  protected boolean completeInput;
+
+  /**
+   * Samples from all rows of the input.
+   *
+   * @param input          the input to build the plis from
+   * @param nullEqualsNull whether null values are considered equal
+   * @param sampleSize     the maximum number of sampled rows
+   * @param seed           the seed of the sampling
+   */
+  public SamplingPLIBuilder(RelationalInput input, boolean nullEqualsNull, int sampleSize,
+                            long seed) {
+    this(input, nullEqualsNull, sampleSize, seed, Long.MAX_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param input           the input to build the plis from
+   * @param nullEqualsNull  whether null values are considered equal
+   * @param sampleSize      the maximum number of sampled rows
+   * @param seed            the seed of the sampling
+   * @param maxNumberOfRows the maximum number of rows to read from the input
+   * @param timeBudget      the maximum time in milliseconds to read the input
+   */
+  public SamplingPLIBuilder(RelationalInput input, boolean nullEqualsNull, int sampleSize,
+                            long seed, long maxNumberOfRows, long timeBudget) {
+    super(input, nullEqualsNull);
+    if (sampleSize < 1) {
+      throw new IllegalArgumentException("The sample size needs to be positive.");
+    }
+    if ((maxNumberOfRows < 1) || (timeBudget < 0)) {
+      throw new IllegalArgumentException(
+          "The row limit needs to be positive and the time budget must not be negative.");
+    }
+    this.sampleSize = sampleSize;
+    this.seed = seed;
+    this.maxNumberOfRows = maxNumberOfRows;
+    this.timeBudget = timeBudget;
+  }
+
+  /**
+   * Returns the number of sampled rows, which is smaller than the requested sample size if the
+   * input has fewer rows. Can be used after the plis have been built.
+   *
+   * @return the number of sampled rows
+   * @throws InputIterationException if the plis have not been built
+   */
+  public int getSampleSize() throws InputIterationException {
+    if (sample == null) {
+      throw new InputIterationException();
+    }
+    return sample.size();
+  }
+
+  /**
+   * Returns whether all rows of the input have been read or reading stopped at the row limit or
+   * time budget. Can be used after the plis have been built.
+   *
+   * @return whether the sample has been drawn from the complete input
+   * @throws InputIterationException if the plis have not been built
+   */
+  public boolean isCompleteInput() throws InputIterationException {
+    if (sample == null) {
+      throw new InputIterationException();
+    }
+    return completeInput;
+  }
+
+  @Override
+  protected void calculateUnpurgedPLI() throws InputIterationException {
+    sample = new ArrayList<>();
+    Random random = new Random(seed);
+    this.numberOfTuples = 0;
+    long now = System.currentTimeMillis();
+    long deadline = (timeBudget > Long.MAX_VALUE - now) ? Long.MAX_VALUE : now + timeBudget;
+
+    double weight = Math.exp(Math.log(random.nextDouble()) / sampleSize);
+    long nextSampledRow = sampleSize + skip(random, weight);
+    while ((numberOfTuples < maxNumberOfRows) && (System.currentTimeMillis() < deadline)
+           && input.hasNext()) {
+      List<String> row = input.next();
+      if (numberOfTuples < sampleSize) {
+        sample.add(new ArrayList<>(row));
+      } else if (numberOfTuples == nextSampledRow) {
+        sample.set(random.nextInt(sampleSize), new ArrayList<>(row));
+        weight *= Math.exp(Math.log(random.nextDouble()) / sampleSize);
+        nextSampledRow += skip(random, weight) + 1;
+      }
+      this.numberOfTuples++;
+    }
+    completeInput = !input.hasNext();
+
+    for (int sampleRow = 0; sampleRow < sample.size(); sampleRow++) {
+      int columnCount = 0;
+      for (String cellValue : sample.get(sampleRow)) {
+        addValue(sampleRow, columnCount, cellValue);
+        columnCount++;
+      }
+    }
+  }
+
+  /**
+   * @return the number of rows to skip before the next sampled row
+   */
+  protected long skip(Random random, double weight) {
+    return (long) Math.floor(Math.log(random.nextDouble()) / Math.log(1 - weight));
+  }
+}
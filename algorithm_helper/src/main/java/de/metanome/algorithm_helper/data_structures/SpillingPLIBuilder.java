@@ -0,0 +1,373 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.algorithm_execution.FileCreationException;
+import de.metanome.algorithm_integration.algorithm_execution.FileGenerator;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Builds {@link PositionListIndex}es for inputs whose value maps do not fit into main memory. The
+ * value to cluster maps of all columns are filled as in the {@link PLIBuilder} until their
+ * estimated size exceeds the memory budget. Then every column map is written as a run sorted by
+ * value to a temporary file of the {@link FileGenerator} and cleared. In the end the runs of every
+ * column are merged into the column's pli and deleted. Only the plis themselves need to fit into
+ * main memory.
+ */
+public class SpillingPLIBuilder {
+
+  public static final long DEFAULT_MEMORY_BUDGET = 256 * 1024 * 1024;
+
+  // Rough heap usage of a new map entry with its cluster list, excluding the value's characters.
+  protected static final long ENTRY_OVERHEAD = 112;
+  protected static final long ROW_SIZE = 8;
+  protected static final int NULL_VALUE_LENGTH = -1;
+  protected static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Orders values lexicographically with null values first.
+   */
+  protected static final Comparator<String> VALUE_COMPARATOR = new Comparator<String>() {
+    @Override
+    public int compare(String o1, String o2) {
+      if (o1 == null) {
+        return o2 == null ? 0 : -1;
+      }
+      if (o2 == null) {
+        return 1;
+      }
+      return o1.compareTo(o2);
+    }
+  };
+
+  protected RelationalInput input;
+  protected FileGenerator fileGenerator;
+  protected long memoryBudget;
+  protected boolean nullEqualsNull;
+
+  protected long numberOfTuples = -1;
+  protected long estimatedMemory = 0;
+  protected List<HashMap<String, LongArrayList>> columns = new ArrayList<>();
+  protected List<List<File>> runs = new ArrayList<>();
+  protected int numberOfRuns = 0;
+  protected List<PositionListIndex> plis;
+
+  public SpillingPLIBuilder(RelationalInput input, FileGenerator fileGenerator) {
+    this(input, fileGenerator, DEFAULT_MEMORY_BUDGET, true);
+  }
+
+  /**
+   * @param input          the input to build the plis from
+   * @param fileGenerator  the generator for the temporary run files
+   * @param memoryBudget   the estimated number of bytes the value maps may occupy before they are
+   *                       written to disk
+   * @param nullEqualsNull whether null values are considered equal
+   */
+  public SpillingPLIBuilder(RelationalInput input, FileGenerator fileGenerator, long memoryBudget,
+                            boolean nullEqualsNull) {
+    this.input = input;
+    this.fileGenerator = fileGenerator;
+    this.memoryBudget = memoryBudget;
+    this.nullEqualsNull = nullEqualsNull;
+  }
+
+  /**
+   * Builds a {@link PositionListIndex} for every column in the input. If all row ids fit into an
+   * int the plis are built as {@link CompactPositionListIndex}es. The runs of every column are
+   * deleted as soon as they are merged.
+   *
+   * @return list of plis for all columns
+   * @throws InputIterationException if the input or the runs cannot be read
+   * @throws FileCreationException   if the runs cannot be written
+   */
+  public List<PositionListIndex> getPLIList()
+      throws InputIterationException, FileCreationException {
+    if (plis != null) {
+      return plis;
+    }
+    if (numberOfTuples == -1) {
+      readInput();
+    }
+
+    List<PositionListIndex> result = new ArrayList<>();
+    for (int columnIndex = 0; columnIndex < runs.size(); columnIndex++) {
+      List<File> columnRuns = runs.get(columnIndex);
+      List<LongArrayList> clusters = mergeRuns(columnRuns);
+      deleteRuns(columnRuns);
+      if (numberOfTuples <= Integer.MAX_VALUE) {
+        result.add(CompactPositionListIndex.fromClusters(clusters));
+      } else {
+        result.add(new PositionListIndex(clusters));
+      }
+    }
+    plis = result;
+    return result;
+  }
+
+  /**
+   * Returns the number of tuples in the input after calculating the plis.
+   *
+   * @return number of tuples in dataset
+   */
+  public long getNumberOfTuples() throws InputIterationException {
+    if (this.numberOfTuples == -1) {
+      throw new InputIterationException();
+    } else {
+      return this.numberOfTuples;
+    }
+  }
+
+  /**
+   * @return the number of runs that have been written per column
+   */
+  public int getNumberOfRuns() {
+    return numberOfRuns;
+  }
+
+  protected void readInput() throws InputIterationException, FileCreationException {
+    long rowCount = 0;
+    while (input.hasNext()) {
+      List<String> row = input.next();
+      for (int columnIndex = 0; columnIndex < row.size(); columnIndex++) {
+        addValue(rowCount, columnIndex, row.get(columnIndex));
+      }
+      rowCount++;
+
+      if (estimatedMemory > memoryBudget) {
+        spill();
+      }
+    }
+    this.numberOfTuples = rowCount;
+    spill();
+  }
+
+  protected void addValue(long rowCount, int columnIndex, String attributeCell) {
+    while (columns.size() <= columnIndex) {
+      columns.add(new HashMap<String, LongArrayList>());
+      // Columns that appear late have no entries in the earlier runs.
+      runs.add(new ArrayList<File>());
+    }
+
+    if (!this.nullEqualsNull && attributeCell == null) {
+      return;
+    }
+
+    HashMap<String, LongArrayList> columnMap = columns.get(columnIndex);
+    LongArrayList cluster = columnMap.get(attributeCell);
+    if (cluster == null) {
+      cluster = new LongArrayList();
+      columnMap.put(attributeCell, cluster);
+      estimatedMemory += ENTRY_OVERHEAD;
+      if (attributeCell != null) {
+        estimatedMemory += 2L * attributeCell.length();
+      }
+    }
+    cluster.add(rowCount);
+    estimatedMemory += ROW_SIZE;
+  }
+
+  /**
+   * Writes the value maps of all columns sorted by value into one run file per column and clears
+   * the maps.
+   *
+   * @throws FileCreationException if a run cannot be written
+   */
+  protected void spill() throws FileCreationException {
+    for (int columnIndex = 0; columnIndex < columns.size(); columnIndex++) {
+      HashMap<String, LongArrayList> columnMap = columns.get(columnIndex);
+      File runFile = fileGenerator.getTemporaryFile();
+      try (DataOutputStream output = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(runFile), BUFFER_SIZE))) {
+        writeRun(columnMap, output);
+      } catch (IOException e) {
+        throw new FileCreationException("Could not write pli run.", e);
+      }
+      runs.get(columnIndex).add(runFile);
+      columns.set(columnIndex, new HashMap<String, LongArrayList>());
+    }
+    numberOfRuns++;
+    estimatedMemory = 0;
+  }
+
+  protected void writeRun(Map<String, LongArrayList> columnMap, DataOutputStream output)
+      throws IOException {
+    String[] values = columnMap.keySet().toArray(new String[columnMap.size()]);
+    Arrays.sort(values, VALUE_COMPARATOR);
+    for (String value : values) {
+      if (value == null) {
+        output.writeInt(NULL_VALUE_LENGTH);
+      } else {
+        output.writeInt(value.length());
+        output.writeChars(value);
+      }
+      LongArrayList cluster = columnMap.get(value);
+      output.writeInt(cluster.size());
+      for (int i = 0; i < cluster.size(); i++) {
+        output.writeLong(cluster.getLong(i));
+      }
+    }
+  }
+
+  /**
+   * Merges the sorted runs of a column. Equal values are combined in run order, so the rows of
+   * every cluster stay sorted.
+   *
+   * @param columnRuns the runs of a column in the order they have been written
+   * @return the non unary clusters of the column
+   * @throws InputIterationException if a run cannot be read
+   */
+  protected List<LongArrayList> mergeRuns(List<File> columnRuns) throws InputIterationException {
+    List<LongArrayList> clusters = new ArrayList<>();
+    PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, columnRuns.size()));
+    List<RunReader> readers = new ArrayList<>();
+    try {
+      for (int runIndex = 0; runIndex < columnRuns.size(); runIndex++) {
+        RunReader reader = new RunReader(columnRuns.get(runIndex), runIndex);
+        readers.add(reader);
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      }
+
+      while (!queue.isEmpty()) {
+        RunReader reader = queue.poll();
+        String value = reader.value;
+        LongArrayList cluster = reader.cluster;
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+        while (!queue.isEmpty() && (VALUE_COMPARATOR.compare(queue.peek().value, value) == 0)) {
+          RunReader equalReader = queue.poll();
+          cluster.addAll(equalReader.cluster);
+          if (equalReader.advance()) {
+            queue.add(equalReader);
+          }
+        }
+        if (cluster.size() > 1) {
+          clusters.add(cluster);
+        }
+      }
+    } catch (IOException e) {
+      throw new InputIterationException("Could not read pli run.", e);
+    } finally {
+      for (RunReader reader : readers) {
+        reader.close();
+      }
+    }
+    return clusters;
+  }
+
+  /**
+   * Deletes the merged runs of a column. Runs that cannot be deleted are removed when the {@link
+   * FileGenerator} is closed.
+   *
+   * @param columnRuns the runs of a column
+   */
+  protected void deleteRuns(List<File> columnRuns) {
+    for (File runFile : columnRuns) {
+      runFile.delete();
+    }
+    columnRuns.clear();
+  }
+
+  /**
+   * Reads the entries of a single run one at a time.
+   */
+  protected static class RunReader implements Comparable<RunReader> {
+
+    protected DataInputStream input;
+    protected int runIndex;
+    protected String value;
+    protected LongArrayList cluster;
+
+    public RunReader(File runFile, int runIndex) throws IOException {
+      this.input = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(runFile), BUFFER_SIZE));
+      this.runIndex = runIndex;
+    }
+
+    /**
+     * Reads the next entry of the run.
+     *
+     * @return false if the run is exhausted
+     * @throws IOException if the run cannot be read
+     */
+    public boolean advance() throws IOException {
+      int valueLength;
+      try {
+        valueLength = input.readInt();
+      } catch (EOFException e) {
+        close();
+        return false;
+      }
+
+      if (valueLength == NULL_VALUE_LENGTH) {
+        value = null;
+      } else {
+        char[] characters = new char[valueLength];
+        for (int i = 0; i < valueLength; i++) {
+          characters[i] = input.readChar();
+        }
+        value = new String(characters);
+      }
+
+      int clusterSize = input.readInt();
+      cluster = new LongArrayList(clusterSize);
+      for (int i = 0; i < clusterSize; i++) {
+        cluster.add(input.readLong());
+      }
+      return true;
+    }
+
+    public void close() {
+      try {
+        input.close();
+      } catch (IOException e) {
+        // The run has been read completely.
+      }
+    }
+
+    @Override
+    public int compareTo(RunReader other) {
+      int valueComparison = VALUE_COMPARATOR.compare(value, other.value);
+      if (valueComparison != 0) {
+        return valueComparison;
+      }
+      return Integer.compare(runIndex, other.runIndex);
+    }
+  }
+}
@@ -18,13 +18,18 @@ package de.metanome.algorithm_helper.data_structures;
 
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import org.apache.lucene.util.OpenBitSet;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * A graph that allows efficient lookup of all subsets in the graph for a given
@@ -47,7 +52,7 @@ public class SubSetGraph {
   public SubSetGraph add(ColumnCombinationBitset columnCombination) {
     SubSetGraph subGraph = this;
 
-    for (int setColumnIndex : columnCombination.getSetBits()) {
+    for (int setColumnIndex : columnCombination.getSetBitsArray()) {
       subGraph = subGraph.lazySubGraphGeneration(setColumnIndex);
     }
     subGraph.subSetEnds = true;
@@ -98,37 +103,16 @@ public class SubSetGraph {
     if (this.isEmpty()) {
       return subsets;
     }
-    // Create task queue and initial task.
-    Queue<SubSetFindTask> openTasks = new LinkedList<>();
-    openTasks.add(new SubSetFindTask(this, 0, new ColumnCombinationBitset()));
-
-    while (!openTasks.isEmpty()) {
-      SubSetFindTask currentTask = openTasks.remove();
-      // If the current subgraph is empty a subset has been found
-      if (currentTask.subGraph.isEmpty()) {
-        subsets.add(new ColumnCombinationBitset(currentTask.path));
-        continue;
-      }
-
-      if (currentTask.subGraph.subSetEnds) {
-        subsets.add(new ColumnCombinationBitset(currentTask.path));
-      }
+    if (this.subSetEnds) {
+      subsets.add(columnCombinationToQuery.createEmpty());
+    }
 
-      // Iterate over the remaining column indices
-      for (int i = currentTask.numberOfCheckedColumns; i < columnCombinationToQuery.size(); i++) {
-        int currentColumnIndex = columnCombinationToQuery.getSetBits().get(i);
-        // Get the subgraph behind the current index
-        SubSetGraph subGraph =
-            currentTask.subGraph.subGraphs.get(currentColumnIndex);
-        // column index is not set on any set --> check next column index
-        if (subGraph != null) {
-          // Add the current column index to the path
-          ColumnCombinationBitset path =
-              new ColumnCombinationBitset(currentTask.path)
-                  .addColumn(currentColumnIndex);
-
-          openTasks.add(new SubSetFindTask(subGraph, i + 1, path));
-        }
+    int[] columns = columnCombinationToQuery.getSetBitsArray();
+    SubSetFindStack stack = new SubSetFindStack(this, columns.length);
+    SubSetGraph subGraph;
+    while ((subGraph = stack.next(columns)) != null) {
+      if (subGraph.subSetEnds) {
+        subsets.add(stack.getPath(columnCombinationToQuery.createEmpty()));
       }
     }
 
@@ -146,85 +130,179 @@ public class SubSetGraph {
     if (this.isEmpty()) {
       return false;
     }
-    Queue<SubSetFindTask> openTasks = new LinkedList<>();
-    openTasks.add(new SubSetFindTask(this, 0, new ColumnCombinationBitset()));
+    if (this.subSetEnds) {
+      return true;
+    }
 
-    while (!openTasks.isEmpty()) {
-      SubSetFindTask currentTask = openTasks.remove();
-      // If the current subgraph is empty a subset has been found
-      if (currentTask.subGraph.isEmpty()) {
+    int[] columns = superset.getSetBitsArray();
+    SubSetFindStack stack = new SubSetFindStack(this, columns.length);
+    SubSetGraph subGraph;
+    while ((subGraph = stack.next(columns)) != null) {
+      // Every leaf ends a subset.
+      if (subGraph.subSetEnds) {
         return true;
       }
+    }
 
-      if (currentTask.subGraph.subSetEnds) {
-        return true;
-      }
+    return false;
+  }
 
-      // Iterate over the remaining column indices
-      for (int i = currentTask.numberOfCheckedColumns; i < superset.size(); i++) {
-        int currentColumnIndex = superset.getSetBits().get(i);
-        // Get the subgraph behind the current index
-        SubSetGraph subGraph =
-            currentTask.subGraph.subGraphs.get(currentColumnIndex);
-        // column index is not set on any set --> check next column index
-        if (subGraph != null) {
-          // Add the current column index to the path
-          ColumnCombinationBitset path =
-              new ColumnCombinationBitset(currentTask.path)
-                  .addColumn(currentColumnIndex);
-
-          openTasks.add(new SubSetFindTask(subGraph, i + 1, path));
+  /**
+   * Checks a batch of column combinations for subsets in the graph. The graph is traversed once
+   * for the whole batch: every sub graph is visited with the candidates that contain its path, so
+   * candidates with common columns share the traversal.
+   *
+   * @param candidates the column combinations to check
+   * @return a bit set, in which the bit of every candidate with a subset in the graph is set
+   */
+  public OpenBitSet containsSubsets(List<ColumnCombinationBitset> candidates) {
+    ColumnCombinationBitset[] candidateArray =
+        candidates.toArray(new ColumnCombinationBitset[candidates.size()]);
+    OpenBitSet result = new OpenBitSet(candidateArray.length);
+    if (this.isEmpty()) {
+      return result;
+    }
+    if (this.subSetEnds) {
+      result.set(0, candidateArray.length);
+      return result;
+    }
+
+    CandidateBuckets buckets = new CandidateBuckets(candidateArray, result);
+    List<SubSetGraph> openGraphs = new ArrayList<>();
+    // The candidates of every open graph are a range in a bucket array.
+    List<int[]> openCandidates = new ArrayList<>();
+    IntArrayList openRanges = new IntArrayList();
+    openGraphs.add(this);
+    int[] allCandidates = buckets.getAllCandidates();
+    openCandidates.add(allCandidates);
+    openRanges.push(0);
+    openRanges.push(allCandidates.length);
+
+    while (!openGraphs.isEmpty()) {
+      SubSetGraph graph = openGraphs.remove(openGraphs.size() - 1);
+      int[] graphCandidates = openCandidates.remove(openCandidates.size() - 1);
+      int to = openRanges.popInt();
+      int from = openRanges.popInt();
+
+      int numberOfChildren = 0;
+      for (Int2ObjectMap.Entry<SubSetGraph> entry : graph.subGraphs.int2ObjectEntrySet()) {
+        buckets.setChild(numberOfChildren++, entry.getIntKey());
+      }
+      int[] childCandidates = buckets.distribute(graphCandidates, from, to, numberOfChildren);
+
+      int child = 0;
+      for (Int2ObjectMap.Entry<SubSetGraph> entry : graph.subGraphs.int2ObjectEntrySet()) {
+        buckets.clearChild(entry.getIntKey());
+        int childFrom = buckets.getFrom(child);
+        int childTo = buckets.getTo(child);
+        child++;
+        if (childFrom == childTo) {
+          continue;
+        }
+        SubSetGraph subGraph = entry.getValue();
+        if (subGraph.subSetEnds) {
+          // The subset ends in the sub graph, so no deeper subsets need to be checked.
+          buckets.setResults(childCandidates, childFrom, childTo);
+        } else {
+          openGraphs.add(subGraph);
+          openCandidates.add(childCandidates);
+          openRanges.push(childFrom);
+          openRanges.push(childTo);
         }
       }
     }
 
-    return false;
+    return result;
   }
 
   /**
-   * The method returns all minimal subsets contained in the graph using a breadth-first search pattern. Non minimal subsets are not traversed.
+   * Checks a batch of column combinations for subsets in the graph in parallel. The candidates
+   * are split into chunks that are checked with {@link #containsSubsets(java.util.List)} on the
+   * given pool. The graph must not be modified during the call, unless it is thread safe.
+   *
+   * @param candidates the column combinations to check
+   * @param pool       the pool to check the chunks on
+   * @return a bit set, in which the bit of every candidate with a subset in the graph is set
+   */
+  public OpenBitSet containsSubsets(List<ColumnCombinationBitset> candidates,
+                                    ForkJoinPool pool) {
+    OpenBitSet result = new OpenBitSet(candidates.size());
+    pool.invoke(new SubSetBatchTask(this, candidates, 0, candidates.size(), result));
+    return result;
+  }
+
+  /**
+   * The method returns all minimal subsets contained in the graph. The graph is traversed depth
+   * first without descending below the end of a subset, as the column combinations there are
+   * supersets of it. Every subset found is then checked for a proper subset on another path.
    *
    * @return a list containing all minimal subsets
    */
   public Set<ColumnCombinationBitset> getMinimalSubsets() {
+    TreeSet<ColumnCombinationBitset> result = new TreeSet<>();
     if (this.isEmpty()) {
-      return new TreeSet<>();
+      return result;
+    }
+    if (this.subSetEnds) {
+      // The empty column combination is a subset of all others.
+      result.add(new ColumnCombinationBitset());
+      return result;
     }
 
-    SubSetGraph graph = new SubSetGraph();
-    TreeSet<ColumnCombinationBitset> result = new TreeSet<>();
-    TreeSet<SubSetFindTask> openTasks = new TreeSet<>();
-    openTasks.add(new SubSetFindTask(this, 0, new ColumnCombinationBitset()));
-
-    while (!openTasks.isEmpty()) {
-      SubSetFindTask currentTask = openTasks.pollFirst();
-      if (currentTask.subGraph.subSetEnds) {
-        if (!graph.containsSubset(currentTask.path)) {
-          graph.add(currentTask.path);
-          result.add(currentTask.path);
-        }
-      } else {
-        // Iterate over the remaining column indices
-        for (int bitNumber : currentTask.subGraph.subGraphs.keySet()) {
-          // Get the subgraph behind the current index
-          SubSetGraph subGraph =
-              currentTask.subGraph.subGraphs.get(bitNumber);
-          // column index is not set on any set --> check next column index
-          if (subGraph != null) {
-            // Add the current column index to the path
-            ColumnCombinationBitset path =
-                new ColumnCombinationBitset(currentTask.path)
-                    .addColumn(bitNumber);
-
-            openTasks
-                .add(new SubSetFindTask(subGraph, bitNumber + 1, path));
-          }
-        }
+    // Every path in the graph is a subset of all the graph's columns.
+    int[] columns = getColumns();
+    SubSetFindStack stack = new SubSetFindStack(this, columns.length);
+    SubSetFindStack subsetStack = new SubSetFindStack(this, columns.length);
+    SubSetGraph subGraph;
+    while ((subGraph = stack.next(columns)) != null) {
+      if (!subGraph.subSetEnds) {
+        continue;
+      }
+      ColumnCombinationBitset path = stack.getPath(new ColumnCombinationBitset());
+      // All column combinations below the end of a subset are supersets of it.
+      stack.skipSubGraph();
+      if (!containsProperSubset(subsetStack, path.getSetBitsArray())) {
+        result.add(path);
       }
     }
     return result;
   }
 
+  /**
+   * @return all column indices on the edges of the graph in ascending order
+   */
+  protected int[] getColumns() {
+    ColumnCombinationBitset columns = new ColumnCombinationBitset();
+    List<SubSetGraph> openGraphs = new ArrayList<>();
+    openGraphs.add(this);
+    while (!openGraphs.isEmpty()) {
+      SubSetGraph graph = openGraphs.remove(openGraphs.size() - 1);
+      for (Int2ObjectMap.Entry<SubSetGraph> entry : graph.subGraphs.int2ObjectEntrySet()) {
+        columns.addColumn(entry.getIntKey());
+        openGraphs.add(entry.getValue());
+      }
+    }
+    return columns.getSetBitsArray();
+  }
+
+  /**
+   * Checks whether a subset ends in the graph on a shorter path than the given columns.
+   *
+   * @param stack   the stack to search with, which is reset
+   * @param columns the columns of a path in the graph in ascending order
+   * @return whether the graph contains a proper subset of the columns
+   */
+  protected static boolean containsProperSubset(SubSetFindStack stack, int[] columns) {
+    stack.reset();
+    SubSetGraph subGraph;
+    while ((subGraph = stack.next(columns)) != null) {
+      if (subGraph.subSetEnds && (stack.getDepth() < columns.length)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * @return whether the graph is empty
    */
@@ -250,28 +328,265 @@ public class SubSetGraph {
   public int hashCode() {
     return subGraphs != null ? subGraphs.hashCode() : 0;
   }
+
+  /**
+   * Distributes the candidates of a node in a {@link SubSetGraph} to the node's children for batch
+   * queries. Every candidate is stored with the position in its set columns after the column of the
+   * node, so only its remaining columns are looked up in the children once per node instead of
+   * testing every child. The candidates of all children of a node are written to one array.
+   */
+  protected static class CandidateBuckets {
+
+    protected ColumnCombinationBitset[] candidateArray;
+    protected OpenBitSet result;
+    // Slot of the child with the column + 1 for the current node, 0 if there is no such child.
+    protected int[] childSlots;
+    // Start of the candidates of every child slot followed by the end of the last one.
+    protected int[] offsets = new int[1];
+    protected int[] nextOffsets = new int[0];
+
+    public CandidateBuckets(ColumnCombinationBitset[] candidateArray, OpenBitSet result) {
+      this.candidateArray = candidateArray;
+      this.result = result;
+      int numberOfColumns = 0;
+      for (ColumnCombinationBitset candidate : candidateArray) {
+        int[] columns = candidate.getSetBitsArray();
+        if (columns.length > 0) {
+          numberOfColumns = Math.max(numberOfColumns, columns[columns.length - 1] + 1);
+        }
+      }
+      childSlots = new int[numberOfColumns];
+    }
+
+    /**
+     * @return pairs of candidate index and column position 0 for all candidates
+     */
+    public int[] getAllCandidates() {
+      int[] candidates = new int[2 * candidateArray.length];
+      for (int i = 0; i < candidateArray.length; i++) {
+        candidates[2 * i] = i;
+      }
+      return candidates;
+    }
+
+    /**
+     * Registers a child of the current node. Must be undone with {@link #clearChild(int)}.
+     *
+     * @param slot        the slot of the child
+     * @param columnIndex the column of the child
+     */
+    public void setChild(int slot, int columnIndex) {
+      if (columnIndex < childSlots.length) {
+        childSlots[columnIndex] = slot + 1;
+      }
+    }
+
+    public void clearChild(int columnIndex) {
+      if (columnIndex < childSlots.length) {
+        childSlots[columnIndex] = 0;
+      }
+    }
+
+    /**
+     * Adds every candidate of the node that has no subset yet to the children of all its remaining
+     * columns. The ranges of the child slots can be read with {@link #getFrom(int)} and {@link
+     * #getTo(int)} until the next call.
+     *
+     * @param candidates       pairs of candidate index and position of the next column to check
+     * @param from             the first pair of the node (inclusive)
+     * @param to               the last pair of the node (exclusive)
+     * @param numberOfChildren the number of registered children
+     * @return the candidate pairs of all children
+     */
+    public int[] distribute(int[] candidates, int from, int to, int numberOfChildren) {
+      if (offsets.length <= numberOfChildren) {
+        offsets = new int[numberOfChildren + 1];
+        nextOffsets = new int[numberOfChildren];
+      }
+      Arrays.fill(offsets, 0, numberOfChildren + 1, 0);
+
+      for (int i = from; i < to; i += 2) {
+        int candidate = candidates[i];
+        if (result.fastGet(candidate)) {
+          continue;
+        }
+        int[] columns = candidateArray[candidate].getSetBitsArray();
+        for (int position = candidates[i + 1]; position < columns.length; position++) {
+          offsets[childSlots[columns[position]]] += 2;
+        }
+      }
+      // Slot 0 of the counts collected the columns without child.
+      offsets[0] = 0;
+      for (int slot = 1; slot <= numberOfChildren; slot++) {
+        offsets[slot] += offsets[slot - 1];
+      }
+      System.arraycopy(offsets, 0, nextOffsets, 0, numberOfChildren);
+
+      int[] childCandidates = new int[offsets[numberOfChildren]];
+      for (int i = from; i < to; i += 2) {
+        int candidate = candidates[i];
+        if (result.fastGet(candidate)) {
+          continue;
+        }
+        int[] columns = candidateArray[candidate].getSetBitsArray();
+        for (int position = candidates[i + 1]; position < columns.length; position++) {
+          int slot = childSlots[columns[position]] - 1;
+          if (slot >= 0) {
+            childCandidates[nextOffsets[slot]++] = candidate;
+            childCandidates[nextOffsets[slot]++] = position + 1;
+          }
+        }
+      }
+      return childCandidates;
+    }
+
+    public int getFrom(int slot) {
+      return offsets[slot];
+    }
+
+    public int getTo(int slot) {
+      return offsets[slot + 1];
+    }
+
+    /**
+     * Marks the candidates of the range as containing a subset.
+     *
+     * @param candidates the candidate pairs
+     * @param from       the first pair (inclusive)
+     * @param to         the last pair (exclusive)
+     */
+    public void setResults(int[] candidates, int from, int to) {
+      for (int i = from; i < to; i += 2) {
+        result.set(candidates[i]);
+      }
+    }
+  }
 }
 
 /**
- * Task used to find subsets (avoiding recursion).
+ * Explicit stack for the depth first search of subsets of a column combination in a {@link
+ * SubSetGraph}. The stack is allocated once per query, so that the traversal itself does not
+ * allocate.
  */
-class SubSetFindTask implements Comparable<SubSetFindTask> {
-
-  public SubSetGraph subGraph;
-  public int numberOfCheckedColumns;
-  public ColumnCombinationBitset path;
-
-  public SubSetFindTask(
-      SubSetGraph subGraph,
-      int numberOfCheckedColumns,
-      ColumnCombinationBitset path) {
-    this.subGraph = subGraph;
-    this.numberOfCheckedColumns = numberOfCheckedColumns;
-    this.path = path;
+class SubSetFindStack {
+
+  protected SubSetGraph[] subGraphs;
+  // Position in the queried columns at which the search continues on each level.
+  protected int[] nextColumnPositions;
+  protected int[] path;
+  protected int depth = 0;
+
+  public SubSetFindStack(SubSetGraph root, int numberOfColumns) {
+    subGraphs = new SubSetGraph[numberOfColumns + 1];
+    nextColumnPositions = new int[numberOfColumns + 1];
+    path = new int[numberOfColumns];
+    subGraphs[0] = root;
+  }
+
+  /**
+   * Restarts the search at the root, so that the stack can be reused for another query.
+   */
+  public void reset() {
+    depth = 0;
+    nextColumnPositions[0] = 0;
+  }
+
+  /**
+   * Does not descend into the children of the sub graph returned last.
+   */
+  public void skipSubGraph() {
+    depth--;
+  }
+
+  /**
+   * @return the number of columns on the path to the current sub graph
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Descends to the next sub graph that lies on a subset of the queried columns.
+   *
+   * @param columns the queried column indices in ascending order
+   * @return the next sub graph or null if the search is complete
+   */
+  public SubSetGraph next(int[] columns) {
+    while (depth >= 0) {
+      SubSetGraph subGraph = subGraphs[depth];
+      int position = nextColumnPositions[depth];
+      SubSetGraph child = null;
+      if (!subGraph.isEmpty()) {
+        while ((position < columns.length)
+               && ((child = subGraph.subGraphs.get(columns[position])) == null)) {
+          position++;
+        }
+      }
+      if (child == null) {
+        depth--;
+        continue;
+      }
+
+      nextColumnPositions[depth] = position + 1;
+      path[depth] = columns[position];
+      depth++;
+      subGraphs[depth] = child;
+      nextColumnPositions[depth] = position + 1;
+      return child;
+    }
+    return null;
+  }
+
+  /**
+   * Adds the columns on the path to the current sub graph to the given column combination.
+   *
+   * @param columnCombination the column combination to fill
+   * @return the column combination
+   */
+  public ColumnCombinationBitset getPath(ColumnCombinationBitset columnCombination) {
+    for (int i = 0; i < depth; i++) {
+      columnCombination.addColumn(path[i]);
+    }
+    return columnCombination;
+  }
+}
+
+/**
+ * Checks a range of candidates for subsets in a {@link SubSetGraph}. Ranges are split at
+ * multiples of 64, so that every task writes distinct words of the shared result bit set.
+ */
+class SubSetBatchTask extends RecursiveAction {
+
+  private static final long serialVersionUID = 6194772580193474317L;
+
+  protected static final int BATCH_SIZE = 1024;
+
+  protected SubSetGraph graph;
+  protected List<ColumnCombinationBitset> candidates;
+  protected int from;
+  protected int to;
+  protected OpenBitSet result;
+
+  public SubSetBatchTask(SubSetGraph graph, List<ColumnCombinationBitset> candidates, int from,
+                         int to, OpenBitSet result) {
+    this.graph = graph;
+    this.candidates = candidates;
+    this.from = from;
+    this.to = to;
+    this.result = result;
   }
 
   @Override
-  public int compareTo(SubSetFindTask o) {
-    return this.path.compareTo(o.path);
+  protected void compute() {
+    if (to - from <= BATCH_SIZE) {
+      OpenBitSet batchResult = graph.containsSubsets(candidates.subList(from, to));
+      long[] batchWords = batchResult.getBits();
+      System.arraycopy(batchWords, 0, result.getBits(), from >>> 6, batchResult.getNumWords());
+      return;
+    }
+
+    int middle = (from + (to - from) / 2) & ~63;
+    invokeAll(new SubSetBatchTask(graph, candidates, from, middle, result),
+              new SubSetBatchTask(graph, candidates, middle, to, result));
   }
 }
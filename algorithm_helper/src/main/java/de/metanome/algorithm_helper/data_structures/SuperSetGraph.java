@@ -16,8 +16,12 @@
 
 package de.metanome.algorithm_helper.data_structures;
 
+import org.apache.lucene.util.OpenBitSet;
+
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A graph that allows for efficient lookup of all supersets in a graph structure for a given {@link
@@ -38,6 +42,18 @@ public class SuperSetGraph {
     this.numberOfColumns = numberOfColumns;
   }
 
+  /**
+   * Creates a graph backed by the given empty {@link SubSetGraph}, e.g. a {@link
+   * CompactSubSetGraph}.
+   *
+   * @param numberOfColumns the number of columns
+   * @param graph           the empty graph to store the inverted column combinations in
+   */
+  public SuperSetGraph(int numberOfColumns, SubSetGraph graph) {
+    this.numberOfColumns = numberOfColumns;
+    this.graph = graph;
+  }
+
   /**
    * Adds a {@link de.metanome.algorithm_helper.data_structures.ColumnCombinationBitset} to the
    * graph.
@@ -95,6 +111,38 @@ public class SuperSetGraph {
     return graph.containsSubset(subset.invert(numberOfColumns));
   }
 
+  /**
+   * Checks a batch of column combinations for supersets in the graph. See {@link
+   * SubSetGraph#containsSubsets(java.util.List)}.
+   *
+   * @param candidates the column combinations to check
+   * @return a bit set, in which the bit of every candidate with a superset in the graph is set
+   */
+  public OpenBitSet containsSupersets(List<ColumnCombinationBitset> candidates) {
+    return graph.containsSubsets(invertAll(candidates));
+  }
+
+  /**
+   * Checks a batch of column combinations for supersets in the graph in parallel. See {@link
+   * SubSetGraph#containsSubsets(java.util.List, java.util.concurrent.ForkJoinPool)}.
+   *
+   * @param candidates the column combinations to check
+   * @param pool       the pool to check the candidates on
+   * @return a bit set, in which the bit of every candidate with a superset in the graph is set
+   */
+  public OpenBitSet containsSupersets(List<ColumnCombinationBitset> candidates,
+                                      ForkJoinPool pool) {
+    return graph.containsSubsets(invertAll(candidates), pool);
+  }
+
+  protected List<ColumnCombinationBitset> invertAll(List<ColumnCombinationBitset> candidates) {
+    List<ColumnCombinationBitset> invertedCandidates = new ArrayList<>(candidates.size());
+    for (ColumnCombinationBitset candidate : candidates) {
+      invertedCandidates.add(candidate.invert(numberOfColumns));
+    }
+    return invertedCandidates;
+  }
+
   /**
    * @return whether the graph is empty
    */
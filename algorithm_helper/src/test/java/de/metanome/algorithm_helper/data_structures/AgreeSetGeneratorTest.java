@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.AgreeSetGenerator}
+ */
+public class AgreeSetGeneratorTest {
+
+  protected List<PositionListIndex> columnPLIs;
+
+  @Before
+  public void setUp() throws Exception {
+    columnPLIs = new PLIBuilderFixture().getExpectedPLIList(true);
+  }
+
+  /**
+   * Test method for {@link AgreeSetGenerator#getAgreeSets()} and {@link
+   * AgreeSetGenerator#getDifferenceSets(java.util.Collection)}
+   */
+  @Test
+  public void testGetAgreeSets() {
+    // Setup
+    AgreeSetGenerator generator = new AgreeSetGenerator(columnPLIs);
+    // Expected values
+    ColumnCombinationBitset[] expectedAgreeSets = {
+        new ColumnCombinationBitset(1),
+        new ColumnCombinationBitset(1, 2),
+        new ColumnCombinationBitset(1, 3)};
+    ColumnCombinationBitset[] expectedDifferenceSets = {
+        new ColumnCombinationBitset(0, 2, 3),
+        new ColumnCombinationBitset(0, 3),
+        new ColumnCombinationBitset(0, 2)};
+
+    // Execute functionality
+    Set<ColumnCombinationBitset> actualAgreeSets = generator.getAgreeSets();
+    Set<ColumnCombinationBitset> actualDifferenceSets =
+        generator.getDifferenceSets(actualAgreeSets);
+
+    // Check result
+    assertThat(actualAgreeSets,
+               IsIterableContainingInAnyOrder.containsInAnyOrder(expectedAgreeSets));
+    assertThat(actualDifferenceSets,
+               IsIterableContainingInAnyOrder.containsInAnyOrder(expectedDifferenceSets));
+    // The probing tables are released after the agree sets are calculated.
+    assertNull(generator.probingTables);
+  }
+
+  /**
+   * Test method for {@link AgreeSetGenerator#getAgreeSets(java.util.concurrent.ForkJoinPool)} and
+   * {@link AgreeSetGenerator#AgreeSetGenerator(java.util.List, long, long)} <p/> Parallel
+   * computation should not change the result, sampled agree sets should be a subset of all agree
+   * sets.
+   */
+  @Test
+  public void testGetAgreeSetsParallelAndSampled() {
+    // Setup
+    ForkJoinPool pool = new ForkJoinPool(2);
+    Set<ColumnCombinationBitset> expectedAgreeSets =
+        new AgreeSetGenerator(columnPLIs).getAgreeSets();
+
+    // Execute functionality
+    Set<ColumnCombinationBitset> actualAgreeSets =
+        new AgreeSetGenerator(columnPLIs).getAgreeSets(pool);
+    Set<ColumnCombinationBitset> sampledAgreeSets =
+        new AgreeSetGenerator(columnPLIs, 1, 42).getAgreeSets(pool);
+
+    // Check result
+    assertEquals(expectedAgreeSets, actualAgreeSets);
+    assertEquals(1, sampledAgreeSets.size());
+    assertTrue(expectedAgreeSets.containsAll(sampledAgreeSets));
+    pool.shutdown();
+  }
+
+  /**
+   * Test method for {@link AgreeSetGenerator#getMaximalClasses()} <p/> Clusters contained in
+   * clusters of other columns should be removed, of equal clusters only one should be kept.
+   */
+  @Test
+  public void testGetMaximalClasses() {
+    // Setup
+    List<PositionListIndex> plis = new ArrayList<>();
+    List<LongArrayList> clusters1 = new ArrayList<>();
+    clusters1.add(new LongArrayList(new long[]{0, 1}));
+    clusters1.add(new LongArrayList(new long[]{2, 3}));
+    plis.add(new PositionListIndex(clusters1));
+    List<LongArrayList> clusters2 = new ArrayList<>();
+    clusters2.add(new LongArrayList(new long[]{1, 2}));
+    clusters2.add(new LongArrayList(new long[]{0, 1}));
+    plis.add(new PositionListIndex(clusters2));
+    List<LongArrayList> clusters3 = new ArrayList<>();
+    clusters3.add(new LongArrayList(new long[]{2, 3}));
+    clusters3.add(new LongArrayList(new long[]{0, 1, 2, 3}));
+    plis.add(new PositionListIndex(clusters3));
+
+    // Execute functionality
+    List<long[]> actualMaximalClasses = new AgreeSetGenerator(plis).getMaximalClasses();
+
+    // Check result
+    assertEquals(1, actualMaximalClasses.size());
+    assertArrayEquals(new long[]{0, 1, 2, 3}, actualMaximalClasses.get(0));
+
+    plis.remove(2);
+    actualMaximalClasses = new AgreeSetGenerator(plis).getMaximalClasses();
+    assertEquals(3, actualMaximalClasses.size());
+    assertArrayEquals(new long[]{0, 1}, actualMaximalClasses.get(0));
+    assertArrayEquals(new long[]{2, 3}, actualMaximalClasses.get(1));
+    assertArrayEquals(new long[]{1, 2}, actualMaximalClasses.get(2));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.AprioriCandidateGenerator}
+ */
+public class AprioriCandidateGeneratorTest {
+
+  /**
+   * Test method for {@link AprioriCandidateGenerator#generateNextLevel(java.util.Collection)} <p/>
+   * Only candidates with all subsets in the current level should be generated.
+   */
+  @Test
+  public void testGenerateNextLevel() {
+    // Setup
+    AprioriCandidateGenerator generator = new AprioriCandidateGenerator();
+    List<ColumnCombinationBitset> currentLevel = new ArrayList<>();
+    currentLevel.add(ColumnCombinationBitset.create(10, 1, 2, 3));
+    currentLevel.add(ColumnCombinationBitset.create(10, 1, 2, 4));
+    currentLevel.add(ColumnCombinationBitset.create(10, 1, 3, 4));
+    currentLevel.add(ColumnCombinationBitset.create(10, 1, 3, 5));
+    currentLevel.add(ColumnCombinationBitset.create(10, 2, 3, 4));
+    currentLevel.add(ColumnCombinationBitset.create(10, 1, 2, 3));
+    // Expected values
+    List<ColumnCombinationBitset> expectedCandidates = new ArrayList<>();
+    expectedCandidates.add(new ColumnCombinationBitset(1, 2, 3, 4));
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualCandidates = generator.generateNextLevel(currentLevel);
+
+    // Check result
+    assertEquals(expectedCandidates, actualCandidates);
+    assertTrue(actualCandidates.get(0) instanceof FixedWidthColumnCombinationBitset);
+    assertTrue(generator.generateNextLevel(new ArrayList<ColumnCombinationBitset>()).isEmpty());
+  }
+
+  /**
+   * Test method for {@link AprioriCandidateGenerator#generateNextLevel(java.util.Collection,
+   * java.util.concurrent.ForkJoinPool)} <p/> The candidates should be equal to the ones of the
+   * sequential generation and to the complete next level of a complete level.
+   */
+  @Test
+  public void testGenerateNextLevelParallel() {
+    // Setup
+    AprioriCandidateGenerator generator = new AprioriCandidateGenerator();
+    ColumnCombinationBitset allColumns = new ColumnCombinationBitset().setAllBits(70);
+    List<ColumnCombinationBitset> currentLevel = allColumns.getNSubsetColumnCombinations(2);
+    ForkJoinPool pool = new ForkJoinPool(2);
+    // Expected values
+    List<ColumnCombinationBitset> expectedCandidates = new ArrayList<>();
+    CombinationIterator nextLevel = allColumns.getNSubsetColumnCombinationsIterator(3);
+    while (nextLevel.hasNext()) {
+      expectedCandidates.add(nextLevel.next());
+    }
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualCandidates = generator.generateNextLevel(currentLevel, pool);
+
+    // Check result
+    assertEquals(expectedCandidates, actualCandidates);
+    assertEquals(generator.generateNextLevel(currentLevel), actualCandidates);
+    pool.shutdown();
+  }
+
+  /**
+   * Test method for {@link AprioriCandidateGenerator#generateNextLevel(java.util.Collection)} <p/>
+   * Column combinations of different sizes should be rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateNextLevelDifferentSizes() {
+    // Setup
+    List<ColumnCombinationBitset> currentLevel = new ArrayList<>();
+    currentLevel.add(new ColumnCombinationBitset(1, 2));
+    currentLevel.add(new ColumnCombinationBitset(1, 2, 3));
+
+    // Execute functionality
+    new AprioriCandidateGenerator().generateNextLevel(currentLevel);
+  }
+}
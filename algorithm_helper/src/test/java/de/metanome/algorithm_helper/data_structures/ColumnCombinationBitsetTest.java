@@ -29,6 +29,7 @@ import org.junit.Test;
 import java.util.LinkedList;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
@@ -618,6 +619,35 @@ public class ColumnCombinationBitsetTest {
                IsIterableContainingInAnyOrder.containsInAnyOrder(fixture.getExpectedBits1()));
   }
 
+  /**
+   * Test method for {@link ColumnCombinationBitset#getSetBitsArray()} and {@link
+   * ColumnCombinationBitset#nextSetBit(int)} <p/> The cached set bits should be updated when the
+   * column combination is modified.
+   */
+  @Test
+  public void testGetSetBitsArray() {
+    // Setup
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset(2, 5, 70);
+    ColumnCombinationBitset fixedWidthColumnCombination =
+        new FixedWidthColumnCombinationBitset(2, 5, 70);
+    // Expected values
+    int[] expectedSetBits = {2, 5, 70};
+    int[] expectedModifiedSetBits = {2, 3, 70};
+
+    // Execute functionality
+    // Check result
+    assertArrayEquals(expectedSetBits, columnCombination.getSetBitsArray());
+    assertArrayEquals(expectedSetBits, fixedWidthColumnCombination.getSetBitsArray());
+    assertEquals(5, columnCombination.nextSetBit(3));
+    assertEquals(70, fixedWidthColumnCombination.nextSetBit(6));
+    assertEquals(-1, fixedWidthColumnCombination.nextSetBit(71));
+
+    columnCombination.removeColumn(5).addColumn(3);
+    fixedWidthColumnCombination.removeColumn(5).addColumn(3);
+    assertArrayEquals(expectedModifiedSetBits, columnCombination.getSetBitsArray());
+    assertArrayEquals(expectedModifiedSetBits, fixedWidthColumnCombination.getSetBitsArray());
+  }
+
   /**
    * Test method for {@link ColumnCombinationBitset#getClearedBits(int)} <p/> Returns all the
    * cleared bits within the maximum of all the number of columns.
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.CombinationIterator}
+ */
+public class CombinationIteratorTest {
+
+  /**
+   * Test method for {@link ColumnCombinationBitset#getNSubsetColumnCombinationsSupersetOfIterator(ColumnCombinationBitset,
+   * int)} <p/> The lazily generated subsets should be equal to the materialized ones.
+   */
+  @Test
+  public void testGetNSubsetColumnCombinationsSupersetOfIterator() {
+    // Setup
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset(0, 2, 3, 5, 7, 9);
+    ColumnCombinationBitset subSet = new ColumnCombinationBitset(3, 7);
+
+    for (int n = 0; n <= 7; n++) {
+      // Expected values
+      List<ColumnCombinationBitset> expectedSubsets =
+          columnCombination.getNSubsetColumnCombinationsSupersetOf(subSet, n);
+
+      // Execute functionality
+      List<ColumnCombinationBitset> actualSubsets = toList(
+          columnCombination.getNSubsetColumnCombinationsSupersetOfIterator(subSet, n));
+
+      // Check result
+      assertEquals(expectedSubsets.size(), actualSubsets.size());
+      assertThat(actualSubsets, IsIterableContainingInAnyOrder.containsInAnyOrder(
+          expectedSubsets.toArray(new ColumnCombinationBitset[expectedSubsets.size()])));
+    }
+  }
+
+  /**
+   * Test method for {@link ColumnCombinationBitset#getAllSubsetsIterator()}
+   */
+  @Test
+  public void testGetAllSubsetsIterator() {
+    // Setup
+    ColumnCombinationBitset columnCombination = new FixedWidthColumnCombinationBitset(1, 4, 6, 8);
+    // Expected values
+    List<ColumnCombinationBitset> expectedSubsets = columnCombination.getAllSubsets();
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualSubsets = toList(columnCombination.getAllSubsetsIterator());
+
+    // Check result
+    assertEquals(expectedSubsets.size(), actualSubsets.size());
+    assertThat(actualSubsets, IsIterableContainingInAnyOrder.containsInAnyOrder(
+        expectedSubsets.toArray(new ColumnCombinationBitset[expectedSubsets.size()])));
+    assertEquals(columnCombination, actualSubsets.get(0));
+  }
+
+  /**
+   * Test method for {@link CombinationIterator#trySplit()} <p/> The split iterators should
+   * together return every combination exactly once.
+   */
+  @Test
+  public void testTrySplit() {
+    // Setup
+    ColumnCombinationBitset columnCombination =
+        new ColumnCombinationBitset().setAllBits(10);
+    CombinationIterator iterator = columnCombination.getNSubsetColumnCombinationsIterator(4);
+    // Expected values
+    List<ColumnCombinationBitset> expectedSubsets =
+        toList(columnCombination.getNSubsetColumnCombinationsIterator(4));
+
+    // Execute functionality
+    iterator.next();
+    CombinationIterator secondHalf = iterator.trySplit();
+    CombinationIterator secondQuarter = iterator.trySplit();
+    List<ColumnCombinationBitset> actualSubsets = new ArrayList<>();
+    actualSubsets.add(expectedSubsets.get(0));
+    actualSubsets.addAll(toList(iterator));
+    actualSubsets.addAll(toList(secondQuarter));
+    actualSubsets.addAll(toList(secondHalf));
+
+    // Check result
+    assertEquals(210, CombinationIterator.binomial(10, 4));
+    assertEquals(expectedSubsets, actualSubsets);
+    assertFalse(iterator.hasNext());
+    assertNull(iterator.trySplit());
+  }
+
+  protected List<ColumnCombinationBitset> toList(Iterator<ColumnCombinationBitset> iterator) {
+    List<ColumnCombinationBitset> list = new ArrayList<>();
+    while (iterator.hasNext()) {
+      list.add(iterator.next());
+    }
+    return list;
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.CompactPositionListIndex}
+ */
+public class CompactPositionListIndexTest {
+
+  protected PositionListIndexFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#CompactPositionListIndex()}
+   *
+   * An empty compact pli should be unique.
+   */
+  @Test
+  public void testConstructor() {
+    // Execute functionality
+    CompactPositionListIndex pli = new CompactPositionListIndex();
+
+    // Check result
+    assertTrue(pli.isEmpty());
+    assertTrue(pli.isUnique());
+    assertEquals(0, pli.getRawKeyError());
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#fromClusters(java.util.List)}
+   *
+   * The compact pli should be equal to the pli it has been converted from and return the same
+   * statistics.
+   */
+  @Test
+  public void testFromClusters() {
+    // Setup
+    PositionListIndex pli = fixture.getFirstPLI();
+
+    // Execute functionality
+    CompactPositionListIndex compactPLI = CompactPositionListIndex.fromClusters(pli.getClusters());
+
+    // Check result
+    assertEquals(pli, compactPLI);
+    assertEquals(compactPLI, pli);
+    assertEquals(pli.hashCode(), compactPLI.hashCode());
+    assertEquals(pli.size(), compactPLI.size());
+    assertEquals(fixture.getExpectedFirstPLIRawKeyError(), compactPLI.getRawKeyError());
+    assertEquals(fixture.getFirstPLIAsHashMap(), compactPLI.asHashMap());
+    assertEquals(pli.getClusters(), compactPLI.getClusters());
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#fromClusters(java.util.List)}
+   *
+   * Rows that do not fit into an int should be rejected.
+   */
+  @Test
+  public void testFromClustersTooLargeRow() {
+    // Setup
+    List<LongArrayList> clusters = new ArrayList<>();
+    clusters.add(new LongArrayList(new long[]{1, Integer.MAX_VALUE + 1L}));
+
+    // Execute functionality
+    // Check result
+    try {
+      CompactPositionListIndex.fromClusters(clusters);
+      fail("IllegalArgumentException was not thrown.");
+    } catch (IllegalArgumentException e) {
+      // Intentionally left blank
+    }
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#intersect(PositionListIndex)}
+   *
+   * Compact plis should be intersected correctly with compact and long plis and the result of
+   * probing with a compact pli should be compact.
+   */
+  @Test
+  public void testIntersect() {
+    // Setup
+    CompactPositionListIndex firstPLI =
+        CompactPositionListIndex.fromClusters(fixture.getFirstPLI().getClusters());
+    CompactPositionListIndex secondPLI =
+        CompactPositionListIndex.fromClusters(fixture.getSecondPLI().getClusters());
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    PositionListIndex actualPLI = firstPLI.intersect(secondPLI);
+
+    // Check result
+    assertEquals(expectedPLI, actualPLI);
+    assertTrue(actualPLI instanceof CompactPositionListIndex);
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(), actualPLI.getRawKeyError());
+    assertEquals(expectedPLI, fixture.getFirstPLI().intersect(secondPLI));
+    assertEquals(expectedPLI, firstPLI.intersect(fixture.getSecondPLI()));
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#getClusters()}
+   *
+   * The clusters should be built once and be unmodifiable.
+   */
+  @Test
+  public void testGetClusters() {
+    // Setup
+    CompactPositionListIndex pli =
+        CompactPositionListIndex.fromClusters(fixture.getFirstPLI().getClusters());
+
+    // Execute functionality
+    List<LongArrayList> actualClusters = pli.getClusters();
+
+    // Check result
+    assertEquals(fixture.getFirstPLI().getClusters(), actualClusters);
+    assertSame(actualClusters, pli.getClusters());
+    try {
+      actualClusters.add(new LongArrayList());
+      fail("UnsupportedOperationException was not thrown.");
+    } catch (UnsupportedOperationException e) {
+      // Intentionally left blank
+    }
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#clone()}
+   */
+  @Test
+  public void testClone() {
+    // Setup
+    CompactPositionListIndex pli =
+        CompactPositionListIndex.fromClusters(fixture.getFirstPLI().getClusters());
+
+    // Execute functionality
+    CompactPositionListIndex copy = pli.clone();
+
+    // Check result
+    assertEquals(pli, copy);
+    assertNotSame(pli.rows, copy.rows);
+    assertNotSame(pli.clusterOffsets, copy.clusterOffsets);
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.test_helper.EqualsAndHashCodeTester;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.CompactSubSetGraph} <p/> The
+ * results should always be equal to the ones of the {@link SubSetGraph}.
+ */
+public class CompactSubSetGraphTest {
+
+  /**
+   * Test method for {@link CompactSubSetGraph#getExistingSubsets(ColumnCombinationBitset)}
+   */
+  @Test
+  public void testGetExistingSubsets() {
+    // Setup
+    SubSetGraphFixture fixture = new SubSetGraphFixture();
+    SubSetGraph graph = fixture.getCompactGraph();
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualSubsets =
+        graph.getExistingSubsets(fixture.getColumnCombinationForSubsetQuery());
+
+    // Check result
+    assertThat(actualSubsets,
+               IsIterableContainingInAnyOrder
+                   .containsInAnyOrder(fixture.getExpectedSubsetsFromQuery()));
+    assertTrue(new CompactSubSetGraph()
+                   .getExistingSubsets(new ColumnCombinationBitset(1, 3)).isEmpty());
+  }
+
+  /**
+   * Test method for {@link CompactSubSetGraph#containsSubset(ColumnCombinationBitset)}
+   */
+  @Test
+  public void testContainsSubset() {
+    // Setup
+    SubSetGraphFixture fixture = new SubSetGraphFixture();
+    SubSetGraph graph = fixture.getCompactGraph();
+
+    // Execute functionality
+    // Check result
+    assertTrue(graph.containsSubset(fixture.getExpectedIncludedColumnCombinations().get(0)));
+    assertTrue(graph.containsSubset(fixture.getColumnCombinationForSubsetQuery()));
+    assertFalse(graph.containsSubset(new ColumnCombinationBitset(1)));
+    assertFalse(graph.containsSubset(new ColumnCombinationBitset(1, 2, 4, 8)));
+    assertFalse(new CompactSubSetGraph().containsSubset(new ColumnCombinationBitset(1, 3)));
+  }
+
+  /**
+   * Test method for {@link CompactSubSetGraph#getMinimalSubsets()}
+   */
+  @Test
+  public void testGetMinimalSubsets() {
+    // Setup
+    SubSetGraphFixture fixture = new SubSetGraphFixture();
+    SubSetGraph graph = fixture.getCompactGraph();
+
+    // Execute functionality
+    Set<ColumnCombinationBitset> actualMinimalSubsets = graph.getMinimalSubsets();
+
+    // Check result
+    assertThat(actualMinimalSubsets,
+               IsIterableContainingInAnyOrder
+                   .containsInAnyOrder(fixture.getExpectedMinimalSubsets()));
+  }
+
+  /**
+   * Test method for {@link SuperSetGraph#SuperSetGraph(int, SubSetGraph)} <p/> A super set graph
+   * backed by the compact graph should find the same supersets.
+   */
+  @Test
+  public void testSuperSetGraph() {
+    // Setup
+    SuperSetGraphFixture fixture = new SuperSetGraphFixture();
+    SuperSetGraph graph =
+        new SuperSetGraph(fixture.getNumberOfColumns(), new CompactSubSetGraph());
+    graph.addAll(fixture.getExpectedIncludedColumnCombinations());
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualSupersets =
+        graph.getExistingSupersets(fixture.getColumnCombinationForSupersetQuery());
+
+    // Check result
+    assertThat(actualSupersets,
+               IsIterableContainingInAnyOrder
+                   .containsInAnyOrder(fixture.getExpectedSupersetsFromQuery()));
+    assertTrue(graph.containsSuperset(fixture.getColumnCombinationForSupersetQuery()));
+    assertFalse(graph.containsSuperset(new ColumnCombinationBitset(5, 7)));
+  }
+
+  /**
+   * Test method for {@link CompactSubSetGraph#equals(Object)} and {@link
+   * CompactSubSetGraph#hashCode()} <p/> Graphs should be equal independent of the insertion order.
+   */
+  @Test
+  public void testEqualsAndHashCode() {
+    // Setup
+    CompactSubSetGraph actualGraph = new CompactSubSetGraph();
+    CompactSubSetGraph equalsGraph = new CompactSubSetGraph();
+    CompactSubSetGraph notEqualsGraph = new CompactSubSetGraph();
+
+    actualGraph.add(new ColumnCombinationBitset(2, 5, 10, 20));
+    actualGraph.add(new ColumnCombinationBitset(2, 5, 8, 15));
+
+    equalsGraph.add(new ColumnCombinationBitset(2, 5, 8, 15));
+    equalsGraph.add(new ColumnCombinationBitset(2, 5, 10, 20));
+
+    notEqualsGraph.add(new ColumnCombinationBitset(2, 5, 12, 20));
+    notEqualsGraph.add(new ColumnCombinationBitset(2, 5, 10, 15));
+
+    // Execute functionality
+    // Check result
+    EqualsAndHashCodeTester<SubSetGraph> tester = new EqualsAndHashCodeTester<>();
+    tester.performBasicEqualsAndHashCodeChecks(actualGraph, equalsGraph, notEqualsGraph);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.ConcurrentSubSetGraph}
+ */
+public class ConcurrentSubSetGraphTest {
+
+  /**
+   * Test method for {@link ConcurrentSubSetGraph#getExistingSubsets(ColumnCombinationBitset)},
+   * {@link ConcurrentSubSetGraph#containsSubset(ColumnCombinationBitset)} and {@link
+   * ConcurrentSubSetGraph#getMinimalSubsets()} <p/> The results should be equal to the ones of
+   * the {@link SubSetGraph}.
+   */
+  @Test
+  public void testQueries() {
+    // Setup
+    SubSetGraphFixture fixture = new SubSetGraphFixture();
+    SubSetGraph graph = new ConcurrentSubSetGraph();
+    graph.addAll(fixture.getExpectedIncludedColumnCombinations());
+
+    // Execute functionality
+    // Check result
+    assertThat(graph.getExistingSubsets(fixture.getColumnCombinationForSubsetQuery()),
+               IsIterableContainingInAnyOrder
+                   .containsInAnyOrder(fixture.getExpectedSubsetsFromQuery()));
+    assertThat(graph.getMinimalSubsets(),
+               IsIterableContainingInAnyOrder
+                   .containsInAnyOrder(fixture.getExpectedMinimalSubsets()));
+    assertTrue(graph.containsSubset(fixture.getColumnCombinationForSubsetQuery()));
+    assertFalse(graph.containsSubset(new ColumnCombinationBitset(1, 2, 4, 8)));
+    assertFalse(new ConcurrentSubSetGraph().containsSubset(new ColumnCombinationBitset(1)));
+    assertEquals(fixture.getGraph().getExistingSubsets(new ColumnCombinationBitset(1, 3, 5)),
+                 graph.getExistingSubsets(new ColumnCombinationBitset(1, 3, 5)));
+  }
+
+  /**
+   * Test method for {@link ConcurrentSubSetGraph#add(ColumnCombinationBitset)} <p/> Column
+   * combinations added concurrently should all be found, also by queries running concurrently to
+   * the insertions.
+   */
+  @Test
+  public void testConcurrentAdd() throws Exception {
+    // Setup
+    final int numberOfThreads = 4;
+    final int numberOfColumns = 12;
+    final ConcurrentSubSetGraph graph = new ConcurrentSubSetGraph();
+    final ColumnCombinationBitset allColumns = new ColumnCombinationBitset().setAllBits(
+        numberOfColumns);
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+
+    // Execute functionality
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int thread = 0; thread < numberOfThreads; thread++) {
+      final int firstColumn = thread;
+      results.add(executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          boolean allFound = true;
+          for (int column = firstColumn; column < numberOfColumns; column += numberOfThreads) {
+            for (int otherColumn = 0; otherColumn < numberOfColumns; otherColumn++) {
+              ColumnCombinationBitset columnCombination =
+                  new ColumnCombinationBitset(column, otherColumn);
+              graph.add(columnCombination);
+              allFound &= graph.containsSubset(columnCombination);
+              allFound &= graph.containsSubset(allColumns);
+            }
+          }
+          return allFound;
+        }
+      }));
+    }
+    for (Future<Boolean> result : results) {
+      assertTrue(result.get());
+    }
+    executor.shutdown();
+
+    // Check result
+    assertEquals(numberOfColumns * (numberOfColumns + 1) / 2,
+                 graph.getExistingSubsets(allColumns).size());
+    assertEquals(numberOfColumns, graph.getMinimalSubsets().size());
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.input.InputIterationException;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.DictionaryEncodedColumnStore}
+ */
+public class DictionaryEncodedColumnStoreTest {
+
+  protected PLIBuilderFixture fixture;
+  protected DictionaryEncodedColumnStore store;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PLIBuilderFixture();
+    store = new DictionaryEncodedColumnStore(fixture.getInputGenerator().generateNewCopy());
+  }
+
+  /**
+   * Test method for {@link DictionaryEncodedColumnStore#getPLIList(boolean)} <p/> The plis should
+   * be equal to the ones of the {@link PLIBuilder}.
+   */
+  @Test
+  public void testGetPLIList() {
+    for (boolean nullEqualsNull : new boolean[]{true, false}) {
+      // Expected values
+      List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(nullEqualsNull);
+      PositionListIndex[]
+          expectedPLIArray =
+          expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+
+      // Execute functionality
+      List<PositionListIndex> actualPLIList = store.getPLIList(nullEqualsNull);
+
+      // Check result
+      assertThat(actualPLIList,
+                 IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+    }
+  }
+
+  /**
+   * Test method for {@link DictionaryEncodedColumnStore#getDistinctSortedColumns()}
+   */
+  @Test
+  public void testGetDistinctSortedColumns() {
+    // Expected values
+    List<TreeSet<String>>
+        expectedDistinctSortedColumns =
+        fixture.getExpectedDistinctSortedColumns();
+
+    // Execute functionality
+    List<TreeSet<String>> actualDistinctSortedColumns = store.getDistinctSortedColumns();
+
+    // Check result
+    assertEquals(expectedDistinctSortedColumns, actualDistinctSortedColumns);
+  }
+
+  /**
+   * Test method for {@link DictionaryEncodedColumnStore#getDictionary(int)} and {@link
+   * DictionaryEncodedColumnStore#getValueIds(int)} <p/> The value ids should reference the sorted
+   * dictionary and null values should be encoded after the last dictionary entry.
+   */
+  @Test
+  public void testEncoding() {
+    // Execute functionality
+    // Check result
+    assertArrayEquals(new String[]{"3", "5"}, store.getDictionary(2));
+    assertArrayEquals(new int[]{1, 1, 0, 0, 1}, store.getValueIds(2));
+    assertArrayEquals(new String[]{"2", "4", "5"}, store.getDictionary(3));
+    assertArrayEquals(new int[]{3, 0, 3, 1, 2}, store.getValueIds(3));
+  }
+
+  /**
+   * Test method for the column statistics of the {@link DictionaryEncodedColumnStore}
+   */
+  @Test
+  public void testStatistics() {
+    // Execute functionality
+    // Check result
+    assertEquals(fixture.getExpectedNumberOfTuples(), store.getNumberOfTuples());
+    assertEquals(4, store.getNumberOfColumns());
+    assertEquals(5, store.getNumberOfDistinctValues(0));
+    assertEquals(1, store.getNumberOfDistinctValues(1));
+    assertEquals(0, store.getNumberOfNullValues(0));
+    assertEquals(2, store.getNumberOfNullValues(3));
+    assertEquals("1", store.getMinimumValue(0));
+    assertEquals("5", store.getMaximumValue(0));
+    assertEquals("2", store.getMinimumValue(3));
+    assertEquals("5", store.getMaximumValue(3));
+  }
+
+  /**
+   * Test method for {@link DictionaryEncodedColumnStore#DictionaryEncodedColumnStore(de.metanome.algorithm_integration.input.RelationalInput,
+   * int)} <p/> Inputs with more rows than the store can hold should be rejected.
+   */
+  @Test(expected = InputIterationException.class)
+  public void testConstructorTooManyTuples() throws Exception {
+    // Execute functionality
+    new DictionaryEncodedColumnStore(fixture.getInputGenerator().generateNewCopy(),
+                                     (int) fixture.getExpectedNumberOfTuples() - 1);
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.FixedWidthColumnCombinationBitset}
+ * <p/> The results should always be equal to the ones of the {@link ColumnCombinationBitset}.
+ */
+public class FixedWidthColumnCombinationBitsetTest {
+
+  protected static final int[] COLUMNS1 = {0, 5, 63, 64, 100, 127};
+  protected static final int[] COLUMNS2 = {5, 64, 90};
+
+  /**
+   * Test method for {@link FixedWidthColumnCombinationBitset#equals(Object)} and {@link
+   * FixedWidthColumnCombinationBitset#hashCode()} <p/> Equal column combinations should be equal
+   * and have the same hash code independent of their representation.
+   */
+  @Test
+  public void testEqualsHashCode() {
+    // Setup
+    ColumnCombinationBitset expectedColumnCombination = new ColumnCombinationBitset(COLUMNS1);
+    ColumnCombinationBitset actualColumnCombination =
+        new FixedWidthColumnCombinationBitset(COLUMNS1);
+
+    // Execute functionality
+    // Check result
+    assertEquals(expectedColumnCombination, actualColumnCombination);
+    assertEquals(actualColumnCombination, expectedColumnCombination);
+    assertEquals(expectedColumnCombination.hashCode(), actualColumnCombination.hashCode());
+    assertEquals(new ColumnCombinationBitset().hashCode(),
+                 new FixedWidthColumnCombinationBitset().hashCode());
+    assertEquals(new ColumnCombinationBitset(3).hashCode(),
+                 new FixedWidthColumnCombinationBitset(3).hashCode());
+    assertFalse(actualColumnCombination.equals(new FixedWidthColumnCombinationBitset(COLUMNS2)));
+    assertEquals(expectedColumnCombination.toString(), actualColumnCombination.toString());
+  }
+
+  /**
+   * Test method for the set operations of the {@link FixedWidthColumnCombinationBitset}
+   */
+  @Test
+  public void testSetOperations() {
+    // Setup
+    ColumnCombinationBitset expected1 = new ColumnCombinationBitset(COLUMNS1);
+    ColumnCombinationBitset expected2 = new ColumnCombinationBitset(COLUMNS2);
+    ColumnCombinationBitset actual1 = new FixedWidthColumnCombinationBitset(COLUMNS1);
+    ColumnCombinationBitset actual2 = new FixedWidthColumnCombinationBitset(COLUMNS2);
+
+    // Execute functionality
+    // Check result
+    assertEquals(expected1.union(expected2), actual1.union(actual2));
+    assertEquals(expected1.intersect(expected2), actual1.intersect(actual2));
+    assertEquals(expected1.minus(expected2), actual1.minus(actual2));
+    assertEquals(expected1.invert(128), actual1.invert(128));
+    assertEquals(expected2.invert(70), actual2.invert(70));
+    assertEquals(expected1.getSetBits(), actual1.getSetBits());
+    assertEquals(expected2.getClearedBits(100), actual2.getClearedBits(100));
+    assertEquals(expected1.size(), actual1.size());
+    assertTrue(actual1.containsSubset(actual1.intersect(actual2)));
+    assertTrue(actual1.intersect(actual2).isProperSubsetOf(actual2));
+    assertFalse(actual1.containsSubset(actual2));
+    assertEquals(Integer.signum(expected1.compareTo(expected2)),
+                 Integer.signum(actual1.compareTo(actual2)));
+    ColumnCombinationBitset expected3 = new ColumnCombinationBitset(5, 64, 91);
+    ColumnCombinationBitset actual3 = new FixedWidthColumnCombinationBitset(5, 64, 91);
+    assertEquals(Integer.signum(expected2.compareTo(expected3)),
+                 Integer.signum(actual2.compareTo(actual3)));
+  }
+
+  /**
+   * Test method for the set operations of the {@link FixedWidthColumnCombinationBitset} <p/> Set
+   * operations with column combinations of the other representation should return fixed width
+   * column combinations and reject results beyond 128 columns.
+   */
+  @Test
+  public void testMixedSetOperations() {
+    // Setup
+    ColumnCombinationBitset expected1 = new ColumnCombinationBitset(COLUMNS1);
+    ColumnCombinationBitset expected2 = new ColumnCombinationBitset(COLUMNS2);
+    ColumnCombinationBitset actual1 = new FixedWidthColumnCombinationBitset(COLUMNS1);
+    ColumnCombinationBitset wide = new ColumnCombinationBitset(5, 200);
+
+    // Execute functionality
+    ColumnCombinationBitset actualUnion = actual1.union(expected2);
+    ColumnCombinationBitset actualIntersection = actual1.intersect(expected2);
+    ColumnCombinationBitset actualDifference = actual1.minus(wide);
+
+    // Check result
+    assertTrue(actualUnion instanceof FixedWidthColumnCombinationBitset);
+    assertTrue(actualIntersection instanceof FixedWidthColumnCombinationBitset);
+    assertTrue(actualDifference instanceof FixedWidthColumnCombinationBitset);
+    assertEquals(expected1.union(expected2), actualUnion);
+    assertEquals(expected1.intersect(expected2), actualIntersection);
+    assertEquals(expected1.minus(wide), actualDifference);
+    assertTrue(actualIntersection.isSubsetOf(expected2));
+    assertTrue(actual1.containsSubset(expected1.intersect(expected2)));
+    assertFalse(actual1.containsSubset(wide));
+    assertFalse(actual1.intersect(wide).equals(wide));
+    assertEquals(Integer.signum(expected1.compareTo(expected2)),
+                 Integer.signum(actual1.compareTo(expected2)));
+    try {
+      actual1.union(wide);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Intentionally left blank
+    }
+  }
+
+  /**
+   * Test method for {@link FixedWidthColumnCombinationBitset#getDirectSupersets(int)} and {@link
+   * FixedWidthColumnCombinationBitset#getDirectSubsetsSupersetOf(ColumnCombinationBitset)}
+   */
+  @Test
+  public void testDirectSupersetsSubsets() {
+    // Setup
+    ColumnCombinationBitset expected = new ColumnCombinationBitset(COLUMNS2);
+    ColumnCombinationBitset actual = new FixedWidthColumnCombinationBitset(COLUMNS2);
+    List<ColumnCombinationBitset> expectedSupersets = expected.getDirectSupersets(128);
+    List<ColumnCombinationBitset> expectedSubsets =
+        expected.getDirectSubsetsSupersetOf(new ColumnCombinationBitset(64));
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualSupersets = actual.getDirectSupersets(128);
+    List<ColumnCombinationBitset> actualSubsets =
+        actual.getDirectSubsetsSupersetOf(new FixedWidthColumnCombinationBitset(64));
+
+    // Check result
+    assertThat(actualSupersets, IsIterableContainingInAnyOrder.containsInAnyOrder(
+        expectedSupersets.toArray(new ColumnCombinationBitset[expectedSupersets.size()])));
+    assertThat(actualSubsets, IsIterableContainingInAnyOrder.containsInAnyOrder(
+        expectedSubsets.toArray(new ColumnCombinationBitset[expectedSubsets.size()])));
+    assertEquals(expected.getDirectSubsets(), actual.getDirectSubsets());
+    List<ColumnCombinationBitset> expectedNSubsets = expected.getNSubsetColumnCombinations(2);
+    assertThat(actual.getNSubsetColumnCombinations(2),
+               IsIterableContainingInAnyOrder.containsInAnyOrder(
+                   expectedNSubsets.toArray(new ColumnCombinationBitset[3])));
+  }
+
+  /**
+   * Test method for {@link ColumnCombinationBitset#create(int, int...)} <p/> The fixed width
+   * representation should be chosen for up to 128 columns.
+   */
+  @Test
+  public void testCreate() {
+    // Execute functionality
+    // Check result
+    assertTrue(ColumnCombinationBitset.create(128, 3) instanceof FixedWidthColumnCombinationBitset);
+    assertFalse(ColumnCombinationBitset.create(129, 3)
+                    instanceof FixedWidthColumnCombinationBitset);
+    assertEquals(new ColumnCombinationBitset(3, 4), ColumnCombinationBitset.create(10, 3, 4));
+  }
+
+  /**
+   * Test method for {@link FixedWidthColumnCombinationBitset#addColumn(int)} <p/> Columns beyond
+   * the fixed width should be rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddColumnOverflow() {
+    // Execute functionality
+    new FixedWidthColumnCombinationBitset().addColumn(128);
+  }
+}
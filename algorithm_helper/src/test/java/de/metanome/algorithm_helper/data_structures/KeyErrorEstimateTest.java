@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.KeyErrorEstimate}
+ */
+public class KeyErrorEstimateTest {
+
+  /**
+   * Test method for {@link PositionListIndex#estimateRawKeyError(long, long)} <p/> A sample of the
+   * complete input should yield the exact raw key error.
+   */
+  @Test
+  public void testEstimateCompleteSample() {
+    // Setup
+    PositionListIndex pli = new PositionListIndexFixture().getFirstPLI();
+
+    // Execute functionality
+    KeyErrorEstimate estimate = pli.estimateRawKeyError(20, 20);
+
+    // Check result
+    assertEquals(pli.getRawKeyError(), estimate.getSampleKeyError());
+    assertEquals(pli.getRawKeyError(), estimate.getEstimate(), 0);
+    assertEquals(pli.getRawKeyError(), estimate.getLowerBound(), 0);
+    assertEquals(pli.getRawKeyError(), estimate.getUpperBound(), 0);
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#estimateRawKeyError(long, long)} <p/> Duplicates in
+   * the sample prove non uniqueness, the bounds should enclose the estimate.
+   */
+  @Test
+  public void testEstimateSample() {
+    // Setup
+    List<LongArrayList> clusters = new ArrayList<>();
+    clusters.add(new LongArrayList(new long[]{0, 5}));
+    clusters.add(new LongArrayList(new long[]{2, 7, 9}));
+    PositionListIndex samplePLI = new PositionListIndex(clusters);
+    PositionListIndex uniqueSamplePLI = new PositionListIndex(new ArrayList<LongArrayList>());
+
+    // Execute functionality
+    KeyErrorEstimate estimate = samplePLI.estimateRawKeyError(1000, 1000000);
+    KeyErrorEstimate uniqueEstimate = uniqueSamplePLI.estimateRawKeyError(1000, 1000000);
+
+    // Check result
+    assertTrue(estimate.isNonUnique());
+    assertEquals(3, estimate.getSampleKeyError());
+    assertTrue(estimate.getLowerBound() >= 3);
+    assertTrue(estimate.getLowerBound() <= estimate.getEstimate());
+    assertTrue(estimate.getEstimate() <= estimate.getUpperBound());
+    assertTrue(estimate.getUpperBound() <= 1000000 - 997);
+    assertFalse(estimate.isProbablyAtMost(3));
+
+    assertFalse(uniqueEstimate.isNonUnique());
+    assertEquals(0, uniqueEstimate.getLowerBound(), 0);
+    assertTrue(uniqueEstimate.isProbablyAtMost(4000000));
+    assertFalse(uniqueEstimate.isProbablyAtMost(1000));
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.MinimalHittingSetEnumerator}
+ */
+public class MinimalHittingSetEnumeratorTest {
+
+  /**
+   * Test method for {@link MinimalHittingSetEnumerator#getMinimalHittingSets()}
+   */
+  @Test
+  public void testGetMinimalHittingSets() {
+    // Setup
+    List<ColumnCombinationBitset> edges = new ArrayList<>();
+    edges.add(new ColumnCombinationBitset(0, 1, 2));
+    edges.add(new ColumnCombinationBitset(2, 3));
+    edges.add(new ColumnCombinationBitset(1, 3, 4));
+    MinimalHittingSetEnumerator enumerator = new MinimalHittingSetEnumerator(edges);
+    // Expected values
+    ColumnCombinationBitset[] expectedHittingSets = {
+        new ColumnCombinationBitset(1, 2),
+        new ColumnCombinationBitset(1, 3),
+        new ColumnCombinationBitset(2, 3),
+        new ColumnCombinationBitset(2, 4),
+        new ColumnCombinationBitset(0, 3)};
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualHittingSets = enumerator.getMinimalHittingSets();
+
+    // Check result
+    assertThat(actualHittingSets,
+               IsIterableContainingInAnyOrder.containsInAnyOrder(expectedHittingSets));
+  }
+
+  /**
+   * Test method for {@link MinimalHittingSetEnumerator#getMinimalHittingSets()} <p/> Without edges
+   * the empty set is the only minimal hitting set, with an empty edge there is none.
+   */
+  @Test
+  public void testGetMinimalHittingSetsSpecialCases() {
+    // Setup
+    List<ColumnCombinationBitset> edges = new ArrayList<>();
+
+    // Execute functionality
+    // Check result
+    assertEquals(1, new MinimalHittingSetEnumerator(edges).getMinimalHittingSets().size());
+    assertTrue(new MinimalHittingSetEnumerator(edges).getMinimalHittingSets().get(0).isEmpty());
+    edges.add(new ColumnCombinationBitset(2));
+    edges.add(new ColumnCombinationBitset());
+    assertTrue(new MinimalHittingSetEnumerator(edges).getMinimalHittingSets().isEmpty());
+  }
+
+  /**
+   * Test method for {@link MinimalHittingSetEnumerator#getMinimalHittingSets(java.util.concurrent.ForkJoinPool)}
+   * <p/> The hitting sets of random hypergraphs should be equal to the ones found by checking all
+   * column combinations.
+   */
+  @Test
+  public void testGetMinimalHittingSetsParallel() {
+    // Setup
+    Random random = new Random(42);
+    int numberOfVertices = 9;
+    ForkJoinPool pool = new ForkJoinPool(2);
+
+    for (int graph = 0; graph < 10; graph++) {
+      List<ColumnCombinationBitset> edges = new ArrayList<>();
+      for (int edge = 0; edge < 8; edge++) {
+        ColumnCombinationBitset columnCombination = new ColumnCombinationBitset();
+        for (int vertex = 0; vertex < numberOfVertices; vertex++) {
+          if (random.nextInt(3) == 0) {
+            columnCombination.addColumn(vertex);
+          }
+        }
+        if (!columnCombination.isEmpty()) {
+          edges.add(columnCombination);
+        }
+      }
+      // Expected values
+      List<ColumnCombinationBitset> expectedHittingSets = getMinimalHittingSets(
+          edges, numberOfVertices);
+
+      // Execute functionality
+      MinimalHittingSetEnumerator enumerator = new MinimalHittingSetEnumerator(edges);
+      List<ColumnCombinationBitset> actualHittingSets = enumerator.getMinimalHittingSets(pool);
+
+      // Check result
+      assertEquals(expectedHittingSets.size(), actualHittingSets.size());
+      assertThat(actualHittingSets, IsIterableContainingInAnyOrder.containsInAnyOrder(
+          expectedHittingSets.toArray(new ColumnCombinationBitset[expectedHittingSets.size()])));
+      assertEquals(actualHittingSets.size(), enumerator.getMinimalHittingSets().size());
+    }
+    pool.shutdown();
+  }
+
+  /**
+   * Finds the minimal hitting sets by checking all column combinations in ascending size.
+   */
+  protected List<ColumnCombinationBitset> getMinimalHittingSets(
+      List<ColumnCombinationBitset> edges, int numberOfVertices) {
+    SubSetGraph hittingSets = new SubSetGraph();
+    List<ColumnCombinationBitset> minimalHittingSets = new ArrayList<>();
+    ColumnCombinationBitset allVertices = new ColumnCombinationBitset().setAllBits(
+        numberOfVertices);
+    for (int size = 0; size <= numberOfVertices; size++) {
+      for (ColumnCombinationBitset candidate : allVertices.getNSubsetColumnCombinations(size)) {
+        boolean hitsAllEdges = true;
+        for (ColumnCombinationBitset edge : edges) {
+          hitsAllEdges &= !candidate.intersect(edge).isEmpty();
+        }
+        if (hitsAllEdges && !hittingSets.containsSubset(candidate)) {
+          hittingSets.add(candidate);
+          minimalHittingSets.add(candidate);
+        }
+      }
+    }
+    return minimalHittingSets;
+  }
+}
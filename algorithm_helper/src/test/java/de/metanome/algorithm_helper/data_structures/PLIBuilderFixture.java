@@ -18,8 +18,10 @@ package de.metanome.algorithm_helper.data_structures;
 
 import de.metanome.algorithm_integration.input.InputGenerationException;
 import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.PartitionedRelationalInput;
 import de.metanome.algorithm_integration.input.RelationalInput;
 import de.metanome.algorithm_integration.input.RelationalInputGenerator;
+import de.metanome.algorithm_integration.input.RowBatchHandler;
 
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 
@@ -32,6 +34,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.TreeSet;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -82,6 +85,30 @@ public class PLIBuilderFixture {
     return input;
   }
 
+  /**
+   * Returns an input with the partitions {0, 1}, {2} and {3, 4}, which are passed to the handler
+   * in reverse order.
+   */
+  public PartitionedRelationalInput getPartitionedRelationalInput()
+      throws InputIterationException {
+    PartitionedRelationalInput input = mock(PartitionedRelationalInput.class);
+
+    when(input.readPartitioned(any(RowBatchHandler.class))).thenAnswer(new Answer<long[]>() {
+      public long[] answer(InvocationOnMock invocation) throws Throwable {
+        RowBatchHandler handler = (RowBatchHandler) invocation.getArguments()[0];
+        handler.handle(2, 0, new ArrayList<List<String>>(table.subList(3, 4)));
+        handler.handle(0, 0, new ArrayList<List<String>>(table.subList(0, 2)));
+        handler.finishPartition(0, 2);
+        handler.handle(2, 1, new ArrayList<List<String>>(table.subList(4, 5)));
+        handler.handle(1, 0, new ArrayList<List<String>>(table.subList(2, 3)));
+        handler.finishPartition(1, 1);
+        handler.finishPartition(2, 2);
+        return new long[]{2, 1, 2};
+      }
+    });
+
+    return input;
+  }
 
   public long getExpectedNumberOfTuples() {
     return table.size();
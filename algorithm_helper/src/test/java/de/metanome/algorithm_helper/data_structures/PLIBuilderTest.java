@@ -28,7 +28,11 @@ import java.util.List;
 import java.util.TreeSet;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -91,6 +95,49 @@ public class PLIBuilderTest {
     assertThat(actualPLIList, IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
   }
 
+  /**
+   * Test method for {@link PLIBuilder#getPLIList()} <p/> The plis of a partitioned input should be
+   * the same as of the sequential input, regardless of the order of the partitions.
+   */
+  @Test
+  public void testCalculatePLIPartitioned() throws InputIterationException {
+    for (boolean nullEqualsNull : new boolean[]{true, false}) {
+      // Setup
+      PLIBuilder partitionedBuilder =
+          new PLIBuilder(fixture.getPartitionedRelationalInput(), nullEqualsNull);
+      ParallelPLIBuilder parallelBuilder =
+          new ParallelPLIBuilder(fixture.getPartitionedRelationalInput(), nullEqualsNull);
+      // Expected values
+      List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(nullEqualsNull);
+      PositionListIndex[]
+          expectedPLIArray =
+          expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+
+      // Execute functionality
+      // Check result
+      assertThat(partitionedBuilder.getPLIList(),
+                 IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+      assertEquals(fixture.getExpectedNumberOfTuples(), partitionedBuilder.getNumberOfTuples());
+      assertThat(parallelBuilder.getPLIList(),
+                 IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+    }
+  }
+
+  /**
+   * Test method for {@link PLIBuilder#getPLIList()} <p/> Small inputs should be represented by
+   * {@link de.metanome.algorithm_helper.data_structures.CompactPositionListIndex}es.
+   */
+  @Test
+  public void testCalculatePLICompact() throws InputIterationException {
+    // Execute functionality
+    List<PositionListIndex> actualPLIList = builder.getPLIList();
+
+    // Check result
+    for (PositionListIndex pli : actualPLIList) {
+      assertTrue(pli instanceof CompactPositionListIndex);
+    }
+  }
+
   /**
    * Test method for {@link PLIBuilder#getDistinctSortedColumns()} <p/> Creates the distinct sorted
    * columns from the raw plis.
@@ -110,6 +157,32 @@ public class PLIBuilderTest {
     assertEquals(expectedDistinctSortedColumns, actualDistinctSortedColumns);
   }
 
+  /**
+   * Test method for {@link PLIBuilder#getColumnStore()} <p/> The plis and the distinct sorted
+   * columns should both be derived from the same column store, so the input is read only once.
+   */
+  @Test
+  public void testGetColumnStore() throws InputIterationException {
+    // Setup
+    // Expected values
+    List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(true);
+    PositionListIndex[]
+        expectedPLIArray =
+        expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+
+    // Execute functionality
+    DictionaryEncodedColumnStore store = builder.getColumnStore();
+
+    // Check result
+    assertNotNull(store);
+    assertThat(builder.getPLIList(),
+               IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+    assertEquals(fixture.getExpectedDistinctSortedColumns(), builder.getDistinctSortedColumns());
+    assertSame(store, builder.getColumnStore());
+    assertEquals(fixture.getExpectedNumberOfTuples(), builder.getNumberOfTuples());
+    assertNull(new PLIBuilder(fixture.getPartitionedRelationalInput()).getColumnStore());
+  }
+
   /**
    * Test methode for {@link de.metanome.algorithm_helper.data_structures.PLIBuilder#getNumberOfTuples}
    * <p/> The total number of tuples should be calculated if the PLIs are calculated
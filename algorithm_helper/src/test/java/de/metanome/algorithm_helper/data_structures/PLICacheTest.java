@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.PLICache}
+ */
+public class PLICacheTest {
+
+  protected List<PositionListIndex> columnPLIs;
+
+  @Before
+  public void setUp() throws Exception {
+    columnPLIs = new PLIBuilderFixture().getExpectedPLIList(true);
+  }
+
+  /**
+   * Test method for {@link PLICache#getPLI(ColumnCombinationBitset)} <p/> The cached plis should be
+   * equal to the intersection of the column plis.
+   */
+  @Test
+  public void testGetPLI() {
+    // Setup
+    PLICache cache = new PLICache(columnPLIs, Long.MAX_VALUE);
+    // Expected values
+    PositionListIndex expectedPLI12 = columnPLIs.get(1).intersect(columnPLIs.get(2));
+    PositionListIndex expectedPLI123 = expectedPLI12.intersect(columnPLIs.get(3));
+    PositionListIndex expectedPLI03 = columnPLIs.get(0).intersect(columnPLIs.get(3));
+
+    // Execute functionality
+    // Check result
+    assertEquals(expectedPLI123, cache.getPLI(new ColumnCombinationBitset(1, 2, 3)));
+    assertEquals(expectedPLI12, cache.getPLI(new ColumnCombinationBitset(1, 2)));
+    assertEquals(expectedPLI03, cache.getPLI(new ColumnCombinationBitset(0, 3)));
+    assertSame(columnPLIs.get(2), cache.getPLI(new ColumnCombinationBitset(2)));
+  }
+
+  /**
+   * Test method for {@link PLICache#getHitCount()} and {@link PLICache#getMissCount()} <p/> Missing
+   * subsets should be computed and cached as well.
+   */
+  @Test
+  public void testCounters() {
+    // Setup
+    PLICache cache = new PLICache(columnPLIs, Long.MAX_VALUE);
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset(1, 2, 3);
+
+    // Execute functionality
+    cache.getPLI(columnCombination);
+    cache.getPLI(columnCombination);
+    cache.getPLI(new ColumnCombinationBitset(1, 2));
+    cache.getPLI(new ColumnCombinationBitset(1));
+
+    // Check result
+    assertEquals(3, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(0, cache.getEvictionCount());
+    assertEquals(2, cache.size());
+    assertEquals(5, cache.getWeight());
+  }
+
+  /**
+   * Test method for {@link PLICache#getEvictionCount()} <p/> The least recently used plis should be
+   * evicted if the maximum weight is exceeded.
+   */
+  @Test
+  public void testEviction() {
+    // Setup
+    PLICache cache = new PLICache(columnPLIs, 5);
+    // Expected values
+    PositionListIndex expectedPLI = columnPLIs.get(1).intersect(columnPLIs.get(2));
+
+    // Execute functionality
+    cache.getPLI(new ColumnCombinationBitset(1, 2));
+    cache.getPLI(new ColumnCombinationBitset(1, 3));
+    PositionListIndex actualPLI = cache.getPLI(new ColumnCombinationBitset(1, 2));
+
+    // Check result
+    assertEquals(expectedPLI, actualPLI);
+    assertEquals(3, cache.getMissCount());
+    assertEquals(2, cache.getEvictionCount());
+    assertEquals(1, cache.size());
+    assertEquals(5, cache.getWeight());
+  }
+
+  /**
+   * Test method for {@link PLICache#getPLI(ColumnCombinationBitset)} <p/> The empty column
+   * combination has no pli.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetPLIEmpty() {
+    // Setup
+    PLICache cache = new PLICache(columnPLIs, Long.MAX_VALUE);
+
+    // Execute functionality
+    cache.getPLI(new ColumnCombinationBitset());
+  }
+}
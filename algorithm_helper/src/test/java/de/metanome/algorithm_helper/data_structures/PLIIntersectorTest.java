@@ -0,0 +1,230 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.PLIIntersector}
+ */
+public class PLIIntersectorTest {
+
+  protected PositionListIndexFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#intersect(PositionListIndex, PositionListIndex)}
+   *
+   * The intersector should produce the same clusters as {@link PositionListIndex#intersect(PositionListIndex)}
+   * in both directions.
+   */
+  @Test
+  public void testIntersect() {
+    // Setup
+    PLIIntersector intersector = new PLIIntersector();
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    // Check result
+    assertEquals(expectedPLI, intersector.intersect(firstPLI, secondPLI));
+    assertEquals(expectedPLI, intersector.intersect(secondPLI, firstPLI));
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(),
+                 intersector.intersect(firstPLI, secondPLI).getRawKeyError());
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#intersect(PositionListIndex, PositionListIndex)}
+   *
+   * Reusing the intersector with plis of different sizes should not leak probing state between
+   * calls.
+   */
+  @Test
+  public void testIntersectReuse() {
+    // Setup
+    PLIIntersector intersector = new PLIIntersector();
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    PositionListIndex supersetOfFirstPLI = fixture.getSupersetOfFirstPLI();
+
+    // Execute functionality
+    intersector.intersect(supersetOfFirstPLI, secondPLI);
+    PositionListIndex actualPLI = intersector.intersect(firstPLI, secondPLI);
+    PositionListIndex emptyPLI = intersector.intersect(new PositionListIndex(), firstPLI);
+
+    // Check result
+    assertEquals(fixture.getExpectedIntersectedPLI(), actualPLI);
+    assertTrue(emptyPLI.isEmpty());
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#intersect(PositionListIndex, PositionListIndex)}
+   *
+   * Row ids that do not fit in the dense probing table should be intersected correctly.
+   */
+  @Test
+  public void testIntersectLargeRowIds() {
+    // Setup
+    PLIIntersector intersector = new PLIIntersector();
+    long offset = 3L * Integer.MAX_VALUE;
+    List<LongArrayList> firstClusters = new ArrayList<>();
+    firstClusters.add(new LongArrayList(new long[]{offset, offset + 1, 2}));
+    List<LongArrayList> secondClusters = new ArrayList<>();
+    secondClusters.add(new LongArrayList(new long[]{2, offset + 1, offset + 7}));
+    // Expected values
+    List<LongArrayList> expectedClusters = new ArrayList<>();
+    expectedClusters.add(new LongArrayList(new long[]{2, offset + 1}));
+
+    // Execute functionality
+    PositionListIndex actualPLI = intersector.intersect(new PositionListIndex(firstClusters),
+                                                        new PositionListIndex(secondClusters));
+
+    // Check result
+    assertEquals(new PositionListIndex(expectedClusters), actualPLI);
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#intersectionKeyErrorExceeds(PositionListIndex,
+   * PositionListIndex, long)} and {@link PLIIntersector#isIntersectionUnique(PositionListIndex,
+   * PositionListIndex)}
+   *
+   * The decisions should match the raw key error of the materialized intersection.
+   */
+  @Test
+  public void testIntersectionKeyErrorExceeds() {
+    // Setup
+    PLIIntersector intersector = new PLIIntersector();
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    List<LongArrayList> clusters = new ArrayList<>();
+    clusters.add(new LongArrayList(new long[]{2, 5}));
+    clusters.add(new LongArrayList(new long[]{4, 6}));
+    PositionListIndex separatingPLI = new PositionListIndex(clusters);
+
+    // Execute functionality
+    // Check result
+    assertTrue(intersector.intersectionKeyErrorExceeds(firstPLI, secondPLI, 1));
+    assertFalse(intersector.intersectionKeyErrorExceeds(firstPLI, secondPLI, 2));
+    assertFalse(intersector.intersectionKeyErrorExceeds(secondPLI, firstPLI, 2));
+    assertFalse(intersector.isIntersectionUnique(firstPLI, secondPLI));
+    assertTrue(intersector.isIntersectionUnique(firstPLI, separatingPLI));
+    assertTrue(intersector.isIntersectionUnique(separatingPLI, firstPLI));
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#intersectionRefines(PositionListIndex,
+   * PositionListIndex, PositionListIndex)}
+   *
+   * The intersection should refine both intersected plis but no pli that separates one of its
+   * clusters.
+   */
+  @Test
+  public void testIntersectionRefines() {
+    // Setup
+    PLIIntersector intersector = new PLIIntersector();
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    List<LongArrayList> clusters = new ArrayList<>();
+    clusters.add(new LongArrayList(new long[]{2, 6, 8}));
+    PositionListIndex separatingPLI = new PositionListIndex(clusters);
+
+    // Execute functionality
+    // Check result
+    assertTrue(intersector.intersectionRefines(firstPLI, secondPLI, firstPLI));
+    assertTrue(intersector.intersectionRefines(firstPLI, secondPLI, secondPLI));
+    assertTrue(intersector.intersectionRefines(firstPLI, secondPLI,
+                                               fixture.getExpectedIntersectedPLI()));
+    assertFalse(intersector.intersectionRefines(firstPLI, secondPLI, separatingPLI));
+    assertFalse(intersector.intersectionRefines(secondPLI, firstPLI, separatingPLI));
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#refines(PositionListIndex, PositionListIndex)} <p/> The
+   * probing table of the rhs pli should be kept for further checks against the same rhs.
+   */
+  @Test
+  public void testRefines() {
+    // Setup
+    PLIIntersector intersector = new PLIIntersector();
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    PositionListIndex intersectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    // Check result
+    assertTrue(intersector.refines(intersectedPLI, firstPLI));
+    assertSame(firstPLI, intersector.rhsProbingTable.getPLI());
+    assertFalse(intersector.refines(secondPLI, firstPLI));
+    assertSame(firstPLI, intersector.rhsProbingTable.getPLI());
+    assertTrue(intersector.refines(intersectedPLI, secondPLI));
+    assertFalse(intersector.refines(firstPLI, secondPLI));
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#trim()} and {@link PLIIntersector#release()} <p/>
+   * Trimming should only release buffers larger than the retained maximum, releasing should drop
+   * all of them.
+   */
+  @Test
+  public void testTrim() {
+    // Setup
+    PLIIntersector intersector = new PLIIntersector();
+    List<LongArrayList> clusters = new ArrayList<>();
+    for (long row = 0; row < PLIIntersector.MAX_RETAINED_ROWS / 8; row += 2) {
+      clusters.add(new LongArrayList(new long[]{row, row + 1}));
+    }
+    clusters.add(new LongArrayList(new long[]{0, PLIIntersector.MAX_RETAINED_ROWS}));
+    PositionListIndex largePLI = new PositionListIndex(clusters);
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+
+    // Execute functionality
+    intersector.intersect(largePLI, firstPLI);
+    intersector.refines(firstPLI, fixture.getSecondPLI());
+    intersector.trim();
+
+    // Check result
+    assertEquals(0, intersector.probingTable.getRetainedRows());
+    assertTrue(intersector.rhsProbingTable.getRetainedRows() > 0);
+
+    // Execute functionality
+    intersector.release();
+
+    // Check result
+    assertEquals(0, intersector.rhsProbingTable.getRetainedRows());
+    assertNull(intersector.rhsProbingTable.getPLI());
+    assertEquals(fixture.getExpectedIntersectedPLI(),
+                 intersector.intersect(firstPLI, fixture.getSecondPLI()));
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.input.InputGenerationException;
+import de.metanome.algorithm_integration.input.InputIterationException;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.ParallelPLIBuilder}
+ */
+public class ParallelPLIBuilderTest {
+
+  protected PLIBuilderFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PLIBuilderFixture();
+  }
+
+  /**
+   * Test method for {@link ParallelPLIBuilder#getPLIList()} <p/> The plis should be identical to
+   * the sequentially built plis, even if the input is split into several batches.
+   */
+  @Test
+  public void testCalculatePLI() throws InputIterationException, InputGenerationException {
+    for (boolean nullEqualsNull : new boolean[]{true, false}) {
+      for (int batchSize = 1; batchSize <= 6; batchSize++) {
+        // Setup
+        ParallelPLIBuilder builder =
+            new ParallelPLIBuilder(fixture.getInputGenerator().generateNewCopy(), nullEqualsNull,
+                                   batchSize, 3);
+        // Expected values
+        List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(nullEqualsNull);
+        PositionListIndex[]
+            expectedPLIArray =
+            expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+
+        // Execute functionality
+        List<PositionListIndex> actualPLIList = builder.getPLIList();
+
+        // Check result
+        assertThat(actualPLIList,
+                   IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+        assertEquals(fixture.getExpectedNumberOfTuples(), builder.getNumberOfTuples());
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link ParallelPLIBuilder#getDistinctSortedColumns()}
+   */
+  @Test
+  public void testGetDistinctSortedColumns()
+      throws InputIterationException, InputGenerationException {
+    // Setup
+    ParallelPLIBuilder builder =
+        new ParallelPLIBuilder(fixture.getInputGenerator().generateNewCopy(), true, 2, 2);
+    // Expected values
+    List<TreeSet<String>>
+        expectedDistinctSortedColumns =
+        fixture.getExpectedDistinctSortedColumns();
+
+    // Execute functionality
+    List<TreeSet<String>> actualDistinctSortedColumns = builder.getDistinctSortedColumns();
+
+    // Check result
+    assertEquals(expectedDistinctSortedColumns, actualDistinctSortedColumns);
+  }
+
+  /**
+   * Test method for {@link ParallelPLIBuilder#ParallelPLIBuilder(de.metanome.algorithm_integration.input.RelationalInput,
+   * boolean, int, int)} <p/> Batch sizes smaller than one should be rejected.
+   */
+  @Test
+  public void testConstructorInvalidBatchSize()
+      throws InputIterationException, InputGenerationException {
+    // Execute functionality
+    // Check result
+    try {
+      new ParallelPLIBuilder(fixture.getInputGenerator().generateNewCopy(), true, 0, 2);
+      fail("IllegalArgumentException was not thrown.");
+    } catch (IllegalArgumentException e) {
+      // Intentionally left blank
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.RelationalInputGenerator;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.PersistentPLICache}
+ */
+public class PersistentPLICacheTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  protected PLIBuilderFixture fixture;
+  protected PersistentPLICache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PLIBuilderFixture();
+    cache = new PersistentPLICache(new File(temporaryFolder.getRoot(), "cache"));
+  }
+
+  /**
+   * Test method for {@link PersistentPLICache#store(InputFingerprint, java.util.List, long)} and
+   * {@link PersistentPLICache#load(InputFingerprint)} <p/> Loaded plis should be mapped and equal
+   * to the stored plis.
+   */
+  @Test
+  public void testStoreLoad() throws Exception {
+    for (boolean nullEqualsNull : new boolean[]{true, false}) {
+      // Setup
+      InputFingerprint fingerprint =
+          new InputFingerprint("table", Boolean.toString(nullEqualsNull));
+      List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(nullEqualsNull);
+      PositionListIndex[]
+          expectedPLIArray =
+          expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+      cache.store(fingerprint, expectedPLIList, fixture.getExpectedNumberOfTuples());
+
+      // Execute functionality
+      PersistentPLICache.CachedPLIList actualPLIList = cache.load(fingerprint);
+
+      // Check result
+      assertEquals(fixture.getExpectedNumberOfTuples(), actualPLIList.getNumberOfTuples());
+      assertThat(actualPLIList.getPLIList(),
+                 IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+      for (PositionListIndex pli : actualPLIList.getPLIList()) {
+        assertTrue(pli instanceof MappedPositionListIndex);
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link PersistentPLICache#load(InputFingerprint)} <p/> Rows that do not fit
+   * into an int should be stored as longs.
+   */
+  @Test
+  public void testStoreLoadLongRows() throws Exception {
+    // Setup
+    InputFingerprint fingerprint = new InputFingerprint("large table");
+    List<LongArrayList> clusters = new ArrayList<>();
+    clusters.add(new LongArrayList(new long[]{2, 5_000_000_000L}));
+    clusters.add(new LongArrayList(new long[]{3, 4, 6_000_000_000L}));
+    PositionListIndex expectedPLI = new PositionListIndex(clusters);
+    List<PositionListIndex> plis = new ArrayList<>();
+    plis.add(expectedPLI);
+    cache.store(fingerprint, plis, 7_000_000_000L);
+
+    // Execute functionality
+    PositionListIndex actualPLI = cache.load(fingerprint).getPLIList().get(0);
+
+    // Check result
+    assertEquals(expectedPLI, actualPLI);
+    assertEquals(expectedPLI.getRawKeyError(), actualPLI.getRawKeyError());
+    assertEquals(expectedPLI, actualPLI.clone());
+  }
+
+  /**
+   * Test method for {@link PersistentPLICache#load(InputFingerprint)} <p/> Fingerprints without
+   * an entry should miss.
+   */
+  @Test
+  public void testLoadMiss() throws Exception {
+    // Setup
+    cache.store(new InputFingerprint("a"), fixture.getExpectedPLIList(true), 5);
+
+    // Execute functionality
+    // Check result
+    assertNull(cache.load(new InputFingerprint("b")));
+    assertTrue(cache.remove(new InputFingerprint("a")));
+    assertNull(cache.load(new InputFingerprint("a")));
+  }
+
+  /**
+   * Test method for {@link PersistentPLICache#loadOrBuild(InputFingerprint,
+   * de.metanome.algorithm_integration.input.RelationalInputGenerator, boolean)} <p/> The input
+   * should only be read on the first call.
+   */
+  @Test
+  public void testLoadOrBuild() throws Exception {
+    // Setup
+    RelationalInputGenerator inputGenerator = fixture.getInputGenerator();
+    InputFingerprint fingerprint = new InputFingerprint("table");
+    // Expected values
+    List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(true);
+    PositionListIndex[]
+        expectedPLIArray =
+        expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+
+    // Execute functionality
+    cache.loadOrBuild(fingerprint, inputGenerator, true);
+    PersistentPLICache.CachedPLIList actualPLIList =
+        cache.loadOrBuild(fingerprint, inputGenerator, true);
+
+    // Check result
+    verify(inputGenerator, times(1)).generateNewCopy();
+    assertEquals(fixture.getExpectedNumberOfTuples(), actualPLIList.getNumberOfTuples());
+    assertThat(actualPLIList.getPLIList(),
+               IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+  }
+
+  /**
+   * Test method for {@link InputFingerprint#forFileInput(de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput,
+   * boolean)} <p/> Changing the file or the parser settings should change the fingerprint.
+   */
+  @Test
+  public void testFileInputFingerprint() throws Exception {
+    // Setup
+    File file = temporaryFolder.newFile("input.csv");
+    ConfigurationSettingFileInput setting =
+        new ConfigurationSettingFileInput(file.getAbsolutePath());
+    InputFingerprint expectedFingerprint = InputFingerprint.forFileInput(setting, true);
+
+    // Execute functionality
+    // Check result
+    assertEquals(expectedFingerprint, InputFingerprint.forFileInput(setting, true));
+    assertNotEquals(expectedFingerprint, InputFingerprint.forFileInput(setting, false));
+    assertEquals(expectedFingerprint.getDigest(),
+                 InputFingerprint.forFileInput(setting, true).getDigest());
+    setting.setNullValue("NULL");
+    assertNotEquals(expectedFingerprint, InputFingerprint.forFileInput(setting, true));
+    setting.setNullValue("");
+    Files.write(file.toPath(), "a,b\n".getBytes("UTF-8"));
+    assertNotEquals(expectedFingerprint, InputFingerprint.forFileInput(setting, true));
+  }
+}
@@ -31,6 +31,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Tests for {@link de.metanome.algorithm_helper.data_structures.PositionListIndex}
@@ -119,6 +120,26 @@ public class PositionListIndexTest {
     assertNotEquals(firstPLI, supersetOfFirstPLI);
   }
 
+  /**
+   * Test method for {@link PositionListIndex#getFingerprint()} <p/> The fingerprint should not
+   * depend on the representation or the order of clusters and rows.
+   */
+  @Test
+  public void testGetFingerprint() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex compactFirstPLI = CompactPositionListIndex.fromClusters(
+        fixture.getPermutatedFirstPLI().getClusters());
+
+    // Execute functionality
+    // Check result
+    assertEquals(firstPLI.getFingerprint(), fixture.getPermutatedFirstPLI().getFingerprint());
+    assertEquals(firstPLI.getFingerprint(), compactFirstPLI.getFingerprint());
+    assertEquals(firstPLI, compactFirstPLI);
+    assertNotEquals(firstPLI.getFingerprint(), fixture.getSecondPLI().getFingerprint());
+    assertNotEquals(firstPLI.getFingerprint(), fixture.getSupersetOfFirstPLI().getFingerprint());
+  }
+
   /**
    * Test method for {@link PositionListIndex#asHashMap()}
    *
@@ -186,6 +207,50 @@ public class PositionListIndexTest {
                  firstPli.intersect(secondPli).getRawKeyError());
   }
 
+  /**
+   * Test method for {@link PositionListIndex#refines(PositionListIndex)} and {@link
+   * PositionListIndex#refines(ProbingTable)}
+   */
+  @Test
+  public void testRefines() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    PositionListIndex intersectedPLI = fixture.getExpectedIntersectedPLI();
+    ProbingTable secondProbingTable = new ProbingTable(secondPLI);
+
+    // Execute functionality
+    // Check result
+    assertTrue(intersectedPLI.refines(firstPLI));
+    assertTrue(intersectedPLI.refines(secondProbingTable));
+    assertTrue(firstPLI.refines(fixture.getSupersetOfFirstPLI()));
+    assertTrue(new PositionListIndex().refines(secondProbingTable));
+    assertFalse(firstPLI.refines(secondProbingTable));
+    assertFalse(secondPLI.refines(firstPLI));
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#getClusters()} <p/> The clusters should not be
+   * modifiable, as the canonical form of the pli is cached.
+   */
+  @Test
+  public void testGetClustersUnmodifiable() {
+    // Setup
+    PositionListIndex pli = fixture.getFirstPLI();
+    int expectedHashCode = pli.hashCode();
+
+    // Execute functionality
+    // Check result
+    try {
+      pli.getClusters().add(new LongArrayList());
+      fail("UnsupportedOperationException was not thrown.");
+    } catch (UnsupportedOperationException e) {
+      // Intentionally left blank
+    }
+    assertEquals(expectedHashCode, pli.hashCode());
+    assertEquals(fixture.getFirstPLI(), pli);
+  }
+
   /**
    * Test method for {@link PositionListIndex#clone()}. Clone() should create a deep copy of the
    * called {@link de.metanome.algorithm_helper.data_structures.PositionListIndex}.
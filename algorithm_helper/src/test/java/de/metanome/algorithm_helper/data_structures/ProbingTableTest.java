@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.ProbingTable}
+ */
+public class ProbingTableTest {
+
+  protected PositionListIndexFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+  }
+
+  /**
+   * Test method for {@link ProbingTable#build(PositionListIndex)} and {@link
+   * ProbingTable#getClusterIndex(long)} <p/> Rebuilding the table should remove all rows of the
+   * previous pli.
+   */
+  @Test
+  public void testBuild() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+    ProbingTable probingTable = new ProbingTable(fixture.getSupersetOfFirstPLI());
+
+    // Execute functionality
+    probingTable.build(firstPLI);
+
+    // Check result
+    assertSame(firstPLI, probingTable.getPLI());
+    assertEquals(0, probingTable.getClusterIndex(2));
+    assertEquals(1, probingTable.getClusterIndex(6));
+    assertEquals(-1, probingTable.getClusterIndex(3));
+    assertEquals(-1, probingTable.getClusterIndex(10));
+    assertEquals(-1, probingTable.getClusterIndex(-1));
+
+    // Execute functionality
+    probingTable.build(secondPLI);
+
+    // Check result
+    assertEquals(0, probingTable.getClusterIndex(1));
+    assertEquals(1, probingTable.getClusterIndex(6));
+    assertEquals(-1, probingTable.getClusterIndex(3));
+  }
+
+  /**
+   * Test method for {@link ProbingTable#getClusterIndex(long)} <p/> Row ids that do not fit into
+   * the dense table should be looked up as well.
+   */
+  @Test
+  public void testGetClusterIndexLargeRowIds() {
+    // Setup
+    long row = 3L * Integer.MAX_VALUE;
+    List<LongArrayList> clusters = new ArrayList<>();
+    clusters.add(new LongArrayList(new long[]{1, row}));
+    ProbingTable probingTable = new ProbingTable(new PositionListIndex(clusters));
+
+    // Execute functionality
+    // Check result
+    assertEquals(0, probingTable.getClusterIndex(row));
+    assertEquals(0, probingTable.getClusterIndex(1));
+    assertEquals(-1, probingTable.getClusterIndex(row - 1));
+
+    // Execute functionality
+    probingTable.clear();
+
+    // Check result
+    assertNull(probingTable.getPLI());
+    assertEquals(-1, probingTable.getClusterIndex(row));
+  }
+
+  /**
+   * Test method for {@link ProbingTable#build(PositionListIndex)} <p/> Plis with few rows compared
+   * to their largest row id should not allocate a dense table.
+   */
+  @Test
+  public void testBuildSparse() {
+    // Setup
+    long row = 50000000;
+    List<LongArrayList> clusters = new ArrayList<>();
+    clusters.add(new LongArrayList(new long[]{2, row}));
+    ProbingTable probingTable = new ProbingTable();
+
+    // Execute functionality
+    probingTable.build(new PositionListIndex(clusters));
+
+    // Check result
+    assertFalse(probingTable.dense);
+    assertEquals(0, probingTable.table.length);
+    assertEquals(0, probingTable.getClusterIndex(row));
+    assertEquals(0, probingTable.getClusterIndex(2));
+    assertEquals(-1, probingTable.getClusterIndex(3));
+  }
+
+  /**
+   * Test method for {@link ProbingTable#trim(int)} <p/> Trimming should clear the table and only
+   * release arrays larger than the maximum capacity.
+   */
+  @Test
+  public void testTrim() {
+    // Setup
+    ProbingTable probingTable = new ProbingTable(fixture.getSupersetOfFirstPLI());
+    long retainedRows = probingTable.getRetainedRows();
+
+    // Execute functionality
+    probingTable.trim((int) retainedRows);
+
+    // Check result
+    assertNull(probingTable.getPLI());
+    assertEquals(retainedRows, probingTable.getRetainedRows());
+    assertEquals(-1, probingTable.getClusterIndex(2));
+
+    // Execute functionality
+    probingTable.build(fixture.getFirstPLI());
+    probingTable.trim((int) retainedRows - 1);
+
+    // Check result
+    assertEquals(0, probingTable.getRetainedRows());
+    assertEquals(-1, probingTable.getClusterIndex(2));
+  }
+}
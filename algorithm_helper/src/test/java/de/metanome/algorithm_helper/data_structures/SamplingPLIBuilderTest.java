@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.input.InputGenerationException;
+import de.metanome.algorithm_integration.input.InputIterationException;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.SamplingPLIBuilder}
+ */
+public class SamplingPLIBuilderTest {
+
+  protected PLIBuilderFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PLIBuilderFixture();
+  }
+
+  /**
+   * Test method for {@link SamplingPLIBuilder#getPLIList()} <p/> If the sample is at least as large
+   * as the input, the plis should be equal to the ones of the complete input.
+   */
+  @Test
+  public void testGetPLIListCompleteSample()
+      throws InputIterationException, InputGenerationException {
+    // Setup
+    SamplingPLIBuilder builder =
+        new SamplingPLIBuilder(fixture.getInputGenerator().generateNewCopy(), true, 10, 42);
+    // Expected values
+    List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(true);
+
+    // Execute functionality
+    List<PositionListIndex> actualPLIList = builder.getPLIList();
+
+    // Check result
+    assertThat(actualPLIList, IsIterableContainingInAnyOrder.containsInAnyOrder(
+        expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()])));
+    assertEquals(fixture.getExpectedNumberOfTuples(), builder.getNumberOfTuples());
+    assertEquals(fixture.getExpectedNumberOfTuples(), builder.getSampleSize());
+    assertTrue(builder.isCompleteInput());
+  }
+
+  /**
+   * Test method for {@link SamplingPLIBuilder#getPLIList()} <p/> The plis should only contain the
+   * sampled rows, the number of tuples should be the one of the complete input.
+   */
+  @Test
+  public void testGetPLIListSample() throws InputIterationException, InputGenerationException {
+    // Setup
+    SamplingPLIBuilder builder =
+        new SamplingPLIBuilder(fixture.getInputGenerator().generateNewCopy(), true, 3, 42);
+
+    // Execute functionality
+    List<PositionListIndex> actualPLIList = builder.getPLIList();
+
+    // Check result
+    assertEquals(3, builder.getSampleSize());
+    assertEquals(fixture.getExpectedNumberOfTuples(), builder.getNumberOfTuples());
+    // All rows are equal in the second column.
+    assertEquals(1, actualPLIList.get(1).size());
+    assertEquals(2, actualPLIList.get(1).getRawKeyError());
+    for (PositionListIndex pli : actualPLIList) {
+      for (long row : pli.asHashMap().keySet()) {
+        assertTrue(row < 3);
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link SamplingPLIBuilder#getPLIList()} <p/> Reading should stop at the row
+   * limit, the number of tuples should be the number of rows read.
+   */
+  @Test
+  public void testGetPLIListRowLimit() throws InputIterationException, InputGenerationException {
+    // Setup
+    SamplingPLIBuilder builder = new SamplingPLIBuilder(
+        fixture.getInputGenerator().generateNewCopy(), true, 10, 42, 3, Long.MAX_VALUE);
+
+    // Execute functionality
+    List<PositionListIndex> actualPLIList = builder.getPLIList();
+
+    // Check result
+    assertEquals(3, builder.getNumberOfTuples());
+    assertEquals(3, builder.getSampleSize());
+    assertFalse(builder.isCompleteInput());
+    // The first three rows are equal in the second column.
+    assertEquals(2, actualPLIList.get(1).getRawKeyError());
+  }
+
+  /**
+   * Test method for {@link SamplingPLIBuilder#getPLIList()} <p/> Without time budget no row should
+   * be read.
+   */
+  @Test
+  public void testGetPLIListTimeBudget() throws InputIterationException, InputGenerationException {
+    // Setup
+    SamplingPLIBuilder builder = new SamplingPLIBuilder(
+        fixture.getInputGenerator().generateNewCopy(), true, 10, 42, Long.MAX_VALUE, 0);
+
+    // Execute functionality
+    builder.getPLIList();
+
+    // Check result
+    assertEquals(0, builder.getNumberOfTuples());
+    assertEquals(0, builder.getSampleSize());
+    assertFalse(builder.isCompleteInput());
+  }
+
+  /**
+   * Test method for {@link SamplingPLIBuilder#SamplingPLIBuilder(de.metanome.algorithm_integration.input.RelationalInput,
+   * boolean, int, long)} <p/> The sample size needs to be positive.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorInvalidSampleSize()
+      throws InputIterationException, InputGenerationException {
+    // Execute functionality
+    new SamplingPLIBuilder(fixture.getInputGenerator().generateNewCopy(), true, 0, 42);
+  }
+}
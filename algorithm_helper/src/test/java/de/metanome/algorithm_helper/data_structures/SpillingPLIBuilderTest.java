@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.algorithm_execution.FileCreationException;
+import de.metanome.algorithm_integration.algorithm_execution.FileGenerator;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.SpillingPLIBuilder}
+ */
+public class SpillingPLIBuilderTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  protected PLIBuilderFixture fixture;
+  protected FileGenerator fileGenerator;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PLIBuilderFixture();
+    fileGenerator = mock(FileGenerator.class);
+    when(fileGenerator.getTemporaryFile()).thenAnswer(new Answer<File>() {
+      public File answer(InvocationOnMock invocation) throws Throwable {
+        return temporaryFolder.newFile();
+      }
+    });
+  }
+
+  /**
+   * Test method for {@link SpillingPLIBuilder#getPLIList()} <p/> The plis should be identical to
+   * the in memory plis if every row is spilled to its own run.
+   */
+  @Test
+  public void testCalculatePLISpillEveryRow() throws Exception {
+    for (boolean nullEqualsNull : new boolean[]{true, false}) {
+      // Setup
+      SpillingPLIBuilder builder =
+          new SpillingPLIBuilder(fixture.getInputGenerator().generateNewCopy(), fileGenerator, 0,
+                                 nullEqualsNull);
+      // Expected values
+      List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(nullEqualsNull);
+      PositionListIndex[]
+          expectedPLIArray =
+          expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+
+      // Execute functionality
+      List<PositionListIndex> actualPLIList = builder.getPLIList();
+
+      // Check result
+      assertThat(actualPLIList,
+                 IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+      assertEquals(fixture.getExpectedNumberOfTuples(), builder.getNumberOfTuples());
+      // One run per row and an empty run at the end of the input.
+      assertEquals(fixture.getExpectedNumberOfTuples() + 1, builder.getNumberOfRuns());
+      // The runs are deleted after merging.
+      assertEquals(0, temporaryFolder.getRoot().list().length);
+      assertEquals(actualPLIList, builder.getPLIList());
+    }
+  }
+
+  /**
+   * Test method for {@link SpillingPLIBuilder#getPLIList()} <p/> Inputs within the memory budget
+   * should be written as a single run.
+   */
+  @Test
+  public void testCalculatePLIWithinBudget() throws Exception {
+    // Setup
+    SpillingPLIBuilder builder =
+        new SpillingPLIBuilder(fixture.getInputGenerator().generateNewCopy(), fileGenerator);
+    // Expected values
+    List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(true);
+    PositionListIndex[]
+        expectedPLIArray =
+        expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+
+    // Execute functionality
+    List<PositionListIndex> actualPLIList = builder.getPLIList();
+
+    // Check result
+    assertThat(actualPLIList, IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+    assertEquals(1, builder.getNumberOfRuns());
+  }
+
+  /**
+   * Test method for {@link SpillingPLIBuilder#getPLIList()} <p/> Failing temporary file creation
+   * should be propagated.
+   */
+  @Test(expected = FileCreationException.class)
+  public void testCalculatePLIFileCreationFails() throws Exception {
+    // Setup
+    FileGenerator failingFileGenerator = mock(FileGenerator.class);
+    when(failingFileGenerator.getTemporaryFile()).thenThrow(new FileCreationException());
+    SpillingPLIBuilder builder =
+        new SpillingPLIBuilder(fixture.getInputGenerator().generateNewCopy(),
+                               failingFileGenerator);
+
+    // Execute functionality
+    builder.getPLIList();
+  }
+}
@@ -31,6 +31,13 @@ public class SubSetGraphFixture {
     return graph;
   }
 
+  public CompactSubSetGraph getCompactGraph() {
+    CompactSubSetGraph graph = new CompactSubSetGraph();
+    graph.addAll(getExpectedIncludedColumnCombinations());
+
+    return graph;
+  }
+
   public List<ColumnCombinationBitset> getExpectedIncludedColumnCombinations() {
     List<ColumnCombinationBitset> includedColumnCombinations = new ArrayList<>();
 
@@ -19,11 +19,14 @@ package de.metanome.algorithm_helper.data_structures;
 import de.metanome.test_helper.EqualsAndHashCodeTester;
 
 import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.apache.lucene.util.OpenBitSet;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -202,6 +205,52 @@ public class SubSetGraphTest {
     tester.performBasicEqualsAndHashCodeChecks(actualGraph, equalsGraph, notEqualsGraph);
   }
 
+  /**
+   * Test method for {@link SubSetGraph#containsSubsets(java.util.List)} and {@link
+   * SubSetGraph#containsSubsets(java.util.List, java.util.concurrent.ForkJoinPool)} <p/> The bit
+   * of a candidate should be set iff {@link SubSetGraph#containsSubset(ColumnCombinationBitset)}
+   * returns true for the candidate, for all graph implementations.
+   */
+  @Test
+  public void testContainsSubsets() {
+    // Setup
+    SubSetGraphFixture fixture = new SubSetGraphFixture();
+    List<ColumnCombinationBitset> candidates = new ArrayList<>();
+    // All column combinations of the columns 0 to 10.
+    for (int i = 0; i < 2048; i++) {
+      ColumnCombinationBitset candidate = new ColumnCombinationBitset();
+      for (int column = 0; column <= 10; column++) {
+        if ((i & (1 << column)) != 0) {
+          candidate.addColumn(column);
+        }
+      }
+      candidates.add(candidate);
+    }
+    SubSetGraph[] graphs = {fixture.getGraph(), fixture.getCompactGraph(),
+                            new ConcurrentSubSetGraph()};
+    graphs[2].addAll(fixture.getExpectedIncludedColumnCombinations());
+    // Expected values
+    OpenBitSet expectedResult = new OpenBitSet(candidates.size());
+    for (int i = 0; i < candidates.size(); i++) {
+      if (graphs[0].containsSubset(candidates.get(i))) {
+        expectedResult.set(i);
+      }
+    }
+    ForkJoinPool pool = new ForkJoinPool(2);
+
+    for (SubSetGraph graph : graphs) {
+      // Execute functionality
+      OpenBitSet actualResult = graph.containsSubsets(candidates);
+      OpenBitSet actualParallelResult = graph.containsSubsets(candidates, pool);
+
+      // Check result
+      assertEquals(expectedResult, actualResult);
+      assertEquals(expectedResult, actualParallelResult);
+    }
+    assertEquals(0, new SubSetGraph().containsSubsets(candidates).cardinality());
+    pool.shutdown();
+  }
+
   /**
    * Test method for {@link SubSetGraph#getMinimalSubsets()}
    */
@@ -219,4 +268,34 @@ public class SubSetGraphTest {
                IsIterableContainingInAnyOrder
                    .containsInAnyOrder(fixture.getExpectedMinimalSubsets()));
   }
+
+  /**
+   * Test method for {@link SubSetGraph#getMinimalSubsets()} <p/> Column combinations should be
+   * recognized as not minimal if their subset lies on another path of the graph.
+   */
+  @Test
+  public void testGetMinimalSubsetsOnOtherPaths() {
+    // Setup
+    SubSetGraph graph = new SubSetGraph();
+    graph.add(new ColumnCombinationBitset(0, 2));
+    graph.add(new ColumnCombinationBitset(2));
+    graph.add(new ColumnCombinationBitset(0, 1, 2));
+    graph.add(new ColumnCombinationBitset(1, 3));
+    graph.add(new ColumnCombinationBitset(0, 1, 3, 4));
+    graph.add(new ColumnCombinationBitset(0, 4));
+    // Expected values
+    ColumnCombinationBitset[] expectedMinimalSubsets = {new ColumnCombinationBitset(2),
+                                                        new ColumnCombinationBitset(1, 3),
+                                                        new ColumnCombinationBitset(0, 4)};
+
+    // Execute functionality
+    Set<ColumnCombinationBitset> actualMinimalSubsets = graph.getMinimalSubsets();
+
+    // Check result
+    assertThat(actualMinimalSubsets,
+               IsIterableContainingInAnyOrder.containsInAnyOrder(expectedMinimalSubsets));
+    graph.add(new ColumnCombinationBitset());
+    assertThat(graph.getMinimalSubsets(),
+               IsIterableContainingInAnyOrder.containsInAnyOrder(new ColumnCombinationBitset()));
+  }
 }
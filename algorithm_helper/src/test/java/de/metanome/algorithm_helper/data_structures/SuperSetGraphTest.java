@@ -18,10 +18,12 @@ package de.metanome.algorithm_helper.data_structures;
 
 import de.metanome.test_helper.EqualsAndHashCodeTester;
 
+import org.apache.lucene.util.OpenBitSet;
 import org.hamcrest.collection.IsIterableContainingInAnyOrder;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -208,4 +210,27 @@ public class SuperSetGraphTest {
     EqualsAndHashCodeTester<SuperSetGraph> tester = new EqualsAndHashCodeTester<>();
     tester.performBasicEqualsAndHashCodeChecks(actualGraph, equalsGraph, notEqualsGraph);
   }
-}
\ No newline at end of file
+
+  /**
+   * Test method for {@link SuperSetGraph#containsSupersets(java.util.List)}
+   */
+  @Test
+  public void testContainsSupersets() {
+    // Setup
+    SuperSetGraph graph = fixture.getGraph();
+    List<ColumnCombinationBitset> candidates = new ArrayList<>();
+    candidates.add(fixture.getColumnCombinationForSupersetQuery());
+    candidates.add(new ColumnCombinationBitset(5, 7));
+    candidates.add(new ColumnCombinationBitset(2, 7, 8));
+    // Expected values
+    OpenBitSet expectedResult = new OpenBitSet();
+    expectedResult.set(0);
+    expectedResult.set(2);
+
+    // Execute functionality
+    OpenBitSet actualResult = graph.containsSupersets(candidates);
+
+    // Check result
+    assertEquals(expectedResult, actualResult);
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_integration.input;
+
+/**
+ * A {@link RelationalInput} that can read blocks of rows column by column, which saves the per row
+ * calls and list allocations of {@link #next()}. Inputs without native support can be wrapped with
+ * {@link BatchRelationalInputAdapter#of(RelationalInput)}.
+ */
+public interface BatchRelationalInput extends RelationalInput {
+
+  /**
+   * Replaces the rows of the batch with the next rows of the input. The caller provides the batch,
+   * so that it can be reused or, for double buffering, alternated with a second batch.
+   *
+   * @param batch the batch to fill up to its capacity
+   * @return the number of rows read, 0 if the input is exhausted
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  int nextBatch(ColumnarBatch batch) throws InputIterationException;
+}
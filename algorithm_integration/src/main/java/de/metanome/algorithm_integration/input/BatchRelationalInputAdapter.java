@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_integration.input;
+
+import java.util.List;
+
+/**
+ * Provides the {@link BatchRelationalInput} interface for inputs that only read row by row.
+ */
+public class BatchRelationalInputAdapter implements BatchRelationalInput {
+
+  protected RelationalInput input;
+
+  public BatchRelationalInputAdapter(RelationalInput input) {
+    this.input = input;
+  }
+
+  /**
+   * @param input the input to read batches from
+   * @return the input itself if it reads batches natively or an adapter
+   */
+  public static BatchRelationalInput of(RelationalInput input) {
+    if (input instanceof BatchRelationalInput) {
+      return (BatchRelationalInput) input;
+    }
+    return new BatchRelationalInputAdapter(input);
+  }
+
+  @Override
+  public int nextBatch(ColumnarBatch batch) throws InputIterationException {
+    batch.clear();
+    while (!batch.isFull() && input.hasNext()) {
+      batch.addRow(input.next());
+    }
+    return batch.numberOfRows();
+  }
+
+  @Override
+  public boolean hasNext() throws InputIterationException {
+    return input.hasNext();
+  }
+
+  @Override
+  public List<String> next() throws InputIterationException {
+    return input.next();
+  }
+
+  @Override
+  public int numberOfColumns() {
+    return input.numberOfColumns();
+  }
+
+  @Override
+  public String relationName() {
+    return input.relationName();
+  }
+
+  @Override
+  public List<String> columnNames() {
+    return input.columnNames();
+  }
+
+  @Override
+  public void close() throws Exception {
+    input.close();
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_integration.input;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A block of rows stored column by column, filled by {@link
+ * BatchRelationalInput#nextBatch(ColumnarBatch)}. The column arrays are reused when the batch is
+ * filled again, so a batch should be processed before it is refilled. Columns are added when a row
+ * with more values is added, the missing values of shorter rows are null.
+ */
+public class ColumnarBatch {
+
+  protected String[][] columns;
+  protected int capacity;
+  protected int numberOfRows = 0;
+
+  /**
+   * @param numberOfColumns the initial number of columns
+   * @param capacity        the maximum number of rows
+   */
+  public ColumnarBatch(int numberOfColumns, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The capacity needs to be positive.");
+    }
+    this.capacity = capacity;
+    this.columns = new String[numberOfColumns][];
+    for (int column = 0; column < numberOfColumns; column++) {
+      this.columns[column] = new String[capacity];
+    }
+  }
+
+  /**
+   * @return the maximum number of rows
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  public int numberOfColumns() {
+    return columns.length;
+  }
+
+  public int numberOfRows() {
+    return numberOfRows;
+  }
+
+  public boolean isFull() {
+    return numberOfRows >= capacity;
+  }
+
+  /**
+   * Returns the values of a column. Only the first {@link #numberOfRows()} values belong to the
+   * batch.
+   *
+   * @param column the index of the column
+   * @return the values of the column
+   */
+  public String[] getColumn(int column) {
+    return columns[column];
+  }
+
+  public String getValue(int row, int column) {
+    return columns[column][row];
+  }
+
+  public void setValue(int row, int column, String value) {
+    columns[column][row] = value;
+  }
+
+  /**
+   * Removes all rows.
+   */
+  public void clear() {
+    numberOfRows = 0;
+  }
+
+  /**
+   * Appends a row without resetting its values, all values of the row need to be set with {@link
+   * #setValue(int, int, String)}.
+   *
+   * @return the index of the new row
+   */
+  public int addRow() {
+    if (isFull()) {
+      throw new IllegalStateException("The batch is full.");
+    }
+    return numberOfRows++;
+  }
+
+  /**
+   * Appends a row.
+   *
+   * @param values the values of the row
+   */
+  public void addRow(String[] values) {
+    ensureNumberOfColumns(values.length);
+    int row = addRow();
+    for (int column = 0; column < values.length; column++) {
+      columns[column][row] = values[column];
+    }
+    for (int column = values.length; column < columns.length; column++) {
+      columns[column][row] = null;
+    }
+  }
+
+  /**
+   * Appends a row.
+   *
+   * @param values the values of the row
+   */
+  public void addRow(List<String> values) {
+    ensureNumberOfColumns(values.size());
+    int row = addRow();
+    int column = 0;
+    for (String value : values) {
+      columns[column++][row] = value;
+    }
+    for (; column < columns.length; column++) {
+      columns[column][row] = null;
+    }
+  }
+
+  /**
+   * Adds empty columns until the batch has at least the given number of columns.
+   *
+   * @param numberOfColumns the minimum number of columns
+   */
+  public void ensureNumberOfColumns(int numberOfColumns) {
+    if (numberOfColumns <= columns.length) {
+      return;
+    }
+    int oldNumberOfColumns = columns.length;
+    columns = Arrays.copyOf(columns, numberOfColumns);
+    for (int column = oldNumberOfColumns; column < numberOfColumns; column++) {
+      columns[column] = new String[capacity];
+    }
+  }
+}
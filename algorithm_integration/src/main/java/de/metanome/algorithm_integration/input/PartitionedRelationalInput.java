@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_integration.input;
+
+/**
+ * A {@link RelationalInput} whose rows can be read in parallel. The rows are divided into
+ * consecutive partitions, which are read by different workers. The rows of a partition are passed
+ * to the {@link RowBatchHandler} in order, but the batches of different partitions are passed
+ * concurrently and in any order. Only a bounded number of partitions is read ahead of the oldest
+ * unfinished partition. The position of a row in the input is the number of rows in all
+ * previous partitions plus the row's position in its partition.
+ */
+public interface PartitionedRelationalInput extends RelationalInput {
+
+  /**
+   * Reads all rows of the input in parallel. The rows are not returned by {@link #next()}
+   * anymore. Returns after all rows have been passed to the handler.
+   *
+   * @param handler the handler to pass the batches of rows to
+   * @return the number of rows of every partition in input order
+   * @throws InputIterationException if the input cannot be iterated or the handler failed
+   */
+  long[] readPartitioned(RowBatchHandler handler) throws InputIterationException;
+}
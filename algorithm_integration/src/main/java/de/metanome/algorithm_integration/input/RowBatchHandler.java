@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_integration.input;
+
+import java.util.List;
+
+/**
+ * Receives the rows of a {@link PartitionedRelationalInput} in batches. The batches of one
+ * partition are passed by a single thread, different partitions are passed by different threads
+ * concurrently. Completed partitions are announced in partition order, so the handler can merge
+ * and release them while later partitions are still being read.
+ */
+public interface RowBatchHandler {
+
+  /**
+   * Handles a batch of consecutive rows of a partition.
+   *
+   * @param partition the index of the partition
+   * @param firstRow  the position of the batch's first row in the partition
+   * @param rows      the rows of the batch
+   * @throws InputIterationException if the rows cannot be handled
+   */
+  void handle(int partition, long firstRow, List<List<String>> rows)
+      throws InputIterationException;
+
+  /**
+   * Called once all rows of the partition and of all previous partitions have been handled. The
+   * partitions are finished in order by a single thread.
+   *
+   * @param partition    the index of the partition
+   * @param numberOfRows the number of rows of the partition
+   * @throws InputIterationException if the partition cannot be finished
+   */
+  void finishPartition(int partition, long numberOfRows) throws InputIterationException;
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.algorithm_integration.input;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link ColumnarBatch}
+ */
+public class ColumnarBatchTest {
+
+  /**
+   * Test method for {@link ColumnarBatch#addRow(String[])} <p/> Longer rows should add columns,
+   * the missing values of shorter rows should be null.
+   */
+  @Test
+  public void testAddRow() {
+    // Setup
+    ColumnarBatch batch = new ColumnarBatch(1, 3);
+
+    // Execute functionality
+    batch.addRow(new String[]{"a"});
+    batch.addRow(Arrays.asList("b", "c"));
+    batch.addRow(new String[]{"d"});
+
+    // Check result
+    assertEquals(2, batch.numberOfColumns());
+    assertEquals(3, batch.numberOfRows());
+    assertTrue(batch.isFull());
+    assertArrayEquals(new String[]{"a", "b", "d"}, batch.getColumn(0));
+    assertNull(batch.getValue(0, 1));
+    assertEquals("c", batch.getValue(1, 1));
+    assertNull(batch.getValue(2, 1));
+    try {
+      batch.addRow(new String[]{"e"});
+      fail("Expected an IllegalStateException to be thrown.");
+    } catch (IllegalStateException e) {
+      // Intentionally left blank
+    }
+  }
+
+  /**
+   * Test method for {@link ColumnarBatch#clear()} <p/> A cleared batch should be refillable.
+   */
+  @Test
+  public void testClear() {
+    // Setup
+    ColumnarBatch batch = new ColumnarBatch(1, 1);
+    batch.addRow(new String[]{"a"});
+
+    // Execute functionality
+    batch.clear();
+
+    // Check result
+    assertEquals(0, batch.numberOfRows());
+    assertFalse(batch.isFull());
+    batch.addRow(new String[]{"b"});
+    assertEquals("b", batch.getValue(0, 0));
+  }
+
+  /**
+   * Test method for {@link BatchRelationalInputAdapter#nextBatch(ColumnarBatch)} <p/> The adapter
+   * should fill the batch with the rows of a row by row input.
+   */
+  @Test
+  public void testAdapterNextBatch() throws InputIterationException {
+    // Setup
+    RelationalInput input = mock(RelationalInput.class);
+    when(input.hasNext()).thenReturn(true, true, true, false);
+    when(input.next())
+        .thenReturn(Arrays.asList("1", "2"))
+        .thenReturn(Arrays.asList("3", "4"))
+        .thenReturn(Arrays.asList("5", "6"));
+    BatchRelationalInput batchInput = BatchRelationalInputAdapter.of(input);
+    ColumnarBatch batch = new ColumnarBatch(2, 2);
+
+    // Execute functionality
+    // Check result
+    assertEquals(2, batchInput.nextBatch(batch));
+    assertArrayEquals(new String[]{"2", "4"}, batch.getColumn(1));
+    assertEquals(1, batchInput.nextBatch(batch));
+    assertEquals("5", batch.getValue(0, 0));
+    assertEquals(0, batchInput.nextBatch(batch));
+    assertEquals(batchInput, BatchRelationalInputAdapter.of(batchInput));
+  }
+}
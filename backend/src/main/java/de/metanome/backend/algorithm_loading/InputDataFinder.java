@@ -16,6 +16,8 @@
 
 package de.metanome.backend.algorithm_loading;
 
+import de.metanome.backend.input.file.InputCompression;
+
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.UnsupportedEncodingException;
@@ -40,7 +42,8 @@ public class InputDataFinder {
   }
 
   /**
-   * Retrieves all csv and tsv files located directly in the given directory.
+   * Retrieves all csv and tsv files located directly in the given directory. Files compressed in an
+   * {@link InputCompression} format, e.g. .csv.gz files, are included.
    *
    * @param pathToFolder path to the folder to be searched in
    * @return names of all CSV and TSV files located directly in the given directory (no subfolders)
@@ -50,7 +53,8 @@ public class InputDataFinder {
     return folder.listFiles(new FilenameFilter() {
       @Override
       public boolean accept(File file, String name) {
-        return name.endsWith(".csv") || name.endsWith(".tsv");
+        String uncompressedName = InputCompression.stripExtension(name);
+        return uncompressedName.endsWith(".csv") || uncompressedName.endsWith(".tsv");
       }
     });
   }
@@ -18,8 +18,9 @@ package de.metanome.backend.input.database;
 
 import com.google.common.collect.ImmutableList;
 
+import de.metanome.algorithm_integration.input.BatchRelationalInput;
+import de.metanome.algorithm_integration.input.ColumnarBatch;
 import de.metanome.algorithm_integration.input.InputIterationException;
-import de.metanome.algorithm_integration.input.RelationalInput;
 import de.metanome.backend.helper.ExceptionParser;
 
 import java.sql.ResultSet;
@@ -28,7 +29,7 @@ import java.sql.SQLException;
 import java.util.LinkedList;
 import java.util.List;
 
-public class ResultSetIterator implements RelationalInput {
+public class ResultSetIterator implements BatchRelationalInput {
 
   protected ResultSet resultSet;
   protected int numberOfColumns;
@@ -100,6 +101,32 @@ public class ResultSetIterator implements RelationalInput {
     return ImmutableList.copyOf(resultRow);
   }
 
+  /**
+   * Reads the values of the next rows directly into the batch's columns.
+   */
+  @Override
+  public int nextBatch(ColumnarBatch batch) throws InputIterationException {
+    batch.clear();
+    batch.ensureNumberOfColumns(numberOfColumns);
+    while (!batch.isFull() && hasNext()) {
+      nextCalled = false;
+      int row = batch.addRow();
+      for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+        try {
+          batch.setValue(row, columnIndex, resultSet.getString(columnIndex + 1));
+        } catch (SQLException e) {
+          throw new InputIterationException(
+              ExceptionParser.parse(e, "Could not retrieve values from result set"), e);
+        }
+      }
+      for (int columnIndex = numberOfColumns; columnIndex < batch.numberOfColumns();
+           columnIndex++) {
+        batch.setValue(row, columnIndex, null);
+      }
+    }
+    return batch.numberOfRows();
+  }
+
   @Override
   public int numberOfColumns() {
     return numberOfColumns;
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses a blocked gzip file (bgzip, BGZF) in parallel. Every block is a gzip member whose
+ * header stores the compressed size, so the blocks are read sequentially and inflated
+ * concurrently on the shared {@link DecompressionPool}. The inflated blocks are returned in file
+ * order, only a bounded number of blocks of every stream is in progress at once.
+ */
+class BgzfInputStream extends InputStream {
+
+  protected static final int HEADER_SIZE = 12;
+  protected static final int TRAILER_SIZE = 8;
+  // Maximum number of bytes in a block, compressed or not.
+  protected static final int MAX_BLOCK_SIZE = 1 << 16;
+  protected static final int BLOCKS_PER_THREAD = 4;
+
+  protected FileChannel channel;
+  protected long position = 0;
+  protected long size;
+  protected int maximumBlocksInProgress;
+
+  protected Queue<Future<byte[]>> blocksInProgress = new ArrayDeque<>();
+  protected byte[] block = new byte[0];
+  protected int blockPosition = 0;
+
+  /**
+   * @param channel     the channel of the bgzip file
+   * @param parallelism the number of blocks inflated concurrently
+   * @throws IOException if the size of the file cannot be read
+   */
+  BgzfInputStream(FileChannel channel, int parallelism) throws IOException {
+    this.channel = channel;
+    this.size = channel.size();
+    this.maximumBlocksInProgress = parallelism * BLOCKS_PER_THREAD;
+  }
+
+  /**
+   * @param channel the channel of a gzip file
+   * @return whether the first member of the file is a bgzip block
+   * @throws IOException if the file cannot be read
+   */
+  static boolean isBgzf(FileChannel channel) throws IOException {
+    return blockSize(channel, 0) > 0;
+  }
+
+  /**
+   * Reads the header of the gzip member at the position.
+   *
+   * @return the size of the bgzip block or -1 if the member has no block size
+   */
+  protected static int blockSize(FileChannel channel, long position) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    if (!readFully(channel, header, position)
+        || ((header.get(0) & 0xff) != 0x1f) || ((header.get(1) & 0xff) != 0x8b)
+        || (header.get(2) != 8) || ((header.get(3) & 4) == 0)) {
+      return -1;
+    }
+
+    ByteBuffer extra = ByteBuffer.allocate(unsignedShort(header, 10));
+    if (!readFully(channel, extra, position + HEADER_SIZE)) {
+      return -1;
+    }
+    // Search the extra field for the BC subfield holding the block size - 1.
+    int subfield = 0;
+    while (subfield + 4 <= extra.capacity()) {
+      int subfieldLength = unsignedShort(extra, subfield + 2);
+      if ((extra.get(subfield) == 'B') && (extra.get(subfield + 1) == 'C')
+          && (subfieldLength == 2) && (subfield + 6 <= extra.capacity())) {
+        return unsignedShort(extra, subfield + 4) + 1;
+      }
+      subfield += 4 + subfieldLength;
+    }
+    return -1;
+  }
+
+  /**
+   * Fills the buffer with the bytes at the position.
+   *
+   * @return false if the file ended before the buffer was full
+   */
+  protected static boolean readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  protected static int unsignedShort(ByteBuffer buffer, int index) {
+    return (buffer.get(index) & 0xff) | ((buffer.get(index + 1) & 0xff) << 8);
+  }
+
+  protected static int littleEndianInt(byte[] bytes, int index) {
+    return (bytes[index] & 0xff) | ((bytes[index + 1] & 0xff) << 8)
+           | ((bytes[index + 2] & 0xff) << 16) | ((bytes[index + 3] & 0xff) << 24);
+  }
+
+  /**
+   * Inflates a bgzip block and checks its checksum.
+   *
+   * @param compressed the complete block
+   * @return the inflated bytes
+   * @throws IOException if the block is corrupt
+   */
+  protected static byte[] inflate(byte[] compressed) throws IOException {
+    int dataOffset = HEADER_SIZE + ((compressed[10] & 0xff) | ((compressed[11] & 0xff) << 8));
+    int inflatedSize = littleEndianInt(compressed, compressed.length - 4);
+    if ((inflatedSize < 0) || (inflatedSize > MAX_BLOCK_SIZE)) {
+      throw new IOException("Corrupt bgzip block size: " + inflatedSize);
+    }
+    byte[] inflated = new byte[inflatedSize];
+
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed, dataOffset, compressed.length - dataOffset - TRAILER_SIZE);
+      int length = 0;
+      while ((length < inflatedSize) && !inflater.finished()) {
+        int inflatedBytes = inflater.inflate(inflated, length, inflatedSize - length);
+        if ((inflatedBytes == 0) && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Truncated bgzip block");
+        }
+        length += inflatedBytes;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt bgzip block", e);
+    } finally {
+      inflater.end();
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(inflated);
+    if ((int) crc.getValue() != littleEndianInt(compressed, compressed.length - TRAILER_SIZE)) {
+      throw new IOException("Checksum of bgzip block does not match");
+    }
+    return inflated;
+  }
+
+  /**
+   * Reads the next blocks and submits them until enough blocks are in progress.
+   */
+  protected void submitBlocks() throws IOException {
+    while ((blocksInProgress.size() < maximumBlocksInProgress) && (position < size)) {
+      int blockSize = blockSize(channel, position);
+      if (blockSize < HEADER_SIZE + TRAILER_SIZE) {
+        throw new IOException("Invalid bgzip block at byte " + position);
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(blockSize);
+      if (!readFully(channel, buffer, position)) {
+        throw new IOException("Truncated bgzip block at byte " + position);
+      }
+      position += blockSize;
+
+      final byte[] compressed = buffer.array();
+      blocksInProgress.add(DecompressionPool.get().submit(new Callable<byte[]>() {
+        @Override
+        public byte[] call() throws IOException {
+          return inflate(compressed);
+        }
+      }));
+    }
+  }
+
+  /**
+   * @return false if all blocks have been read
+   */
+  protected boolean nextBlock() throws IOException {
+    submitBlocks();
+    Future<byte[]> nextBlock = blocksInProgress.poll();
+    if (nextBlock == null) {
+      return false;
+    }
+    try {
+      block = nextBlock.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while inflating a bgzip block", e);
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause().getMessage(), e.getCause());
+    }
+    blockPosition = 0;
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    // Empty blocks, e.g. the end of file marker, are skipped.
+    while (blockPosition >= block.length) {
+      if (!nextBlock()) {
+        return -1;
+      }
+    }
+    int read = Math.min(length, block.length - blockPosition);
+    System.arraycopy(block, blockPosition, buffer, offset, read);
+    blockPosition += read;
+    return read;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Future<byte[]> blockInProgress : blocksInProgress) {
+      blockInProgress.cancel(true);
+    }
+    blocksInProgress.clear();
+    channel.close();
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_helper.data_structures.InputFingerprint;
+import de.metanome.algorithm_integration.AlgorithmConfigurationException;
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.InputGenerationException;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+import de.metanome.backend.helper.ExceptionParser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Generator for {@link ColumnarFileIterator}s over a file input. The csv file is imported into a
+ * columnar file with the {@link ColumnarFileWriter} when the first copy is generated, all copies
+ * read the columnar file, so inputs that are read several times are only parsed once. The
+ * columnar file stores the {@link InputFingerprint} of the csv file and its parser settings, it is
+ * reused as long as the fingerprint matches and imported again otherwise.
+ */
+public class ColumnarFileInputGenerator extends DefaultFileInputGenerator {
+
+  protected static final String COLUMNAR_FILE_SUFFIX = ".mcol";
+
+  protected File columnarFile;
+  protected boolean temporary;
+  // Fingerprint of the input the columnar file has been imported from.
+  protected String importedFingerprint;
+  protected int rowGroupSize;
+
+  /**
+   * Imports the file input into a temporary columnar file, which is deleted on exit.
+   *
+   * @param setting the settings of the csv file
+   * @throws AlgorithmConfigurationException thrown if the file cannot be found
+   */
+  public ColumnarFileInputGenerator(ConfigurationSettingFileInput setting)
+      throws AlgorithmConfigurationException {
+    this(setting, null, ColumnarFileWriter.DEFAULT_ROW_GROUP_SIZE);
+  }
+
+  /**
+   * @param setting      the settings of the csv file
+   * @param columnarFile the columnar file to import the csv file into or null for a temporary
+   *                     file
+   * @param rowGroupSize the maximum number of rows per row group
+   * @throws AlgorithmConfigurationException thrown if the file cannot be found
+   */
+  public ColumnarFileInputGenerator(ConfigurationSettingFileInput setting, File columnarFile,
+                                    int rowGroupSize)
+      throws AlgorithmConfigurationException {
+    super(setting);
+    this.columnarFile = columnarFile;
+    this.temporary = columnarFile == null;
+    this.rowGroupSize = rowGroupSize;
+  }
+
+  @Override
+  public RelationalInput generateNewCopy() throws InputGenerationException {
+    try {
+      return new ColumnarFileIterator(
+          new FileInputStream(getColumnarFile()).getChannel());
+    } catch (IOException e) {
+      throw new InputGenerationException(ExceptionParser.parse(e), e);
+    } catch (InputIterationException e) {
+      throw new InputGenerationException(
+          ExceptionParser.parse(e, "Could not read the columnar file"), e);
+    }
+  }
+
+  /**
+   * Imports the csv file if the columnar file does not exist or was imported from another version
+   * of the file or with other parser settings.
+   *
+   * @return the columnar file
+   * @throws InputGenerationException if the csv file cannot be imported
+   */
+  public synchronized File getColumnarFile() throws InputGenerationException {
+    String fingerprint = InputFingerprint.forFileInput(setting).getKey();
+    if (fingerprint.equals(importedFingerprint)) {
+      return columnarFile;
+    }
+    if (!temporary && fingerprint.equals(readFingerprint(columnarFile))) {
+      importedFingerprint = fingerprint;
+      return columnarFile;
+    }
+
+    try {
+      if (columnarFile == null) {
+        columnarFile = File.createTempFile(inputFile.getName(), COLUMNAR_FILE_SUFFIX);
+        columnarFile.deleteOnExit();
+      }
+      RelationalInput input = super.generateNewCopy();
+      try {
+        new ColumnarFileWriter(rowGroupSize).write(input, columnarFile, fingerprint);
+      } finally {
+        input.close();
+      }
+    } catch (InputGenerationException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new InputGenerationException(
+          ExceptionParser.parse(e, "Could not import the file input"), e);
+    }
+    importedFingerprint = fingerprint;
+    return columnarFile;
+  }
+
+  /**
+   * @param file a columnar file
+   * @return the fingerprint stored in the file or null if it is missing or unreadable
+   */
+  protected String readFingerprint(File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try (ColumnarFileIterator iterator =
+             new ColumnarFileIterator(new FileInputStream(file).getChannel())) {
+      return iterator.getFingerprint();
+    } catch (InputIterationException | IOException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.input.BatchRelationalInput;
+import de.metanome.algorithm_integration.input.ColumnarBatch;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.backend.helper.ExceptionParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a file in the binary columnar format written by the {@link ColumnarFileWriter}. Every row
+ * group is memory mapped when it is reached, the values are looked up in the column dictionaries,
+ * so no text needs to be parsed and equal values of a row group are the same string instance.
+ */
+public class ColumnarFileIterator implements BatchRelationalInput {
+
+  protected static final int TRAILER_SIZE = 12;
+
+  protected FileChannel channel;
+  protected String fingerprint;
+  protected String relationName;
+  protected List<String> columnNames;
+  protected int numberOfColumns;
+  protected long[] rowGroupOffsets;
+  protected int[] rowGroupSizes;
+  protected long footerOffset;
+
+  protected int currentRowGroup = -1;
+  protected int rowInGroup = 0;
+  protected int rowsInGroup = 0;
+  protected String[][] dictionaries;
+  protected ByteBuffer[] nullBitmaps;
+  protected ByteBuffer[] valueIds;
+  protected int[] valueWidths;
+
+  /**
+   * @param channel the channel of the columnar file
+   * @throws InputIterationException if the file cannot be read or is not a columnar file
+   */
+  public ColumnarFileIterator(FileChannel channel) throws InputIterationException {
+    this.channel = channel;
+    try {
+      readFooter();
+      readHeader();
+    } catch (IOException | RuntimeException e) {
+      throw new InputIterationException(
+          ExceptionParser.parse(e, "Could not read the columnar file"), e);
+    }
+  }
+
+  protected void readFooter() throws IOException, InputIterationException {
+    long size = channel.size();
+    if (size < TRAILER_SIZE) {
+      throw new InputIterationException("The file is not a columnar file");
+    }
+    ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, size - TRAILER_SIZE,
+                                     TRAILER_SIZE);
+    footerOffset = trailer.getLong();
+    if (trailer.getInt() != ColumnarFileWriter.MAGIC) {
+      throw new InputIterationException("The file is not a columnar file");
+    }
+
+    ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, footerOffset,
+                                    size - TRAILER_SIZE - footerOffset);
+    int numberOfRowGroups = footer.getInt();
+    rowGroupOffsets = new long[numberOfRowGroups + 1];
+    rowGroupSizes = new int[numberOfRowGroups];
+    for (int rowGroup = 0; rowGroup < numberOfRowGroups; rowGroup++) {
+      rowGroupOffsets[rowGroup] = footer.getLong();
+      rowGroupSizes[rowGroup] = footer.getInt();
+    }
+    // The last row group ends at the footer.
+    rowGroupOffsets[numberOfRowGroups] = footerOffset;
+  }
+
+  protected void readHeader() throws IOException, InputIterationException {
+    ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, rowGroupOffsets[0]);
+    if ((header.getInt() != ColumnarFileWriter.MAGIC)
+        || (header.getInt() != ColumnarFileWriter.VERSION)) {
+      throw new InputIterationException("The version of the columnar file is not supported");
+    }
+    fingerprint = readString(header);
+    relationName = readString(header);
+    numberOfColumns = header.getInt();
+    List<String> names = new ArrayList<>(numberOfColumns);
+    for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+      names.add(readString(header));
+    }
+    columnNames = Collections.unmodifiableList(names);
+
+    dictionaries = new String[numberOfColumns][];
+    nullBitmaps = new ByteBuffer[numberOfColumns];
+    valueIds = new ByteBuffer[numberOfColumns];
+    valueWidths = new int[numberOfColumns];
+  }
+
+  /**
+   * Maps the next row group and reads its dictionaries.
+   *
+   * @return false if there are no more row groups
+   */
+  protected boolean nextRowGroup() throws InputIterationException {
+    if (currentRowGroup + 1 >= rowGroupSizes.length) {
+      return false;
+    }
+    currentRowGroup++;
+    rowInGroup = 0;
+    rowsInGroup = rowGroupSizes[currentRowGroup];
+
+    ByteBuffer rowGroup;
+    try {
+      long offset = rowGroupOffsets[currentRowGroup];
+      rowGroup = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                             rowGroupOffsets[currentRowGroup + 1] - offset);
+    } catch (IOException e) {
+      throw new InputIterationException(
+          ExceptionParser.parse(e, "Could not map row group " + currentRowGroup), e);
+    }
+
+    for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+      String[] dictionary = new String[rowGroup.getInt()];
+      for (int valueId = 0; valueId < dictionary.length; valueId++) {
+        dictionary[valueId] = readString(rowGroup);
+      }
+      dictionaries[columnIndex] = dictionary;
+      valueWidths[columnIndex] = rowGroup.get();
+      nullBitmaps[columnIndex] = slice(rowGroup, (rowsInGroup + 7) / 8);
+      valueIds[columnIndex] = slice(rowGroup, rowsInGroup * valueWidths[columnIndex]);
+    }
+    return true;
+  }
+
+  /**
+   * @return the next length bytes of the buffer as a separate buffer
+   */
+  protected ByteBuffer slice(ByteBuffer buffer, int length) {
+    ByteBuffer slice = buffer.slice();
+    slice.limit(length);
+    buffer.position(buffer.position() + length);
+    return slice;
+  }
+
+  protected String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param columnIndex the column of the current row group
+   * @param row         the row in the current row group
+   * @return the value of the cell
+   */
+  protected String getValue(int columnIndex, int row) {
+    if ((nullBitmaps[columnIndex].get(row >>> 3) & (1 << (row & 7))) != 0) {
+      return null;
+    }
+    ByteBuffer ids = valueIds[columnIndex];
+    switch (valueWidths[columnIndex]) {
+      case 1:
+        return dictionaries[columnIndex][ids.get(row) & 0xff];
+      case 2:
+        return dictionaries[columnIndex][ids.getShort(row << 1) & 0xffff];
+      case 4:
+        return dictionaries[columnIndex][ids.getInt(row << 2)];
+      default:
+        return dictionaries[columnIndex][0];
+    }
+  }
+
+  @Override
+  public boolean hasNext() throws InputIterationException {
+    while (rowInGroup >= rowsInGroup) {
+      if (!nextRowGroup()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public List<String> next() throws InputIterationException {
+    if (!hasNext()) {
+      return null;
+    }
+    String[] row = new String[numberOfColumns];
+    for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+      row[columnIndex] = getValue(columnIndex, rowInGroup);
+    }
+    rowInGroup++;
+    // Return an immutable list
+    return Collections.unmodifiableList(Arrays.asList(row));
+  }
+
+  /**
+   * Decodes the next rows column by column into the batch.
+   */
+  @Override
+  public int nextBatch(ColumnarBatch batch) throws InputIterationException {
+    batch.clear();
+    batch.ensureNumberOfColumns(numberOfColumns);
+    while (!batch.isFull() && hasNext()) {
+      int firstRow = batch.numberOfRows();
+      int numberOfRows = Math.min(batch.capacity() - firstRow, rowsInGroup - rowInGroup);
+      for (int row = 0; row < numberOfRows; row++) {
+        batch.addRow();
+      }
+      for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+        String[] values = batch.getColumn(columnIndex);
+        for (int row = 0; row < numberOfRows; row++) {
+          values[firstRow + row] = getValue(columnIndex, rowInGroup + row);
+        }
+      }
+      for (int columnIndex = numberOfColumns; columnIndex < batch.numberOfColumns();
+           columnIndex++) {
+        Arrays.fill(batch.getColumn(columnIndex), firstRow, firstRow + numberOfRows, null);
+      }
+      rowInGroup += numberOfRows;
+    }
+    return batch.numberOfRows();
+  }
+
+  /**
+   * @return the fingerprint of the imported input, empty if none was given
+   */
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * @return the number of rows in the file
+   */
+  public long getNumberOfRows() {
+    long numberOfRows = 0;
+    for (int rowGroupSize : rowGroupSizes) {
+      numberOfRows += rowGroupSize;
+    }
+    return numberOfRows;
+  }
+
+  @Override
+  public int numberOfColumns() {
+    return numberOfColumns;
+  }
+
+  @Override
+  public String relationName() {
+    return relationName;
+  }
+
+  @Override
+  public List<String> columnNames() {
+    return columnNames;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import com.google.common.io.CountingOutputStream;
+
+import de.metanome.algorithm_integration.input.BatchRelationalInput;
+import de.metanome.algorithm_integration.input.BatchRelationalInputAdapter;
+import de.metanome.algorithm_integration.input.ColumnarBatch;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports a {@link RelationalInput}, e.g. a csv file, into Metanome's binary columnar file format,
+ * which is read by the {@link ColumnarFileIterator}. The rows are stored in row groups, every
+ * column of a row group is dictionary encoded:
+ * <pre>
+ * file:         MAGIC VERSION fingerprint relationName numberOfColumns columnName* rowGroup* footer
+ *               footerOffset:long MAGIC
+ * rowGroup:     column* (one per column)
+ * column:       dictionarySize:int string* valueWidth:byte nullBitmap valueId*
+ * footer:       numberOfRowGroups:int (rowGroupOffset:long rowGroupSize:int)*
+ * string:       byteLength:int UTF-8 bytes
+ * </pre>
+ * The null bitmap has a bit per row of the group, the value ids of null values are 0. The value
+ * ids are stored with the fixed width of 0, 1, 2 or 4 bytes the dictionary size needs. Numbers are
+ * big-endian. The fingerprint identifies the imported input, so that outdated files can be
+ * detected. Files are written to a temporary file first and moved into place when complete.
+ */
+public class ColumnarFileWriter {
+
+  public static final int MAGIC = 0x4d434f4c;
+  public static final int VERSION = 2;
+  public static final int DEFAULT_ROW_GROUP_SIZE = 1 << 16;
+
+  protected int rowGroupSize;
+
+  public ColumnarFileWriter() {
+    this(DEFAULT_ROW_GROUP_SIZE);
+  }
+
+  /**
+   * @param rowGroupSize the maximum number of rows per row group
+   */
+  public ColumnarFileWriter(int rowGroupSize) {
+    if (rowGroupSize < 1) {
+      throw new IllegalArgumentException("The row group size needs to be positive.");
+    }
+    this.rowGroupSize = rowGroupSize;
+  }
+
+  /**
+   * Writes all rows of the input to the target file. Values of columns beyond the input's number
+   * of columns are dropped, missing values are null.
+   *
+   * @param input  the input to import
+   * @param target the columnar file to write
+   * @return the number of written rows
+   * @throws InputIterationException if the input cannot be iterated
+   * @throws IOException             if the target cannot be written
+   */
+  public long write(RelationalInput input, File target)
+      throws InputIterationException, IOException {
+    return write(input, target, "");
+  }
+
+  /**
+   * Writes all rows of the input to the target file. Values of columns beyond the input's number
+   * of columns are dropped, missing values are null. The target is only replaced once the file is
+   * complete.
+   *
+   * @param input       the input to import
+   * @param target      the columnar file to write
+   * @param fingerprint the fingerprint identifying the input
+   * @return the number of written rows
+   * @throws InputIterationException if the input cannot be iterated
+   * @throws IOException             if the target cannot be written
+   */
+  public long write(RelationalInput input, File target, String fingerprint)
+      throws InputIterationException, IOException {
+    File temporaryFile =
+        File.createTempFile(target.getName(), ".tmp", target.getAbsoluteFile().getParentFile());
+    try {
+      long numberOfRows = writeFile(input, temporaryFile, fingerprint);
+      Files.move(temporaryFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return numberOfRows;
+    } finally {
+      temporaryFile.delete();
+    }
+  }
+
+  protected long writeFile(RelationalInput input, File target, String fingerprint)
+      throws InputIterationException, IOException {
+    int numberOfColumns = input.numberOfColumns();
+    BatchRelationalInput batchInput = BatchRelationalInputAdapter.of(input);
+    ColumnarBatch batch = new ColumnarBatch(numberOfColumns, rowGroupSize);
+    List<Long> rowGroupOffsets = new ArrayList<>();
+    List<Integer> rowGroupSizes = new ArrayList<>();
+    long numberOfRows = 0;
+
+    CountingOutputStream counter =
+        new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(target)));
+    try (DataOutputStream out = new DataOutputStream(counter)) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      writeString(out, fingerprint);
+      writeString(out, input.relationName());
+      out.writeInt(numberOfColumns);
+      for (String columnName : input.columnNames()) {
+        writeString(out, columnName);
+      }
+
+      while (batchInput.nextBatch(batch) > 0) {
+        rowGroupOffsets.add(counter.getCount());
+        rowGroupSizes.add(batch.numberOfRows());
+        for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+          writeColumn(out, batch.getColumn(columnIndex), batch.numberOfRows());
+        }
+        numberOfRows += batch.numberOfRows();
+      }
+
+      long footerOffset = counter.getCount();
+      out.writeInt(rowGroupOffsets.size());
+      for (int rowGroup = 0; rowGroup < rowGroupOffsets.size(); rowGroup++) {
+        out.writeLong(rowGroupOffsets.get(rowGroup));
+        out.writeInt(rowGroupSizes.get(rowGroup));
+      }
+      out.writeLong(footerOffset);
+      out.writeInt(MAGIC);
+    }
+    return numberOfRows;
+  }
+
+  /**
+   * Writes the dictionary, the null bitmap and the value ids of a column of a row group.
+   *
+   * @param out          the output
+   * @param values       the column's values
+   * @param numberOfRows the number of rows in the row group
+   */
+  protected void writeColumn(DataOutputStream out, String[] values, int numberOfRows)
+      throws IOException {
+    Map<String, Integer> valueIds = new HashMap<>();
+    List<String> dictionary = new ArrayList<>();
+    int[] ids = new int[numberOfRows];
+    byte[] nullBitmap = new byte[(numberOfRows + 7) / 8];
+    for (int row = 0; row < numberOfRows; row++) {
+      String value = values[row];
+      if (value == null) {
+        nullBitmap[row >>> 3] |= 1 << (row & 7);
+        continue;
+      }
+      Integer valueId = valueIds.get(value);
+      if (valueId == null) {
+        valueId = dictionary.size();
+        valueIds.put(value, valueId);
+        dictionary.add(value);
+      }
+      ids[row] = valueId;
+    }
+
+    out.writeInt(dictionary.size());
+    for (String value : dictionary) {
+      writeString(out, value);
+    }
+    int valueWidth = valueWidth(dictionary.size());
+    out.writeByte(valueWidth);
+    out.write(nullBitmap);
+    for (int row = 0; row < numberOfRows; row++) {
+      switch (valueWidth) {
+        case 1:
+          out.writeByte(ids[row]);
+          break;
+        case 2:
+          out.writeShort(ids[row]);
+          break;
+        case 4:
+          out.writeInt(ids[row]);
+          break;
+        default:
+          // A single distinct value needs no ids.
+      }
+    }
+  }
+
+  /**
+   * @param dictionarySize the number of distinct values
+   * @return the number of bytes per value id
+   */
+  protected static int valueWidth(int dictionarySize) {
+    if (dictionarySize <= 1) {
+      return 0;
+    }
+    if (dictionarySize <= 1 << 8) {
+      return 1;
+    }
+    if (dictionarySize <= 1 << 16) {
+      return 2;
+    }
+    return 4;
+  }
+
+  protected static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Finds the record boundaries of a csv file without decoding or tokenizing it. The scanner follows
+ * the quoting rules of the {@link CsvTokenizer} on the raw bytes, which is exact for ASCII
+ * separator, quote and escape characters, because UTF-8 encodes no other character with ASCII
+ * bytes.
+ */
+class CsvRecordScanner {
+
+  protected static final int BUFFER_SIZE = 1 << 20;
+  protected static final int END_OF_INPUT = -1;
+
+  protected FileChannel channel;
+  protected byte[] buffer = new byte[BUFFER_SIZE];
+  protected ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+  // File position of the first byte in the buffer.
+  protected long bufferStart;
+  protected int position = 0;
+  protected int limit = 0;
+
+  protected int separator;
+  protected int quoteChar;
+  protected int escapeChar;
+  protected boolean strictQuotes;
+  protected boolean[] special = new boolean[256];
+
+  /**
+   * @param channel  the channel of the file
+   * @param setting  the settings of the csv format
+   * @param position the file position to start scanning at
+   */
+  CsvRecordScanner(FileChannel channel, ConfigurationSettingFileInput setting, long position) {
+    this.channel = channel;
+    this.bufferStart = position;
+    this.separator = setting.getSeparatorAsChar();
+    this.quoteChar = setting.getQuoteCharAsChar();
+    this.escapeChar = setting.getEscapeCharAsChar();
+    this.strictQuotes = setting.isStrictQuotes();
+
+    special[separator] = true;
+    special[quoteChar] = true;
+    special[escapeChar] = true;
+    special['\n'] = true;
+    special['\r'] = true;
+  }
+
+  /**
+   * @param setting the settings of the csv format
+   * @return whether the separator, quote and escape characters are ASCII characters
+   */
+  static boolean isSupported(ConfigurationSettingFileInput setting) {
+    return (setting.getSeparatorAsChar() < 0x80) && (setting.getQuoteCharAsChar() < 0x80)
+           && (setting.getEscapeCharAsChar() < 0x80);
+  }
+
+  /**
+   * @return the file position of the next unscanned byte
+   */
+  long getPosition() {
+    return bufferStart + position;
+  }
+
+  /**
+   * Skips the current physical line regardless of quotes.
+   *
+   * @return false if the file was already exhausted
+   */
+  boolean skipLine() throws IOException {
+    if (!ensureAvailable()) {
+      return false;
+    }
+    while (ensureAvailable()) {
+      int c = buffer[position++];
+      if (c == '\n') {
+        return true;
+      }
+      if (c == '\r') {
+        if (peek() == '\n') {
+          position++;
+        }
+        return true;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Skips the next record, which ends with the first line break outside of quotes.
+   *
+   * @return false if the file was already exhausted
+   */
+  boolean skipRecord() throws IOException {
+    if (!ensureAvailable()) {
+      return false;
+    }
+
+    boolean inQuotes = false;
+    boolean inField = false;
+    while (ensureAvailable()) {
+      int runStart = position;
+      while ((position < limit) && !special[buffer[position] & 0xFF]) {
+        position++;
+      }
+      if (position > runStart) {
+        inField |= !strictQuotes || inQuotes;
+        continue;
+      }
+
+      int c = buffer[position++] & 0xFF;
+      if ((c == '\n') || (c == '\r')) {
+        if ((c == '\r') && (peek() == '\n')) {
+          position++;
+        }
+        if (!inQuotes) {
+          return true;
+        }
+      } else if (c == escapeChar) {
+        int next = peek();
+        if ((inQuotes || inField) && ((next == quoteChar) || (next == escapeChar))) {
+          position++;
+        }
+      } else if (c == quoteChar) {
+        if ((inQuotes || inField) && (peek() == quoteChar)) {
+          position++;
+        } else {
+          inQuotes = !inQuotes;
+        }
+        inField = !inField;
+      } else if ((c == separator) && !inQuotes) {
+        inField = false;
+      } else if (!strictQuotes || inQuotes) {
+        inField = true;
+      }
+    }
+    return true;
+  }
+
+  protected int peek() throws IOException {
+    if (!ensureAvailable()) {
+      return END_OF_INPUT;
+    }
+    return buffer[position] & 0xFF;
+  }
+
+  protected boolean ensureAvailable() throws IOException {
+    return (position < limit) || fill();
+  }
+
+  protected boolean fill() throws IOException {
+    bufferStart += limit;
+    position = 0;
+    limit = 0;
+    byteBuffer.clear();
+    int read = 0;
+    while (read == 0) {
+      read = channel.read(byteBuffer, bufferStart);
+    }
+    limit = Math.max(read, 0);
+    return read > 0;
+  }
+}
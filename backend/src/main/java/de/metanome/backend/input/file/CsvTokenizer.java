@@ -0,0 +1,322 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits csv input into records of field values. Files are read through a channel into a large
+ * direct byte buffer, which is only decoded from UTF-8 chunk by chunk as the records are read.
+ * Runs of plain characters are copied in bulk, only separators, quotes, escapes and line breaks are
+ * handled one by one.
+ * <p/>
+ * The records are parsed as by opencsv's CSVReader with the settings' separator, quote, escape,
+ * strict quotes, ignore leading white space and skip lines options: Quoted fields may span several
+ * lines, doubled or escaped quotes in quoted fields are single quotes and escape characters that do
+ * not escape a quote or escape character are dropped.
+ */
+public class CsvTokenizer implements Closeable {
+
+  public static final int DEFAULT_BYTE_BUFFER_SIZE = 1 << 20;
+  public static final int DEFAULT_CHAR_BUFFER_SIZE = 1 << 16;
+
+  protected static final int END_OF_INPUT = -1;
+
+  protected Reader reader;
+  protected ReadableByteChannel channel;
+  protected ByteBuffer bytes;
+  protected CharsetDecoder decoder;
+  protected boolean endOfBytes = false;
+  protected boolean decoderFlushed = false;
+
+  protected char[] buffer;
+  protected CharBuffer chars;
+  protected int position = 0;
+  protected int limit = 0;
+
+  protected char separator;
+  protected char quoteChar;
+  protected char escapeChar;
+  protected boolean strictQuotes;
+  protected boolean ignoreLeadingWhiteSpace;
+  protected int linesToSkip;
+
+  protected List<String> fields = new ArrayList<>();
+  protected StringBuilder field = new StringBuilder();
+
+  /**
+   * @param reader  the reader to parse
+   * @param setting the settings of the csv format
+   */
+  public CsvTokenizer(Reader reader, ConfigurationSettingFileInput setting) {
+    this(setting);
+    this.reader = reader;
+  }
+
+  /**
+   * @param channel the channel of the UTF-8 encoded file to parse
+   * @param setting the settings of the csv format
+   */
+  public CsvTokenizer(ReadableByteChannel channel, ConfigurationSettingFileInput setting) {
+    this(channel, setting, DEFAULT_BYTE_BUFFER_SIZE);
+  }
+
+  /**
+   * @param channel        the channel of the UTF-8 encoded file to parse
+   * @param setting        the settings of the csv format
+   * @param byteBufferSize the size of the direct byte buffer
+   */
+  public CsvTokenizer(ReadableByteChannel channel, ConfigurationSettingFileInput setting,
+                      int byteBufferSize) {
+    this(setting);
+    this.channel = channel;
+    this.bytes = ByteBuffer.allocateDirect(byteBufferSize);
+    this.bytes.flip();
+    this.decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  protected CsvTokenizer(ConfigurationSettingFileInput setting) {
+    this.separator = setting.getSeparatorAsChar();
+    this.quoteChar = setting.getQuoteCharAsChar();
+    this.escapeChar = setting.getEscapeCharAsChar();
+    this.strictQuotes = setting.isStrictQuotes();
+    this.ignoreLeadingWhiteSpace = setting.isIgnoreLeadingWhiteSpace();
+    this.linesToSkip = setting.getSkipLines();
+
+    this.buffer = new char[DEFAULT_CHAR_BUFFER_SIZE];
+    this.chars = CharBuffer.wrap(buffer);
+  }
+
+  /**
+   * Reads the next record.
+   *
+   * @return the field values of the next record or null if the input is exhausted
+   * @throws IOException if the input cannot be read
+   */
+  public String[] readNext() throws IOException {
+    for (; linesToSkip > 0; linesToSkip--) {
+      if (!skipLine()) {
+        return null;
+      }
+    }
+    if (!ensureAvailable()) {
+      return null;
+    }
+
+    fields.clear();
+    field.setLength(0);
+    boolean inQuotes = false;
+    boolean inField = false;
+    // The previous character and the position of the next character on the current line.
+    int previous = END_OF_INPUT;
+    int linePosition = 0;
+
+    while (ensureAvailable()) {
+      int runStart = position;
+      while ((position < limit) && !isSpecial(buffer[position])) {
+        position++;
+      }
+      if (position > runStart) {
+        if (!strictQuotes || inQuotes) {
+          field.append(buffer, runStart, position - runStart);
+          inField = true;
+        }
+        previous = buffer[position - 1];
+        linePosition += position - runStart;
+        continue;
+      }
+
+      char c = buffer[position++];
+      if ((c == '\n') || (c == '\r')) {
+        if ((c == '\r') && (peek() == '\n')) {
+          position++;
+        }
+        if (!inQuotes) {
+          return finishRecord();
+        }
+        // The quoted field continues on the next line.
+        field.append('\n');
+        previous = END_OF_INPUT;
+        linePosition = 0;
+        continue;
+      }
+
+      if (c == escapeChar) {
+        int next = peek();
+        if ((inQuotes || inField) && ((next == quoteChar) || (next == escapeChar))) {
+          field.append((char) next);
+          position++;
+          linePosition++;
+          c = (char) next;
+        }
+      } else if (c == quoteChar) {
+        int next = peek();
+        if ((inQuotes || inField) && (next == quoteChar)) {
+          field.append(quoteChar);
+          position++;
+          linePosition++;
+        } else {
+          inQuotes = !inQuotes;
+          // Quotes within unquoted field values are kept.
+          if (!strictQuotes && (linePosition > 2) && (previous != separator)
+              && !isEndOfLine(next) && (next != separator)) {
+            if (ignoreLeadingWhiteSpace && (field.length() > 0) && isAllWhiteSpace(field)) {
+              field.setLength(0);
+            } else {
+              field.append(c);
+            }
+          }
+        }
+        inField = !inField;
+      } else if ((c == separator) && !inQuotes) {
+        fields.add(field.toString());
+        field.setLength(0);
+        inField = false;
+      } else if (!strictQuotes || inQuotes) {
+        field.append(c);
+        inField = true;
+      }
+      previous = c;
+      linePosition++;
+    }
+
+    return finishRecord();
+  }
+
+  protected String[] finishRecord() {
+    fields.add(field.toString());
+    field.setLength(0);
+    return fields.toArray(new String[fields.size()]);
+  }
+
+  protected boolean isSpecial(char c) {
+    return (c == separator) || (c == quoteChar) || (c == escapeChar) || (c == '\n') || (c == '\r');
+  }
+
+  protected boolean isEndOfLine(int c) {
+    return (c == END_OF_INPUT) || (c == '\n') || (c == '\r');
+  }
+
+  protected boolean isAllWhiteSpace(CharSequence sequence) {
+    for (int i = 0; i < sequence.length(); i++) {
+      if (!Character.isWhitespace(sequence.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Skips the current physical line regardless of quotes.
+   *
+   * @return false if the input was already exhausted
+   */
+  protected boolean skipLine() throws IOException {
+    if (!ensureAvailable()) {
+      return false;
+    }
+    while (ensureAvailable()) {
+      char c = buffer[position++];
+      if (c == '\n') {
+        return true;
+      }
+      if (c == '\r') {
+        if (peek() == '\n') {
+          position++;
+        }
+        return true;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the next character without consuming it or {@link #END_OF_INPUT}
+   */
+  protected int peek() throws IOException {
+    if (!ensureAvailable()) {
+      return END_OF_INPUT;
+    }
+    return buffer[position];
+  }
+
+  protected boolean ensureAvailable() throws IOException {
+    return (position < limit) || fill();
+  }
+
+  /**
+   * Replaces the consumed characters of the buffer with the next characters of the input.
+   *
+   * @return false if the input is exhausted
+   */
+  protected boolean fill() throws IOException {
+    position = 0;
+    limit = 0;
+    if (reader != null) {
+      int read = 0;
+      while (read == 0) {
+        read = reader.read(buffer, 0, buffer.length);
+      }
+      limit = Math.max(read, 0);
+      return read > 0;
+    }
+
+    while (!decoderFlushed) {
+      chars.clear();
+      if (decoder.decode(bytes, chars, endOfBytes).isUnderflow() && endOfBytes) {
+        decoderFlushed = decoder.flush(chars).isUnderflow();
+      }
+      if (chars.position() > 0) {
+        limit = chars.position();
+        return true;
+      }
+
+      if (!endOfBytes) {
+        bytes.compact();
+        if (channel.read(bytes) < 0) {
+          endOfBytes = true;
+        }
+        bytes.flip();
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null) {
+      reader.close();
+    }
+    if (channel != null) {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.metanome.backend.input.file;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Holds the thread pool shared by all streams that decompress blocks of a file in parallel. The
+ * pool is created on first use with one thread per processor, so opening many compressed inputs
+ * does not multiply the number of threads. Its daemon threads do not keep the vm alive.
+ */
+final class DecompressionPool {
+
+  private static ExecutorService pool;
+
+  private DecompressionPool() {
+  }
+
+  /**
+   * @return the shared pool
+   */
+  static synchronized ExecutorService get() {
+    if (pool == null) {
+      pool = Executors.newFixedThreadPool(
+          Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "Decompressor");
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+    }
+    return pool;
+  }
+}
@@ -26,7 +26,8 @@ import de.metanome.backend.helper.ExceptionParser;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * Generator for {@link de.metanome.algorithm_integration.input.RelationalInput}s based on file
@@ -70,8 +71,8 @@ public class DefaultFileInputGenerator implements FileInputGenerator {
   @Override
   public RelationalInput generateNewCopy() throws InputGenerationException {
     try {
-      return new FileIterator(inputFile.getName(), new FileReader(inputFile), setting);
-    } catch (FileNotFoundException e) {
+      return new FileIterator(inputFile.getName(), openChannel(), setting);
+    } catch (IOException e) {
       throw new InputGenerationException(ExceptionParser.parse(e), e);
     } catch (InputIterationException e) {
       throw new InputGenerationException(
@@ -79,6 +80,17 @@ public class DefaultFileInputGenerator implements FileInputGenerator {
     }
   }
 
+  /**
+   * Opens the input file. Compressed files are decompressed while they are read.
+   *
+   * @return the channel of the file's contents
+   * @throws IOException if the file cannot be opened or its compression is not supported
+   */
+  protected ReadableByteChannel openChannel() throws IOException {
+    return InputCompression.detect(inputFile)
+        .open(inputFile, Runtime.getRuntime().availableProcessors());
+  }
+
   /**
    * @return inputFile
    */
@@ -16,16 +16,17 @@
 
 package de.metanome.backend.input.file;
 
-import au.com.bytecode.opencsv.CSVReader;
-
 import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.BatchRelationalInput;
+import de.metanome.algorithm_integration.input.ColumnarBatch;
 import de.metanome.algorithm_integration.input.InputIterationException;
-import de.metanome.algorithm_integration.input.RelationalInput;
 import de.metanome.backend.helper.ExceptionParser;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -34,7 +35,7 @@ import java.util.List;
  *
  * @author Jakob Zwiener
  */
-public class FileIterator implements RelationalInput {
+public class FileIterator implements BatchRelationalInput {
 
   public static final boolean DEFAULT_HAS_HEADER = true;
   public static final boolean DEFAULT_SKIP_DIFFERING_LINES = false;
@@ -42,9 +43,9 @@ public class FileIterator implements RelationalInput {
 
   protected static final String DEFAULT_HEADER_STRING = "column";
 
-  protected CSVReader csvReader;
+  protected CsvTokenizer tokenizer;
   protected List<String> headerLine;
-  protected List<String> nextLine;
+  protected String[] nextLine;
   protected String relationName;
   protected int numberOfColumns = 0;
   // Initialized to -1 because of lookahead
@@ -58,29 +59,41 @@ public class FileIterator implements RelationalInput {
 
   public FileIterator(String relationName, Reader reader, ConfigurationSettingFileInput setting)
       throws InputIterationException {
+    this(relationName, new CsvTokenizer(reader, setting), setting);
+  }
+
+  /**
+   * Creates a {@link FileIterator} that reads the UTF-8 encoded file from the channel.
+   *
+   * @param relationName the name of the relation
+   * @param channel      the channel of the file
+   * @param setting      the settings of the csv format
+   * @throws InputIterationException if the first line cannot be read
+   */
+  public FileIterator(String relationName, ReadableByteChannel channel,
+                      ConfigurationSettingFileInput setting)
+      throws InputIterationException {
+    this(relationName, new CsvTokenizer(channel, setting), setting);
+  }
+
+  protected FileIterator(String relationName, CsvTokenizer tokenizer,
+                         ConfigurationSettingFileInput setting)
+      throws InputIterationException {
     this.relationName = relationName;
 
     this.hasHeader = setting.hasHeader();
     this.skipDifferingLines = setting.isSkipDifferingLines();
     this.nullValue = setting.getNullValue();
 
-    this.csvReader =
-        new CSVReader(reader,
-                      setting.getSeparatorAsChar(),
-                      setting.getQuoteCharAsChar(),
-                      setting.getEscapeCharAsChar(),
-                      setting.getSkipLines(),
-                      setting.isStrictQuotes(),
-                      setting.isIgnoreLeadingWhiteSpace());
+    this.tokenizer = tokenizer;
 
     this.nextLine = readNextLine();
     if (this.nextLine != null) {
-      this.numberOfColumns = this.nextLine.size();
+      this.numberOfColumns = this.nextLine.length;
     }
 
     if (hasHeader) {
-      this.headerLine = this.nextLine;
-      next();
+      this.headerLine = toList(nextLineArray());
     }
 
     // If the header is still null generate a standard header the size of number of columns.
@@ -96,7 +109,26 @@ public class FileIterator implements RelationalInput {
 
   @Override
   public List<String> next() throws InputIterationException {
-    List<String> currentLine = this.nextLine;
+    return toList(nextLineArray());
+  }
+
+  /**
+   * Reads the next rows into the batch without creating a list per row.
+   */
+  @Override
+  public int nextBatch(ColumnarBatch batch) throws InputIterationException {
+    batch.clear();
+    while (!batch.isFull() && hasNext()) {
+      batch.addRow(nextLineArray());
+    }
+    return batch.numberOfRows();
+  }
+
+  /**
+   * @return the values of the next row or null if there is none
+   */
+  protected String[] nextLineArray() throws InputIterationException {
+    String[] currentLine = this.nextLine;
 
     if (currentLine == null) {
       return null;
@@ -112,9 +144,9 @@ public class FileIterator implements RelationalInput {
     return currentLine;
   }
 
-  protected void failDifferingLine(List<String> currentLine)
+  protected void failDifferingLine(String[] currentLine)
       throws InputIterationException {
-    if (currentLine.size() != this.numberOfColumns()) {
+    if (currentLine.length != this.numberOfColumns()) {
       throw new InputIterationException(
           "Csv line length did not match on line " + currentLineNumber);
     }
@@ -125,7 +157,7 @@ public class FileIterator implements RelationalInput {
       return;
     }
 
-    while (this.nextLine.size() != this.numberOfColumns()) {
+    while (this.nextLine.length != this.numberOfColumns()) {
       this.nextLine = readNextLine();
       this.numberOfSkippedLines++;
       if (!hasNext()) {
@@ -142,10 +174,10 @@ public class FileIterator implements RelationalInput {
     return Collections.unmodifiableList(headerList);
   }
 
-  protected List<String> readNextLine() throws InputIterationException {
+  protected String[] readNextLine() throws InputIterationException {
     String[] lineArray;
     try {
-      lineArray = this.csvReader.readNext();
+      lineArray = this.tokenizer.readNext();
       currentLineNumber++;
     } catch (IOException e) {
       throw new InputIterationException(
@@ -153,24 +185,27 @@ public class FileIterator implements RelationalInput {
     }
     if (lineArray == null) {
       return null;
-    } else {
-      // Convert empty Strings to null
-      List<String> list = new ArrayList<String>();
-      for (String val : lineArray) {
-        if (val.equals(this.nullValue)) {
-          list.add(null);
-        } else {
-          list.add(val);
-        }
+    }
+    // Convert null value Strings to null
+    for (int i = 0; i < lineArray.length; i++) {
+      if (lineArray[i].equals(this.nullValue)) {
+        lineArray[i] = null;
       }
-      // Return an immutable list
-      return Collections.unmodifiableList(list);
     }
+    return lineArray;
+  }
+
+  protected List<String> toList(String[] lineArray) {
+    if (lineArray == null) {
+      return null;
+    }
+    // Return an immutable list
+    return Collections.unmodifiableList(Arrays.asList(lineArray));
   }
 
   @Override
   public void close() throws IOException {
-    csvReader.close();
+    tokenizer.close();
   }
 
   @Override
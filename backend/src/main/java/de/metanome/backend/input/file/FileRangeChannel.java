@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads a byte range of a file with positional reads, so that several ranges of the same {@link
+ * FileChannel} can be read concurrently. Closing the range does not close the file channel.
+ */
+class FileRangeChannel implements ReadableByteChannel {
+
+  protected FileChannel channel;
+  protected long position;
+  protected long end;
+  protected boolean open = true;
+
+  /**
+   * @param channel the channel of the file
+   * @param from    the first byte of the range (inclusive)
+   * @param to      the last byte of the range (exclusive)
+   */
+  FileRangeChannel(FileChannel channel, long from, long to) {
+    this.channel = channel;
+    this.position = from;
+    this.end = to;
+  }
+
+  @Override
+  public int read(ByteBuffer destination) throws IOException {
+    if (position >= end) {
+      return -1;
+    }
+    ByteBuffer range = destination.duplicate();
+    range.limit(range.position() + (int) Math.min(range.remaining(), end - position));
+    int read = channel.read(range, position);
+    if (read < 0) {
+      return -1;
+    }
+    destination.position(destination.position() + read);
+    position += read;
+    return read;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() {
+    open = false;
+  }
+}
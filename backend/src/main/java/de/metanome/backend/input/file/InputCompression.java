@@ -0,0 +1,188 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression formats of file inputs. The format of a file is detected by its extension or, if
+ * the extension is unknown, by its magic bytes. Compressed files are decompressed while they are
+ * read. Blocked gzip files (bgzip) and zstd files of several small frames, e.g. written by pzstd,
+ * are decompressed in parallel.
+ */
+public enum InputCompression {
+
+  NONE("", new byte[0]),
+  GZIP(".gz", new byte[]{0x1f, (byte) 0x8b}),
+  ZSTD(".zst", new byte[]{0x28, (byte) 0xb5, 0x2f, (byte) 0xfd}),
+  BZIP2(".bz2", new byte[]{'B', 'Z', 'h'});
+
+  protected static final int STREAM_BUFFER_SIZE = 1 << 16;
+  // Number of bytes read to detect the format.
+  protected static final int HEAD_SIZE = 10;
+  // Magic numbers of the first bzip2 block and of the end of an empty bzip2 stream.
+  protected static final byte[] BZIP2_BLOCK_MAGIC = {0x31, 0x41, 0x59, 0x26, 0x53, 0x59};
+  protected static final byte[] BZIP2_END_MAGIC =
+      {0x17, 0x72, 0x45, 0x38, 0x50, (byte) 0x90};
+
+  private String extension;
+  private byte[] magic;
+
+  InputCompression(String extension, byte[] magic) {
+    this.extension = extension;
+    this.magic = magic;
+  }
+
+  /**
+   * @return the file name extension of the format including the dot
+   */
+  public String getExtension() {
+    return extension;
+  }
+
+  /**
+   * @param fileName the name of a file
+   * @return the format of the file's extension
+   */
+  public static InputCompression fromFileName(String fileName) {
+    for (InputCompression compression : values()) {
+      if ((compression != NONE) && fileName.endsWith(compression.extension)) {
+        return compression;
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * @param fileName the name of a file
+   * @return the file name without the extension of its compression format
+   */
+  public static String stripExtension(String fileName) {
+    InputCompression compression = fromFileName(fileName);
+    return fileName.substring(0, fileName.length() - compression.extension.length());
+  }
+
+  /**
+   * Detects the format by the file's extension or its first bytes. As the bzip2 magic bytes are
+   * printable, text starting with them is only taken for bzip2 if the block size digit and the
+   * magic number of the first block follow.
+   *
+   * @param file the file
+   * @return the compression format of the file
+   * @throws IOException if the file cannot be read
+   */
+  public static InputCompression detect(File file) throws IOException {
+    InputCompression compression = fromFileName(file.getName());
+    if (compression != NONE) {
+      return compression;
+    }
+
+    ByteBuffer head = ByteBuffer.allocate(HEAD_SIZE);
+    try (FileChannel channel = new FileInputStream(file).getChannel()) {
+      while (head.hasRemaining() && (channel.read(head) >= 0)) {
+        // Read until the buffer is full or the file ends.
+      }
+    }
+    for (InputCompression candidate : values()) {
+      if ((candidate != NONE) && candidate.matches(head)) {
+        return candidate;
+      }
+    }
+    return NONE;
+  }
+
+  protected boolean matches(ByteBuffer head) {
+    if (!matches(head, 0, magic)) {
+      return false;
+    }
+    if (this != BZIP2) {
+      return true;
+    }
+    if ((head.position() < HEAD_SIZE) || (head.get(3) < '1') || (head.get(3) > '9')) {
+      return false;
+    }
+    return matches(head, 4, BZIP2_BLOCK_MAGIC) || matches(head, 4, BZIP2_END_MAGIC);
+  }
+
+  protected static boolean matches(ByteBuffer head, int offset, byte[] bytes) {
+    if (head.position() < offset + bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (head.get(offset + i) != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Opens a channel of the decompressed file contents.
+   *
+   * @param file        the file of this format
+   * @param parallelism the number of blocks or frames of a file decompressed concurrently
+   * @return the decompressed contents
+   * @throws IOException if the file cannot be read
+   */
+  public ReadableByteChannel open(File file, int parallelism) throws IOException {
+    FileChannel channel = new FileInputStream(file).getChannel();
+    if (this == NONE) {
+      return channel;
+    }
+
+    try {
+      if ((this == GZIP) && BgzfInputStream.isBgzf(channel)) {
+        return Channels.newChannel(new BgzfInputStream(channel, parallelism));
+      }
+      if ((this == ZSTD) && ZstdFrameInputStream.isParallelizable(channel)) {
+        return Channels.newChannel(new ZstdFrameInputStream(channel, parallelism));
+      }
+      InputStream input = new BufferedInputStream(Channels.newInputStream(channel),
+                                                  STREAM_BUFFER_SIZE);
+      switch (this) {
+        case GZIP:
+          return Channels.newChannel(new GZIPInputStream(input, STREAM_BUFFER_SIZE));
+        case ZSTD:
+          return Channels.newChannel(new ZstdInputStream(input));
+        default:
+          // Concatenated streams, e.g. written by pbzip2, are read completely.
+          return Channels.newChannel(new BZip2CompressorInputStream(input, true));
+      }
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    } catch (LinkageError e) {
+      // The native zstd library is not available for every platform.
+      channel.close();
+      throw new IOException("Could not load the " + name() + " decompressor: " + e.getMessage(),
+                            e);
+    }
+  }
+}
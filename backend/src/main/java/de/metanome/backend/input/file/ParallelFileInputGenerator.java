@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.AlgorithmConfigurationException;
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.InputGenerationException;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+import de.metanome.backend.helper.ExceptionParser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Generator for {@link ParallelFileIterator}s, which read the file's chunks in parallel. Falls back
+ * to {@link FileIterator}s if the setting's format cannot be split or the file is compressed.
+ */
+public class ParallelFileInputGenerator extends DefaultFileInputGenerator {
+
+  protected long chunkSize;
+  protected int parallelism;
+
+  /**
+   * Uses one worker per available processor.
+   *
+   * @param setting the settings to construct new {@link RelationalInput}s with
+   * @throws AlgorithmConfigurationException thrown if the file cannot be found
+   */
+  public ParallelFileInputGenerator(ConfigurationSettingFileInput setting)
+      throws AlgorithmConfigurationException {
+    this(setting, ParallelFileIterator.DEFAULT_CHUNK_SIZE,
+         Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param setting     the settings to construct new {@link RelationalInput}s with
+   * @param chunkSize   the minimum number of bytes per chunk
+   * @param parallelism the number of workers per input
+   * @throws AlgorithmConfigurationException thrown if the file cannot be found
+   */
+  public ParallelFileInputGenerator(ConfigurationSettingFileInput setting, long chunkSize,
+                                    int parallelism)
+      throws AlgorithmConfigurationException {
+    super(setting);
+    this.chunkSize = chunkSize;
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  public RelationalInput generateNewCopy() throws InputGenerationException {
+    try {
+      // Compressed files can only be read sequentially.
+      if (!ParallelFileIterator.isSplittable(setting)
+          || (InputCompression.detect(inputFile) != InputCompression.NONE)) {
+        return super.generateNewCopy();
+      }
+
+      return new ParallelFileIterator(inputFile.getName(),
+                                      new FileInputStream(inputFile).getChannel(), setting,
+                                      chunkSize, parallelism);
+    } catch (IOException e) {
+      throw new InputGenerationException(ExceptionParser.parse(e), e);
+    } catch (InputIterationException e) {
+      throw new InputGenerationException(
+          ExceptionParser.parse(e, "Could not iterate over the first line of the file input"), e);
+    }
+  }
+
+  /**
+   * Decompresses as many blocks of blocked gzip files concurrently as the generator has workers.
+   */
+  @Override
+  protected ReadableByteChannel openChannel() throws IOException {
+    return InputCompression.detect(inputFile).open(inputFile, parallelism);
+  }
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.PartitionedRelationalInput;
+import de.metanome.algorithm_integration.input.RowBatchHandler;
+import de.metanome.backend.helper.ExceptionParser;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads a csv file in parallel. The file is cut into chunks of whole records of about the chunk
+ * size, the record boundaries are found by a {@link CsvRecordScanner} without tokenizing. Every
+ * chunk is tokenized by a {@link CsvTokenizer} on its own worker. {@link #next()} returns the rows
+ * in file order, while the next chunks are tokenized in the background. {@link
+ * #readPartitioned(RowBatchHandler)} passes every chunk as a partition to the handler as soon as
+ * it is tokenized and finishes the partitions in file order, reading at most two chunks per worker
+ * ahead of the oldest unfinished one. The rows, header and skipped lines are the same as with a
+ * {@link FileIterator}.
+ */
+public class ParallelFileIterator implements PartitionedRelationalInput {
+
+  public static final long DEFAULT_CHUNK_SIZE = 8 << 20;
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+  // Number of partitions read ahead per worker.
+  protected static final int PARTITIONS_PER_WORKER = 2;
+
+  protected String relationName;
+  protected FileChannel channel;
+  protected ConfigurationSettingFileInput setting;
+  protected long chunkSize;
+  protected int parallelism;
+  protected ExecutorService pool;
+
+  protected CsvRecordScanner scanner;
+  protected int numberOfChunks = 0;
+  // Index of the next chunk's first record in the file, the header being record 0.
+  protected long nextRecord = 0;
+
+  protected List<String> headerLine;
+  protected int numberOfColumns = 0;
+  protected boolean skipDifferingLines;
+  protected String nullValue;
+  protected AtomicLong numberOfSkippedLines = new AtomicLong();
+
+  protected boolean iterated = false;
+  protected Queue<Future<List<List<String>>>> chunksInProgress = new ArrayDeque<>();
+  protected Iterator<List<String>> currentRows = Collections.emptyIterator();
+
+  /**
+   * @param relationName the name of the relation
+   * @param channel      the channel of the UTF-8 encoded file
+   * @param setting      the settings of the csv format, which need to be splittable (see {@link
+   *                     #isSplittable(ConfigurationSettingFileInput)})
+   * @param chunkSize    the minimum number of bytes per chunk
+   * @param parallelism  the number of workers
+   * @throws InputIterationException if the first line cannot be read
+   */
+  public ParallelFileIterator(String relationName, FileChannel channel,
+                              ConfigurationSettingFileInput setting, long chunkSize,
+                              int parallelism)
+      throws InputIterationException {
+    if (!isSplittable(setting)) {
+      throw new IllegalArgumentException(
+          "Only files with ASCII separator, quote and escape characters can be split.");
+    }
+    if ((chunkSize < 1) || (parallelism < 1)) {
+      throw new IllegalArgumentException("The chunk size and parallelism need to be positive.");
+    }
+    this.relationName = relationName;
+    this.channel = channel;
+    this.setting = setting;
+    this.chunkSize = chunkSize;
+    this.parallelism = parallelism;
+    this.skipDifferingLines = setting.isSkipDifferingLines();
+    this.nullValue = setting.getNullValue();
+
+    try {
+      CsvRecordScanner lineScanner = new CsvRecordScanner(channel, setting, 0);
+      for (int line = 0; line < setting.getSkipLines(); line++) {
+        lineScanner.skipLine();
+      }
+      long firstRecordStart = lineScanner.getPosition();
+      List<String> firstLine = null;
+      if (lineScanner.skipRecord()) {
+        CsvTokenizer tokenizer = createTokenizer(firstRecordStart, lineScanner.getPosition());
+        firstLine = toRow(tokenizer.readNext());
+        tokenizer.close();
+        this.numberOfColumns = firstLine.size();
+      }
+
+      if (setting.hasHeader()) {
+        this.headerLine = firstLine;
+        this.nextRecord = 1;
+        this.scanner = lineScanner;
+      } else {
+        this.scanner = new CsvRecordScanner(channel, setting, firstRecordStart);
+      }
+    } catch (IOException e) {
+      throw new InputIterationException(
+          ExceptionParser.parse(e, "Could not read first line in file input"), e);
+    }
+
+    // If the header is still null generate a standard header the size of number of columns.
+    if (this.headerLine == null) {
+      this.headerLine = generateHeaderLine();
+    }
+  }
+
+  /**
+   * @param setting the settings of the csv format
+   * @return whether files with the settings can be split into chunks
+   */
+  public static boolean isSplittable(ConfigurationSettingFileInput setting) {
+    return CsvRecordScanner.isSupported(setting);
+  }
+
+  @Override
+  public boolean hasNext() throws InputIterationException {
+    return advance();
+  }
+
+  @Override
+  public List<String> next() throws InputIterationException {
+    if (!advance()) {
+      return null;
+    }
+    return currentRows.next();
+  }
+
+  /**
+   * Moves on to the rows of the next chunks until a row is available and keeps the workers busy
+   * with the following chunks.
+   *
+   * @return false if all rows have been returned
+   */
+  protected boolean advance() throws InputIterationException {
+    iterated = true;
+    while (!currentRows.hasNext()) {
+      while (chunksInProgress.size() < parallelism) {
+        final Chunk chunk = nextChunk();
+        if (chunk == null) {
+          break;
+        }
+        chunksInProgress.add(getPool().submit(new Callable<List<List<String>>>() {
+          @Override
+          public List<List<String>> call() throws Exception {
+            final List<List<String>> rows = new ArrayList<>();
+            readChunk(chunk, Integer.MAX_VALUE, new RowBatchHandler() {
+              @Override
+              public void handle(int partition, long firstRow, List<List<String>> batch) {
+                rows.addAll(batch);
+              }
+
+              @Override
+              public void finishPartition(int partition, long numberOfRows) {
+              }
+            });
+            return rows;
+          }
+        }));
+      }
+
+      Future<List<List<String>>> nextChunkRows = chunksInProgress.poll();
+      if (nextChunkRows == null) {
+        return false;
+      }
+      currentRows = getResult(nextChunkRows).iterator();
+    }
+    return true;
+  }
+
+  @Override
+  public long[] readPartitioned(final RowBatchHandler handler) throws InputIterationException {
+    if (iterated) {
+      throw new InputIterationException("The file input has already been iterated.");
+    }
+    iterated = true;
+
+    Queue<Future<Long>> partitions = new ArrayDeque<>();
+    List<Long> partitionSizes = new ArrayList<>();
+    try {
+      Chunk nextChunk = nextChunk();
+      while (true) {
+        // Keeps the workers busy, but does not read further ahead of the oldest partition.
+        while ((nextChunk != null) && (partitions.size() < PARTITIONS_PER_WORKER * parallelism)) {
+          final Chunk chunk = nextChunk;
+          partitions.add(getPool().submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+              return readChunk(chunk, DEFAULT_BATCH_SIZE, handler);
+            }
+          }));
+          nextChunk = nextChunk();
+        }
+
+        Future<Long> oldestPartition = partitions.poll();
+        if (oldestPartition == null) {
+          break;
+        }
+        long partitionSize = getResult(oldestPartition);
+        handler.finishPartition(partitionSizes.size(), partitionSize);
+        partitionSizes.add(partitionSize);
+      }
+
+      long[] sizes = new long[partitionSizes.size()];
+      for (int partition = 0; partition < sizes.length; partition++) {
+        sizes[partition] = partitionSizes.get(partition);
+      }
+      return sizes;
+    } catch (InputIterationException e) {
+      for (Future<Long> partition : partitions) {
+        partition.cancel(true);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Scans the records of the next chunk.
+   *
+   * @return the next chunk or null if the file is exhausted
+   */
+  protected Chunk nextChunk() throws InputIterationException {
+    try {
+      long from = scanner.getPosition();
+      long numberOfRecords = 0;
+      while ((scanner.getPosition() - from < chunkSize) && scanner.skipRecord()) {
+        numberOfRecords++;
+      }
+      if (numberOfRecords == 0) {
+        return null;
+      }
+
+      Chunk chunk = new Chunk(numberOfChunks++, from, scanner.getPosition(), nextRecord);
+      nextRecord += numberOfRecords;
+      return chunk;
+    } catch (IOException e) {
+      throw new InputIterationException(
+          ExceptionParser.parse(e, "Could not read next chunk in file input"), e);
+    }
+  }
+
+  /**
+   * Tokenizes the rows of a chunk and passes them to the handler. Rows that differ in length are
+   * skipped or fail as in the {@link FileIterator}.
+   *
+   * @param chunk     the chunk to read
+   * @param batchSize the maximum number of rows per batch
+   * @param handler   the handler to pass the rows to
+   * @return the number of rows of the chunk
+   */
+  protected long readChunk(Chunk chunk, int batchSize, RowBatchHandler handler)
+      throws InputIterationException {
+    CsvTokenizer tokenizer = createTokenizer(chunk.from, chunk.to);
+    long record = chunk.firstRecord;
+    long numberOfRows = 0;
+    List<List<String>> batch = new ArrayList<>();
+    try {
+      String[] lineArray;
+      while ((lineArray = tokenizer.readNext()) != null) {
+        record++;
+        if (lineArray.length != numberOfColumns) {
+          if (!skipDifferingLines) {
+            throw new InputIterationException(
+                "Csv line length did not match on line " + record);
+          }
+          numberOfSkippedLines.incrementAndGet();
+          continue;
+        }
+
+        batch.add(toRow(lineArray));
+        if (batch.size() >= batchSize) {
+          handler.handle(chunk.index, numberOfRows, batch);
+          numberOfRows += batch.size();
+          batch = new ArrayList<>();
+        }
+      }
+      tokenizer.close();
+    } catch (IOException e) {
+      throw new InputIterationException(
+          ExceptionParser.parse(e, "Could not read next line in file input"), e);
+    }
+    if (!batch.isEmpty()) {
+      handler.handle(chunk.index, numberOfRows, batch);
+      numberOfRows += batch.size();
+    }
+    return numberOfRows;
+  }
+
+  protected CsvTokenizer createTokenizer(long from, long to) {
+    CsvTokenizer tokenizer = new CsvTokenizer(
+        new FileRangeChannel(channel, from, to), setting,
+        (int) Math.max(1, Math.min(CsvTokenizer.DEFAULT_BYTE_BUFFER_SIZE, to - from)));
+    // The lines are skipped before the first chunk.
+    tokenizer.linesToSkip = 0;
+    return tokenizer;
+  }
+
+  protected List<String> toRow(String[] lineArray) {
+    for (int i = 0; i < lineArray.length; i++) {
+      if (lineArray[i].equals(this.nullValue)) {
+        lineArray[i] = null;
+      }
+    }
+    return Collections.unmodifiableList(Arrays.asList(lineArray));
+  }
+
+  protected List<String> generateHeaderLine() {
+    List<String> headerList = new ArrayList<String>();
+    for (Integer i = 1; i <= this.numberOfColumns; i++) {
+      headerList.add(FileIterator.DEFAULT_HEADER_STRING + i.toString());
+    }
+    return Collections.unmodifiableList(headerList);
+  }
+
+  protected <T> T getResult(Future<T> future) throws InputIterationException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InputIterationException("Interrupted while reading the file input.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof InputIterationException) {
+        throw (InputIterationException) e.getCause();
+      }
+      throw new InputIterationException(
+          ExceptionParser.parse(e.getCause(), "Could not read chunk of file input"), e.getCause());
+    }
+  }
+
+  protected ExecutorService getPool() {
+    if (pool == null) {
+      pool = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "Reader of " + relationName);
+          // Unclosed inputs should not keep the vm alive.
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return pool;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (pool != null) {
+      pool.shutdownNow();
+    }
+    channel.close();
+  }
+
+  @Override
+  public int numberOfColumns() {
+    return numberOfColumns;
+  }
+
+  @Override
+  public String relationName() {
+    return relationName;
+  }
+
+  @Override
+  public List<String> columnNames() {
+    return headerLine;
+  }
+
+  public long getNumberOfSkippedDifferingLines() {
+    return numberOfSkippedLines.get();
+  }
+
+  /**
+   * A byte range of whole records.
+   */
+  protected static class Chunk {
+
+    protected int index;
+    protected long from;
+    protected long to;
+    protected long firstRecord;
+
+    protected Chunk(int index, long from, long to, long firstRecord) {
+      this.index = index;
+      this.from = from;
+      this.to = to;
+      this.firstRecord = firstRecord;
+    }
+  }
+}
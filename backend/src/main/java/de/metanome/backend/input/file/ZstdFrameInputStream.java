@@ -0,0 +1,361 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.metanome.backend.input.file;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Decompresses a zstd file that consists of several frames, e.g. a file written by pzstd or
+ * concatenated zstd files, in parallel. The frame boundaries are found from the frame and block
+ * headers without decompressing, so the frames are read sequentially and decompressed
+ * concurrently on the shared {@link DecompressionPool}, like the blocks of a {@link
+ * BgzfInputStream}. Frames that do not declare a content size of at most {@link #MAX_FRAME_SIZE}
+ * are streamed when all previous frames have been returned. Skippable frames are skipped. The
+ * frames are returned in file order, only a bounded number of frames is in progress at once.
+ */
+class ZstdFrameInputStream extends InputStream {
+
+  // Maximum number of bytes of a frame decompressed in parallel, compressed or not.
+  protected static final int MAX_FRAME_SIZE = 8 << 20;
+  protected static final int FRAMES_PER_THREAD = 2;
+  protected static final int FRAME_MAGIC = 0xfd2fb528;
+  protected static final int SKIPPABLE_FRAME_MAGIC = 0x184d2a50;
+  protected static final int BLOCK_HEADER_SIZE = 3;
+  protected static final int RLE_BLOCK = 1;
+  protected static final int RESERVED_BLOCK = 3;
+  protected static final int CHECKSUM_SIZE = 4;
+  protected static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+  protected FileChannel channel;
+  protected long position = 0;
+  protected long size;
+  protected int maximumFramesInProgress;
+
+  protected Queue<Future<InputStream>> framesInProgress = new ArrayDeque<>();
+  protected InputStream frame = new ByteArrayInputStream(new byte[0]);
+
+  /**
+   * @param channel     the channel of the zstd file
+   * @param parallelism the number of frames decompressed concurrently
+   * @throws IOException if the size of the file cannot be read
+   */
+  ZstdFrameInputStream(FileChannel channel, int parallelism) throws IOException {
+    this.channel = channel;
+    this.size = channel.size();
+    this.maximumFramesInProgress = parallelism * FRAMES_PER_THREAD;
+  }
+
+  /**
+   * @param channel the channel of a zstd file
+   * @return whether the first frame of the file is small enough to be decompressed in parallel
+   * @throws IOException if the file cannot be read
+   */
+  static boolean isParallelizable(FileChannel channel) throws IOException {
+    try {
+      Frame first = readFrame(channel, 0, channel.size());
+      return first.isParallelizable();
+    } catch (IOException e) {
+      // Leave invalid files to the sequential decompressor, which reports the error.
+      return false;
+    }
+  }
+
+  /**
+   * The location and declared content size of a frame.
+   */
+  protected static class Frame {
+
+    protected long position;
+    protected long length;
+    protected long contentSize;
+    protected boolean skippable;
+
+    protected Frame(long position, long length, long contentSize, boolean skippable) {
+      this.position = position;
+      this.length = length;
+      this.contentSize = contentSize;
+      this.skippable = skippable;
+    }
+
+    protected boolean isParallelizable() {
+      return !skippable && (contentSize >= 0) && (contentSize <= MAX_FRAME_SIZE)
+             && (length <= MAX_FRAME_SIZE);
+    }
+  }
+
+  /**
+   * Reads the header of the frame at the position and walks its blocks to find its end.
+   *
+   * @return the frame, the content size is -1 if the frame does not declare it
+   * @throws IOException if the frame is invalid or truncated
+   */
+  protected static Frame readFrame(FileChannel channel, long position, long size)
+      throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(18);
+    header.limit(8);
+    if (!BgzfInputStream.readFully(channel, header, position)) {
+      // Frames of empty content have at least six bytes, skippable frames eight.
+      header.limit(header.position());
+    }
+    if (header.limit() < 4) {
+      throw new IOException("Truncated zstd frame at byte " + position);
+    }
+    int magic = (int) littleEndian(header, 0, 4);
+    if ((magic & 0xfffffff0) == SKIPPABLE_FRAME_MAGIC) {
+      if (header.limit() < 8) {
+        throw new IOException("Truncated zstd frame at byte " + position);
+      }
+      long length = 8 + (littleEndian(header, 4, 4) & 0xffffffffL);
+      return new Frame(position, checkEnd(position, length, size), -1, true);
+    }
+    if ((magic != FRAME_MAGIC) || (header.limit() < 5)) {
+      throw new IOException("Invalid zstd frame at byte " + position);
+    }
+
+    int descriptor = header.get(4) & 0xff;
+    int contentSizeFlag = descriptor >>> 6;
+    boolean singleSegment = (descriptor & 0x20) != 0;
+    boolean checksum = (descriptor & 0x04) != 0;
+    int dictionaryIdSize = new int[]{0, 1, 2, 4}[descriptor & 0x03];
+    int contentSizeSize = (contentSizeFlag == 0) ? (singleSegment ? 1 : 0) : 1 << contentSizeFlag;
+    int contentSizeOffset = 5 + (singleSegment ? 0 : 1) + dictionaryIdSize;
+    int headerSize = contentSizeOffset + contentSizeSize;
+
+    header.clear();
+    header.limit(headerSize);
+    if (!BgzfInputStream.readFully(channel, header, position)) {
+      throw new IOException("Truncated zstd frame at byte " + position);
+    }
+    long contentSize = -1;
+    if (contentSizeSize > 0) {
+      contentSize = littleEndian(header, contentSizeOffset, contentSizeSize);
+      if (contentSizeSize == 2) {
+        contentSize += 256;
+      }
+    }
+
+    long blockPosition = position + headerSize;
+    ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+    boolean lastBlock = false;
+    while (!lastBlock) {
+      blockHeader.clear();
+      if (!BgzfInputStream.readFully(channel, blockHeader, blockPosition)) {
+        throw new IOException("Truncated zstd frame at byte " + position);
+      }
+      int block = (int) littleEndian(blockHeader, 0, BLOCK_HEADER_SIZE);
+      lastBlock = (block & 1) != 0;
+      int blockType = (block >>> 1) & 3;
+      if (blockType == RESERVED_BLOCK) {
+        throw new IOException("Invalid zstd block at byte " + blockPosition);
+      }
+      // Run length encoded blocks store a single byte.
+      blockPosition += BLOCK_HEADER_SIZE + ((blockType == RLE_BLOCK) ? 1 : block >>> 3);
+    }
+    if (checksum) {
+      blockPosition += CHECKSUM_SIZE;
+    }
+    return new Frame(position, checkEnd(position, blockPosition - position, size), contentSize,
+                     false);
+  }
+
+  protected static long checkEnd(long position, long length, long size) throws IOException {
+    if (position + length > size) {
+      throw new IOException("Truncated zstd frame at byte " + position);
+    }
+    return length;
+  }
+
+  protected static long littleEndian(ByteBuffer buffer, int index, int length) {
+    long value = 0;
+    for (int i = length - 1; i >= 0; i--) {
+      value = (value << 8) | (buffer.get(index + i) & 0xff);
+    }
+    return value;
+  }
+
+  /**
+   * Decompresses a frame that declares its content size.
+   *
+   * @param compressed  the complete frame
+   * @param contentSize the declared content size
+   * @return the decompressed bytes
+   * @throws IOException if the frame is corrupt or its content does not have the declared size
+   */
+  protected static byte[] decompress(byte[] compressed, int contentSize) throws IOException {
+    byte[] content = new byte[contentSize];
+    try (InputStream input = new ZstdInputStream(new ByteArrayInputStream(compressed))) {
+      int length = 0;
+      while (length < contentSize) {
+        int read = input.read(content, length, contentSize - length);
+        if (read < 0) {
+          throw new IOException("Zstd frame is smaller than its declared content size");
+        }
+        length += read;
+      }
+      if (input.read() >= 0) {
+        throw new IOException("Zstd frame is larger than its declared content size");
+      }
+    }
+    return content;
+  }
+
+  /**
+   * Reads the next frames and submits them until enough frames are in progress. Frames that are
+   * streamed are queued as streams over their part of the file.
+   */
+  protected void submitFrames() throws IOException {
+    while ((framesInProgress.size() < maximumFramesInProgress) && (position < size)) {
+      final Frame nextFrame = readFrame(channel, position, size);
+      position += nextFrame.length;
+      if (nextFrame.skippable) {
+        continue;
+      }
+
+      if (!nextFrame.isParallelizable()) {
+        FutureTask<InputStream> stream = new FutureTask<>(new Callable<InputStream>() {
+          @Override
+          public InputStream call() throws IOException {
+            return new ZstdInputStream(new BufferedInputStream(
+                new RegionInputStream(channel, nextFrame.position, nextFrame.length),
+                STREAM_BUFFER_SIZE));
+          }
+        });
+        stream.run();
+        framesInProgress.add(stream);
+        continue;
+      }
+
+      ByteBuffer buffer = ByteBuffer.allocate((int) nextFrame.length);
+      if (!BgzfInputStream.readFully(channel, buffer, nextFrame.position)) {
+        throw new IOException("Truncated zstd frame at byte " + nextFrame.position);
+      }
+      final byte[] compressed = buffer.array();
+      framesInProgress.add(DecompressionPool.get().submit(new Callable<InputStream>() {
+        @Override
+        public InputStream call() throws IOException {
+          return new ByteArrayInputStream(decompress(compressed, (int) nextFrame.contentSize));
+        }
+      }));
+    }
+  }
+
+  /**
+   * @return false if all frames have been read
+   */
+  protected boolean nextFrame() throws IOException {
+    frame.close();
+    submitFrames();
+    Future<InputStream> nextFrame = framesInProgress.poll();
+    if (nextFrame == null) {
+      return false;
+    }
+    try {
+      frame = nextFrame.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while decompressing a zstd frame", e);
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause().getMessage(), e.getCause());
+    }
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    int read;
+    // Frames of empty content are skipped.
+    while ((read = frame.read(buffer, offset, length)) < 0) {
+      if (!nextFrame()) {
+        return -1;
+      }
+    }
+    return read;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Future<InputStream> frameInProgress : framesInProgress) {
+      frameInProgress.cancel(true);
+    }
+    framesInProgress.clear();
+    frame.close();
+    channel.close();
+  }
+
+  /**
+   * Reads a region of a file channel with positional reads, so the channel's position is not
+   * changed.
+   */
+  protected static class RegionInputStream extends InputStream {
+
+    protected FileChannel channel;
+    protected long position;
+    protected long end;
+
+    protected RegionInputStream(FileChannel channel, long position, long length) {
+      this.channel = channel;
+      this.position = position;
+      this.end = position + length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (position >= end) {
+        return -1;
+      }
+      int read = channel.read(
+          ByteBuffer.wrap(buffer, offset, (int) Math.min(length, end - position)), position);
+      if (read < 0) {
+        throw new IOException("Truncated zstd frame at byte " + position);
+      }
+      position += read;
+      return read;
+    }
+  }
+}
@@ -22,6 +22,7 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
 
 import static org.junit.Assert.assertEquals;
 
@@ -74,4 +75,30 @@ public class InputDataFinderTest {
     //Check
     assertEquals(3, actualFiles.length);
   }
+
+  /**
+   * Test method for {@link InputDataFinder#retrieveCsvTsvFiles(String)} <p/> Csv and tsv files
+   * compressed in a known format should be found, other files should not.
+   */
+  @Test
+  public void testRetrieveCompressedFiles() throws IOException {
+    // Setup
+    File folder = Files.createTempDirectory("inputData").toFile();
+    String[] fileNames = {"a.csv.gz", "b.tsv.gz", "c.csv.zst", "d.txt.gz", "e.csv", "f.tsv.bz2"};
+    for (String fileName : fileNames) {
+      new File(folder, fileName).createNewFile();
+    }
+
+    // Execute functionality
+    File[] actualFiles = inputDataFinder.retrieveCsvTsvFiles(folder.getPath());
+
+    // Check result
+    assertEquals(5, actualFiles.length);
+
+    // Cleanup
+    for (String fileName : fileNames) {
+      new File(folder, fileName).delete();
+    }
+    folder.delete();
+  }
 }
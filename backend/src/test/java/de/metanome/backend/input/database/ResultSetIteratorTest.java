@@ -18,6 +18,7 @@ package de.metanome.backend.input.database;
 
 import com.google.common.collect.ImmutableList;
 
+import de.metanome.algorithm_integration.input.ColumnarBatch;
 import de.metanome.algorithm_integration.input.InputIterationException;
 
 import org.junit.After;
@@ -126,6 +127,34 @@ public class ResultSetIteratorTest {
     verify(resultSet, times(2)).next();
   }
 
+  /**
+   * Test method for {@link ResultSetIterator#nextBatch(ColumnarBatch)} <p/> The rows of the result
+   * set should be read into the batch column by column.
+   */
+  @Test
+  public void testNextBatch() throws SQLException, InputIterationException {
+    // Setup
+    ResultSet resultSet = twoLinesResultSetFixture.getTestData();
+    ResultSetIterator resultSetIterator = new ResultSetIterator(resultSet);
+    ColumnarBatch batch = new ColumnarBatch(0, 10);
+
+    // Expected values
+    List<ImmutableList<String>> expectedRecords = twoLinesResultSetFixture.getExpectedRecords();
+
+    // Execute functionality
+    int numberOfRows = resultSetIterator.nextBatch(batch);
+
+    // Check result
+    assertEquals(twoLinesResultSetFixture.numberOfRows(), numberOfRows);
+    assertEquals(twoLinesResultSetFixture.numberOfColumns(), batch.numberOfColumns());
+    for (int row = 0; row < numberOfRows; row++) {
+      for (int column = 0; column < batch.numberOfColumns(); column++) {
+        assertEquals(expectedRecords.get(row).get(column), batch.getValue(row, column));
+      }
+    }
+    assertEquals(0, resultSetIterator.nextBatch(batch));
+  }
+
   /**
    * Test method for {@link ResultSetIterator#numberOfColumns()} <p/> A {@link ResultSetIterator}
    * should return the correct number of columns of the result.
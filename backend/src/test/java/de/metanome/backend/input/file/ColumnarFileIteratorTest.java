@@ -0,0 +1,223 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.ColumnarBatch;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ColumnarFileIterator} and {@link ColumnarFileWriter}
+ */
+public class ColumnarFileIteratorTest {
+
+  protected File csvFile;
+  protected File columnarFile;
+  protected ConfigurationSettingFileInput setting;
+
+  @Before
+  public void setUp() throws Exception {
+    // The second column has more than 256 distinct values, the third one a single one.
+    Random random = new Random(11);
+    StringBuilder csv = new StringBuilder("first,second,third\n");
+    for (int record = 0; record < 1000; record++) {
+      csv.append(random.nextInt(5) == 0 ? "" : "\u00e4" + random.nextInt(10)).append(',')
+          .append(random.nextInt(1000)).append(",same\n");
+    }
+
+    csvFile = File.createTempFile("columnar", ".csv");
+    csvFile.deleteOnExit();
+    Files.write(csvFile.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+    columnarFile = File.createTempFile("columnar", ".mcol");
+    columnarFile.deleteOnExit();
+
+    setting = new ConfigurationSettingFileInput(csvFile.getPath());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    csvFile.delete();
+    columnarFile.delete();
+  }
+
+  protected FileIterator getCsvInput() throws InputIterationException, IOException {
+    return new FileIterator(csvFile.getName(), new FileInputStream(csvFile).getChannel(), setting);
+  }
+
+  protected List<List<String>> readAll(RelationalInput input) throws Exception {
+    List<List<String>> rows = new ArrayList<>();
+    while (input.hasNext()) {
+      rows.add(input.next());
+    }
+    input.close();
+    return rows;
+  }
+
+  /**
+   * Test method for {@link ColumnarFileIterator#next()} <p/> The rows, the relation name and the
+   * column names read from the columnar file should be the ones of the imported input.
+   */
+  @Test
+  public void testNext() throws Exception {
+    // Setup
+    FileIterator csvInput = getCsvInput();
+    long numberOfRows = new ColumnarFileWriter(100).write(csvInput, columnarFile);
+    csvInput.close();
+
+    // Expected values
+    List<List<String>> expectedRows = readAll(getCsvInput());
+
+    // Execute functionality
+    ColumnarFileIterator columnarInput =
+        new ColumnarFileIterator(new FileInputStream(columnarFile).getChannel());
+
+    // Check result
+    assertEquals(expectedRows.size(), numberOfRows);
+    assertEquals(numberOfRows, columnarInput.getNumberOfRows());
+    assertEquals(csvFile.getName(), columnarInput.relationName());
+    assertEquals(getCsvInput().columnNames(), columnarInput.columnNames());
+    assertEquals(expectedRows, readAll(columnarInput));
+  }
+
+  /**
+   * Test method for {@link ColumnarFileIterator#nextBatch(ColumnarBatch)} <p/> Batches should be
+   * filled across row group boundaries.
+   */
+  @Test
+  public void testNextBatch() throws Exception {
+    // Setup
+    FileIterator csvInput = getCsvInput();
+    new ColumnarFileWriter(100).write(csvInput, columnarFile);
+    csvInput.close();
+    ColumnarFileIterator columnarInput =
+        new ColumnarFileIterator(new FileInputStream(columnarFile).getChannel());
+    ColumnarBatch batch = new ColumnarBatch(0, 64);
+
+    // Expected values
+    List<List<String>> expectedRows = readAll(getCsvInput());
+
+    // Execute functionality
+    List<List<String>> actualRows = new ArrayList<>();
+    while (columnarInput.nextBatch(batch) > 0) {
+      for (int row = 0; row < batch.numberOfRows(); row++) {
+        List<String> values = new ArrayList<>();
+        for (int column = 0; column < batch.numberOfColumns(); column++) {
+          values.add(batch.getValue(row, column));
+        }
+        actualRows.add(values);
+      }
+    }
+
+    // Check result
+    assertEquals(expectedRows, actualRows);
+    assertFalse(columnarInput.hasNext());
+
+    // Cleanup
+    columnarInput.close();
+  }
+
+  /**
+   * Test method for {@link ColumnarFileInputGenerator#generateNewCopy()} <p/> The csv file should
+   * be imported once and every copy should read the columnar file.
+   */
+  @Test
+  public void testGenerateNewCopy() throws Exception {
+    // Setup
+    assertTrue(columnarFile.delete());
+    ColumnarFileInputGenerator generator = new ColumnarFileInputGenerator(
+        setting, columnarFile, ColumnarFileWriter.DEFAULT_ROW_GROUP_SIZE);
+
+    // Expected values
+    List<List<String>> expectedRows = readAll(getCsvInput());
+
+    // Execute functionality
+    RelationalInput firstCopy = generator.generateNewCopy();
+    long lastModified = columnarFile.lastModified();
+    RelationalInput secondCopy = generator.generateNewCopy();
+
+    // Check result
+    assertTrue(firstCopy instanceof ColumnarFileIterator);
+    assertEquals(expectedRows, readAll(firstCopy));
+    assertEquals(expectedRows, readAll(secondCopy));
+    assertEquals(lastModified, columnarFile.lastModified());
+    assertEquals(csvFile, generator.getInputFile());
+  }
+
+  /**
+   * Test method for {@link ColumnarFileInputGenerator#generateNewCopy()} <p/> A columnar file that
+   * has been imported with other parser settings should be imported again.
+   */
+  @Test
+  public void testGenerateNewCopyChangedSetting() throws Exception {
+    // Setup
+    new ColumnarFileInputGenerator(setting, columnarFile, ColumnarFileWriter.DEFAULT_ROW_GROUP_SIZE)
+        .generateNewCopy().close();
+    setting.setSkipLines(10);
+    ColumnarFileInputGenerator generator = new ColumnarFileInputGenerator(
+        setting, columnarFile, ColumnarFileWriter.DEFAULT_ROW_GROUP_SIZE);
+
+    // Expected values
+    List<List<String>> expectedRows = readAll(getCsvInput());
+
+    // Execute functionality
+    List<List<String>> actualRows = readAll(generator.generateNewCopy());
+
+    // Check result
+    assertEquals(990, expectedRows.size());
+    assertEquals(expectedRows, actualRows);
+  }
+
+  /**
+   * Test method for {@link ColumnarFileInputGenerator#generateNewCopy()} <p/> A corrupt columnar
+   * file should be imported again although it is newer than the csv file.
+   */
+  @Test
+  public void testGenerateNewCopyCorruptFile() throws Exception {
+    // Setup
+    Files.write(columnarFile.toPath(), new byte[]{'M', 'C', 'O'});
+    assertTrue(columnarFile.setLastModified(csvFile.lastModified() + 10000));
+    ColumnarFileInputGenerator generator = new ColumnarFileInputGenerator(
+        setting, columnarFile, ColumnarFileWriter.DEFAULT_ROW_GROUP_SIZE);
+
+    // Expected values
+    List<List<String>> expectedRows = readAll(getCsvInput());
+
+    // Execute functionality
+    List<List<String>> actualRows = readAll(generator.generateNewCopy());
+
+    // Check result
+    assertEquals(expectedRows, actualRows);
+  }
+}
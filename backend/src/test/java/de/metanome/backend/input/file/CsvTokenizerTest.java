@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import au.com.bytecode.opencsv.CSVParser;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link CsvTokenizer}
+ */
+public class CsvTokenizerTest {
+
+  /**
+   * Test method for {@link CsvTokenizer#readNext()} <p/> Quoted fields may contain separators,
+   * doubled and escaped quotes and line breaks. Lines may end with \n, \r or \r\n.
+   */
+  @Test
+  public void testReadNext() throws IOException {
+    // Setup
+    ConfigurationSettingFileInput setting = new ConfigurationSettingFileInput("some_file");
+    String csv = "a,\"b,c\",d\r\n"
+                 + "\"e\"\"f\",\"g\\\"h\",\n"
+                 + "\"i\nj\",k\r"
+                 + "\r\n"
+                 + "l";
+    CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(csv), setting);
+
+    // Execute functionality
+    // Check result
+    assertArrayEquals(new String[]{"a", "b,c", "d"}, tokenizer.readNext());
+    assertArrayEquals(new String[]{"e\"f", "g\"h", ""}, tokenizer.readNext());
+    assertArrayEquals(new String[]{"i\nj", "k"}, tokenizer.readNext());
+    assertArrayEquals(new String[]{""}, tokenizer.readNext());
+    assertArrayEquals(new String[]{"l"}, tokenizer.readNext());
+    assertNull(tokenizer.readNext());
+
+    // Cleanup
+    tokenizer.close();
+  }
+
+  /**
+   * Test method for {@link CsvTokenizer#readNext()} <p/> The configured number of lines should be
+   * skipped and with strict quotes only the quoted characters should be kept.
+   */
+  @Test
+  public void testReadNextSkipLinesStrictQuotes() throws IOException {
+    // Setup
+    ConfigurationSettingFileInput setting = new ConfigurationSettingFileInput("some_file")
+        .setSeparatorChar(";")
+        .setSkipLines(2)
+        .setStrictQuotes(true);
+    String csv = "\"skipped;\"\nskipped\n\"a\"b;\"c\"\n";
+    CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(csv), setting);
+
+    // Execute functionality
+    // Check result
+    assertArrayEquals(new String[]{"a", "c"}, tokenizer.readNext());
+    assertNull(tokenizer.readNext());
+
+    // Cleanup
+    tokenizer.close();
+  }
+
+  /**
+   * Test method for {@link CsvTokenizer#readNext()} <p/> The fields of random lines should be the
+   * same as opencsv's {@link CSVParser} parses.
+   */
+  @Test
+  public void testReadNextLikeCsvParser() throws IOException {
+    // Setup
+    Random random = new Random(42);
+    char[] alphabet = {'a', 'b', ' ', ',', ';', '"', '\\'};
+
+    for (int run = 0; run < 5000; run++) {
+      StringBuilder line = new StringBuilder();
+      int length = random.nextInt(30);
+      for (int i = 0; i < length; i++) {
+        line.append(alphabet[random.nextInt(alphabet.length)]);
+      }
+      ConfigurationSettingFileInput setting = new ConfigurationSettingFileInput("some_file")
+          .setStrictQuotes(random.nextBoolean())
+          .setIgnoreLeadingWhiteSpace(random.nextBoolean());
+      CSVParser parser = new CSVParser(
+          setting.getSeparatorAsChar(), setting.getQuoteCharAsChar(),
+          setting.getEscapeCharAsChar(), setting.isStrictQuotes(),
+          setting.isIgnoreLeadingWhiteSpace());
+
+      // Expected values
+      String[] expectedFields;
+      try {
+        expectedFields = parser.parseLine(line.toString());
+      } catch (IOException e) {
+        // The quoted field continues on the next line.
+        continue;
+      }
+
+      // Execute functionality
+      CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(line + "\n"), setting);
+
+      // Check result
+      assertArrayEquals(line.toString(), expectedFields, tokenizer.readNext());
+      assertNull(tokenizer.readNext());
+    }
+  }
+
+  /**
+   * Test method for {@link CsvTokenizer#readNext()} <p/> Records read from a channel should be
+   * decoded from UTF-8, also if records and characters span several buffers.
+   */
+  @Test
+  public void testReadNextFromChannel() throws IOException {
+    // Setup
+    ConfigurationSettingFileInput setting = new ConfigurationSettingFileInput("some_file");
+    StringBuilder csv = new StringBuilder();
+    int numberOfRecords = CsvTokenizer.DEFAULT_BYTE_BUFFER_SIZE / 10;
+    for (int i = 0; i < numberOfRecords; i++) {
+      csv.append(i).append(",\"\u00e4\n\u20ac\",\u00df\n");
+    }
+    byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+    CsvTokenizer tokenizer =
+        new CsvTokenizer(Channels.newChannel(new ByteArrayInputStream(bytes)), setting);
+
+    // Execute functionality
+    // Check result
+    for (int i = 0; i < numberOfRecords; i++) {
+      assertArrayEquals(new String[]{String.valueOf(i), "\u00e4\n\u20ac", "\u00df"},
+                        tokenizer.readNext());
+    }
+    assertNull(tokenizer.readNext());
+
+    // Cleanup
+    tokenizer.close();
+  }
+}
@@ -17,6 +17,7 @@
 package de.metanome.backend.input.file;
 
 import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.ColumnarBatch;
 import de.metanome.algorithm_integration.input.InputGenerationException;
 import de.metanome.algorithm_integration.input.InputIterationException;
 
@@ -167,6 +168,30 @@ public class FileIteratorTest {
     assertEquals(1, multiLineCsvFile.getNumberOfSkippedDifferingLines());
   }
 
+  /**
+   * Test method for {@link FileIterator#nextBatch(ColumnarBatch)} <p/> The rows should be read
+   * column by column into the batch, differing lines should be skipped and a refilled batch should
+   * only contain the next rows.
+   */
+  @Test
+  public void testNextBatch() throws InputIterationException {
+    // Setup
+    CsvFileFixture csvFileFixture = new CsvFileFixture();
+    FileIterator multiLineCsvFile = csvFileFixture.getTestData(true);
+    ColumnarBatch batch = new ColumnarBatch(multiLineCsvFile.numberOfColumns(), 1);
+
+    // Execute functionality
+    // Check result
+    assertEquals(1, multiLineCsvFile.nextBatch(batch));
+    assertEquals(csvFileFixture.expectedFirstLine().get(0), batch.getValue(0, 0));
+    assertEquals(csvFileFixture.expectedFirstLine().get(2), batch.getValue(0, 2));
+    assertEquals(1, multiLineCsvFile.nextBatch(batch));
+    assertEquals(csvFileFixture.expectedSecondLine().get(1), batch.getColumn(1)[0]);
+    assertEquals(0, multiLineCsvFile.nextBatch(batch));
+    assertEquals(0, batch.numberOfRows());
+    assertEquals(1, multiLineCsvFile.getNumberOfSkippedDifferingLines());
+  }
+
   /**
    * Test method for {@link FileIterator#next()}
    *
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.RelationalInput;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link InputCompression} and {@link BgzfInputStream}
+ */
+public class InputCompressionTest {
+
+  protected byte[] csv;
+  protected List<File> files = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    StringBuilder csvBuilder = new StringBuilder("first,second\n");
+    for (int record = 0; record < 20000; record++) {
+      csvBuilder.append(record).append(",\"value\n").append(record % 7).append("\"\n");
+    }
+    csv = csvBuilder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    for (File file : files) {
+      file.delete();
+    }
+  }
+
+  protected File createTempFile(String suffix) throws IOException {
+    File file = File.createTempFile("compressed", suffix);
+    file.deleteOnExit();
+    files.add(file);
+    return file;
+  }
+
+  /**
+   * Writes the csv as two concatenated gzip members.
+   */
+  protected File writeGzip(String suffix) throws IOException {
+    File file = createTempFile(suffix);
+    try (OutputStream out = new FileOutputStream(file)) {
+      GZIPOutputStream firstMember = new GZIPOutputStream(out);
+      firstMember.write(csv, 0, csv.length / 2);
+      firstMember.finish();
+      GZIPOutputStream secondMember = new GZIPOutputStream(out);
+      secondMember.write(csv, csv.length / 2, csv.length - csv.length / 2);
+      secondMember.finish();
+    }
+    return file;
+  }
+
+  /**
+   * Writes the csv as bgzip blocks of at most the given size followed by an empty block.
+   */
+  protected File writeBgzf(int blockSize) throws IOException {
+    File file = createTempFile(".csv.gz");
+    try (OutputStream out = new FileOutputStream(file)) {
+      for (int offset = 0; offset < csv.length; offset += blockSize) {
+        int end = Math.min(csv.length, offset + blockSize);
+        writeBgzfBlock(out, Arrays.copyOfRange(csv, offset, end));
+      }
+      writeBgzfBlock(out, new byte[0]);
+    }
+    return file;
+  }
+
+  /**
+   * Writes the csv as zstd frames of at most the given size, which declare their content size.
+   * Streamed frames without content size and skippable frames are interleaved if requested.
+   */
+  protected File writeZstd(int frameSize, boolean mixed) throws IOException {
+    File file = createTempFile(".csv.zst");
+    try (OutputStream out = new FileOutputStream(file)) {
+      int frame = 0;
+      for (int offset = 0; offset < csv.length; offset += frameSize) {
+        byte[] content = Arrays.copyOfRange(csv, offset, Math.min(csv.length, offset + frameSize));
+        if (mixed && (frame % 3 == 1)) {
+          ZstdOutputStream streamedFrame = new ZstdOutputStream(new NonClosingOutputStream(out));
+          streamedFrame.write(content);
+          streamedFrame.close();
+        } else {
+          out.write(Zstd.compress(content));
+        }
+        if (mixed && (frame % 4 == 2)) {
+          out.write(new byte[]{0x50, 0x2a, 0x4d, 0x18, 3, 0, 0, 0, 'a', 'b', 'c'});
+        }
+        frame++;
+      }
+    }
+    return file;
+  }
+
+  /**
+   * Keeps the file open when a zstd stream of a single frame is closed.
+   */
+  protected static class NonClosingOutputStream extends FilterOutputStream {
+
+    protected NonClosingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      out.write(bytes, offset, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+
+  protected void writeBgzfBlock(OutputStream out, byte[] data) throws IOException {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    deflater.setInput(data);
+    deflater.finish();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    while (!deflater.finished()) {
+      compressed.write(buffer, 0, deflater.deflate(buffer));
+    }
+    deflater.end();
+
+    int blockSize = 18 + compressed.size() + 8;
+    out.write(new byte[]{0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0,
+                         'B', 'C', 2, 0, (byte) (blockSize - 1), (byte) ((blockSize - 1) >> 8)});
+    compressed.writeTo(out);
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    writeLittleEndianInt(out, (int) crc.getValue());
+    writeLittleEndianInt(out, data.length);
+  }
+
+  protected void writeLittleEndianInt(OutputStream out, int value) throws IOException {
+    out.write(new byte[]{(byte) value, (byte) (value >> 8), (byte) (value >> 16),
+                         (byte) (value >> 24)});
+  }
+
+  protected byte[] readAll(InputStream input) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = input.read(buffer)) >= 0) {
+      bytes.write(buffer, 0, read);
+    }
+    input.close();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Test method for {@link InputCompression#detect(File)} <p/> The format should be detected by
+   * the extension or, without a known extension, by the magic bytes. Text starting like bzip2
+   * should not be taken for bzip2.
+   */
+  @Test
+  public void testDetect() throws IOException {
+    // Setup
+    File plainFile = createTempFile(".csv");
+    try (OutputStream out = new FileOutputStream(plainFile)) {
+      out.write(csv);
+    }
+    File zstdFile = createTempFile(".csv.zst");
+    File bzip2TextFile = createTempFile(".csv");
+    try (OutputStream out = new FileOutputStream(bzip2TextFile)) {
+      out.write("BZh,first\n1,2\n".getBytes(StandardCharsets.UTF_8));
+    }
+    File bzip2File = createTempFile(".csv");
+    try (OutputStream out = new FileOutputStream(bzip2File)) {
+      out.write(new byte[]{'B', 'Z', 'h', '9', 0x31, 0x41, 0x59, 0x26, 0x53, 0x59, 0});
+    }
+
+    // Execute functionality
+    // Check result
+    assertEquals(InputCompression.NONE, InputCompression.detect(plainFile));
+    assertEquals(InputCompression.GZIP, InputCompression.detect(writeGzip(".csv.gz")));
+    assertEquals(InputCompression.GZIP, InputCompression.detect(writeGzip(".csv")));
+    assertEquals(InputCompression.ZSTD, InputCompression.detect(zstdFile));
+    assertEquals(InputCompression.NONE, InputCompression.detect(bzip2TextFile));
+    assertEquals(InputCompression.BZIP2, InputCompression.detect(bzip2File));
+    assertEquals("data.csv", InputCompression.stripExtension("data.csv.bz2"));
+  }
+
+  /**
+   * Test method for {@link InputCompression#open(File, int)} <p/> Gzip files with several members
+   * and bgzip files should be decompressed completely. Closing a bgzip stream should not affect
+   * the other streams sharing the decompression pool.
+   */
+  @Test
+  public void testOpen() throws IOException {
+    // Setup
+    File bgzfFile = writeBgzf(1000);
+
+    // Execute functionality
+    // Check result
+    try (FileChannel channel = new FileInputStream(bgzfFile).getChannel()) {
+      assertTrue(BgzfInputStream.isBgzf(channel));
+    }
+    assertArrayEquals(csv, readAll(Channels.newInputStream(
+        InputCompression.GZIP.open(writeGzip(".csv.gz"), 4))));
+    InputCompression.GZIP.open(bgzfFile, 4).close();
+    assertArrayEquals(csv, readAll(Channels.newInputStream(
+        InputCompression.GZIP.open(bgzfFile, 4))));
+    assertArrayEquals(csv, readAll(Channels.newInputStream(
+        InputCompression.GZIP.open(writeBgzf(65280), 1))));
+  }
+
+  /**
+   * Test method for {@link BgzfInputStream#inflate(byte[])} <p/> A block whose inflated size is
+   * larger than a bgzip block should be rejected before allocating it.
+   */
+  @Test
+  public void testInflateInvalidSize() throws IOException {
+    // Setup
+    ByteArrayOutputStream block = new ByteArrayOutputStream();
+    writeBgzfBlock(block, Arrays.copyOf(csv, 1000));
+    byte[] compressed = block.toByteArray();
+    compressed[compressed.length - 1] = 0x7f;
+
+    // Execute functionality
+    // Check result
+    try {
+      BgzfInputStream.inflate(compressed);
+      fail("Expected an IOException to be thrown.");
+    } catch (IOException e) {
+      // Intentionally left blank
+    }
+  }
+
+  /**
+   * Test method for {@link InputCompression#open(File, int)} <p/> Zstd files should be
+   * decompressed completely, whether they consist of one frame or of several frames that are
+   * decompressed in parallel, streamed frames and skippable frames.
+   */
+  @Test
+  public void testOpenZstd() throws IOException {
+    // Setup
+    File singleFrameFile = writeZstd(csv.length, false);
+    File multiFrameFile = writeZstd(5000, false);
+    File mixedFrameFile = writeZstd(5000, true);
+
+    // Execute functionality
+    // Check result
+    try (FileChannel channel = new FileInputStream(singleFrameFile).getChannel()) {
+      assertTrue(ZstdFrameInputStream.isParallelizable(channel));
+    }
+    assertArrayEquals(csv, readAll(Channels.newInputStream(
+        InputCompression.ZSTD.open(singleFrameFile, 4))));
+    assertArrayEquals(csv, readAll(Channels.newInputStream(
+        InputCompression.ZSTD.open(multiFrameFile, 4))));
+    assertArrayEquals(csv, readAll(Channels.newInputStream(
+        InputCompression.ZSTD.open(mixedFrameFile, 2))));
+  }
+
+  /**
+   * Test method for {@link InputCompression#open(File, int)} <p/> Zstd files whose first frame
+   * does not declare its content size should be streamed.
+   */
+  @Test
+  public void testOpenZstdStream() throws IOException {
+    // Setup
+    File file = createTempFile(".csv.zst");
+    try (OutputStream out = new ZstdOutputStream(new FileOutputStream(file))) {
+      out.write(csv);
+    }
+
+    // Execute functionality
+    // Check result
+    try (FileChannel channel = new FileInputStream(file).getChannel()) {
+      assertFalse(ZstdFrameInputStream.isParallelizable(channel));
+    }
+    assertArrayEquals(csv, readAll(Channels.newInputStream(InputCompression.ZSTD.open(file, 4))));
+  }
+
+  /**
+   * Test method for {@link InputCompression#open(File, int)} <p/> Bzip2 files of several
+   * concatenated streams should be decompressed completely.
+   */
+  @Test
+  public void testOpenBzip2() throws IOException {
+    // Setup
+    File file = createTempFile(".csv.bz2");
+    try (OutputStream out = new FileOutputStream(file)) {
+      BZip2CompressorOutputStream firstStream = new BZip2CompressorOutputStream(out);
+      firstStream.write(csv, 0, csv.length / 2);
+      firstStream.finish();
+      BZip2CompressorOutputStream secondStream = new BZip2CompressorOutputStream(out);
+      secondStream.write(csv, csv.length / 2, csv.length - csv.length / 2);
+      secondStream.finish();
+    }
+
+    // Execute functionality
+    // Check result
+    assertEquals(InputCompression.BZIP2, InputCompression.detect(file));
+    assertArrayEquals(csv, readAll(Channels.newInputStream(InputCompression.BZIP2.open(file, 1))));
+  }
+
+  /**
+   * Test method for {@link InputCompression#open(File, int)} <p/> Reading a truncated zstd file
+   * should fail.
+   */
+  @Test
+  public void testOpenTruncatedZstd() throws IOException {
+    // Setup
+    File file = writeZstd(5000, false);
+    try (FileChannel channel = new FileOutputStream(file, true).getChannel()) {
+      channel.truncate(channel.size() - 10);
+    }
+
+    // Execute functionality
+    // Check result
+    try {
+      readAll(Channels.newInputStream(InputCompression.ZSTD.open(file, 4)));
+      fail("Expected an IOException to be thrown.");
+    } catch (IOException e) {
+      // Intentionally left blank
+    }
+  }
+
+  /**
+   * Test method for {@link DefaultFileInputGenerator#generateNewCopy()} and {@link
+   * ParallelFileInputGenerator#generateNewCopy()} <p/> Compressed files should be read like the
+   * uncompressed file.
+   */
+  @Test
+  public void testGenerateNewCopy() throws Exception {
+    // Setup
+    File plainFile = createTempFile(".csv");
+    try (OutputStream out = new FileOutputStream(plainFile)) {
+      out.write(csv);
+    }
+
+    // Expected values
+    List<List<String>> expectedRows =
+        readRows(new DefaultFileInputGenerator(
+            new ConfigurationSettingFileInput(plainFile.getPath())).generateNewCopy());
+
+    // Execute functionality
+    // Check result
+    assertEquals(expectedRows, readRows(new DefaultFileInputGenerator(
+        new ConfigurationSettingFileInput(writeGzip(".csv.gz").getPath())).generateNewCopy()));
+    assertEquals(expectedRows, readRows(new ParallelFileInputGenerator(
+        new ConfigurationSettingFileInput(writeBgzf(1000).getPath())).generateNewCopy()));
+    assertEquals(expectedRows, readRows(new ParallelFileInputGenerator(
+        new ConfigurationSettingFileInput(writeZstd(5000, true).getPath())).generateNewCopy()));
+  }
+
+  protected List<List<String>> readRows(RelationalInput input) throws Exception {
+    List<List<String>> rows = new ArrayList<>();
+    while (input.hasNext()) {
+      rows.add(input.next());
+    }
+    input.close();
+    return rows;
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2014 by the Metanome project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RowBatchHandler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ParallelFileIterator}
+ */
+public class ParallelFileIteratorTest {
+
+  protected File file;
+  protected ConfigurationSettingFileInput setting;
+  protected int expectedNumberOfSkippedLines;
+
+  @Before
+  public void setUp() throws Exception {
+    // Records with quoted line breaks, separators and quotes, some of differing length.
+    Random random = new Random(7);
+    String[] values = {"a", "\u00e4\u20ac", "\"b,\nc\"", "\"d\"\"e\"", "\"f\\\"\r\ng\"", ""};
+    StringBuilder csv = new StringBuilder("skipped line\n");
+    for (int record = 0; record < 500; record++) {
+      int numberOfValues = random.nextInt(20) == 0 ? 2 : 3;
+      for (int value = 0; value < numberOfValues; value++) {
+        if (value > 0) {
+          csv.append(',');
+        }
+        csv.append(values[random.nextInt(values.length)]);
+      }
+      csv.append(random.nextBoolean() ? "\n" : "\r\n");
+    }
+
+    file = File.createTempFile("parallel", ".csv");
+    file.deleteOnExit();
+    Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+
+    setting = new ConfigurationSettingFileInput(file.getPath())
+        .setSkipLines(1)
+        .setHeader(true)
+        .setSkipDifferingLines(true);
+  }
+
+  protected List<List<String>> readSequentially() throws InputIterationException, IOException {
+    FileIterator fileIterator =
+        new FileIterator("relation", new FileInputStream(file).getChannel(), setting);
+    List<List<String>> rows = new ArrayList<>();
+    while (fileIterator.hasNext()) {
+      rows.add(fileIterator.next());
+    }
+    expectedNumberOfSkippedLines = fileIterator.getNumberOfSkippedDifferingLines();
+    fileIterator.close();
+    return rows;
+  }
+
+  /**
+   * Test method for {@link ParallelFileIterator#next()} <p/> The rows should be the same as the
+   * ones of a {@link FileIterator} in the same order for any chunk size.
+   */
+  @Test
+  public void testNext() throws InputIterationException, IOException {
+    // Expected values
+    List<List<String>> expectedRows = readSequentially();
+
+    for (long chunkSize : new long[]{1, 100, 1000, 1 << 20}) {
+      // Setup
+      ParallelFileIterator parallelFileIterator = new ParallelFileIterator(
+          "relation", new FileInputStream(file).getChannel(), setting, chunkSize, 3);
+
+      // Execute functionality
+      List<List<String>> actualRows = new ArrayList<>();
+      while (parallelFileIterator.hasNext()) {
+        actualRows.add(parallelFileIterator.next());
+      }
+
+      // Check result
+      assertEquals(3, parallelFileIterator.numberOfColumns());
+      assertEquals(expectedNumberOfSkippedLines,
+                   parallelFileIterator.getNumberOfSkippedDifferingLines());
+      assertEquals(expectedRows, actualRows);
+
+      // Cleanup
+      parallelFileIterator.close();
+    }
+  }
+
+  /**
+   * Test method for {@link ParallelFileIterator#readPartitioned(RowBatchHandler)} <p/> The
+   * partitions should hold the rows of a {@link FileIterator} in order. They should be finished in
+   * order and only a bounded number of partitions should be read ahead of the finished ones.
+   */
+  @Test
+  public void testReadPartitioned() throws InputIterationException, IOException {
+    // Setup
+    ParallelFileIterator parallelFileIterator = new ParallelFileIterator(
+        "relation", new FileInputStream(file).getChannel(), setting, 500, 4);
+    final Map<Integer, Map<Long, List<List<String>>>> batches = new ConcurrentHashMap<>();
+    final List<Long> finishedPartitionSizes = new CopyOnWriteArrayList<>();
+
+    // Expected values
+    List<List<String>> expectedRows = readSequentially();
+    final int maxPartitionsAhead = ParallelFileIterator.PARTITIONS_PER_WORKER * 4;
+
+    // Execute functionality
+    long[] partitionSizes = parallelFileIterator.readPartitioned(new RowBatchHandler() {
+      @Override
+      public void handle(int partition, long firstRow, List<List<String>> rows) {
+        assertTrue(partition < finishedPartitionSizes.size() + maxPartitionsAhead);
+        if (!batches.containsKey(partition)) {
+          batches.put(partition, new TreeMap<Long, List<List<String>>>());
+        }
+        batches.get(partition).put(firstRow, rows);
+      }
+
+      @Override
+      public void finishPartition(int partition, long numberOfRows) {
+        assertEquals(finishedPartitionSizes.size(), partition);
+        finishedPartitionSizes.add(numberOfRows);
+      }
+    });
+
+    // Check result
+    assertTrue(partitionSizes.length > 1);
+    List<List<String>> actualRows = new ArrayList<>();
+    for (int partition = 0; partition < partitionSizes.length; partition++) {
+      int rowsBefore = actualRows.size();
+      if (batches.containsKey(partition)) {
+        for (List<List<String>> batch : batches.get(partition).values()) {
+          actualRows.addAll(batch);
+        }
+      }
+      assertEquals(partitionSizes[partition], actualRows.size() - rowsBefore);
+    }
+    assertEquals(expectedRows, actualRows);
+    assertEquals(partitionSizes.length, finishedPartitionSizes.size());
+    for (int partition = 0; partition < partitionSizes.length; partition++) {
+      assertEquals(partitionSizes[partition], (long) finishedPartitionSizes.get(partition));
+    }
+
+    // Cleanup
+    parallelFileIterator.close();
+  }
+
+  /**
+   * Test method for {@link ParallelFileIterator#next()} <p/> Without skipping differing lines a
+   * differing line should fail the iteration.
+   */
+  @Test
+  public void testNextDifferingLine() throws InputIterationException, IOException {
+    // Setup
+    setting.setSkipDifferingLines(false);
+    ParallelFileIterator parallelFileIterator = new ParallelFileIterator(
+        "relation", new FileInputStream(file).getChannel(), setting, 100, 2);
+
+    // Execute functionality
+    // Check result
+    try {
+      while (parallelFileIterator.hasNext()) {
+        parallelFileIterator.next();
+      }
+      fail("Expected an InputIterationException to be thrown.");
+    } catch (InputIterationException e) {
+      assertTrue(e.getMessage().contains("line length"));
+    }
+
+    // Cleanup
+    parallelFileIterator.close();
+  }
+}